@@ -37,7 +37,7 @@ import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.Pagination;
-import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.KeysetPaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.EntityDaoBase;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
@@ -107,7 +107,7 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
     @Override
     public Pagination<AccountModelDao> searchAccounts(final String searchKey, final Long offset, final Long limit, final InternalTenantContext context) {
         return paginationHelper.getPagination(AccountSqlDao.class,
-                                              new PaginationIteratorBuilder<AccountModelDao, Account, AccountSqlDao>() {
+                                              new KeysetPaginationIteratorBuilder<AccountModelDao, Account, AccountSqlDao>(searchKey) {
                                                   @Override
                                                   public Long getCount(final AccountSqlDao accountSqlDao, final InternalTenantContext context) {
                                                       return accountSqlDao.getSearchCount(searchKey, String.format("%%%s%%", searchKey), context);
@@ -117,6 +117,16 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
                                                   public Iterator<AccountModelDao> build(final AccountSqlDao accountSqlDao, final Long limit, final InternalTenantContext context) {
                                                       return accountSqlDao.search(searchKey, String.format("%%%s%%", searchKey), offset, limit, context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<AccountModelDao> buildAfterRecordId(final AccountSqlDao accountSqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return accountSqlDao.searchAfterRecordId(searchKey, String.format("%%%s%%", searchKey), lastSeenRecordId, limit, context);
+                                                  }
+
+                                                  @Override
+                                                  public Long getLastRecordIdAfterRecordId(final AccountSqlDao accountSqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return accountSqlDao.searchLastRecordIdAfterRecordId(searchKey, String.format("%%%s%%", searchKey), lastSeenRecordId, limit, context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -17,13 +17,14 @@
 
 package org.killbill.billing.usage;
 
-import java.util.List;
-import java.util.UUID;
-
 import org.joda.time.LocalDate;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.CloseableIterator;
 
 public interface InternalUserApi {
 
-    public List<RawUsage> getRawUsageForAccount(final LocalDate stateDate, final LocalDate endDate, final InternalTenantContext tenantContext);
+    /**
+     * Stream the usage for the account, ordered by subscription and date. The iterator needs to be closed by the caller.
+     */
+    public CloseableIterator<RawUsage> getRawUsageForAccount(final LocalDate stateDate, final LocalDate endDate, final InternalTenantContext tenantContext);
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Days;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.VersionedCatalog;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.PlanPhase;
+import org.killbill.billing.catalog.api.ProductCategory;
+import org.killbill.billing.entitlement.api.BlockingState;
+import org.killbill.billing.entitlement.api.BlockingStateType;
+import org.killbill.billing.junction.BillingEvent;
+import org.killbill.billing.junction.BlockingInternalApi;
+import org.killbill.billing.junction.DefaultBlockingState;
+import org.killbill.billing.junction.plumbing.billing.BlockingCalculator;
+import org.killbill.billing.overdue.OverdueService;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.clock.DefaultClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.killbill.billing.benchmarks.SyntheticBillingData.createBillingEvent;
+import static org.killbill.billing.benchmarks.SyntheticBillingData.createBillingEvents;
+import static org.killbill.billing.benchmarks.SyntheticBillingData.createInternalCallContext;
+import static org.killbill.billing.benchmarks.SyntheticBillingData.createSubscription;
+import static org.killbill.billing.benchmarks.SyntheticBillingData.loadCatalog;
+
+/**
+ * Insertion of the overdue blocking billing events for an account with several bundles, whose subscriptions changed
+ * plan a few times, and which went through overdue cycles (account wide) as well as bundle pauses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BlockingCalculatorBenchmark {
+
+    private static final String[] PLAN_NAMES = {"standard-monthly", "sports-monthly", "super-monthly"};
+    private static final int NB_SUBSCRIPTIONS_PER_BUNDLE = 3;
+    private static final int NB_MONTHS = 24;
+
+    @Param({"1", "10", "50"})
+    public int nbBundles;
+
+    // Number of times the account entered (and left) the overdue state: 200 cycles means 400 account blocking states
+    @Param({"1", "10", "100", "200"})
+    public int nbOverdueCycles;
+
+    private BlockingCalculator blockingCalculator;
+    private SortedSet<BillingEvent> accountBillingEvents;
+    private InternalCallContext context;
+    private long blockingStateRecordId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final DefaultClock clock = new DefaultClock();
+        final VersionedCatalog catalog = loadCatalog(clock, "SpyCarBasic.xml");
+        context = createInternalCallContext(clock);
+
+        final UUID accountId = UUID.randomUUID();
+        final DateTime startDate = new DateTime(2013, 3, 1, 0, 0, DateTimeZone.UTC);
+        final DateTime endDate = startDate.plusMonths(NB_MONTHS);
+
+        accountBillingEvents = new TreeSet<BillingEvent>();
+        final List<BlockingState> blockingStates = new ArrayList<BlockingState>();
+        for (int i = 0; i < nbBundles; i++) {
+            final UUID bundleId = UUID.randomUUID();
+            final DateTime bundleStartDate = startDate.plusDays(i % 28);
+            for (int j = 0; j < NB_SUBSCRIPTIONS_PER_BUNDLE; j++) {
+                final SubscriptionBase subscription = createSubscription(bundleId, j == 0 ? ProductCategory.BASE : ProductCategory.ADD_ON, bundleStartDate);
+                final Plan plan = catalog.findPlan(PLAN_NAMES[j], bundleStartDate);
+                accountBillingEvents.addAll(createBillingEvents(subscription, plan, bundleStartDate, 1, Currency.USD, DateTimeZone.UTC));
+
+                // Plan change every six months
+                for (int k = 1; k * 6 < NB_MONTHS; k++) {
+                    final DateTime changeDate = bundleStartDate.plusMonths(k * 6).plusDays(3);
+                    final Plan newPlan = catalog.findPlan(PLAN_NAMES[(j + k) % PLAN_NAMES.length], changeDate);
+                    final PlanPhase[] newPlanPhases = newPlan.getAllPhases();
+                    accountBillingEvents.add(createBillingEvent(subscription, changeDate, newPlan, newPlanPhases[newPlanPhases.length - 1], 1, Currency.USD, DateTimeZone.UTC,
+                                                                SubscriptionBaseTransitionType.CHANGE));
+                }
+            }
+
+            // Every other bundle was paused for two weeks
+            if (i % 2 == 0) {
+                final DateTime pauseDate = bundleStartDate.plusMonths(NB_MONTHS / 2).plusDays(5);
+                blockingStates.add(createBlockingState(bundleId, BlockingStateType.SUBSCRIPTION_BUNDLE, "PAUSE", "pause-service", true, pauseDate));
+                blockingStates.add(createBlockingState(bundleId, BlockingStateType.SUBSCRIPTION_BUNDLE, "RESUME", "pause-service", false, pauseDate.plusWeeks(2)));
+            }
+        }
+
+        // Overdue cycles spread over the whole period, each one lasting 20 days (or half a cycle, so that they don't overlap)
+        final long cycleLengthMillis = (endDate.getMillis() - startDate.plusMonths(1).getMillis()) / nbOverdueCycles;
+        final long overdueLengthMillis = Math.min(cycleLengthMillis / 2, Days.days(20).toStandardDuration().getMillis());
+        for (int i = 0; i < nbOverdueCycles; i++) {
+            final DateTime overdueDate = startDate.plusMonths(1).plus(i * cycleLengthMillis);
+            blockingStates.add(createBlockingState(accountId, BlockingStateType.ACCOUNT, "OD1", OverdueService.OVERDUE_SERVICE_NAME, true, overdueDate));
+            blockingStates.add(createBlockingState(accountId, BlockingStateType.ACCOUNT, DefaultBlockingState.CLEAR_STATE_NAME, OverdueService.OVERDUE_SERVICE_NAME, false, overdueDate.plus(overdueLengthMillis)));
+        }
+        // As returned by the DAO
+        Collections.sort(blockingStates);
+
+        blockingCalculator = new BlockingCalculator(new BlockingInternalApi() {
+            @Override
+            public BlockingState getBlockingStateForService(final UUID blockableId, final BlockingStateType blockingStateType, final String serviceName, final InternalTenantContext context) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<BlockingState> getBlockingAllForAccount(final InternalTenantContext context) {
+                return blockingStates;
+            }
+
+            @Override
+            public void setBlockingState(final BlockingState state, final InternalCallContext context) {
+                throw new UnsupportedOperationException();
+            }
+        });
+    }
+
+    private BlockingState createBlockingState(final UUID blockedId, final BlockingStateType type, final String stateName, final String service,
+                                              final boolean isBlocking, final DateTime effectiveDate) {
+        return new DefaultBlockingState(UUID.randomUUID(), blockedId, type, stateName, service, isBlocking, isBlocking, isBlocking,
+                                        effectiveDate, effectiveDate, effectiveDate, ++blockingStateRecordId);
+    }
+
+    @Benchmark
+    public SortedSet<BillingEvent> copyBillingEvents() {
+        // Baseline: the copy done by insertBlockingEvents below
+        return new TreeSet<BillingEvent>(accountBillingEvents);
+    }
+
+    @Benchmark
+    public SortedSet<BillingEvent> insertBlockingEvents() {
+        // The billing events are updated in place
+        final SortedSet<BillingEvent> billingEvents = new TreeSet<BillingEvent>(accountBillingEvents);
+        blockingCalculator.insertBlockingEvents(billingEvents, context);
+        return billingEvents;
+    }
+}
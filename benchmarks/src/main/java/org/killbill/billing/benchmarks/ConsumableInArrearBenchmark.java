@@ -0,0 +1,128 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.killbill.billing.catalog.VersionedCatalog;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.PlanPhase;
+import org.killbill.billing.catalog.api.ProductCategory;
+import org.killbill.billing.catalog.api.Usage;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.usage.ContiguousIntervalConsumableInArrear;
+import org.killbill.billing.invoice.usage.ContiguousIntervalConsumableInArrear.ConsumableInArrearItemsAndNextNotificationDate;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.billing.usage.RawUsage;
+import org.killbill.billing.usage.api.svcs.DefaultRawUsage;
+import org.killbill.billing.util.timezone.DefaultAccountDateAndTimeZoneContext;
+import org.killbill.clock.DefaultClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.killbill.billing.benchmarks.SyntheticBillingData.createBillingEvent;
+import static org.killbill.billing.benchmarks.SyntheticBillingData.createSubscription;
+import static org.killbill.billing.benchmarks.SyntheticBillingData.loadCatalog;
+
+/**
+ * Consumable in arrear usage billing for a subscription recording usage every day for two unit types, where
+ * all the periods but the last one were already invoiced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ConsumableInArrearBenchmark {
+
+    private static final String[] UNIT_TYPES = {"cell-phone-minutes", "Mbytes"};
+
+    @Param({"3", "12", "36"})
+    public int nbMonths;
+
+    // Usage records per day and per unit type
+    @Param({"1", "24"})
+    public int nbRecordsPerDay;
+
+    private ContiguousIntervalConsumableInArrear intervalConsumableInArrear;
+    private List<InvoiceItem> existingUsageItems;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final VersionedCatalog catalog = loadCatalog(new DefaultClock(), "UsageExperimental.xml");
+
+        final LocalDate startDate = new LocalDate(2014, 1, 15);
+        final LocalDate targetDate = startDate.plusMonths(nbMonths);
+        final DateTime startDateTime = startDate.toDateTimeAtStartOfDay(DateTimeZone.UTC);
+
+        final Plan plan = catalog.findPlan("consumable-in-arrear", startDateTime);
+        final PlanPhase planPhase = plan.getAllPhases()[plan.getAllPhases().length - 1];
+        final Usage usage = planPhase.getUsages()[0];
+        final SubscriptionBase subscription = createSubscription(UUID.randomUUID(), ProductCategory.BASE, startDateTime);
+
+        final Random random = new Random(42);
+        final List<RawUsage> rawUsages = new ArrayList<RawUsage>();
+        for (LocalDate recordDate = startDate; recordDate.isBefore(targetDate); recordDate = recordDate.plusDays(1)) {
+            for (int i = 0; i < nbRecordsPerDay; i++) {
+                rawUsages.add(new DefaultRawUsage(subscription.getId(), recordDate, UNIT_TYPES[0], (long) (1 + random.nextInt(200))));
+                rawUsages.add(new DefaultRawUsage(subscription.getId(), recordDate, UNIT_TYPES[1], (long) (1 + random.nextInt(50))));
+            }
+        }
+
+        intervalConsumableInArrear = new ContiguousIntervalConsumableInArrear(usage, UUID.randomUUID(), UUID.randomUUID(), rawUsages, targetDate, startDate,
+                                                                              new DefaultAccountDateAndTimeZoneContext(startDateTime, DateTimeZone.UTC));
+        intervalConsumableInArrear.addBillingEvent(createBillingEvent(subscription, startDateTime, plan, planPhase, startDate.getDayOfMonth(), Currency.BTC, DateTimeZone.UTC, SubscriptionBaseTransitionType.CREATE));
+        intervalConsumableInArrear.build(false);
+
+        // Everything up to the last period was billed by the previous invoice runs
+        final LocalDate lastPeriodStartDate = targetDate.minusMonths(1);
+        existingUsageItems = new ArrayList<InvoiceItem>();
+        for (final InvoiceItem item : intervalConsumableInArrear.computeMissingItemsAndNextNotificationDate(new ArrayList<InvoiceItem>()).getInvoiceItems()) {
+            if (item.getAmount().compareTo(BigDecimal.ZERO) > 0 && !item.getEndDate().isAfter(lastPeriodStartDate)) {
+                existingUsageItems.add(item);
+            }
+        }
+    }
+
+    @Benchmark
+    public ConsumableInArrearItemsAndNextNotificationDate computeMissingItemsAndNextNotificationDate() throws CatalogApiException {
+        return intervalConsumableInArrear.computeMissingItemsAndNextNotificationDate(existingUsageItems);
+    }
+}
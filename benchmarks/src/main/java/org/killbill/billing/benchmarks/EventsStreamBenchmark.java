@@ -0,0 +1,167 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.account.api.DefaultImmutableAccountData;
+import org.killbill.billing.account.api.ImmutableAccountData;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.catalog.api.ProductCategory;
+import org.killbill.billing.entitlement.EntitlementService;
+import org.killbill.billing.entitlement.EventsStream;
+import org.killbill.billing.entitlement.api.BlockingState;
+import org.killbill.billing.entitlement.api.BlockingStateType;
+import org.killbill.billing.entitlement.api.DefaultEntitlementApi;
+import org.killbill.billing.entitlement.block.BlockingChecker;
+import org.killbill.billing.entitlement.block.DefaultBlockingChecker;
+import org.killbill.billing.entitlement.dao.ProxyBlockingStateDao;
+import org.killbill.billing.entitlement.engine.core.DefaultEventsStream;
+import org.killbill.billing.junction.DefaultBlockingState;
+import org.killbill.billing.overdue.OverdueService;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.killbill.billing.subscription.api.user.DefaultSubscriptionBaseBundle;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseBundle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import static org.killbill.billing.benchmarks.SyntheticBillingData.ACCOUNT_RECORD_ID;
+import static org.killbill.billing.benchmarks.SyntheticBillingData.TENANT_RECORD_ID;
+import static org.killbill.billing.benchmarks.SyntheticBillingData.createSubscription;
+
+/**
+ * Construction of the events streams of all the subscriptions of an account, as done by EventsStreamBuilder#buildForAccount
+ * once the subscriptions and blocking states have been fetched: add-ons cancelled along the way and an account which
+ * went through several overdue cycles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class EventsStreamBenchmark {
+
+    private static final int NB_ADD_ONS_PER_BUNDLE = 3;
+
+    @Param({"1", "10", "100"})
+    public int nbBundles;
+
+    // Number of times the account entered (and left) the overdue state
+    @Param({"1", "20"})
+    public int nbOverdueCycles;
+
+    private final BlockingChecker blockingChecker = new DefaultBlockingChecker(null, null);
+
+    private ImmutableAccountData account;
+    private InternalTenantContext context;
+    private DateTime utcNow;
+    private List<BundleData> bundles;
+    private long blockingStateRecordId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        account = new DefaultImmutableAccountData(UUID.randomUUID(), "external-key", Currency.USD, DateTimeZone.UTC);
+        context = new InternalTenantContext(TENANT_RECORD_ID, ACCOUNT_RECORD_ID);
+        utcNow = new DateTime(2015, 6, 1, 0, 0, DateTimeZone.UTC);
+        final DateTime startDate = utcNow.minusYears(2);
+
+        final List<BlockingState> accountBlockingStates = new ArrayList<BlockingState>();
+        final long cycleLengthMillis = (utcNow.getMillis() - startDate.getMillis()) / nbOverdueCycles;
+        for (int i = 0; i < nbOverdueCycles; i++) {
+            final DateTime overdueDate = startDate.plus(i * cycleLengthMillis).plusDays(15);
+            accountBlockingStates.add(createBlockingState(account.getId(), BlockingStateType.ACCOUNT, "OD1", OverdueService.OVERDUE_SERVICE_NAME, true, overdueDate));
+            accountBlockingStates.add(createBlockingState(account.getId(), BlockingStateType.ACCOUNT, DefaultBlockingState.CLEAR_STATE_NAME, OverdueService.OVERDUE_SERVICE_NAME, false, overdueDate.plusDays(20)));
+        }
+
+        bundles = new ArrayList<BundleData>(nbBundles);
+        for (int i = 0; i < nbBundles; i++) {
+            final DateTime bundleStartDate = startDate.plusDays(i % 28);
+            final SubscriptionBaseBundle bundle = new DefaultSubscriptionBaseBundle("bundle-" + i, account.getId(), bundleStartDate, bundleStartDate, bundleStartDate, bundleStartDate);
+
+            final List<SubscriptionBase> subscriptions = new ArrayList<SubscriptionBase>();
+            final List<BlockingState> bundleBlockingStates = new ArrayList<BlockingState>(accountBlockingStates);
+            final SubscriptionBase baseSubscription = createSubscription(bundle.getId(), ProductCategory.BASE, bundleStartDate);
+            subscriptions.add(baseSubscription);
+            bundleBlockingStates.add(createBlockingState(baseSubscription.getId(), BlockingStateType.SUBSCRIPTION, DefaultEntitlementApi.ENT_STATE_CLEAR, EntitlementService.ENTITLEMENT_SERVICE_NAME, false, bundleStartDate));
+            for (int j = 0; j < NB_ADD_ONS_PER_BUNDLE; j++) {
+                final DateTime addOnStartDate = bundleStartDate.plusMonths(j + 1);
+                final SubscriptionBase addOn = createSubscription(bundle.getId(), ProductCategory.ADD_ON, addOnStartDate);
+                subscriptions.add(addOn);
+                bundleBlockingStates.add(createBlockingState(addOn.getId(), BlockingStateType.SUBSCRIPTION, DefaultEntitlementApi.ENT_STATE_CLEAR, EntitlementService.ENTITLEMENT_SERVICE_NAME, false, addOnStartDate));
+                if (j == 0) {
+                    // The first add-on was cancelled six months later
+                    bundleBlockingStates.add(createBlockingState(addOn.getId(), BlockingStateType.SUBSCRIPTION, DefaultEntitlementApi.ENT_STATE_CANCELLED, EntitlementService.ENTITLEMENT_SERVICE_NAME, true, addOnStartDate.plusMonths(6)));
+                }
+            }
+
+            bundles.add(new BundleData(bundle, baseSubscription, subscriptions, ProxyBlockingStateDao.sortedCopy(bundleBlockingStates)));
+        }
+    }
+
+    @Benchmark
+    public void buildEventsStreamsForAccount(final Blackhole blackhole) {
+        for (final BundleData bundleData : bundles) {
+            for (final SubscriptionBase subscription : bundleData.subscriptions) {
+                final EventsStream eventsStream = new DefaultEventsStream(account, bundleData.bundle, bundleData.blockingStates, blockingChecker,
+                                                                          bundleData.baseSubscription, subscription, bundleData.subscriptions, context, utcNow);
+                blackhole.consume(eventsStream);
+            }
+        }
+    }
+
+    private BlockingState createBlockingState(final UUID blockedId, final BlockingStateType type, final String stateName, final String service,
+                                              final boolean isBlocking, final DateTime effectiveDate) {
+        return new DefaultBlockingState(UUID.randomUUID(), blockedId, type, stateName, service, isBlocking, isBlocking, isBlocking,
+                                        effectiveDate, effectiveDate, effectiveDate, ++blockingStateRecordId);
+    }
+
+    private static final class BundleData {
+
+        private final SubscriptionBaseBundle bundle;
+        private final SubscriptionBase baseSubscription;
+        private final List<SubscriptionBase> subscriptions;
+        // Account, bundle and subscriptions blocking states, sorted
+        private final List<BlockingState> blockingStates;
+
+        private BundleData(final SubscriptionBaseBundle bundle, final SubscriptionBase baseSubscription,
+                           final List<SubscriptionBase> subscriptions, final List<BlockingState> blockingStates) {
+            this.bundle = bundle;
+            this.baseSubscription = baseSubscription;
+            this.subscriptions = subscriptions;
+            this.blockingStates = blockingStates;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.catalog.VersionedCatalog;
+import org.killbill.billing.catalog.api.BillingMode;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.ProductCategory;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.generator.DefaultInvoiceGenerator;
+import org.killbill.billing.invoice.generator.FixedAndRecurringInvoiceItemGenerator;
+import org.killbill.billing.invoice.generator.InvoiceWithMetadata;
+import org.killbill.billing.invoice.generator.UsageInvoiceItemGenerator;
+import org.killbill.billing.invoice.usage.RawUsageOptimizer;
+import org.killbill.billing.junction.BillingEventSet;
+import org.killbill.billing.junction.plumbing.billing.DefaultBillingEventSet;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.killbill.billing.util.config.InvoiceConfig;
+import org.killbill.clock.Clock;
+import org.killbill.clock.DefaultClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.skife.config.ConfigurationObjectFactory;
+
+import com.google.common.collect.ImmutableSet;
+
+import static org.killbill.billing.benchmarks.SyntheticBillingData.createAccount;
+import static org.killbill.billing.benchmarks.SyntheticBillingData.createBillingEvents;
+import static org.killbill.billing.benchmarks.SyntheticBillingData.createInternalCallContext;
+import static org.killbill.billing.benchmarks.SyntheticBillingData.createSubscription;
+import static org.killbill.billing.benchmarks.SyntheticBillingData.loadCatalog;
+
+/**
+ * Invoice generation for an account with monthly subscriptions and their invoicing history: each run proposes the
+ * items up to today and merges them against every existing invoice item, which is what happens on each billing cycle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InvoiceGeneratorBenchmark {
+
+    private static final String[] PLAN_NAMES = {"standard-monthly", "sports-monthly", "super-monthly"};
+
+    @Param({"1", "10", "100"})
+    public int nbSubscriptions;
+
+    // Months of invoices already generated for the account
+    @Param({"12", "36"})
+    public int nbMonths;
+
+    private DefaultInvoiceGenerator generator;
+    private Account account;
+    private BillingEventSet billingEvents;
+    private List<Invoice> existingInvoices;
+    private Set<UUID> singleSubscriptionId;
+    private LocalDate targetDate;
+    private InternalCallContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final Clock clock = new DefaultClock();
+        final InvoiceConfig invoiceConfig = new ConfigurationObjectFactory(new Properties()).build(InvoiceConfig.class);
+        // Plans from the catalog below have no usage section, so the raw usage is never read
+        generator = new DefaultInvoiceGenerator(clock, invoiceConfig, new FixedAndRecurringInvoiceItemGenerator(), new UsageInvoiceItemGenerator(new RawUsageOptimizer(invoiceConfig, null)));
+        context = createInternalCallContext(clock);
+
+        targetDate = clock.getUTCToday();
+        final LocalDate startDate = targetDate.minusMonths(nbMonths);
+        final int billCycleDayLocal = Math.min(startDate.getDayOfMonth(), 28);
+        account = createAccount(Currency.USD, billCycleDayLocal, DateTimeZone.UTC);
+
+        final VersionedCatalog catalog = loadCatalog(clock, "SpyCarBasic.xml");
+        billingEvents = new DefaultBillingEventSet(false, BillingMode.IN_ADVANCE, DateTimeZone.UTC);
+        for (int i = 0; i < nbSubscriptions; i++) {
+            // Spread the subscription creations over the first month
+            final DateTime subscriptionStartDate = startDate.plusDays(i % 28).toDateTimeAtStartOfDay(DateTimeZone.UTC);
+            final SubscriptionBase subscription = createSubscription(UUID.randomUUID(), ProductCategory.BASE, subscriptionStartDate);
+            final Plan plan = catalog.findPlan(PLAN_NAMES[i % PLAN_NAMES.length], subscriptionStartDate);
+            billingEvents.addAll(createBillingEvents(subscription, plan, subscriptionStartDate, billCycleDayLocal, Currency.USD, DateTimeZone.UTC));
+            if (singleSubscriptionId == null) {
+                singleSubscriptionId = ImmutableSet.<UUID>of(subscription.getId());
+            }
+        }
+
+        // Replay the monthly invoice runs to build the invoicing history
+        existingInvoices = new ArrayList<Invoice>();
+        for (LocalDate runDate = startDate; runDate.isBefore(targetDate); runDate = runDate.plusMonths(1)) {
+            final Invoice invoice = generator.generateInvoice(account, billingEvents, existingInvoices, runDate, Currency.USD, context).getInvoice();
+            if (invoice != null) {
+                existingInvoices.add(invoice);
+            }
+        }
+    }
+
+    @Benchmark
+    public InvoiceWithMetadata generateInvoice() throws InvoiceApiException {
+        return generator.generateInvoice(account, billingEvents, existingInvoices, targetDate, Currency.USD, context);
+    }
+
+    @Benchmark
+    public InvoiceWithMetadata generateInvoiceForOneSubscription() throws InvoiceApiException {
+        return generator.generateInvoice(account, billingEvents, existingInvoices, singleSubscriptionId, targetDate, Currency.USD, context);
+    }
+}
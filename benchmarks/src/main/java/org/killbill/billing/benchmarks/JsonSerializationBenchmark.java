@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.api.InvoicePaymentType;
+import org.killbill.billing.invoice.model.DefaultInvoice;
+import org.killbill.billing.invoice.model.DefaultInvoicePayment;
+import org.killbill.billing.invoice.model.RecurringInvoiceItem;
+import org.killbill.billing.jaxrs.json.AccountJson;
+import org.killbill.billing.jaxrs.json.InvoiceJson;
+import org.killbill.billing.util.jackson.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.killbill.billing.benchmarks.SyntheticBillingData.createAccount;
+
+/**
+ * JSON serialization of the invoice and account resources, with the same mapper as the JAX-RS resources: the
+ * conversion from the API objects is measured separately from the serialization itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private static final BigDecimal RATE = new BigDecimal("24.95");
+
+    // Number of recurring items on the invoice
+    @Param({"10", "100"})
+    public int nbItems;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private Invoice invoice;
+    private InvoiceJson invoiceJson;
+    private Account account;
+    private BigDecimal accountBalance;
+    private BigDecimal accountCBA;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        account = createAccount(Currency.USD, 1, DateTimeZone.UTC);
+
+        final LocalDate invoiceDate = new LocalDate(2015, 6, 1);
+        final DefaultInvoice defaultInvoice = new DefaultInvoice(account.getId(), invoiceDate, invoiceDate, Currency.USD);
+        final List<InvoiceItem> items = new ArrayList<InvoiceItem>(nbItems);
+        for (int i = 0; i < nbItems; i++) {
+            items.add(new RecurringInvoiceItem(defaultInvoice.getId(), account.getId(), UUID.randomUUID(), UUID.randomUUID(), "standard-monthly", "standard-monthly-evergreen",
+                                               invoiceDate, invoiceDate.plusMonths(1), RATE, RATE, Currency.USD));
+        }
+        defaultInvoice.addInvoiceItems(items);
+
+        // Partially paid
+        final BigDecimal paidAmount = RATE.multiply(new BigDecimal(nbItems / 2));
+        defaultInvoice.addPayment(new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), defaultInvoice.getId(), invoiceDate.toDateTimeAtStartOfDay(DateTimeZone.UTC),
+                                                            paidAmount, Currency.USD, Currency.USD, true));
+        invoice = defaultInvoice;
+        invoiceJson = new InvoiceJson(invoice, true, null);
+
+        accountBalance = invoice.getBalance();
+        accountCBA = BigDecimal.ZERO;
+    }
+
+    @Benchmark
+    public byte[] serializeInvoice() throws Exception {
+        return mapper.writeValueAsBytes(invoiceJson);
+    }
+
+    @Benchmark
+    public byte[] convertAndSerializeInvoice() throws Exception {
+        return mapper.writeValueAsBytes(new InvoiceJson(invoice, true, null));
+    }
+
+    @Benchmark
+    public byte[] convertAndSerializeAccount() throws Exception {
+        return mapper.writeValueAsBytes(new AccountJson(account, accountBalance, accountCBA, null));
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.model.RecurringInvoiceItem;
+import org.killbill.billing.invoice.model.RepairAdjInvoiceItem;
+import org.killbill.billing.invoice.tree.SubscriptionItemTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Build and merge of the item tree of a single subscription with a long monthly history, where some months
+ * were repaired because of a plan change in the middle of the period. The number of months drives the number
+ * of nodes in the underlying NodeInterval tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SubscriptionItemTreeBenchmark {
+
+    private static final String[] PLAN_NAMES = {"standard-monthly", "sports-monthly"};
+    private static final BigDecimal[] RATES = {new BigDecimal("100.00"), new BigDecimal("500.00")};
+
+    @Param({"12", "60", "240"})
+    public int nbMonths;
+
+    // Every that many months, the subscription changes plan in the middle of the period
+    @Param({"6"})
+    public int changeEveryNbMonths;
+
+    private final UUID accountId = UUID.randomUUID();
+    private final UUID bundleId = UUID.randomUUID();
+    private final UUID subscriptionId = UUID.randomUUID();
+    private final UUID existingInvoiceId = UUID.randomUUID();
+    private final UUID targetInvoiceId = UUID.randomUUID();
+
+    private List<InvoiceItem> existingItems;
+    private List<InvoiceItem> proposedItems;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        existingItems = new ArrayList<InvoiceItem>();
+        proposedItems = new ArrayList<InvoiceItem>();
+
+        int planIndex = 0;
+        LocalDate periodStart = new LocalDate(2010, 1, 1);
+        for (int month = 0; month < nbMonths; month++) {
+            final LocalDate periodEnd = periodStart.plusMonths(1);
+            final InvoiceItem billedItem = createRecurringItem(existingInvoiceId, planIndex, periodStart, periodEnd, RATES[planIndex]);
+            existingItems.add(billedItem);
+
+            if (month > 0 && month % changeEveryNbMonths == 0) {
+                // Change of plan: repair the rest of the period and bill it on the new plan
+                final LocalDate changeDate = periodStart.plusDays(11);
+                final int newPlanIndex = (planIndex + 1) % PLAN_NAMES.length;
+                final BigDecimal repairedAmount = prorate(RATES[planIndex], changeDate, periodEnd, periodStart, periodEnd);
+                existingItems.add(new RepairAdjInvoiceItem(existingInvoiceId, accountId, changeDate, periodEnd, repairedAmount.negate(), Currency.USD, billedItem.getId()));
+                existingItems.add(createRecurringItem(existingInvoiceId, newPlanIndex, changeDate, periodEnd, prorate(RATES[newPlanIndex], changeDate, periodEnd, periodStart, periodEnd)));
+
+                proposedItems.add(createRecurringItem(targetInvoiceId, planIndex, periodStart, changeDate, prorate(RATES[planIndex], periodStart, changeDate, periodStart, periodEnd)));
+                proposedItems.add(createRecurringItem(targetInvoiceId, newPlanIndex, changeDate, periodEnd, prorate(RATES[newPlanIndex], changeDate, periodEnd, periodStart, periodEnd)));
+                planIndex = newPlanIndex;
+            } else {
+                proposedItems.add(createRecurringItem(targetInvoiceId, planIndex, periodStart, periodEnd, RATES[planIndex]));
+            }
+            periodStart = periodEnd;
+        }
+
+        // The invoice run also bills the next period
+        proposedItems.add(createRecurringItem(targetInvoiceId, planIndex, periodStart, periodStart.plusMonths(1), RATES[planIndex]));
+    }
+
+    @Benchmark
+    public List<InvoiceItem> build() {
+        final SubscriptionItemTree tree = new SubscriptionItemTree(subscriptionId, targetInvoiceId);
+        for (final InvoiceItem existingItem : existingItems) {
+            tree.addItem(existingItem);
+        }
+        tree.build();
+        return tree.getView();
+    }
+
+    @Benchmark
+    public List<InvoiceItem> merge() {
+        // Same sequence as AccountItemTree#mergeWithProposedItems
+        final SubscriptionItemTree tree = new SubscriptionItemTree(subscriptionId, targetInvoiceId);
+        for (final InvoiceItem existingItem : existingItems) {
+            tree.addItem(existingItem);
+        }
+        tree.flatten(true);
+        for (final InvoiceItem proposedItem : proposedItems) {
+            tree.mergeProposedItem(proposedItem);
+        }
+        tree.buildForMerge();
+        return tree.getView();
+    }
+
+    private InvoiceItem createRecurringItem(final UUID invoiceId, final int planIndex, final LocalDate startDate, final LocalDate endDate, final BigDecimal amount) {
+        final String planName = PLAN_NAMES[planIndex];
+        return new RecurringInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, planName, planName + "-evergreen",
+                                        startDate, endDate, amount, RATES[planIndex], Currency.USD);
+    }
+
+    private static BigDecimal prorate(final BigDecimal rate, final LocalDate startDate, final LocalDate endDate, final LocalDate periodStart, final LocalDate periodEnd) {
+        final BigDecimal nbDays = new BigDecimal(Days.daysBetween(startDate, endDate).getDays());
+        final BigDecimal nbDaysInPeriod = new BigDecimal(Days.daysBetween(periodStart, periodEnd).getDays());
+        return rate.multiply(nbDays).divide(nbDaysInPeriod, 2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.account.api.DefaultAccount;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.catalog.VersionedCatalog;
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.PlanPhase;
+import org.killbill.billing.catalog.api.ProductCategory;
+import org.killbill.billing.catalog.io.VersionedCatalogLoader;
+import org.killbill.billing.junction.BillingEvent;
+import org.killbill.billing.junction.plumbing.billing.DefaultBillingEvent;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.billing.subscription.api.user.DefaultSubscriptionBase;
+import org.killbill.billing.subscription.api.user.SubscriptionBuilder;
+import org.killbill.billing.util.callcontext.CallOrigin;
+import org.killbill.billing.util.callcontext.UserType;
+import org.killbill.clock.Clock;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+
+/**
+ * Builds the synthetic data shared by the benchmarks.
+ * <p/>
+ * Catalogs are the ones from the catalog test resources, and accounts, subscriptions and billing events are
+ * the production model classes (rather than mocks), so that no proxy sits on the measured code paths.
+ */
+public final class SyntheticBillingData {
+
+    public static final Long TENANT_RECORD_ID = 1L;
+    public static final Long ACCOUNT_RECORD_ID = 1L;
+
+    private static final AtomicLong totalOrdering = new AtomicLong();
+
+    private SyntheticBillingData() {
+    }
+
+    /**
+     * Loads the catalog versions from the classpath, the same way tenant catalogs are loaded.
+     */
+    public static VersionedCatalog loadCatalog(final Clock clock, final String... resourceNames) throws IOException, CatalogApiException {
+        final List<String> catalogXMLs = new ArrayList<String>(resourceNames.length);
+        for (final String resourceName : resourceNames) {
+            catalogXMLs.add(Resources.toString(Resources.getResource(resourceName), Charsets.UTF_8));
+        }
+        // Price overrides are not needed: plans from the XML never match the custom plan name pattern
+        return new VersionedCatalogLoader(clock, null, null).load(catalogXMLs, TENANT_RECORD_ID);
+    }
+
+    public static InternalCallContext createInternalCallContext(final Clock clock) {
+        final DateTime now = clock.getUTCNow();
+        return new InternalCallContext(TENANT_RECORD_ID, ACCOUNT_RECORD_ID, UUID.randomUUID(), "benchmarks", CallOrigin.INTERNAL,
+                                       UserType.SYSTEM, null, null, now, now);
+    }
+
+    public static Account createAccount(final Currency currency, final int billCycleDayLocal, final DateTimeZone timeZone) {
+        final UUID accountId = UUID.randomUUID();
+        return new DefaultAccount(accountId, accountId.toString(), "john.doe@example.com", "John Doe", 4,
+                                  currency, billCycleDayLocal, UUID.randomUUID(), timeZone, "en_US",
+                                  "1 Market Street", "Suite 300", "Acme Corp", "San Francisco", "CA", "USA", "94105",
+                                  "+1 415 555 0100", false, true);
+    }
+
+    public static SubscriptionBase createSubscription(final UUID bundleId, final ProductCategory category, final DateTime startDate) {
+        return new DefaultSubscriptionBase(new SubscriptionBuilder().setId(UUID.randomUUID())
+                                                                    .setBundleId(bundleId)
+                                                                    .setCategory(category)
+                                                                    .setAlignStartDate(startDate)
+                                                                    .setBundleStartDate(startDate)
+                                                                    .setCreatedDate(startDate)
+                                                                    .setUpdatedDate(startDate));
+    }
+
+    /**
+     * Billing events junction would compute for a subscription on that plan: a CREATE event on the first phase,
+     * then a PHASE event each time a phase with a limited duration ends.
+     */
+    public static List<BillingEvent> createBillingEvents(final SubscriptionBase subscription, final Plan plan, final DateTime startDate,
+                                                         final int billCycleDayLocal, final Currency currency, final DateTimeZone timeZone) throws CatalogApiException {
+        final List<BillingEvent> billingEvents = new ArrayList<BillingEvent>();
+        final PlanPhase[] planPhases = plan.getAllPhases();
+        DateTime phaseStartDate = startDate;
+        for (int i = 0; i < planPhases.length; i++) {
+            final SubscriptionBaseTransitionType transitionType = i == 0 ? SubscriptionBaseTransitionType.CREATE : SubscriptionBaseTransitionType.PHASE;
+            billingEvents.add(createBillingEvent(subscription, phaseStartDate, plan, planPhases[i], billCycleDayLocal, currency, timeZone, transitionType));
+            if (i < planPhases.length - 1) {
+                // Only the final phase may be unlimited
+                phaseStartDate = planPhases[i].getDuration().addToDateTime(phaseStartDate);
+            }
+        }
+        return billingEvents;
+    }
+
+    public static BillingEvent createBillingEvent(final SubscriptionBase subscription, final DateTime effectiveDate, final Plan plan, final PlanPhase planPhase,
+                                                  final int billCycleDayLocal, final Currency currency, final DateTimeZone timeZone,
+                                                  final SubscriptionBaseTransitionType transitionType) throws CatalogApiException {
+        return new DefaultBillingEvent(subscription, effectiveDate, true, plan, planPhase,
+                                       getFixedPrice(planPhase, currency), getRecurringPrice(planPhase, currency), currency,
+                                       getRecurringBillingPeriod(planPhase), billCycleDayLocal,
+                                       transitionType.toString(), totalOrdering.incrementAndGet(), transitionType, timeZone);
+    }
+
+    @Nullable
+    private static BigDecimal getFixedPrice(final PlanPhase planPhase, final Currency currency) throws CatalogApiException {
+        return (planPhase.getFixed() != null && planPhase.getFixed().getPrice() != null) ? planPhase.getFixed().getPrice().getPrice(currency) : null;
+    }
+
+    @Nullable
+    private static BigDecimal getRecurringPrice(final PlanPhase planPhase, final Currency currency) throws CatalogApiException {
+        return (planPhase.getRecurring() != null && planPhase.getRecurring().getRecurringPrice() != null) ? planPhase.getRecurring().getRecurringPrice().getPrice(currency) : null;
+    }
+
+    private static BillingPeriod getRecurringBillingPeriod(final PlanPhase planPhase) {
+        return planPhase.getRecurring() != null ? planPhase.getRecurring().getBillingPeriod() : BillingPeriod.NO_BILLING_PERIOD;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.catalog.StandaloneCatalog;
+import org.killbill.billing.catalog.VersionedCatalog;
+import org.killbill.billing.catalog.api.BillingActionPolicy;
+import org.killbill.billing.catalog.api.BillingAlignment;
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.catalog.api.PhaseType;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.PlanPhaseSpecifier;
+import org.killbill.billing.catalog.api.PlanSpecifier;
+import org.killbill.billing.catalog.api.PriceListSet;
+import org.killbill.billing.catalog.api.ProductCategory;
+import org.killbill.billing.catalog.rules.DefaultCaseBillingAlignment;
+import org.killbill.billing.catalog.rules.DefaultCaseChange;
+import org.killbill.billing.catalog.rules.DefaultCaseChangePlanPolicy;
+import org.killbill.billing.catalog.rules.DefaultCasePhase;
+import org.killbill.clock.Clock;
+import org.killbill.clock.DefaultClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Iterables;
+
+import static org.killbill.billing.benchmarks.SyntheticBillingData.loadCatalog;
+
+/**
+ * Catalog lookups done for every billing event and entitlement transition: plan lookups across catalog versions
+ * (including the effectiveDateForExistingSubscriptons rules) and plan rules evaluation.
+ * <p/>
+ * The *Memoized and *Unmemoized variants evaluate the plan rules of a single catalog version, with and without the
+ * DefaultPlanRules lookup tables (the latter runs the plain first-match scan over the cases).
+ * <p/>
+ * Each invocation picks the next request of a pre-computed random sequence, so that the lookups do not always hit
+ * the same plan, version or rule case.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class VersionedCatalogBenchmark {
+
+    // Must be a power of 2
+    private static final int NB_REQUESTS = 1024;
+
+    private static final String[] PLAN_NAMES = {"pistol-monthly", "shotgun-monthly", "shotgun-annual", "laser-scope-monthly", "extra-ammo-monthly"};
+
+    private static final String[] BASE_PRODUCTS = {"Pistol", "Shotgun", "Assault-Rifle"};
+    private static final BillingPeriod[] BILLING_PERIODS = {BillingPeriod.MONTHLY, BillingPeriod.ANNUAL};
+    private static final String[] PRICE_LISTS = {"DEFAULT", "gunclubDiscount", "rescue"};
+    private static final PhaseType[] PHASE_TYPES = {PhaseType.TRIAL, PhaseType.EVERGREEN};
+
+    private VersionedCatalog versionedCatalog;
+    private VersionedCatalog rulesCatalog;
+    // Single version of the rules catalog, to compare the memoized plan rules evaluation against the plain first-match scan
+    private StandaloneCatalog rulesStandaloneCatalog;
+    private DefaultCaseChangePlanPolicy[] changeCases;
+    private DefaultCaseBillingAlignment[] billingAlignmentCases;
+
+    private final String[] planNames = new String[NB_REQUESTS];
+    private final DateTime[] requestedDates = new DateTime[NB_REQUESTS];
+    private final DateTime[] subscriptionStartDates = new DateTime[NB_REQUESTS];
+    private final PlanPhaseSpecifier[] fromSpecifiers = new PlanPhaseSpecifier[NB_REQUESTS];
+    private final PlanSpecifier[] toSpecifiers = new PlanSpecifier[NB_REQUESTS];
+    private DateTime rulesRequestedDate;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final Clock clock = new DefaultClock();
+        // Three versions, effective in January, February and March 2011
+        versionedCatalog = loadCatalog(clock,
+                                       "versionedCatalog/WeaponsHireSmall-1.xml",
+                                       "versionedCatalog/WeaponsHireSmall-2.xml",
+                                       "versionedCatalog/WeaponsHireSmall-3.xml");
+        rulesCatalog = loadCatalog(clock, "WeaponsHire.xml");
+        rulesRequestedDate = new DateTime(2012, 1, 1, 0, 0, DateTimeZone.UTC);
+        rulesStandaloneCatalog = rulesCatalog.getVersions().get(0).getStandaloneCatalog();
+        changeCases = Iterables.toArray(Iterables.filter(rulesStandaloneCatalog.getPlanRules().getCaseChangePlanPolicy(), DefaultCaseChangePlanPolicy.class), DefaultCaseChangePlanPolicy.class);
+        billingAlignmentCases = Iterables.toArray(Iterables.filter(rulesStandaloneCatalog.getPlanRules().getCaseBillingAlignment(), DefaultCaseBillingAlignment.class), DefaultCaseBillingAlignment.class);
+
+        final Random random = new Random(42);
+        final DateTime firstVersionDate = new DateTime(2011, 1, 1, 0, 0, DateTimeZone.UTC);
+        for (int i = 0; i < NB_REQUESTS; i++) {
+            planNames[i] = PLAN_NAMES[random.nextInt(PLAN_NAMES.length)];
+            subscriptionStartDates[i] = firstVersionDate.plusDays(random.nextInt(120));
+            requestedDates[i] = subscriptionStartDates[i].plusDays(random.nextInt(180));
+
+            final String fromProduct = BASE_PRODUCTS[random.nextInt(BASE_PRODUCTS.length)];
+            fromSpecifiers[i] = new PlanPhaseSpecifier(fromProduct, ProductCategory.BASE, BILLING_PERIODS[random.nextInt(BILLING_PERIODS.length)],
+                                                       PriceListSet.DEFAULT_PRICELIST_NAME, PHASE_TYPES[random.nextInt(PHASE_TYPES.length)]);
+            final String toProduct = BASE_PRODUCTS[random.nextInt(BASE_PRODUCTS.length)];
+            toSpecifiers[i] = new PlanSpecifier(toProduct, ProductCategory.BASE, BILLING_PERIODS[random.nextInt(BILLING_PERIODS.length)],
+                                                PRICE_LISTS[random.nextInt(PRICE_LISTS.length)]);
+        }
+    }
+
+    @Benchmark
+    public Plan findPlan() throws CatalogApiException {
+        final int i = nextRequest();
+        return versionedCatalog.findPlan(planNames[i], requestedDates[i], subscriptionStartDates[i]);
+    }
+
+    @Benchmark
+    public Plan findPlanForNewSubscription() throws CatalogApiException {
+        final int i = nextRequest();
+        return versionedCatalog.findPlan(planNames[i], requestedDates[i]);
+    }
+
+    @Benchmark
+    public BillingActionPolicy planChangePolicy() throws CatalogApiException {
+        final int i = nextRequest();
+        return rulesCatalog.planChangePolicy(fromSpecifiers[i], toSpecifiers[i], rulesRequestedDate);
+    }
+
+    @Benchmark
+    public BillingAlignment billingAlignment() throws CatalogApiException {
+        final int i = nextRequest();
+        return rulesCatalog.billingAlignment(fromSpecifiers[i], rulesRequestedDate);
+    }
+
+    @Benchmark
+    public BillingActionPolicy planChangePolicyMemoized() throws CatalogApiException {
+        final int i = nextRequest();
+        return rulesStandaloneCatalog.planChangePolicy(fromSpecifiers[i], toSpecifiers[i]);
+    }
+
+    // Baseline for planChangePolicyMemoized: same evaluation as DefaultPlanRules#getPlanChangePolicy, without the lookup table
+    @Benchmark
+    public BillingActionPolicy planChangePolicyUnmemoized() throws CatalogApiException {
+        final int i = nextRequest();
+        final PlanPhaseSpecifier from = fromSpecifiers[i];
+        final PlanSpecifier to = toSpecifiers[i];
+        if (from.getProductName().equals(to.getProductName()) &&
+            from.getBillingPeriod() == to.getBillingPeriod() &&
+            from.getPriceListName().equals(to.getPriceListName())) {
+            return BillingActionPolicy.ILLEGAL;
+        }
+        final BillingActionPolicy result = DefaultCaseChange.getResult(changeCases, from, to, rulesStandaloneCatalog);
+        return (result != null) ? result : BillingActionPolicy.END_OF_TERM;
+    }
+
+    @Benchmark
+    public BillingAlignment billingAlignmentMemoized() throws CatalogApiException {
+        final int i = nextRequest();
+        return rulesStandaloneCatalog.billingAlignment(fromSpecifiers[i]);
+    }
+
+    // Baseline for billingAlignmentMemoized: same evaluation as DefaultPlanRules#getBillingAlignment, without the lookup table
+    @Benchmark
+    public BillingAlignment billingAlignmentUnmemoized() throws CatalogApiException {
+        final int i = nextRequest();
+        final BillingAlignment result = DefaultCasePhase.getResult(billingAlignmentCases, fromSpecifiers[i], rulesStandaloneCatalog);
+        return (result != null) ? result : BillingAlignment.ACCOUNT;
+    }
+
+    private int nextRequest() {
+        next = (next + 1) & (NB_REQUESTS - 1);
+        return next;
+    }
+}
@@ -19,9 +19,13 @@ package org.killbill.billing.catalog;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.catalog.api.BillingPeriod;
@@ -42,6 +46,9 @@ public class DefaultPriceListSet extends ValidatingConfig<StandaloneCatalog> imp
     @XmlElement(required = false, name = "childPriceList")
     private DefaultPriceList[] childPriceLists;
 
+    // Child price lists by name, built on initialization (or lazily)
+    private volatile Map<String, DefaultPriceList> childPriceListsByName;
+
     public DefaultPriceListSet() {
         if (childPriceLists == null) {
             childPriceLists = new DefaultPriceList[0];
@@ -74,12 +81,37 @@ public class DefaultPriceListSet extends ValidatingConfig<StandaloneCatalog> imp
         if (defaultPricelist.getName().equals(priceListName)) {
             return defaultPricelist;
         }
+        final DefaultPriceList priceList = getChildPriceListsByName().get(priceListName);
+        if (priceList == null) {
+            throw new CatalogApiException(ErrorCode.CAT_PRICE_LIST_NOT_FOUND, priceListName);
+        }
+        return priceList;
+    }
+
+    @Override
+    public void initialize(final StandaloneCatalog catalog, final URI sourceURI) {
+        super.initialize(catalog, sourceURI);
+        childPriceListsByName = indexChildPriceLists();
+    }
+
+    private Map<String, DefaultPriceList> getChildPriceListsByName() {
+        Map<String, DefaultPriceList> result = childPriceListsByName;
+        if (result == null) {
+            result = indexChildPriceLists();
+            childPriceListsByName = result;
+        }
+        return result;
+    }
+
+    private Map<String, DefaultPriceList> indexChildPriceLists() {
+        final Map<String, DefaultPriceList> result = new HashMap<String, DefaultPriceList>();
         for (final DefaultPriceList pl : childPriceLists) {
-            if (pl.getName().equals(priceListName)) {
-                return pl;
+            // First entry wins, as with a linear lookup
+            if (!result.containsKey(pl.getName())) {
+                result.put(pl.getName(), pl);
             }
         }
-        throw new CatalogApiException(ErrorCode.CAT_PRICE_LIST_NOT_FOUND, priceListName);
+        return Collections.unmodifiableMap(result);
     }
 
     @Override
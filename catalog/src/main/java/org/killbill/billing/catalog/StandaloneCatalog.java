@@ -19,8 +19,11 @@ package org.killbill.billing.catalog;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Nullable;
 import javax.xml.bind.annotation.XmlAccessType;
@@ -90,6 +93,10 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
 
     private URI catalogURI;
 
+    // Name indexes, built on initialization (or lazily) and reset by the setters
+    private volatile Map<String, DefaultPlan> plansByName;
+    private volatile Map<String, DefaultProduct> productsByName;
+
     public StandaloneCatalog() {
     }
 
@@ -182,12 +189,11 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
         if (name == null || plans == null) {
             throw new CatalogApiException(ErrorCode.CAT_NO_SUCH_PLAN, name);
         }
-        for (final DefaultPlan p : plans) {
-            if (p.getName().equals(name)) {
-                return p;
-            }
+        final DefaultPlan plan = getPlansByName().get(name);
+        if (plan == null) {
+            throw new CatalogApiException(ErrorCode.CAT_NO_SUCH_PLAN, name);
         }
-        throw new CatalogApiException(ErrorCode.CAT_NO_SUCH_PLAN, name);
+        return plan;
     }
 
     @Override
@@ -195,12 +201,11 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
         if (name == null || products == null) {
             throw new CatalogApiException(ErrorCode.CAT_NO_SUCH_PRODUCT, name);
         }
-        for (final DefaultProduct p : products) {
-            if (p.getName().equals(name)) {
-                return p;
-            }
+        final DefaultProduct product = getProductsByName().get(name);
+        if (product == null) {
+            throw new CatalogApiException(ErrorCode.CAT_NO_SUCH_PRODUCT, name);
         }
-        throw new CatalogApiException(ErrorCode.CAT_NO_SUCH_PRODUCT, name);
+        return product;
     }
 
     @Override
@@ -281,7 +286,51 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
         for (final DefaultPlan p : plans) {
             p.initialize(catalog, sourceURI);
         }
+        plansByName = indexPlans(plans);
+        productsByName = indexProducts(products);
+    }
+
+    private Map<String, DefaultPlan> getPlansByName() {
+        Map<String, DefaultPlan> result = plansByName;
+        if (result == null) {
+            result = indexPlans(plans);
+            plansByName = result;
+        }
+        return result;
+    }
+
+    private Map<String, DefaultProduct> getProductsByName() {
+        Map<String, DefaultProduct> result = productsByName;
+        if (result == null) {
+            result = indexProducts(products);
+            productsByName = result;
+        }
+        return result;
+    }
 
+    // In case of duplicate names (rejected by the validation), the first entry wins, as with the previous linear lookups
+    private static Map<String, DefaultPlan> indexPlans(@Nullable final DefaultPlan[] plans) {
+        final Map<String, DefaultPlan> result = new HashMap<String, DefaultPlan>();
+        if (plans != null) {
+            for (final DefaultPlan plan : plans) {
+                if (!result.containsKey(plan.getName())) {
+                    result.put(plan.getName(), plan);
+                }
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static Map<String, DefaultProduct> indexProducts(@Nullable final DefaultProduct[] products) {
+        final Map<String, DefaultProduct> result = new HashMap<String, DefaultProduct>();
+        if (products != null) {
+            for (final DefaultProduct product : products) {
+                if (!result.containsKey(product.getName())) {
+                    result.put(product.getName(), product);
+                }
+            }
+        }
+        return Collections.unmodifiableMap(result);
     }
 
     //////////////////////////////////////////////////////////////////////////////
@@ -298,6 +347,7 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
 
     public StandaloneCatalog setProducts(final DefaultProduct[] products) {
         this.products = products;
+        this.productsByName = null;
         return this;
     }
 
@@ -308,6 +358,7 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
 
     public StandaloneCatalog setPlans(final DefaultPlan[] plans) {
         this.plans = plans;
+        this.plansByName = null;
         return this;
     }
 
@@ -101,23 +101,25 @@ public class VersionedCatalog extends ValidatingConfig<StandaloneCatalogWithPric
         return versions.get(indexOfVersionForDate(date.toDate()));
     }
 
-    private List<StandaloneCatalogWithPriceOverride> versionsBeforeDate(final Date date) throws CatalogApiException {
-        final List<StandaloneCatalogWithPriceOverride> result = new ArrayList<StandaloneCatalogWithPriceOverride>();
-        final int index = indexOfVersionForDate(date);
-        for (int i = 0; i <= index; i++) {
-            result.add(versions.get(i));
-        }
-        return result;
-    }
-
+    // Versions are sorted by effective date: find the last one effective on or before the given date
     private int indexOfVersionForDate(final Date date) throws CatalogApiException {
-        for (int i = versions.size() - 1; i >= 0; i--) {
-            final StandaloneCatalogWithPriceOverride c = versions.get(i);
-            if (c.getEffectiveDate().getTime() <= date.getTime()) {
-                return i;
+        final long time = date.getTime();
+        int low = 0;
+        int high = versions.size() - 1;
+        int result = -1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (versions.get(mid).getEffectiveDate().getTime() <= time) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
             }
         }
-        throw new CatalogApiException(ErrorCode.CAT_NO_CATALOG_FOR_GIVEN_DATE, date.toString());
+        if (result < 0) {
+            throw new CatalogApiException(ErrorCode.CAT_NO_CATALOG_FOR_GIVEN_DATE, date.toString());
+        }
+        return result;
     }
 
     private class PlanRequestWrapper {
@@ -153,13 +155,10 @@ public class VersionedCatalog extends ValidatingConfig<StandaloneCatalogWithPric
                           final DateTime requestedDate,
                           final DateTime subscriptionStartDate)
             throws CatalogApiException {
-        final List<StandaloneCatalogWithPriceOverride> catalogs = versionsBeforeDate(requestedDate.toDate());
-        if (catalogs.size() == 0) {
-            throw new CatalogApiException(ErrorCode.CAT_NO_CATALOG_FOR_GIVEN_DATE, requestedDate.toDate().toString());
-        }
+        final int lastVersionIndex = indexOfVersionForDate(requestedDate.toDate());
 
-        for (int i = catalogs.size() - 1; i >= 0; i--) { // Working backwards to find the latest applicable plan
-            final StandaloneCatalogWithPriceOverride c = catalogs.get(i);
+        for (int i = lastVersionIndex; i >= 0; i--) { // Working backwards to find the latest applicable plan
+            final StandaloneCatalogWithPriceOverride c = versions.get(i);
             Plan plan;
             try {
                 plan = wrapper.findPlan(c);
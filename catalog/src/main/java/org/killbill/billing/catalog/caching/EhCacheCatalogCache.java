@@ -18,6 +18,8 @@
 package org.killbill.billing.catalog.caching;
 
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
 
@@ -56,6 +58,9 @@ public class EhCacheCatalogCache implements CatalogCache {
     private final VersionedCatalogMapper versionedCatalogMapper;
     private final InternalCallContextFactory internalCallContextFactory;
 
+    // Catalogs returned by plugins, mapped to a VersionedCatalog, per tenant record id
+    private final ConcurrentMap<Long, PluginCatalogEntry> pluginCatalogs = new ConcurrentHashMap<Long, PluginCatalogEntry>();
+
     private VersionedCatalog defaultCatalog;
 
     @Inject
@@ -83,7 +88,6 @@ public class EhCacheCatalogCache implements CatalogCache {
     @Override
     public VersionedCatalog getCatalog(final InternalTenantContext tenantContext) throws CatalogApiException {
 
-        // STEPH TODO what are the possibilities for caching here ?
         final VersionedCatalog pluginVersionedCatalog = getCatalogFromPlugins(tenantContext);
         if (pluginVersionedCatalog != null) {
             return pluginVersionedCatalog;
@@ -110,6 +114,7 @@ public class EhCacheCatalogCache implements CatalogCache {
 
     @Override
     public void clearCatalog(final InternalTenantContext tenantContext) {
+        pluginCatalogs.remove(tenantContext.getTenantRecordId());
         if (tenantContext.getTenantRecordId() != InternalCallContextFactory.INTERNAL_TENANT_RECORD_ID) {
             cacheController.remove(tenantContext.getTenantRecordId());
         }
@@ -122,13 +127,30 @@ public class EhCacheCatalogCache implements CatalogCache {
             final VersionedPluginCatalog pluginCatalog = plugin.getVersionedPluginCatalog(ImmutableList.<PluginProperty>of(), tenantContext);
             // First plugin that gets something (for that tenant) returns it
             if (pluginCatalog != null) {
-                logger.info("Returning catalog from plugin {} on tenant {} ", service, internalTenantContext.getTenantRecordId());
-                return versionedCatalogMapper.toVersionedCatalog(pluginCatalog, internalTenantContext);
+                return getMappedPluginCatalog(service, pluginCatalog, internalTenantContext);
             }
         }
         return null;
     }
 
+    //
+    // Mapping the plugin catalog is expensive, so the result is kept as long as the plugin keeps returning the same
+    // VersionedPluginCatalog instance for that tenant: plugins signal a new version of their catalog by returning a new instance
+    // (the entry can also be dropped through clearCatalog).
+    //
+    private VersionedCatalog getMappedPluginCatalog(final String service, final VersionedPluginCatalog pluginCatalog, final InternalTenantContext internalTenantContext) {
+        final Long tenantRecordId = internalTenantContext.getTenantRecordId();
+        final PluginCatalogEntry entry = pluginCatalogs.get(tenantRecordId);
+        if (entry != null && entry.pluginCatalog == pluginCatalog) {
+            return entry.catalog;
+        }
+
+        logger.info("Mapping catalog from plugin {} on tenant {} ", service, tenantRecordId);
+        final VersionedCatalog catalog = versionedCatalogMapper.toVersionedCatalog(pluginCatalog, internalTenantContext);
+        pluginCatalogs.put(tenantRecordId, new PluginCatalogEntry(pluginCatalog, catalog));
+        return catalog;
+    }
+
     //
     // Build the LoaderCallback that is required to build the catalog from the xml from a module that knows
     // nothing about catalog.
@@ -148,6 +170,17 @@ public class EhCacheCatalogCache implements CatalogCache {
         return new CacheLoaderArgument(irrelevant, args, notUsed);
     }
 
+    private static final class PluginCatalogEntry {
+
+        private final VersionedPluginCatalog pluginCatalog;
+        private final VersionedCatalog catalog;
+
+        private PluginCatalogEntry(final VersionedPluginCatalog pluginCatalog, final VersionedCatalog catalog) {
+            this.pluginCatalog = pluginCatalog;
+            this.catalog = catalog;
+        }
+    }
+
     @VisibleForTesting
     void setDefaultCatalog() {
         try {
@@ -22,7 +22,9 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.catalog.StandaloneCatalog;
@@ -35,6 +37,8 @@ import org.killbill.clock.Clock;
 import org.killbill.xmlloader.UriAccessor;
 import org.killbill.xmlloader.XMLLoader;
 
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
 import com.google.common.io.Resources;
 import com.google.inject.Inject;
 
@@ -42,11 +46,20 @@ public class VersionedCatalogLoader implements CatalogLoader {
 
     private static final Object PROTOCOL_FOR_FILE = "file";
     private static final String XML_EXTENSION = ".xml";
+    private static final int MAX_PARSED_CATALOGS = 200;
 
     private final Clock clock;
     private final PriceOverride priceOverride;
     private final InternalCallContextFactory internalCallContextFactory;
 
+    // Parsed and validated catalog versions, keyed by the SHA-256 of their XML (LRU)
+    private final Map<String, StandaloneCatalog> parsedCatalogs = new LinkedHashMap<String, StandaloneCatalog>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, StandaloneCatalog> eldest) {
+            return size() > MAX_PARSED_CATALOGS;
+        }
+    };
+
     @Inject
     public VersionedCatalogLoader(final Clock clock, final PriceOverride priceOverride, final InternalCallContextFactory internalCallContextFactory) {
         this.clock = clock;
@@ -86,8 +99,7 @@ public class VersionedCatalogLoader implements CatalogLoader {
         try {
             uri = new URI("/tenantCatalog");
             for (final String cur : catalogXMLs) {
-                final InputStream curCatalogStream = new ByteArrayInputStream(cur.getBytes());
-                final StandaloneCatalog catalog = XMLLoader.getObjectFromStream(uri, curCatalogStream, StandaloneCatalog.class);
+                final StandaloneCatalog catalog = loadStandaloneCatalog(uri, cur);
                 result.add(new StandaloneCatalogWithPriceOverride(catalog, priceOverride, tenantRecordId, internalCallContextFactory));
             }
             return result;
@@ -96,6 +108,28 @@ public class VersionedCatalogLoader implements CatalogLoader {
         }
     }
 
+    //
+    // Parsing and validating a catalog version is expensive, so the result is shared for identical XML: versions common
+    // to several tenants, or reloaded after the tenant catalog was invalidated (e.g. when a new version is uploaded, only that
+    // version needs to be parsed). The StandaloneCatalog is not tenant specific (see StandaloneCatalogWithPriceOverride).
+    //
+    private StandaloneCatalog loadStandaloneCatalog(final URI uri, final String catalogXML) throws Exception {
+        final String key = Hashing.sha256().hashString(catalogXML, Charsets.UTF_8).toString();
+        synchronized (parsedCatalogs) {
+            final StandaloneCatalog parsedCatalog = parsedCatalogs.get(key);
+            if (parsedCatalog != null) {
+                return parsedCatalog;
+            }
+        }
+
+        final InputStream catalogStream = new ByteArrayInputStream(catalogXML.getBytes());
+        final StandaloneCatalog catalog = XMLLoader.getObjectFromStream(uri, catalogStream, StandaloneCatalog.class);
+        synchronized (parsedCatalogs) {
+            parsedCatalogs.put(key, catalog);
+        }
+        return catalog;
+    }
+
     protected List<URI> findXmlReferences(final String directoryContents, final URL url) throws URISyntaxException {
         if (url.getProtocol().equals(PROTOCOL_FOR_FILE)) {
             return findXmlFileReferences(directoryContents, url);
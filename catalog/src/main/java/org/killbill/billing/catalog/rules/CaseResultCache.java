@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.catalog.rules;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.catalog.api.PlanPhaseSpecifier;
+import org.killbill.billing.catalog.api.PlanSpecifier;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+//
+// Lookup table for the results of a set of cases. For a given catalog, the first matching case only depends
+// on the attributes of the specifier(s), so each distinct combination only needs to be evaluated once.
+// The specifiers come from the callers and aren't validated against the catalog (e.g. a null or unknown price list
+// name is a valid input), so the table is size bounded: least recently used combinations are evicted.
+//
+class CaseResultCache<T> {
+
+    @VisibleForTesting
+    static final int MAX_CACHED_RESULTS = 10000;
+
+    private final Cache<List<Object>, Optional<T>> results;
+
+    CaseResultCache() {
+        this(MAX_CACHED_RESULTS);
+    }
+
+    @VisibleForTesting
+    CaseResultCache(final long maxCachedResults) {
+        this.results = CacheBuilder.newBuilder()
+                                   .maximumSize(maxCachedResults)
+                                   .build();
+    }
+
+    // Returns null if the combination hasn't been evaluated yet (or has been evicted)
+    @Nullable
+    Optional<T> get(final List<Object> key) {
+        return results.getIfPresent(key);
+    }
+
+    T put(final List<Object> key, @Nullable final T result) {
+        results.put(key, Optional.<T>fromNullable(result));
+        return result;
+    }
+
+    @VisibleForTesting
+    long size() {
+        return results.size();
+    }
+
+    static List<Object> keyFor(final PlanSpecifier specifier) {
+        return Arrays.<Object>asList(specifier.getProductName(), specifier.getProductCategory(), specifier.getBillingPeriod(), specifier.getPriceListName());
+    }
+
+    static List<Object> keyFor(final PlanPhaseSpecifier specifier) {
+        return Arrays.<Object>asList(specifier.getProductName(), specifier.getProductCategory(), specifier.getBillingPeriod(), specifier.getPriceListName(), specifier.getPhaseType());
+    }
+
+    static List<Object> keyFor(final PlanPhaseSpecifier from, final PlanSpecifier to) {
+        return Arrays.<Object>asList(from.getProductName(), from.getProductCategory(), from.getBillingPeriod(), from.getPriceListName(), from.getPhaseType(),
+                                     to.getProductName(), to.getProductCategory(), to.getBillingPeriod(), to.getPriceListName());
+    }
+}
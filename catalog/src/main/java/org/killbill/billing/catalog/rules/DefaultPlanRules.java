@@ -17,6 +17,7 @@
 package org.killbill.billing.catalog.rules;
 
 import java.util.Arrays;
+import java.util.List;
 
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -45,6 +46,7 @@ import org.killbill.billing.catalog.api.rules.PlanRules;
 import org.killbill.xmlloader.ValidatingConfig;
 import org.killbill.xmlloader.ValidationErrors;
 
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 
 @XmlAccessorType(XmlAccessType.NONE)
@@ -74,6 +76,13 @@ public class DefaultPlanRules extends ValidatingConfig<StandaloneCatalog> implem
     @XmlElement(name = "priceListCase", required = false)
     private DefaultCasePriceList[] priceListCase;
 
+    // Lookup tables in front of the (first-match) evaluation of the cases, reset by the setters
+    private volatile CaseResultCache<BillingActionPolicy> changeCaseResults = new CaseResultCache<BillingActionPolicy>();
+    private volatile CaseResultCache<PlanAlignmentChange> changeAlignmentCaseResults = new CaseResultCache<PlanAlignmentChange>();
+    private volatile CaseResultCache<BillingActionPolicy> cancelCaseResults = new CaseResultCache<BillingActionPolicy>();
+    private volatile CaseResultCache<PlanAlignmentCreate> createAlignmentCaseResults = new CaseResultCache<PlanAlignmentCreate>();
+    private volatile CaseResultCache<BillingAlignment> billingAlignmentCaseResults = new CaseResultCache<BillingAlignment>();
+    private volatile CaseResultCache<DefaultPriceList> priceListCaseResults = new CaseResultCache<DefaultPriceList>();
 
     @Override
     public Iterable<CaseChangePlanPolicy> getCaseChangePlanPolicy() {
@@ -108,17 +117,26 @@ public class DefaultPlanRules extends ValidatingConfig<StandaloneCatalog> implem
 
 
     public PlanAlignmentCreate getPlanCreateAlignment(final PlanSpecifier specifier, final StaticCatalog catalog) throws CatalogApiException {
-        final PlanAlignmentCreate result =  DefaultCase.getResult(createAlignmentCase, specifier, catalog);
+        final List<Object> key = CaseResultCache.keyFor(specifier);
+        final CaseResultCache<PlanAlignmentCreate> results = createAlignmentCaseResults;
+        final Optional<PlanAlignmentCreate> cachedResult = results.get(key);
+        final PlanAlignmentCreate result = cachedResult != null ? cachedResult.orNull() : results.put(key, DefaultCase.getResult(createAlignmentCase, specifier, catalog));
         return (result != null) ? result : PlanAlignmentCreate.START_OF_BUNDLE;
     }
 
     public BillingActionPolicy getPlanCancelPolicy(final PlanPhaseSpecifier planPhase, final StaticCatalog catalog) throws CatalogApiException {
-        final BillingActionPolicy result =  DefaultCasePhase.getResult(cancelCase, planPhase, catalog);
+        final List<Object> key = CaseResultCache.keyFor(planPhase);
+        final CaseResultCache<BillingActionPolicy> results = cancelCaseResults;
+        final Optional<BillingActionPolicy> cachedResult = results.get(key);
+        final BillingActionPolicy result = cachedResult != null ? cachedResult.orNull() : results.put(key, DefaultCasePhase.getResult(cancelCase, planPhase, catalog));
         return (result != null) ? result : BillingActionPolicy.END_OF_TERM;
     }
 
     public BillingAlignment getBillingAlignment(final PlanPhaseSpecifier planPhase, final StaticCatalog catalog) throws CatalogApiException {
-        final BillingAlignment result = DefaultCasePhase.getResult(billingAlignmentCase, planPhase, catalog);
+        final List<Object> key = CaseResultCache.keyFor(planPhase);
+        final CaseResultCache<BillingAlignment> results = billingAlignmentCaseResults;
+        final Optional<BillingAlignment> cachedResult = results.get(key);
+        final BillingAlignment result = cachedResult != null ? cachedResult.orNull() : results.put(key, DefaultCasePhase.getResult(billingAlignmentCase, planPhase, catalog));
         return (result != null) ?  result : BillingAlignment.ACCOUNT;
     }
 
@@ -143,7 +161,10 @@ public class DefaultPlanRules extends ValidatingConfig<StandaloneCatalog> implem
 
     public PlanAlignmentChange getPlanChangeAlignment(final PlanPhaseSpecifier from,
                                                       final PlanSpecifier to, final StaticCatalog catalog) throws CatalogApiException {
-        final PlanAlignmentChange result =  DefaultCaseChange.getResult(changeAlignmentCase, from, to, catalog);
+        final List<Object> key = CaseResultCache.keyFor(from, to);
+        final CaseResultCache<PlanAlignmentChange> results = changeAlignmentCaseResults;
+        final Optional<PlanAlignmentChange> cachedResult = results.get(key);
+        final PlanAlignmentChange result = cachedResult != null ? cachedResult.orNull() : results.put(key, DefaultCaseChange.getResult(changeAlignmentCase, from, to, catalog));
         return (result != null) ? result : PlanAlignmentChange.START_OF_BUNDLE;
     }
 
@@ -156,12 +177,18 @@ public class DefaultPlanRules extends ValidatingConfig<StandaloneCatalog> implem
         }
         //Plan toPlan = catalog.findPlan()
 
-        final BillingActionPolicy result =  DefaultCaseChange.getResult(changeCase, from, to, catalog);
+        final List<Object> key = CaseResultCache.keyFor(from, to);
+        final CaseResultCache<BillingActionPolicy> results = changeCaseResults;
+        final Optional<BillingActionPolicy> cachedResult = results.get(key);
+        final BillingActionPolicy result = cachedResult != null ? cachedResult.orNull() : results.put(key, DefaultCaseChange.getResult(changeCase, from, to, catalog));
         return (result != null) ? result : BillingActionPolicy.END_OF_TERM;
     }
 
     private DefaultPriceList findPriceList(final PlanSpecifier specifier, final StaticCatalog catalog) throws CatalogApiException {
-        DefaultPriceList result = DefaultCase.getResult(priceListCase, specifier, catalog);
+        final List<Object> key = CaseResultCache.keyFor(specifier);
+        final CaseResultCache<DefaultPriceList> results = priceListCaseResults;
+        final Optional<DefaultPriceList> cachedResult = results.get(key);
+        DefaultPriceList result = cachedResult != null ? cachedResult.orNull() : results.put(key, DefaultCase.getResult(priceListCase, specifier, catalog));
         if (result == null) {
             result = (DefaultPriceList) catalog.findCurrentPricelist(specifier.getPriceListName());
         }
@@ -184,33 +211,39 @@ public class DefaultPlanRules extends ValidatingConfig<StandaloneCatalog> implem
 
     public DefaultPlanRules setChangeCase(final DefaultCaseChangePlanPolicy[] changeCase) {
         this.changeCase = changeCase;
+        this.changeCaseResults = new CaseResultCache<BillingActionPolicy>();
         return this;
     }
 
     public DefaultPlanRules setChangeAlignmentCase(
             final DefaultCaseChangePlanAlignment[] changeAlignmentCase) {
         this.changeAlignmentCase = changeAlignmentCase;
+        this.changeAlignmentCaseResults = new CaseResultCache<PlanAlignmentChange>();
         return this;
     }
 
     public DefaultPlanRules setCancelCase(final DefaultCaseCancelPolicy[] cancelCase) {
         this.cancelCase = cancelCase;
+        this.cancelCaseResults = new CaseResultCache<BillingActionPolicy>();
         return this;
     }
 
     public DefaultPlanRules setCreateAlignmentCase(final DefaultCaseCreateAlignment[] createAlignmentCase) {
         this.createAlignmentCase = createAlignmentCase;
+        this.createAlignmentCaseResults = new CaseResultCache<PlanAlignmentCreate>();
         return this;
     }
 
     public DefaultPlanRules setBillingAlignmentCase(
             final DefaultCaseBillingAlignment[] billingAlignmentCase) {
         this.billingAlignmentCase = billingAlignmentCase;
+        this.billingAlignmentCaseResults = new CaseResultCache<BillingAlignment>();
         return this;
     }
 
     public DefaultPlanRules setPriceListCase(final DefaultCasePriceList[] priceListCase) {
         this.priceListCase = priceListCase;
+        this.priceListCaseResults = new CaseResultCache<DefaultPriceList>();
         return this;
     }
 
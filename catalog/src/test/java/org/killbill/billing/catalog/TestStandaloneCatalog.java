@@ -19,6 +19,7 @@ package org.killbill.billing.catalog;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import org.killbill.billing.ErrorCode;
 import org.killbill.billing.catalog.api.CatalogApiException;
 import org.killbill.billing.catalog.api.PhaseType;
 
@@ -45,4 +46,23 @@ public class TestStandaloneCatalog extends CatalogTestSuiteNoDB {
         Assert.assertEquals(cat.findCurrentPhase("TestPlan1-trial"), phaseTrial1);
         Assert.assertEquals(cat.findCurrentPhase("TestPlan2-trial"), phaseTrial2);
     }
+
+    @Test(groups = "fast")
+    public void testFindPlanAfterPlansUpdate() throws CatalogApiException {
+        final DefaultPlan plan1 = new MockPlan().setName("TestPlan1");
+        final DefaultPlan plan2 = new MockPlan().setName("TestPlan2");
+
+        final StandaloneCatalog cat = new MockCatalog().setPlans(new DefaultPlan[]{plan1});
+        Assert.assertEquals(cat.findCurrentPlan("TestPlan1"), plan1);
+
+        // The name index must be rebuilt when the plans change
+        cat.setPlans(new DefaultPlan[]{plan2});
+        Assert.assertEquals(cat.findCurrentPlan("TestPlan2"), plan2);
+        try {
+            cat.findCurrentPlan("TestPlan1");
+            Assert.fail("TestPlan1 should no longer be found");
+        } catch (final CatalogApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.CAT_NO_SUCH_PLAN.getCode());
+        }
+    }
 }
@@ -40,6 +40,8 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 import org.xml.sax.SAXException;
 
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
 import com.google.common.io.Files;
 import com.google.common.io.Resources;
 
@@ -166,4 +168,19 @@ public class TestVersionedCatalogLoader extends CatalogTestSuiteNoDB {
         final VersionedCatalog c = loader.loadDefaultCatalog(destinationFile.toURI().toString());
         Assert.assertEquals(c.getCatalogName(), "SpyCarBasic");
     }
+
+    @Test(groups = "fast")
+    public void testLoadSharesParsedVersions() throws Exception {
+        final String catalogXML = Resources.toString(Resources.getResource("SpyCarBasic.xml"), Charsets.UTF_8);
+
+        final VersionedCatalog c1 = loader.load(ImmutableList.<String>of(catalogXML), 1L);
+        final VersionedCatalog c2 = loader.load(ImmutableList.<String>of(catalogXML), 2L);
+
+        Assert.assertEquals(c1.getVersions().size(), 1);
+        Assert.assertEquals(c2.getVersions().size(), 1);
+        // The XML was only parsed once, but each tenant has its own view of it
+        Assert.assertSame(c1.getVersions().get(0).getStandaloneCatalog(), c2.getVersions().get(0).getStandaloneCatalog());
+        Assert.assertEquals(c1.getVersions().get(0).getTenantRecordId(), (Long) 1L);
+        Assert.assertEquals(c2.getVersions().get(0).getTenantRecordId(), (Long) 2L);
+    }
 }
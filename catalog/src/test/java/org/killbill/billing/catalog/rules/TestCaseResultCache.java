@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.catalog.rules;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.killbill.billing.catalog.CatalogTestSuiteNoDB;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+
+public class TestCaseResultCache extends CatalogTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testNoMatchIsCached() {
+        final CaseResultCache<Result> cache = new CaseResultCache<Result>();
+        final List<Object> key = Arrays.<Object>asList("Shotgun", null);
+
+        Assert.assertNull(cache.get(key));
+        Assert.assertNull(cache.put(key, null));
+        Assert.assertEquals(cache.get(key), Optional.<Result>absent());
+
+        Assert.assertEquals(cache.put(key, Result.FOO), Result.FOO);
+        Assert.assertEquals(cache.get(key), Optional.of(Result.FOO));
+    }
+
+    @Test(groups = "fast")
+    public void testUnknownNamesDontGrowTheCache() {
+        final CaseResultCache<Result> cache = new CaseResultCache<Result>(10);
+        final List<Object> knownKey = Arrays.<Object>asList("Shotgun", "DEFAULT");
+        cache.put(knownKey, Result.FOO);
+
+        // e.g. a caller passing arbitrary price list names
+        for (int i = 0; i < 1000; i++) {
+            final List<Object> unknownKey = Arrays.<Object>asList("Shotgun", UUID.randomUUID().toString());
+            cache.put(unknownKey, null);
+            Assert.assertNotNull(cache.get(knownKey));
+        }
+        Assert.assertTrue(cache.size() <= 10);
+    }
+}
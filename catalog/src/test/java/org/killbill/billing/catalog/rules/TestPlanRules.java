@@ -118,4 +118,21 @@ public class TestPlanRules extends CatalogTestSuiteNoDB {
         Assert.assertEquals(result.getAlignment(), PlanAlignmentChange.START_OF_SUBSCRIPTION);
         Assert.assertEquals(result.getNewPriceList(), priceList2);
     }
+
+    @Test(groups = "fast")
+    public void testUpdatedCasesAreReevaluated() throws CatalogApiException {
+        final DefaultProduct product1 = cat.getCurrentProducts()[0];
+        final DefaultProduct product2 = cat.getCurrentProducts()[1];
+        final DefaultPriceList priceList1 = cat.findCurrentPriceList(PriceListSet.DEFAULT_PRICELIST_NAME);
+
+        final PlanPhaseSpecifier from = new PlanPhaseSpecifier(product1.getName(), product1.getCategory(), BillingPeriod.MONTHLY, priceList1.getName(), PhaseType.EVERGREEN);
+        final PlanSpecifier to = new PlanSpecifier(product2.getName(), product2.getCategory(), BillingPeriod.MONTHLY, priceList1.getName());
+
+        Assert.assertEquals(cat.getPlanRules().getPlanChangePolicy(from, to, cat), BillingActionPolicy.END_OF_TERM);
+        // Same result on subsequent calls
+        Assert.assertEquals(cat.getPlanRules().getPlanChangePolicy(from, to, cat), BillingActionPolicy.END_OF_TERM);
+
+        cat.getPlanRules().setChangeCase(new DefaultCaseChangePlanPolicy[]{new DefaultCaseChangePlanPolicy().setPolicy(BillingActionPolicy.IMMEDIATE)});
+        Assert.assertEquals(cat.getPlanRules().getPlanChangePolicy(from, to, cat), BillingActionPolicy.IMMEDIATE);
+    }
 }
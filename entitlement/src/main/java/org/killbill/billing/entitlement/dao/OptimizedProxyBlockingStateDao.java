@@ -82,17 +82,41 @@ public class OptimizedProxyBlockingStateDao extends ProxyBlockingStateDao {
         }
 
         // Find all base entitlements that we care about (for which we want to find future cancelled add-ons)
-        final Iterable<EventsStream> eventsStreams = ImmutableList.<EventsStream>of(eventsStreamBuilder.buildForEntitlement(allBlockingStatesOnDiskForAccount,
-                                                                                                                            account,
-                                                                                                                            bundle,
-                                                                                                                            baseSubscription,
-                                                                                                                            allSubscriptionsForBundle,
-                                                                                                                            context));
+        final EventsStream baseEventsStream = eventsStreamBuilder.buildForEntitlement(allBlockingStatesOnDiskForAccount,
+                                                                                      account,
+                                                                                      bundle,
+                                                                                      baseSubscription,
+                                                                                      allSubscriptionsForBundle,
+                                                                                      context);
+
+        return getBlockingHistory(subscriptionBlockingStatesOnDisk, baseSubscription, baseEventsStream, subscription);
+    }
+
+    /**
+     * Retrieve blocking states for a given subscription, when the EventsStream of the base subscription has already been built
+     * <p/>
+     * This is a special method for EventsStreamBuilder, to avoid re-building the base EventsStream for each add-on of a bundle.
+     *
+     * @param subscriptionBlockingStatesOnDisk blocking states on disk for that subscription
+     * @param baseSubscription                 base subscription (ProductCategory.BASE) associated with that bundle
+     * @param baseEventsStream                 EventsStream of the base subscription
+     * @param subscription                     subscription for which to build blocking states
+     * @return blocking states for that subscription
+     */
+    public List<BlockingState> getBlockingHistory(final List<BlockingState> subscriptionBlockingStatesOnDisk,
+                                                  final SubscriptionBase baseSubscription,
+                                                  final EventsStream baseEventsStream,
+                                                  final SubscriptionBase subscription) {
+        // blockable id points to a subscription, but make sure it's an add-on
+        if (!ProductCategory.ADD_ON.equals(subscription.getCategory())) {
+            // blockable id points to a base or standalone subscription, there is nothing to do
+            return subscriptionBlockingStatesOnDisk;
+        }
 
         return addBlockingStatesNotOnDisk(subscription.getId(),
                                           BlockingStateType.SUBSCRIPTION,
                                           new LinkedList<BlockingState>(subscriptionBlockingStatesOnDisk),
                                           ImmutableList.<SubscriptionBase>of(baseSubscription),
-                                          eventsStreams);
+                                          ImmutableList.<EventsStream>of(baseEventsStream));
     }
 }
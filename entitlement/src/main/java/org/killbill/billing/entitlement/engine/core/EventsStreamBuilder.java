@@ -179,7 +179,14 @@ public class EventsStreamBuilder {
                 entitlementsPerBundle.put(bundleId, new LinkedList<EventsStream>());
             }
 
+            // The EventsStream of the base subscription is needed to compute the blocking states of each add-on: build it only once per bundle
+            EventsStream baseEventsStream = null;
             for (final SubscriptionBase subscription : allSubscriptionsForBundle) {
+                if (baseEventsStream != null && subscription.getId().equals(baseSubscription.getId())) {
+                    entitlementsPerBundle.get(bundleId).add(baseEventsStream);
+                    continue;
+                }
+
                 final List<BlockingState> subscriptionBlockingStatesOnDisk = Objects.firstNonNull(blockingStatesPerSubscription.get(subscription.getId()), ImmutableList.<BlockingState>of());
 
                 // We cannot always use blockingStatesForAccount here: we need subscriptionBlockingStates to contain the events not on disk when building an EventsStream
@@ -190,24 +197,23 @@ public class EventsStreamBuilder {
                 if (baseSubscription == null || subscription.getId().equals(baseSubscription.getId())) {
                     subscriptionBlockingStates = subscriptionBlockingStatesOnDisk;
                 } else {
+                    if (baseEventsStream == null) {
+                        baseEventsStream = buildForEntitlement(account, bundle, baseSubscription, baseSubscription, allSubscriptionsForBundle,
+                                                               mergeBlockingStates(accountBlockingStates, bundleBlockingStates, Objects.firstNonNull(blockingStatesPerSubscription.get(baseSubscription.getId()), ImmutableList.<BlockingState>of())),
+                                                               internalTenantContext);
+                    }
                     subscriptionBlockingStates = blockingStateDao.getBlockingHistory(subscriptionBlockingStatesOnDisk,
-                                                                                     blockingStatesForAccount,
-                                                                                     account,
-                                                                                     bundle,
                                                                                      baseSubscription,
-                                                                                     subscription,
-                                                                                     allSubscriptionsForBundle,
-                                                                                     internalTenantContext);
-
+                                                                                     baseEventsStream,
+                                                                                     subscription);
                 }
 
-                // Merge the BlockingStates
-                final Collection<BlockingState> blockingStateSet = new LinkedHashSet<BlockingState>(accountBlockingStates);
-                blockingStateSet.addAll(bundleBlockingStates);
-                blockingStateSet.addAll(subscriptionBlockingStates);
-                final List<BlockingState> blockingStates = ProxyBlockingStateDao.sortedCopy(blockingStateSet);
+                final List<BlockingState> blockingStates = mergeBlockingStates(accountBlockingStates, bundleBlockingStates, subscriptionBlockingStates);
 
                 final EventsStream eventStream = buildForEntitlement(account, bundle, baseSubscription, subscription, allSubscriptionsForBundle, blockingStates, internalTenantContext);
+                if (baseSubscription != null && subscription.getId().equals(baseSubscription.getId())) {
+                    baseEventsStream = eventStream;
+                }
                 entitlementsPerBundle.get(bundleId).add(eventStream);
             }
         }
@@ -330,6 +336,15 @@ public class EventsStreamBuilder {
                                        clock.getUTCNow());
     }
 
+    private List<BlockingState> mergeBlockingStates(final Collection<BlockingState> accountBlockingStates,
+                                                    final Collection<BlockingState> bundleBlockingStates,
+                                                    final Collection<BlockingState> subscriptionBlockingStates) {
+        final Collection<BlockingState> blockingStateSet = new LinkedHashSet<BlockingState>(accountBlockingStates);
+        blockingStateSet.addAll(bundleBlockingStates);
+        blockingStateSet.addAll(subscriptionBlockingStates);
+        return ProxyBlockingStateDao.sortedCopy(blockingStateSet);
+    }
+
     private SubscriptionBase findBaseSubscription(final Iterable<SubscriptionBase> subscriptions) {
         return Iterables.<SubscriptionBase>tryFind(subscriptions,
                                                    new Predicate<SubscriptionBase>() {
@@ -22,6 +22,7 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -80,6 +81,7 @@ import org.killbill.billing.invoice.notification.NextBillingDateNotificationKey;
 import org.killbill.billing.junction.BillingEvent;
 import org.killbill.billing.junction.BillingEventSet;
 import org.killbill.billing.junction.BillingInternalApi;
+import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseInternalApi;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
 import org.killbill.billing.subscription.api.user.SubscriptionBaseApiException;
@@ -108,6 +110,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Ordering;
 import com.google.inject.Inject;
@@ -171,11 +174,15 @@ public class InvoiceDispatcher {
     }
 
     public void processSubscriptionForInvoiceGeneration(final UUID subscriptionId, final DateTime targetDate, final InternalCallContext context) throws InvoiceApiException {
-        processSubscriptionInternal(subscriptionId, targetDate, false, context);
+        processSubscriptionInternal(subscriptionId, targetDate, false, false, context);
+    }
+
+    public void processSubscriptionForNextBillingDate(final UUID subscriptionId, final DateTime targetDate, final InternalCallContext context) throws InvoiceApiException {
+        processSubscriptionInternal(subscriptionId, targetDate, false, true, context);
     }
 
     public void processSubscriptionForInvoiceNotification(final UUID subscriptionId, final DateTime targetDate, final InternalCallContext context) throws InvoiceApiException {
-        final Invoice dryRunInvoice = processSubscriptionInternal(subscriptionId, targetDate, true, context);
+        final Invoice dryRunInvoice = processSubscriptionInternal(subscriptionId, targetDate, true, false, context);
         if (dryRunInvoice != null && dryRunInvoice.getBalance().compareTo(BigDecimal.ZERO) > 0) {
             final InvoiceNotificationInternalEvent event = new DefaultInvoiceNotificationInternalEvent(dryRunInvoice.getAccountId(), dryRunInvoice.getBalance(), dryRunInvoice.getCurrency(),
                                                                                                        targetDate, context.getAccountRecordId(), context.getTenantRecordId(), context.getUserToken());
@@ -187,7 +194,8 @@ public class InvoiceDispatcher {
         }
     }
 
-    private Invoice processSubscriptionInternal(final UUID subscriptionId, final DateTime targetDate, final boolean dryRunForNotification, final InternalCallContext context) throws InvoiceApiException {
+    private Invoice processSubscriptionInternal(final UUID subscriptionId, final DateTime targetDate, final boolean dryRunForNotification,
+                                                final boolean isNextBillingDateNotification, final InternalCallContext context) throws InvoiceApiException {
         try {
             if (subscriptionId == null) {
                 log.error("Failed handling SubscriptionBase change.", new InvoiceApiException(ErrorCode.INVOICE_INVALID_TRANSITION));
@@ -195,8 +203,12 @@ public class InvoiceDispatcher {
             }
             final UUID accountId = subscriptionApi.getAccountIdFromSubscriptionId(subscriptionId, context);
             final DryRunArguments dryRunArguments = dryRunForNotification ? TARGET_DATE_DRY_RUN_ARGUMENTS : null;
+            // In incremental mode, only the items of that subscription are regenerated when possible (dry-runs always consider the whole account)
+            final IncrementalRun incrementalRun = !dryRunForNotification && invoiceConfig.isIncrementalInvoiceGenerationEnabled() ?
+                                                  new IncrementalRun(subscriptionId, isNextBillingDateNotification) :
+                                                  null;
 
-            return processAccount(accountId, targetDate, dryRunArguments, context);
+            return processAccount(accountId, targetDate, dryRunArguments, incrementalRun, context);
         } catch (final SubscriptionBaseApiException e) {
             log.error("Failed handling SubscriptionBase change.",
                       new InvoiceApiException(ErrorCode.INVOICE_NO_ACCOUNT_ID_FOR_SUBSCRIPTION_ID, subscriptionId.toString()));
@@ -206,11 +218,16 @@ public class InvoiceDispatcher {
 
     public Invoice processAccount(final UUID accountId, @Nullable final DateTime targetDate,
                                   @Nullable final DryRunArguments dryRunArguments, final InternalCallContext context) throws InvoiceApiException {
+        return processAccount(accountId, targetDate, dryRunArguments, null, context);
+    }
+
+    private Invoice processAccount(final UUID accountId, @Nullable final DateTime targetDate, @Nullable final DryRunArguments dryRunArguments,
+                                   @Nullable final IncrementalRun incrementalRun, final InternalCallContext context) throws InvoiceApiException {
         GlobalLock lock = null;
         try {
             lock = locker.lockWithNumberOfTries(LockerType.ACCNT_INV_PAY.toString(), accountId.toString(), invoiceConfig.getMaxGlobalLockRetries());
 
-            return processAccountWithLock(accountId, targetDate, dryRunArguments, context);
+            return processAccountWithLock(accountId, targetDate, dryRunArguments, incrementalRun, context);
         } catch (final LockFailedException e) {
             // Not good!
             log.error(String.format("Failed to process invoice for account %s, targetDate %s",
@@ -224,7 +241,8 @@ public class InvoiceDispatcher {
     }
 
     private Invoice processAccountWithLock(final UUID accountId, @Nullable final DateTime inputTargetDateTime,
-                                           @Nullable final DryRunArguments dryRunArguments, final InternalCallContext context) throws InvoiceApiException {
+                                           @Nullable final DryRunArguments dryRunArguments, @Nullable final IncrementalRun incrementalRun,
+                                           final InternalCallContext context) throws InvoiceApiException {
 
         final boolean isDryRun = dryRunArguments != null;
         // A null inputTargetDateTime is only allowed in dryRun mode to have the system compute it
@@ -236,12 +254,15 @@ public class InvoiceDispatcher {
             if (billingEvents.isEmpty()) {
                 return null;
             }
+            final Set<UUID> subscriptionIdsToProcess = incrementalRun != null && inputTargetDateTime != null ?
+                                                       getSubscriptionIdsToProcess(incrementalRun, inputTargetDateTime, billingEvents, context) :
+                                                       null;
             final Iterable<UUID> filteredSubscriptionIdsForDryRun = getFilteredSubscriptionIdsForDryRun(dryRunArguments, billingEvents);
             final List<DateTime> candidateDateTimes = (inputTargetDateTime != null) ?
                                                       ImmutableList.of(inputTargetDateTime) :
                                                       getUpcomingInvoiceCandidateDates(filteredSubscriptionIdsForDryRun, context);
             for (final DateTime curTargetDateTime : candidateDateTimes) {
-                final Invoice invoice = processAccountWithLockAndInputTargetDate(accountId, curTargetDateTime, billingEvents, isDryRun, context);
+                final Invoice invoice = processAccountWithLockAndInputTargetDate(accountId, curTargetDateTime, billingEvents, subscriptionIdsToProcess, isDryRun, context);
                 if (invoice != null) {
                     filterInvoiceItemsForDryRun(filteredSubscriptionIdsForDryRun, invoice);
                     return invoice;
@@ -257,6 +278,78 @@ public class InvoiceDispatcher {
         }
     }
 
+    // Note that billing events and existing invoices are still loaded for the whole account (they are needed for the BCD, the target date and the account credit)
+    @Nullable
+    private Set<UUID> getSubscriptionIdsToProcess(final IncrementalRun incrementalRun, final DateTime targetDateTime, final BillingEventSet billingEvents, final InternalCallContext context) {
+        final AccountDateAndTimeZoneContext dateAndTimeZoneContext = billingEvents.getAccountDateAndTimeZoneContext();
+        final LocalDate targetDate = dateAndTimeZoneContext.computeLocalDateFromFixedAccountOffset(targetDateTime);
+
+        // Last billing event up to the target date, per subscription (billing events are sorted per subscription and date)
+        final Map<UUID, BillingEvent> lastBillingEvents = new HashMap<UUID, BillingEvent>();
+        for (final BillingEvent billingEvent : billingEvents) {
+            final UUID subscriptionId = billingEvent.getSubscription().getId();
+            if (!billingEvents.getSubscriptionIdsWithAutoInvoiceOff().contains(subscriptionId) &&
+                !dateAndTimeZoneContext.computeLocalDateFromFixedAccountOffset(billingEvent.getEffectiveDate()).isAfter(targetDate)) {
+                lastBillingEvents.put(subscriptionId, billingEvent);
+            }
+        }
+
+        if (!lastBillingEvents.containsKey(incrementalRun.getSubscriptionId())) {
+            log.info("Subscription {} has no billing event up to {}, processing the whole account", incrementalRun.getSubscriptionId(), targetDate);
+            return null;
+        }
+
+        // A next billing date notification only covers the items of its own subscription: the other subscriptions which may have items due
+        // on that date need their own notification (e.g. notifications scheduled before the incremental mode was turned on are per account)
+        if (incrementalRun.isNextBillingDateNotification()) {
+            Set<UUID> subscriptionIdsWithNotification = null;
+            for (final BillingEvent lastBillingEvent : lastBillingEvents.values()) {
+                final SubscriptionBase subscription = lastBillingEvent.getSubscription();
+                if (subscription.getId().equals(incrementalRun.getSubscriptionId()) || !mayHaveItemsDue(lastBillingEvent, targetDate, dateAndTimeZoneContext)) {
+                    continue;
+                }
+
+                if (subscriptionIdsWithNotification == null) {
+                    subscriptionIdsWithNotification = getSubscriptionIdsWithNextBillingDateNotification(targetDate, dateAndTimeZoneContext, context);
+                }
+                if (!subscriptionIdsWithNotification.contains(subscription.getId())) {
+                    log.info("Subscription {} may have items due on {} but no next billing date notification, processing the whole account", subscription.getId(), targetDate);
+                    return null;
+                }
+            }
+        }
+
+        return ImmutableSet.<UUID>of(incrementalRun.getSubscriptionId());
+    }
+
+    // Conservative: anything which isn't cancelled and hasn't been charged beyond the target date
+    private boolean mayHaveItemsDue(final BillingEvent lastBillingEvent, final LocalDate targetDate, final AccountDateAndTimeZoneContext dateAndTimeZoneContext) {
+        if (SubscriptionBaseTransitionType.CANCEL.equals(lastBillingEvent.getTransitionType())) {
+            return false;
+        }
+        final DateTime chargedThroughDate = lastBillingEvent.getSubscription().getChargedThroughDate();
+        return chargedThroughDate == null || !dateAndTimeZoneContext.computeLocalDateFromFixedAccountOffset(chargedThroughDate).isAfter(targetDate);
+    }
+
+    private Set<UUID> getSubscriptionIdsWithNextBillingDateNotification(final LocalDate targetDate, final AccountDateAndTimeZoneContext dateAndTimeZoneContext, final InternalCallContext context) {
+        try {
+            final NotificationQueue notificationQueue = notificationQueueService.getNotificationQueue(DefaultInvoiceService.INVOICE_SERVICE_NAME,
+                                                                                                      DefaultNextBillingDateNotifier.NEXT_BILLING_DATE_NOTIFIER_QUEUE);
+            final List<NotificationEventWithMetadata<NextBillingDateNotificationKey>> futureNotifications = notificationQueue.getFutureNotificationForSearchKeys(context.getAccountRecordId(), context.getTenantRecordId());
+
+            final Set<UUID> subscriptionIds = new HashSet<UUID>();
+            for (final NotificationEventWithMetadata<NextBillingDateNotificationKey> notification : futureNotifications) {
+                if (!Boolean.TRUE.equals(notification.getEvent().isDryRunForInvoiceNotification()) &&
+                    targetDate.equals(dateAndTimeZoneContext.computeLocalDateFromFixedAccountOffset(notification.getEffectiveDate()))) {
+                    subscriptionIds.add(notification.getEvent().getUuidKey());
+                }
+            }
+            return subscriptionIds;
+        } catch (final NoSuchNotificationQueue noSuchNotificationQueue) {
+            throw new IllegalStateException(noSuchNotificationQueue);
+        }
+    }
+
     private void filterInvoiceItemsForDryRun(final Iterable<UUID> filteredSubscriptionIdsForDryRun, final Invoice invoice) {
         if (!filteredSubscriptionIdsForDryRun.iterator().hasNext()) {
             return;
@@ -296,7 +389,8 @@ public class InvoiceDispatcher {
     }
 
     private Invoice processAccountWithLockAndInputTargetDate(final UUID accountId, final DateTime targetDateTime,
-                                                             final BillingEventSet billingEvents, final boolean isDryRun, final InternalCallContext context) throws InvoiceApiException {
+                                                             final BillingEventSet billingEvents, @Nullable final Set<UUID> subscriptionIdsToProcess,
+                                                             final boolean isDryRun, final InternalCallContext context) throws InvoiceApiException {
         try {
             final ImmutableAccountData account = accountApi.getImmutableAccountDataById(accountId, context);
 
@@ -312,7 +406,7 @@ public class InvoiceDispatcher {
 
             final Currency targetCurrency = account.getCurrency();
             final LocalDate targetDate = billingEvents.getAccountDateAndTimeZoneContext().computeLocalDateFromFixedAccountOffset(targetDateTime);
-            final InvoiceWithMetadata invoiceWithMetadata = generator.generateInvoice(account, billingEvents, invoices, targetDate, targetCurrency, context);
+            final InvoiceWithMetadata invoiceWithMetadata = generator.generateInvoice(account, billingEvents, invoices, subscriptionIdsToProcess, targetDate, targetCurrency, context);
             final Invoice invoice = invoiceWithMetadata.getInvoice();
 
             // Compute future notifications
@@ -655,6 +749,25 @@ public class InvoiceDispatcher {
         }
     }
 
+    private static final class IncrementalRun {
+
+        private final UUID subscriptionId;
+        private final boolean isNextBillingDateNotification;
+
+        private IncrementalRun(final UUID subscriptionId, final boolean isNextBillingDateNotification) {
+            this.subscriptionId = subscriptionId;
+            this.isNextBillingDateNotification = isNextBillingDateNotification;
+        }
+
+        public UUID getSubscriptionId() {
+            return subscriptionId;
+        }
+
+        public boolean isNextBillingDateNotification() {
+            return isNextBillingDateNotification;
+        }
+    }
+
     private final static class TargetDateDryRunArguments implements DryRunArguments {
 
         @Override
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.util.config.InvoiceConfig;
+import org.killbill.commons.concurrent.WithProfilingThreadPoolExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Invoice generation for next billing date notifications, spread across single threaded lanes: all the work for a given
+// account goes to the same lane, so it is processed in order (the GlobalLocker still protects the account across nodes).
+// The notification queue thread only hands the work off, so several accounts are invoiced in parallel. Since the notification
+// is then already acknowledged, the caller is responsible for re-queuing it when the lane is full or the generation fails.
+public class InvoiceExecutors {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoiceExecutors.class);
+
+    // Let in-flight invoice generations complete on shutdown
+    private static final long TIMEOUT_EXECUTOR_SEC = 30L;
+
+    private static final String INVOICE_THREAD_PREFIX = "Invoice-th-";
+    private static final String INVOICE_TH_GROUP_NAME = "invoice-grp";
+
+    private final InvoiceConfig invoiceConfig;
+
+    private volatile ThreadPoolExecutor[] lanes;
+
+    @Inject
+    public InvoiceExecutors(final InvoiceConfig invoiceConfig) {
+        this.invoiceConfig = invoiceConfig;
+    }
+
+    public void initialize() {
+        final int nbThreads = invoiceConfig.getInvoiceGenerationThreadNb();
+        if (nbThreads <= 0) {
+            lanes = null;
+            return;
+        }
+
+        final ThreadPoolExecutor[] newLanes = new ThreadPoolExecutor[nbThreads];
+        for (int i = 0; i < nbThreads; i++) {
+            newLanes[i] = createLane();
+        }
+        lanes = newLanes;
+    }
+
+    public void stop() throws InterruptedException {
+        final ThreadPoolExecutor[] currentLanes = lanes;
+        if (currentLanes == null) {
+            return;
+        }
+
+        for (final ThreadPoolExecutor lane : currentLanes) {
+            lane.shutdown();
+        }
+        for (final ThreadPoolExecutor lane : currentLanes) {
+            if (!lane.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS)) {
+                log.warn("Invoice executor failed to complete termination within {} sec", TIMEOUT_EXECUTOR_SEC);
+            }
+        }
+        lanes = null;
+    }
+
+    // If false, invoices are generated on the notification queue thread
+    public boolean isEnabled() {
+        return lanes != null;
+    }
+
+    // Queue the task on the lane of that account and return immediately. Returns false if the task was rejected
+    // (lane full or executor stopped), in which case it won't run.
+    public boolean submit(final Long accountRecordId, final Runnable task) {
+        final ThreadPoolExecutor[] currentLanes = lanes;
+        if (currentLanes == null) {
+            return false;
+        }
+
+        final int laneIndex = accountRecordId != null ? (int) Math.abs(accountRecordId % currentLanes.length) : 0;
+        try {
+            currentLanes[laneIndex].execute(task);
+            return true;
+        } catch (final RejectedExecutionException e) {
+            log.info("Invoice generation lane {} is full, rejecting work for accountRecordId {}", laneIndex, accountRecordId);
+            return false;
+        }
+    }
+
+    private ThreadPoolExecutor createLane() {
+        // Default (abort) policy: a full lane rejects the work, see submit
+        return new WithProfilingThreadPoolExecutor(1,
+                                                   1,
+                                                   0,
+                                                   TimeUnit.MILLISECONDS,
+                                                   new ArrayBlockingQueue<Runnable>(invoiceConfig.getInvoiceGenerationQueueCapacity()),
+                                                   new ThreadFactory() {
+
+                                                       @Override
+                                                       public Thread newThread(final Runnable r) {
+                                                           final Thread th = new Thread(new ThreadGroup(INVOICE_TH_GROUP_NAME), r);
+                                                           th.setName(INVOICE_THREAD_PREFIX + th.getId());
+                                                           return th;
+                                                       }
+                                                   });
+    }
+}
@@ -17,7 +17,6 @@
 
 package org.killbill.billing.invoice;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
@@ -34,9 +33,12 @@ import org.killbill.billing.invoice.plugin.api.InvoicePluginApi;
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.metrics.LatencyTimers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Functions;
 import com.google.common.collect.ImmutableList;
 
 public class InvoicePluginDispatcher {
@@ -48,10 +50,13 @@ public class InvoicePluginDispatcher {
                                                                                                                     InvoiceItemType.TAX);
 
     private final OSGIServiceRegistration<InvoicePluginApi> pluginRegistry;
+    // Latency of the invoice plugin calls, per plugin name
+    private final LatencyTimers<String> timers;
 
     @Inject
-    public InvoicePluginDispatcher(final OSGIServiceRegistration<InvoicePluginApi> pluginRegistry) {
+    public InvoicePluginDispatcher(final OSGIServiceRegistration<InvoicePluginApi> pluginRegistry, final MetricRegistry metricRegistry) {
         this.pluginRegistry = pluginRegistry;
+        this.timers = new LatencyTimers<String>(metricRegistry, MetricRegistry.name(InvoicePluginDispatcher.class, "getAdditionalInvoiceItems"), Functions.<String>identity());
     }
 
     //
@@ -62,9 +67,15 @@ public class InvoicePluginDispatcher {
         // We clone the original invoice so plugins don't remove/add items
         final Invoice clonedInvoice = (Invoice) ((DefaultInvoice) originalInvoice).clone();
         final List<InvoiceItem> additionalInvoiceItems = new LinkedList<InvoiceItem>();
-        final List<InvoicePluginApi> invoicePlugins = getInvoicePlugins();
-        for (final InvoicePluginApi invoicePlugin : invoicePlugins) {
-            final List<InvoiceItem> items = invoicePlugin.getAdditionalInvoiceItems(clonedInvoice, isDryRun, ImmutableList.<PluginProperty>of(), callContext);
+        for (final String invoicePluginName : pluginRegistry.getAllServices()) {
+            final InvoicePluginApi invoicePlugin = pluginRegistry.getServiceForName(invoicePluginName);
+            final List<InvoiceItem> items;
+            final long startNanos = System.nanoTime();
+            try {
+                items = invoicePlugin.getAdditionalInvoiceItems(clonedInvoice, isDryRun, ImmutableList.<PluginProperty>of(), callContext);
+            } finally {
+                timers.update(invoicePluginName, startNanos);
+            }
             if (items != null) {
                 for (final InvoiceItem item : items) {
                     validateInvoiceItemFromPlugin(item, invoicePlugin);
@@ -81,12 +92,4 @@ public class InvoicePluginDispatcher {
             throw new InvoiceApiException(ErrorCode.INVOICE_ITEM_TYPE_INVALID, invoiceItem.getInvoiceItemType());
         }
     }
-
-    private List<InvoicePluginApi> getInvoicePlugins() {
-        final List<InvoicePluginApi> invoicePlugins = new ArrayList<InvoicePluginApi>();
-        for (final String name : pluginRegistry.getAllServices()) {
-            invoicePlugins.add(pluginRegistry.getServiceForName(name));
-        }
-        return invoicePlugins;
-    }
 }
@@ -49,7 +49,7 @@ import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.config.InvoiceConfig;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.Pagination;
-import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.KeysetPaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.EntityDaoBase;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
@@ -253,9 +253,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
 
                     // Create the invoice items
                     final InvoiceItemSqlDao transInvoiceItemSqlDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
-                    for (final InvoiceItemModelDao invoiceItemModelDao : invoiceItems) {
-                        createInvoiceItemFromTransaction(transInvoiceItemSqlDao, invoiceItemModelDao, context);
-                    }
+                    createInvoiceItemsFromTransaction(transInvoiceItemSqlDao, invoiceItems, context);
                     cbaDao.addCBAComplexityFromTransaction(invoice, entitySqlDaoWrapperFactory, context);
                     notifyOfFutureBillingEvents(entitySqlDaoWrapperFactory, invoice.getAccountId(), callbackDateTimePerSubscriptions, context);
                 }
@@ -330,7 +328,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
 
         final Integer invoiceNumber = invoiceNumberParsed;
         return paginationHelper.getPagination(InvoiceSqlDao.class,
-                                              new PaginationIteratorBuilder<InvoiceModelDao, Invoice, InvoiceSqlDao>() {
+                                              new KeysetPaginationIteratorBuilder<InvoiceModelDao, Invoice, InvoiceSqlDao>(searchKey) {
                                                   @Override
                                                   public Long getCount(final InvoiceSqlDao invoiceSqlDao, final InternalTenantContext context) {
                                                       return invoiceNumber != null ? 1L : invoiceSqlDao.getSearchCount(searchKey, String.format("%%%s%%", searchKey), context);
@@ -346,6 +344,23 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                                                           return Iterators.<InvoiceModelDao>emptyIterator();
                                                       }
                                                   }
+
+                                                  @Override
+                                                  public Iterator<InvoiceModelDao> buildAfterRecordId(final InvoiceSqlDao invoiceSqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context) {
+                                                      if (invoiceNumber != null) {
+                                                          return build(invoiceSqlDao, limit, context);
+                                                      }
+                                                      return invoiceSqlDao.searchAfterRecordId(searchKey, String.format("%%%s%%", searchKey), lastSeenRecordId, limit, context);
+                                                  }
+
+                                                  @Override
+                                                  public Long getLastRecordIdAfterRecordId(final InvoiceSqlDao invoiceSqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context) {
+                                                      if (invoiceNumber != null) {
+                                                          // Single result, no next page
+                                                          return null;
+                                                      }
+                                                      return invoiceSqlDao.searchLastRecordIdAfterRecordId(searchKey, String.format("%%%s%%", searchKey), lastSeenRecordId, limit, context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -833,6 +848,22 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         }
     }
 
+    // The items, as well as their audit rows, are inserted as JDBC batches
+    private void createInvoiceItemsFromTransaction(final InvoiceItemSqlDao invoiceItemSqlDao, final List<InvoiceItemModelDao> invoiceItemModelDaos, final InternalCallContext context) throws EntityPersistenceException, InvoiceApiException {
+        if (invoiceItemModelDaos.isEmpty()) {
+            return;
+        }
+
+        invoiceItemSqlDao.batchCreate(invoiceItemModelDaos, context);
+
+        // Item adjustments are validated once the whole batch is inserted (the transaction is rolled back on failure)
+        for (final InvoiceItemModelDao invoiceItemModelDao : invoiceItemModelDaos) {
+            if (InvoiceItemType.ITEM_ADJ.equals(invoiceItemModelDao.getType())) {
+                validateInvoiceItemToBeAdjusted(invoiceItemSqlDao, invoiceItemModelDao, context);
+            }
+        }
+    }
+
     private void createInvoiceItemFromTransaction(final InvoiceItemSqlDao invoiceItemSqlDao, final InvoiceItemModelDao invoiceItemModelDao, final InternalCallContext context) throws EntityPersistenceException, InvoiceApiException {
         // There is no efficient way to retrieve an invoice item given an ID today (and invoice plugins can put item adjustments
         // on a different invoice than the original item), so it's easier to do the check in the DAO rather than in the API layer
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -68,7 +69,19 @@ public class FixedAndRecurringInvoiceItemGenerator extends InvoiceItemGenerator
                                            @Nullable final List<Invoice> existingInvoices, final LocalDate targetDate,
                                            final Currency targetCurrency, Map<UUID, SubscriptionFutureNotificationDates> perSubscriptionFutureNotificationDate,
                                            final InternalCallContext internalCallContext) throws InvoiceApiException {
-        final AccountItemTree accountItemTree = new AccountItemTree(account.getId(), invoiceId);
+        return generateItems(account, invoiceId, eventSet, existingInvoices, null, targetDate, targetCurrency, perSubscriptionFutureNotificationDate, internalCallContext);
+    }
+
+    /**
+     * Same as generateItems, but only for the subscriptions specified (all of them when subscriptionIdsToProcess is null):
+     * the existing items and billing events of the other subscriptions are left out of the tree.
+     */
+    public List<InvoiceItem> generateItems(final ImmutableAccountData account, final UUID invoiceId, final BillingEventSet eventSet,
+                                           @Nullable final List<Invoice> existingInvoices, @Nullable final Set<UUID> subscriptionIdsToProcess,
+                                           final LocalDate targetDate, final Currency targetCurrency,
+                                           final Map<UUID, SubscriptionFutureNotificationDates> perSubscriptionFutureNotificationDate,
+                                           final InternalCallContext internalCallContext) throws InvoiceApiException {
+        final AccountItemTree accountItemTree = new AccountItemTree(account.getId(), invoiceId, subscriptionIdsToProcess);
         if (existingInvoices != null) {
             for (final Invoice invoice : existingInvoices) {
                 for (final InvoiceItem item : invoice.getInvoiceItems()) {
@@ -83,15 +96,15 @@ public class FixedAndRecurringInvoiceItemGenerator extends InvoiceItemGenerator
 
         // Generate list of proposed invoice items based on billing events from junction-- proposed items are ALL items since beginning of time
         final List<InvoiceItem> proposedItems = new ArrayList<InvoiceItem>();
-        processRecurringBillingEvents(invoiceId, account.getId(), eventSet, targetDate, targetCurrency, proposedItems, perSubscriptionFutureNotificationDate);
-        processFixedBillingEvents(invoiceId, account.getId(), eventSet, targetDate, targetCurrency, proposedItems);
+        processRecurringBillingEvents(invoiceId, account.getId(), eventSet, subscriptionIdsToProcess, targetDate, targetCurrency, proposedItems, perSubscriptionFutureNotificationDate);
+        processFixedBillingEvents(invoiceId, account.getId(), eventSet, subscriptionIdsToProcess, targetDate, targetCurrency, proposedItems);
 
         accountItemTree.mergeWithProposedItems(proposedItems);
         return accountItemTree.getResultingItemList();
     }
 
     private List<InvoiceItem> processRecurringBillingEvents(final UUID invoiceId, final UUID accountId, final BillingEventSet events,
-                                                            final LocalDate targetDate, final Currency currency, final List<InvoiceItem> proposedItems,
+                                                            @Nullable final Set<UUID> subscriptionIdsToProcess, final LocalDate targetDate, final Currency currency, final List<InvoiceItem> proposedItems,
                                                             final Map<UUID, SubscriptionFutureNotificationDates> perSubscriptionFutureNotificationDate) throws InvoiceApiException {
 
         if (events.size() == 0) {
@@ -110,24 +123,31 @@ public class FixedAndRecurringInvoiceItemGenerator extends InvoiceItemGenerator
             final BillingEvent thisEvent = nextEvent;
             nextEvent = eventIt.next();
             if (!events.getSubscriptionIdsWithAutoInvoiceOff().
-                    contains(thisEvent.getSubscription().getId())) { // don't consider events for subscriptions that have auto_invoice_off
+                    contains(thisEvent.getSubscription().getId()) && // don't consider events for subscriptions that have auto_invoice_off
+                shouldProcessSubscription(subscriptionIdsToProcess, thisEvent.getSubscription().getId())) {
                 final BillingEvent adjustedNextEvent = (thisEvent.getSubscription().getId() == nextEvent.getSubscription().getId()) ? nextEvent : null;
                 final List<InvoiceItem> newProposedItems = processRecurringEvent(invoiceId, accountId, thisEvent, adjustedNextEvent, targetDate, currency, logStringBuilder, events.getRecurringBillingMode(), perSubscriptionFutureNotificationDate, events.getAccountDateAndTimeZoneContext());
                 proposedItems.addAll(newProposedItems);
             }
         }
-        final List<InvoiceItem> newProposedItems = processRecurringEvent(invoiceId, accountId, nextEvent, null, targetDate, currency, logStringBuilder, events.getRecurringBillingMode(), perSubscriptionFutureNotificationDate, events.getAccountDateAndTimeZoneContext());
-        proposedItems.addAll(newProposedItems);
+        if (shouldProcessSubscription(subscriptionIdsToProcess, nextEvent.getSubscription().getId())) {
+            final List<InvoiceItem> newProposedItems = processRecurringEvent(invoiceId, accountId, nextEvent, null, targetDate, currency, logStringBuilder, events.getRecurringBillingMode(), perSubscriptionFutureNotificationDate, events.getAccountDateAndTimeZoneContext());
+            proposedItems.addAll(newProposedItems);
+        }
 
         log.info(logStringBuilder.toString());
 
         return proposedItems;
     }
 
-    private List<InvoiceItem> processFixedBillingEvents(final UUID invoiceId, final UUID accountId, final BillingEventSet events, final LocalDate targetDate, final Currency currency, final List<InvoiceItem> proposedItems) {
+    private List<InvoiceItem> processFixedBillingEvents(final UUID invoiceId, final UUID accountId, final BillingEventSet events, @Nullable final Set<UUID> subscriptionIdsToProcess,
+                                                        final LocalDate targetDate, final Currency currency, final List<InvoiceItem> proposedItems) {
         final Iterator<BillingEvent> eventIt = events.iterator();
         while (eventIt.hasNext()) {
             final BillingEvent thisEvent = eventIt.next();
+            if (!shouldProcessSubscription(subscriptionIdsToProcess, thisEvent.getSubscription().getId())) {
+                continue;
+            }
 
             final InvoiceItem fixedPriceInvoiceItem = generateFixedPriceItem(invoiceId, accountId, thisEvent, targetDate, currency, events.getAccountDateAndTimeZoneContext());
             if (fixedPriceInvoiceItem != null) {
@@ -137,6 +157,10 @@ public class FixedAndRecurringInvoiceItemGenerator extends InvoiceItemGenerator
         return proposedItems;
     }
 
+    private boolean shouldProcessSubscription(@Nullable final Set<UUID> subscriptionIdsToProcess, final UUID subscriptionId) {
+        return subscriptionIdsToProcess == null || subscriptionIdsToProcess.contains(subscriptionId);
+    }
+
     // Turn a set of events into a list of invoice items. Note that the dates on the invoice items will be rounded (granularity of a day)
     private List<InvoiceItem> processRecurringEvent(final UUID invoiceId, final UUID accountId, final BillingEvent thisEvent, @Nullable final BillingEvent nextEvent,
                                                     final LocalDate targetDate, final Currency currency,
@@ -17,6 +17,8 @@
 package org.killbill.billing.invoice.generator;
 
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 import javax.annotation.Nullable;
 
@@ -32,4 +34,9 @@ import org.killbill.billing.junction.BillingEventSet;
 public interface InvoiceGenerator {
     InvoiceWithMetadata generateInvoice(ImmutableAccountData account,  @Nullable BillingEventSet events, @Nullable List<Invoice> existingInvoices,
                                         LocalDate targetDate, Currency targetCurrency, final InternalCallContext context) throws InvoiceApiException;
+
+    // When subscriptionIdsToProcess is specified, only the fixed and recurring items of these subscriptions are regenerated
+    InvoiceWithMetadata generateInvoice(ImmutableAccountData account, @Nullable BillingEventSet events, @Nullable List<Invoice> existingInvoices,
+                                        @Nullable Set<UUID> subscriptionIdsToProcess, LocalDate targetDate, Currency targetCurrency,
+                                        final InternalCallContext context) throws InvoiceApiException;
 }
@@ -19,9 +19,11 @@ package org.killbill.billing.invoice.generator;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -47,15 +49,18 @@ import org.killbill.billing.invoice.usage.SubscriptionConsumableInArrear;
 import org.killbill.billing.invoice.usage.SubscriptionConsumableInArrear.SubscriptionConsumableInArrearItemsAndNextNotificationDate;
 import org.killbill.billing.junction.BillingEvent;
 import org.killbill.billing.junction.BillingEventSet;
+import org.killbill.billing.usage.RawUsage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.inject.Inject;
 
 public class UsageInvoiceItemGenerator extends InvoiceItemGenerator {
@@ -79,28 +84,48 @@ public class UsageInvoiceItemGenerator extends InvoiceItemGenerator {
                                            final Currency targetCurrency,
                                            final Map<UUID, SubscriptionFutureNotificationDates> perSubscriptionFutureNotificationDates,
                                            final InternalCallContext internalCallContext) throws InvoiceApiException {
+        return generateItems(account, invoiceId, eventSet, existingInvoices, null, targetDate, targetCurrency, perSubscriptionFutureNotificationDates, internalCallContext);
+    }
+
+    /**
+     * Same as generateItems, but only for the subscriptions specified (all of them when subscriptionIdsToProcess is null)
+     */
+    public List<InvoiceItem> generateItems(final ImmutableAccountData account,
+                                           final UUID invoiceId,
+                                           final BillingEventSet eventSet,
+                                           @Nullable final List<Invoice> existingInvoices,
+                                           @Nullable final Set<UUID> subscriptionIdsToProcess,
+                                           final LocalDate targetDate,
+                                           final Currency targetCurrency,
+                                           final Map<UUID, SubscriptionFutureNotificationDates> perSubscriptionFutureNotificationDates,
+                                           final InternalCallContext internalCallContext) throws InvoiceApiException {
 
-        final Map<UUID, List<InvoiceItem>> perSubscriptionConsumableInArrearUsageItems = extractPerSubscriptionExistingConsumableInArrearUsageItems(eventSet.getUsages(), existingInvoices);
+        final Map<UUID, List<InvoiceItem>> allPerSubscriptionConsumableInArrearUsageItems = extractPerSubscriptionExistingConsumableInArrearUsageItems(eventSet.getUsages(), existingInvoices);
+        // Existing usage items of the other subscriptions shouldn't move the raw usage start date either
+        final Map<UUID, List<InvoiceItem>> perSubscriptionConsumableInArrearUsageItems = subscriptionIdsToProcess == null ?
+                                                                                        allPerSubscriptionConsumableInArrearUsageItems :
+                                                                                        Maps.filterKeys(allPerSubscriptionConsumableInArrearUsageItems, Predicates.in(subscriptionIdsToProcess));
         try {
 
             final LocalDate minBillingEventDate = getMinBillingEventDate(eventSet, account.getTimeZone());
 
-            final List<InvoiceItem> items = Lists.newArrayList();
+            // Group the billing events per subscription, starting with the first one that references a CONSUMABLE/IN_ARREAR usage section
+            final Map<UUID, List<BillingEvent>> perSubscriptionEvents = new LinkedHashMap<UUID, List<BillingEvent>>();
+            boolean hasConsumableInArrearUsage = false;
             final Iterator<BillingEvent> events = eventSet.iterator();
-
-            RawUsageOptimizerResult rawUsageOptimizerResult = null;
-            List<BillingEvent> curEvents = Lists.newArrayList();
-            UUID curSubscriptionId = null;
             while (events.hasNext()) {
                 final BillingEvent event = events.next();
+                if (subscriptionIdsToProcess != null && !subscriptionIdsToProcess.contains(event.getSubscription().getId())) {
+                    continue;
+                }
+
                 // Skip events that are posterior to the targetDate
                 final LocalDate eventLocalEffectiveDate = eventSet.getAccountDateAndTimeZoneContext().computeLocalDateFromFixedAccountOffset(event.getEffectiveDate());
                 if (eventLocalEffectiveDate.isAfter(targetDate)) {
                     continue;
                 }
 
-                // Optimize to do the usage query only once after we know there are indeed some usage items
-                if (rawUsageOptimizerResult == null &&
+                if (!hasConsumableInArrearUsage &&
                     Iterables.any(event.getUsages(), new Predicate<Usage>() {
                         @Override
                         public boolean apply(@Nullable final Usage input) {
@@ -108,36 +133,54 @@ public class UsageInvoiceItemGenerator extends InvoiceItemGenerator {
                                     input.getBillingMode() == BillingMode.IN_ARREAR);
                         }
                     })) {
-                    rawUsageOptimizerResult = rawUsageOptimizer.getConsumableInArrearUsage(minBillingEventDate, targetDate, Iterables.concat(perSubscriptionConsumableInArrearUsageItems.values()), eventSet.getUsages(), internalCallContext);
+                    hasConsumableInArrearUsage = true;
                 }
 
                 // None of the billing events report any usage (CONSUMABLE/IN_ARREAR) sections
-                if (rawUsageOptimizerResult == null) {
+                if (!hasConsumableInArrearUsage) {
                     continue;
                 }
 
                 final UUID subscriptionId = event.getSubscription().getId();
-                if (curSubscriptionId != null && !curSubscriptionId.equals(subscriptionId)) {
-                    final SubscriptionConsumableInArrear subscriptionConsumableInArrear = new SubscriptionConsumableInArrear(account.getId(), invoiceId, curEvents, rawUsageOptimizerResult.getRawUsage(), targetDate, rawUsageOptimizerResult.getRawUsageStartDate(), eventSet.getAccountDateAndTimeZoneContext());
-                    final List<InvoiceItem> consumableInUsageArrearItems = perSubscriptionConsumableInArrearUsageItems.get(curSubscriptionId);
-
-                    final SubscriptionConsumableInArrearItemsAndNextNotificationDate subscriptionResult = subscriptionConsumableInArrear.computeMissingUsageInvoiceItems(consumableInUsageArrearItems != null ? consumableInUsageArrearItems : ImmutableList.<InvoiceItem>of());
-                    final List<InvoiceItem> newInArrearUsageItems = subscriptionResult.getInvoiceItems();
-                    items.addAll(newInArrearUsageItems);
-                    updatePerSubscriptionNextNotificationUsageDate(curSubscriptionId, subscriptionResult.getPerUsageNotificationDates(), BillingMode.IN_ARREAR, perSubscriptionFutureNotificationDates);
-                    curEvents = Lists.newArrayList();
+                List<BillingEvent> subscriptionEvents = perSubscriptionEvents.get(subscriptionId);
+                if (subscriptionEvents == null) {
+                    subscriptionEvents = Lists.newArrayList();
+                    perSubscriptionEvents.put(subscriptionId, subscriptionEvents);
                 }
-                curSubscriptionId = subscriptionId;
-                curEvents.add(event);
+                subscriptionEvents.add(event);
             }
-            if (curSubscriptionId != null) {
-                final SubscriptionConsumableInArrear subscriptionConsumableInArrear = new SubscriptionConsumableInArrear(account.getId(), invoiceId, curEvents, rawUsageOptimizerResult.getRawUsage(), targetDate, rawUsageOptimizerResult.getRawUsageStartDate(), eventSet.getAccountDateAndTimeZoneContext());
-                final List<InvoiceItem> consumableInUsageArrearItems = perSubscriptionConsumableInArrearUsageItems.get(curSubscriptionId);
-
-                final SubscriptionConsumableInArrearItemsAndNextNotificationDate subscriptionResult = subscriptionConsumableInArrear.computeMissingUsageInvoiceItems(consumableInUsageArrearItems != null ? consumableInUsageArrearItems : ImmutableList.<InvoiceItem>of());
-                final List<InvoiceItem> newInArrearUsageItems = subscriptionResult.getInvoiceItems();
-                items.addAll(newInArrearUsageItems);
-                updatePerSubscriptionNextNotificationUsageDate(curSubscriptionId, subscriptionResult.getPerUsageNotificationDates(), BillingMode.IN_ARREAR, perSubscriptionFutureNotificationDates);
+
+            // Optimize to do the usage query only once after we know there are indeed some usage items
+            if (!hasConsumableInArrearUsage) {
+                return ImmutableList.of();
+            }
+
+            final Map<UUID, List<InvoiceItem>> perSubscriptionItems = new HashMap<UUID, List<InvoiceItem>>();
+            final RawUsageOptimizerResult rawUsageOptimizerResult = rawUsageOptimizer.getConsumableInArrearUsage(minBillingEventDate, targetDate, Iterables.concat(perSubscriptionConsumableInArrearUsageItems.values()), eventSet.getUsages(), internalCallContext);
+            try {
+                // Usage is consumed in the order of the stream, so that only the usage of the current subscription is held in memory
+                while (rawUsageOptimizerResult.hasNextSubscriptionRawUsage()) {
+                    final List<RawUsage> rawSubscriptionUsage = rawUsageOptimizerResult.nextSubscriptionRawUsage();
+                    final UUID subscriptionId = rawSubscriptionUsage.get(0).getSubscriptionId();
+                    final List<BillingEvent> subscriptionEvents = perSubscriptionEvents.get(subscriptionId);
+                    if (subscriptionEvents != null) {
+                        perSubscriptionItems.put(subscriptionId, computeMissingUsageInvoiceItems(account, invoiceId, subscriptionId, subscriptionEvents, rawSubscriptionUsage, targetDate, rawUsageOptimizerResult.getRawUsageStartDate(),
+                                                                                                 eventSet, perSubscriptionConsumableInArrearUsageItems, perSubscriptionFutureNotificationDates));
+                    }
+                }
+            } finally {
+                rawUsageOptimizerResult.close();
+            }
+
+            // Keep the billing events ordering, and handle the subscriptions which didn't report any usage in that range
+            final List<InvoiceItem> items = Lists.newArrayList();
+            for (final UUID subscriptionId : perSubscriptionEvents.keySet()) {
+                List<InvoiceItem> subscriptionItems = perSubscriptionItems.get(subscriptionId);
+                if (subscriptionItems == null) {
+                    subscriptionItems = computeMissingUsageInvoiceItems(account, invoiceId, subscriptionId, perSubscriptionEvents.get(subscriptionId), ImmutableList.<RawUsage>of(), targetDate, rawUsageOptimizerResult.getRawUsageStartDate(),
+                                                                        eventSet, perSubscriptionConsumableInArrearUsageItems, perSubscriptionFutureNotificationDates);
+                }
+                items.addAll(subscriptionItems);
             }
             return items;
 
@@ -147,6 +190,24 @@ public class UsageInvoiceItemGenerator extends InvoiceItemGenerator {
     }
 
 
+    private List<InvoiceItem> computeMissingUsageInvoiceItems(final ImmutableAccountData account,
+                                                              final UUID invoiceId,
+                                                              final UUID subscriptionId,
+                                                              final List<BillingEvent> subscriptionEvents,
+                                                              final List<RawUsage> rawSubscriptionUsage,
+                                                              final LocalDate targetDate,
+                                                              final LocalDate rawUsageStartDate,
+                                                              final BillingEventSet eventSet,
+                                                              final Map<UUID, List<InvoiceItem>> perSubscriptionConsumableInArrearUsageItems,
+                                                              final Map<UUID, SubscriptionFutureNotificationDates> perSubscriptionFutureNotificationDates) throws CatalogApiException {
+        final SubscriptionConsumableInArrear subscriptionConsumableInArrear = new SubscriptionConsumableInArrear(account.getId(), invoiceId, subscriptionEvents, rawSubscriptionUsage, targetDate, rawUsageStartDate, eventSet.getAccountDateAndTimeZoneContext());
+        final List<InvoiceItem> consumableInUsageArrearItems = perSubscriptionConsumableInArrearUsageItems.get(subscriptionId);
+
+        final SubscriptionConsumableInArrearItemsAndNextNotificationDate subscriptionResult = subscriptionConsumableInArrear.computeMissingUsageInvoiceItems(consumableInUsageArrearItems != null ? consumableInUsageArrearItems : ImmutableList.<InvoiceItem>of());
+        updatePerSubscriptionNextNotificationUsageDate(subscriptionId, subscriptionResult.getPerUsageNotificationDates(), BillingMode.IN_ARREAR, perSubscriptionFutureNotificationDates);
+        return subscriptionResult.getInvoiceItems();
+    }
+
     private LocalDate getMinBillingEventDate(final BillingEventSet eventSet, final DateTimeZone accountTimeZone) {
         DateTime minDate = null;
         final Iterator<BillingEvent> events = eventSet.iterator();
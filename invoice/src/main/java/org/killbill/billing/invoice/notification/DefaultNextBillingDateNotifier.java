@@ -16,9 +16,11 @@
 
 package org.killbill.billing.invoice.notification;
 
+import java.io.IOException;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
+import org.killbill.billing.invoice.InvoiceExecutors;
 import org.killbill.billing.invoice.InvoiceListener;
 import org.killbill.billing.invoice.api.DefaultInvoiceService;
 import org.killbill.billing.subscription.api.SubscriptionBase;
@@ -26,6 +28,7 @@ import org.killbill.billing.subscription.api.SubscriptionBaseInternalApi;
 import org.killbill.billing.subscription.api.user.SubscriptionBaseApiException;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.config.InvoiceConfig;
+import org.killbill.clock.Clock;
 import org.killbill.notificationq.api.NotificationEvent;
 import org.killbill.notificationq.api.NotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService;
@@ -48,6 +51,8 @@ public class DefaultNextBillingDateNotifier implements NextBillingDateNotifier {
     private final SubscriptionBaseInternalApi subscriptionApi;
     private final InvoiceListener listener;
     private final InternalCallContextFactory callContextFactory;
+    private final InvoiceExecutors invoiceExecutors;
+    private final Clock clock;
 
     private NotificationQueue nextBillingQueue;
 
@@ -56,12 +61,16 @@ public class DefaultNextBillingDateNotifier implements NextBillingDateNotifier {
                                           final InvoiceConfig config,
                                           final SubscriptionBaseInternalApi subscriptionApi,
                                           final InvoiceListener listener,
-                                          final InternalCallContextFactory callContextFactory) {
+                                          final InternalCallContextFactory callContextFactory,
+                                          final InvoiceExecutors invoiceExecutors,
+                                          final Clock clock) {
         this.notificationQueueService = notificationQueueService;
         this.config = config;
         this.subscriptionApi = subscriptionApi;
         this.listener = listener;
         this.callContextFactory = callContextFactory;
+        this.invoiceExecutors = invoiceExecutors;
+        this.clock = clock;
     }
 
     @Override
@@ -90,7 +99,7 @@ public class DefaultNextBillingDateNotifier implements NextBillingDateNotifier {
                             key.isDryRunForInvoiceNotification()) {
                             processEventForInvoiceNotification(key.getUuidKey(), targetDate, userToken, accountRecordId, tenantRecordId);
                         } else {
-                            processEventForInvoiceGeneration(key.getUuidKey(), targetDate, userToken, accountRecordId, tenantRecordId);
+                            processEventForInvoiceGeneration(key, targetDate, userToken, accountRecordId, tenantRecordId);
                         }
                     } catch (SubscriptionBaseApiException e) {
                         log.warn("Next Billing Date Notification Queue handled spurious notification (key: " + key + ")", e);
@@ -101,6 +110,8 @@ public class DefaultNextBillingDateNotifier implements NextBillingDateNotifier {
             }
         };
 
+        invoiceExecutors.initialize();
+
         nextBillingQueue = notificationQueueService.createNotificationQueue(DefaultInvoiceService.INVOICE_SERVICE_NAME,
                                                                             NEXT_BILLING_DATE_NOTIFIER_QUEUE,
                                                                             notificationQueueHandler);
@@ -117,10 +128,48 @@ public class DefaultNextBillingDateNotifier implements NextBillingDateNotifier {
             nextBillingQueue.stopQueue();
             notificationQueueService.deleteNotificationQueue(nextBillingQueue.getServiceName(), nextBillingQueue.getQueueName());
         }
+
+        try {
+            invoiceExecutors.stop();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for pending invoice generations");
+        }
     }
 
-    private void processEventForInvoiceGeneration(final UUID subscriptionId, final DateTime eventDateTime, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
-        listener.handleNextBillingDateEvent(subscriptionId, eventDateTime, userToken, accountRecordId, tenantRecordId);
+    private void processEventForInvoiceGeneration(final NextBillingDateNotificationKey key, final DateTime eventDateTime, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
+        final UUID subscriptionId = key.getUuidKey();
+        if (!invoiceExecutors.isEnabled()) {
+            listener.handleNextBillingDateEvent(subscriptionId, eventDateTime, userToken, accountRecordId, tenantRecordId);
+            return;
+        }
+
+        // The notification is acknowledged as soon as the work is handed off: re-queue it if the generation can't happen
+        final boolean submitted = invoiceExecutors.submit(accountRecordId, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    listener.handleNextBillingDateEvent(subscriptionId, eventDateTime, userToken, accountRecordId, tenantRecordId);
+                } catch (final RuntimeException e) {
+                    log.warn("Failed to generate invoice for subscriptionId='{}', re-queuing next billing date notification", subscriptionId, e);
+                    retryNotification(key, eventDateTime, userToken, accountRecordId, tenantRecordId);
+                }
+            }
+        });
+        if (!submitted) {
+            retryNotification(key, eventDateTime, userToken, accountRecordId, tenantRecordId);
+        }
+    }
+
+    private void retryNotification(final NextBillingDateNotificationKey key, final DateTime eventDateTime, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
+        // Keep the original target date, the notification date is only used to schedule the retry
+        final NextBillingDateNotificationKey retryKey = new NextBillingDateNotificationKey(key.getUuidKey(), eventDateTime, key.isDryRunForInvoiceNotification());
+        final DateTime retryDate = clock.getUTCNow().plus(config.getInvoiceGenerationRetryDelay().getMillis());
+        try {
+            nextBillingQueue.recordFutureNotification(retryDate, retryKey, userToken, accountRecordId, tenantRecordId);
+        } catch (final IOException e) {
+            log.error("Failed to re-queue next billing date notification for subscriptionId='{}', targetDate='{}'", key.getUuidKey(), eventDateTime, e);
+        }
     }
 
     private void processEventForInvoiceNotification(final UUID subscriptionId, final DateTime eventDateTime, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
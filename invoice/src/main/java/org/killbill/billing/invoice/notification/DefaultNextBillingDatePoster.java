@@ -27,6 +27,7 @@ import org.joda.time.LocalDate;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.invoice.api.DefaultInvoiceService;
 import org.killbill.billing.util.AccountDateAndTimeZoneContext;
+import org.killbill.billing.util.config.InvoiceConfig;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
 import org.killbill.notificationq.api.NotificationEventWithMetadata;
 import org.killbill.notificationq.api.NotificationQueue;
@@ -44,10 +45,12 @@ public class DefaultNextBillingDatePoster implements NextBillingDatePoster {
     private static final Logger log = LoggerFactory.getLogger(DefaultNextBillingDatePoster.class);
 
     private final NotificationQueueService notificationQueueService;
+    private final InvoiceConfig invoiceConfig;
 
     @Inject
-    public DefaultNextBillingDatePoster(final NotificationQueueService notificationQueueService) {
+    public DefaultNextBillingDatePoster(final NotificationQueueService notificationQueueService, final InvoiceConfig invoiceConfig) {
         this.notificationQueueService = notificationQueueService;
+        this.invoiceConfig = invoiceConfig;
     }
 
     @Override
@@ -69,7 +72,9 @@ public class DefaultNextBillingDatePoster implements NextBillingDatePoster {
             nextBillingQueue = notificationQueueService.getNotificationQueue(DefaultInvoiceService.INVOICE_SERVICE_NAME,
                                                                              DefaultNextBillingDateNotifier.NEXT_BILLING_DATE_NOTIFIER_QUEUE);
 
-            // If we see existing notification for the same date (and isDryRunForInvoiceNotification mode), we don't insert a new notification
+            // If we see existing notification for the same date (and isDryRunForInvoiceNotification mode), we don't insert a new notification.
+            // In incremental mode though, a (non dry-run) notification only regenerates the items of its own subscription: we need one per subscription
+            final boolean isPerSubscriptionNotification = !isDryRunForInvoiceNotification && invoiceConfig.isIncrementalInvoiceGenerationEnabled();
             final List<NotificationEventWithMetadata<NextBillingDateNotificationKey>> futureNotifications = nextBillingQueue.getFutureNotificationFromTransactionForSearchKeys(internalCallContext.getAccountRecordId(), internalCallContext.getTenantRecordId(), entitySqlDaoWrapperFactory.getHandle().getConnection());
             final NotificationEventWithMetadata<NextBillingDateNotificationKey> existingFutureNotificationWithSameDate = Iterables.tryFind(futureNotifications, new Predicate<NotificationEventWithMetadata<NextBillingDateNotificationKey>>() {
                 @Override
@@ -82,7 +87,8 @@ public class DefaultNextBillingDatePoster implements NextBillingDatePoster {
 
                     return notificationEffectiveLocaleDate.compareTo(eventEffectiveLocaleDate) == 0 &&
                            ((isDryRunForInvoiceNotification && isEventDryRunForNotifications) ||
-                            (!isDryRunForInvoiceNotification && !isEventDryRunForNotifications));
+                            (!isDryRunForInvoiceNotification && !isEventDryRunForNotifications)) &&
+                           (!isPerSubscriptionNotification || subscriptionId.equals(input.getEvent().getUuidKey()));
                 }
             }).orNull();
 
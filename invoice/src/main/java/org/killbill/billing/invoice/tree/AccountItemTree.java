@@ -23,8 +23,11 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
+import javax.annotation.Nullable;
+
 import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.InvoiceItemType;
 
@@ -51,6 +54,8 @@ public class AccountItemTree {
 
     private final UUID accountId;
     private final UUID targetInvoiceId;
+    // When specified, the items of the other subscriptions are ignored
+    private final Set<UUID> subscriptionIdsToProcess;
     private final Map<UUID, SubscriptionItemTree> subscriptionItemTree;
     private final List<InvoiceItem> allExistingItems;
     private List<InvoiceItem> pendingItemAdj;
@@ -58,8 +63,13 @@ public class AccountItemTree {
     private boolean isBuilt;
 
     public AccountItemTree(final UUID accountId, final UUID targetInvoiceId) {
+        this(accountId, targetInvoiceId, null);
+    }
+
+    public AccountItemTree(final UUID accountId, final UUID targetInvoiceId, @Nullable final Set<UUID> subscriptionIdsToProcess) {
         this.accountId = accountId;
         this.targetInvoiceId = targetInvoiceId;
+        this.subscriptionIdsToProcess = subscriptionIdsToProcess;
         this.subscriptionItemTree = new HashMap<UUID, SubscriptionItemTree>();
         this.isBuilt = false;
         this.allExistingItems = new LinkedList<InvoiceItem>();
@@ -138,6 +148,10 @@ public class AccountItemTree {
             return;
         }
 
+        if (!shouldProcessSubscription(subscriptionId)) {
+            return;
+        }
+
         if (!subscriptionItemTree.containsKey(subscriptionId)) {
             subscriptionItemTree.put(subscriptionId, new SubscriptionItemTree(subscriptionId, targetInvoiceId));
         }
@@ -159,6 +173,9 @@ public class AccountItemTree {
 
         for (InvoiceItem item : proposedItems) {
             final UUID subscriptionId = getSubscriptionId(item, null);
+            if (!shouldProcessSubscription(subscriptionId)) {
+                continue;
+            }
             SubscriptionItemTree tree = subscriptionItemTree.get(subscriptionId);
             if (tree == null) {
                 tree = new SubscriptionItemTree(subscriptionId, targetInvoiceId);
@@ -190,6 +207,10 @@ public class AccountItemTree {
         return accountId;
     }
 
+    private boolean shouldProcessSubscription(final UUID subscriptionId) {
+        return subscriptionIdsToProcess == null || subscriptionIdsToProcess.contains(subscriptionId);
+    }
+
     private UUID getSubscriptionId(final InvoiceItem item, final List<InvoiceItem> allItems) {
         if (item.getInvoiceItemType() == InvoiceItemType.RECURRING ||
             item.getInvoiceItemType() == InvoiceItemType.FIXED) {
@@ -296,7 +296,7 @@ public class ItemsNodeInterval extends NodeInterval {
                 final ItemsInterval curNodeItems = ((ItemsNodeInterval) curNode).getItemsInterval();
                 // Case A:
                 final boolean isEmpty = curNodeItems.mergeCancellingPairs();
-                if (isEmpty && curNode.getLeftChild() == null) {
+                if (isEmpty && curNode.getChildren().isEmpty()) {
                     curNode.getParent().removeChild(curNode);
                 }
 
@@ -310,10 +310,9 @@ public class ItemsNodeInterval extends NodeInterval {
 
                     final Item curAddItem = it.next();
 
-                    NodeInterval curChild = curNode.getLeftChild();
                     Map<ItemsInterval, Item> toBeRemoved = new HashMap<ItemsInterval, Item>();
                     boolean foundFullRepairByParts = true;
-                    while (curChild != null) {
+                    for (final NodeInterval curChild : curNode.getChildren()) {
                         final ItemsInterval curChildItems = ((ItemsNodeInterval) curChild).getItemsInterval();
                         Item cancellingItem = curChildItems.getCancelledItemIfExists(curAddItem.getId());
                         if (cancellingItem == null) {
@@ -321,7 +320,6 @@ public class ItemsNodeInterval extends NodeInterval {
                             break;
                         }
                         toBeRemoved.put(curChildItems, cancellingItem);
-                        curChild = curChild.getRightSibling();
                     }
 
                     if (foundFullRepairByParts) {
@@ -16,19 +16,19 @@
 
 package org.killbill.billing.invoice.tree;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.joda.time.LocalDate;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
 
 public class NodeInterval {
 
     protected NodeInterval parent;
-    protected NodeInterval leftChild;
-    protected NodeInterval rightSibling;
+    // Sorted by start date (and therefore by end date, since siblings never contain each other)
+    protected List<NodeInterval> children;
 
     protected LocalDate start;
     protected LocalDate end;
@@ -41,8 +41,7 @@ public class NodeInterval {
         this.start = startDate;
         this.end = endDate;
         this.parent = parent;
-        this.leftChild = null;
-        this.rightSibling = null;
+        this.children = new ArrayList<NodeInterval>();
     }
 
     /**
@@ -55,21 +54,19 @@ public class NodeInterval {
 
         Preconditions.checkNotNull(callback);
 
-        if (leftChild == null) {
+        if (children.isEmpty()) {
             callback.onLastNode(this);
             return;
         }
 
         LocalDate curDate = start;
-        NodeInterval curChild = leftChild;
-        while (curChild != null) {
+        for (final NodeInterval curChild : children) {
             if (curChild.getStart().compareTo(curDate) > 0) {
                 callback.onMissingInterval(this, curDate, curChild.getStart());
             }
             curChild.build(callback);
             // Note that skip to child endDate, meaning that we always consider the child [start end]
             curDate = curChild.getEnd();
-            curChild = curChild.getRightSibling();
         }
 
         // Finally if there is a hole at the end, we build the missing piece from ourselves
@@ -99,25 +96,25 @@ public class NodeInterval {
         computeRootInterval(newNode);
 
         newNode.parent = this;
-        if (leftChild == null) {
+        if (children.isEmpty()) {
             if (callback.shouldInsertNode(this)) {
-                leftChild = newNode;
+                children.add(newNode);
                 return true;
             } else {
                 return false;
             }
         }
 
-        NodeInterval prevChild = null;
-        NodeInterval curChild = leftChild;
-        while (curChild != null) {
+        // Children ending before the new node can neither contain it, be overlapped by it nor follow it: skip them
+        for (int i = indexOfFirstChildEndingOnOrAfter(newNode.getStart()); i < children.size(); i++) {
+            final NodeInterval curChild = children.get(i);
             if (curChild.isItemContained(newNode)) {
                 return curChild.addNode(newNode, callback);
             }
 
             if (curChild.isItemOverlap(newNode)) {
                 if (callback.shouldInsertNode(this)) {
-                    rebalance(newNode);
+                    rebalance(newNode, i);
                     return true;
                 } else {
                     return false;
@@ -126,23 +123,16 @@ public class NodeInterval {
 
             if (newNode.getStart().compareTo(curChild.getStart()) < 0) {
                 if (callback.shouldInsertNode(this)) {
-                    newNode.rightSibling = curChild;
-                    if (prevChild == null) {
-                        leftChild = newNode;
-                    } else {
-                        prevChild.rightSibling = newNode;
-                    }
+                    children.add(i, newNode);
                     return true;
                 } else {
                     return false;
                 }
             }
-            prevChild = curChild;
-            curChild = curChild.rightSibling;
         }
 
         if (callback.shouldInsertNode(this)) {
-            prevChild.rightSibling = newNode;
+            children.add(newNode);
             return true;
         } else {
             return false;
@@ -150,57 +140,36 @@ public class NodeInterval {
     }
 
     public void removeChild(final NodeInterval toBeRemoved) {
-        NodeInterval prevChild = null;
-        NodeInterval curChild = leftChild;
-        while (curChild != null) {
+        for (int i = indexOfFirstChildStartingOnOrAfter(toBeRemoved.getStart()); i < children.size(); i++) {
+            final NodeInterval curChild = children.get(i);
+            if (curChild.getStart().compareTo(toBeRemoved.getStart()) > 0) {
+                break;
+            }
             if (curChild.isSame(toBeRemoved)) {
-                if (prevChild == null) {
-                    if (curChild.getLeftChild() == null) {
-                        leftChild = curChild.getRightSibling();
-                    } else {
-                        leftChild = curChild.getLeftChild();
-                        adjustRightMostChildSibling(curChild);
-                    }
-                } else {
-                    if (curChild.getLeftChild() == null) {
-                        prevChild.rightSibling = curChild.getRightSibling();
-                    } else {
-                        prevChild.rightSibling = curChild.getLeftChild();
-                        adjustRightMostChildSibling(curChild);
-                    }
+                // The children of the removed node take its place
+                children.remove(i);
+                for (final NodeInterval grandChild : curChild.children) {
+                    grandChild.parent = this;
                 }
+                children.addAll(i, curChild.children);
                 break;
             }
-            prevChild = curChild;
-            curChild = curChild.getRightSibling();
-        }
-    }
-
-    private void adjustRightMostChildSibling(final NodeInterval curNode) {
-        NodeInterval tmpChild = curNode.getLeftChild();
-        NodeInterval preTmpChild = null;
-        while (tmpChild != null) {
-            preTmpChild = tmpChild;
-            tmpChild = tmpChild.getRightSibling();
         }
-        preTmpChild.rightSibling = curNode.getRightSibling();
     }
 
     @JsonIgnore
     public boolean isPartitionedByChildren() {
 
-        if (leftChild == null) {
+        if (children.isEmpty()) {
             return false;
         }
 
         LocalDate curDate = start;
-        NodeInterval curChild = leftChild;
-        while (curChild != null) {
+        for (final NodeInterval curChild : children) {
             if (curChild.getStart().compareTo(curDate) > 0) {
                 return false;
             }
             curDate = curChild.getEnd();
-            curChild = curChild.getRightSibling();
         }
         return (curDate.compareTo(end) == 0);
     }
@@ -221,18 +190,19 @@ public class NodeInterval {
             return null;
         }
 
-        NodeInterval curChild = leftChild;
-        while (curChild != null) {
-            if (curChild.getStart().compareTo(targetDate) <= 0 && curChild.getEnd().compareTo(targetDate) >= 0) {
-                if (callback.isMatch(curChild)) {
-                    return curChild;
-                }
-                NodeInterval result = curChild.findNode(targetDate, callback);
-                if (result != null) {
-                    return result;
-                }
+        for (int i = indexOfFirstChildEndingOnOrAfter(targetDate); i < children.size(); i++) {
+            final NodeInterval curChild = children.get(i);
+            if (curChild.getStart().compareTo(targetDate) > 0) {
+                // Children are sorted by start date, none of the remaining ones can comprise that date
+                break;
+            }
+            if (callback.isMatch(curChild)) {
+                return curChild;
+            }
+            NodeInterval result = curChild.findNode(targetDate, callback);
+            if (result != null) {
+                return result;
             }
-            curChild = curChild.getRightSibling();
         }
         return null;
     }
@@ -250,13 +220,11 @@ public class NodeInterval {
             return this;
         }
 
-        NodeInterval curChild = leftChild;
-        while (curChild != null) {
+        for (final NodeInterval curChild : children) {
             final NodeInterval result = curChild.findNode(callback);
             if (result != null) {
                 return result;
             }
-            curChild = curChild.getRightSibling();
         }
         return null;
     }
@@ -276,10 +244,14 @@ public class NodeInterval {
         Preconditions.checkNotNull(callback);
         callback.onCurrentNode(depth, this, parent);
 
-        NodeInterval curChild = leftChild;
-        while (curChild != null) {
+        int i = 0;
+        while (i < children.size()) {
+            final NodeInterval curChild = children.get(i);
             curChild.walkTreeWithDepth(callback, (depth + 1));
-            curChild = curChild.getRightSibling();
+            // The callback may have removed that child from the tree, in which case its next sibling is now at the same index
+            if (i < children.size() && children.get(i) == curChild) {
+                i++;
+            }
         }
     }
 
@@ -322,70 +294,87 @@ public class NodeInterval {
         return parent;
     }
 
+    @JsonIgnore
+    public List<NodeInterval> getChildren() {
+        return children;
+    }
+
     @JsonIgnore
     public NodeInterval getLeftChild() {
-        return leftChild;
+        return children.isEmpty() ? null : children.get(0);
     }
 
     @JsonIgnore
     public NodeInterval getRightSibling() {
-        return rightSibling;
+        if (parent == null) {
+            return null;
+        }
+        final List<NodeInterval> siblings = parent.children;
+        for (int i = 0; i < siblings.size() - 1; i++) {
+            if (siblings.get(i) == this) {
+                return siblings.get(i + 1);
+            }
+        }
+        return null;
     }
 
     @JsonIgnore
     public int getNbChildren() {
-        int result = 0;
-        NodeInterval curChild = leftChild;
-        while (curChild != null) {
-            result++;
-            curChild = curChild.rightSibling;
+        return children.size();
+    }
+
+    // Binary search: index of the first child whose end date is on or after the given date (children.size() if none)
+    private int indexOfFirstChildEndingOnOrAfter(final LocalDate date) {
+        int low = 0;
+        int high = children.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (children.get(mid).getEnd().compareTo(date) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Binary search: index of the first child whose start date is on or after the given date (children.size() if none)
+    private int indexOfFirstChildStartingOnOrAfter(final LocalDate date) {
+        int low = 0;
+        int high = children.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (children.get(mid).getStart().compareTo(date) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
         }
-        return result;
+        return low;
     }
 
     /**
      * Since items may be added out of order, there is no guarantee that we don't suddenly have a new node
      * whose interval emcompasses cuurent node(s). In which case we need to rebalance the tree.
      *
-     * @param newNode node that triggered a rebalance operation
+     * @param newNode            node that triggered a rebalance operation
+     * @param firstOverlappedIndex index of the first child overlapped by the new node
      */
-    private void rebalance(final NodeInterval newNode) {
+    private void rebalance(final NodeInterval newNode, final int firstOverlappedIndex) {
 
-        NodeInterval prevRebalanced = null;
-        NodeInterval curChild = leftChild;
-        List<NodeInterval> toBeRebalanced = Lists.newLinkedList();
-        do {
-            if (curChild.isItemOverlap(newNode)) {
-                toBeRebalanced.add(curChild);
-            } else {
-                if (toBeRebalanced.size() > 0) {
-                    break;
-                }
-                prevRebalanced = curChild;
-            }
-            curChild = curChild.rightSibling;
-        } while (curChild != null);
-
-        newNode.parent = this;
-        final NodeInterval lastNodeToRebalance = toBeRebalanced.get(toBeRebalanced.size() - 1);
-        newNode.rightSibling = lastNodeToRebalance.rightSibling;
-        lastNodeToRebalance.rightSibling = null;
-        if (prevRebalanced == null) {
-            leftChild = newNode;
-        } else {
-            prevRebalanced.rightSibling = newNode;
+        int lastOverlappedIndex = firstOverlappedIndex;
+        while (lastOverlappedIndex + 1 < children.size() && children.get(lastOverlappedIndex + 1).isItemOverlap(newNode)) {
+            lastOverlappedIndex++;
         }
 
-        NodeInterval prev = null;
-        for (NodeInterval cur : toBeRebalanced) {
+        newNode.parent = this;
+        final List<NodeInterval> toBeRebalanced = children.subList(firstOverlappedIndex, lastOverlappedIndex + 1);
+        newNode.children = new ArrayList<NodeInterval>(toBeRebalanced);
+        for (final NodeInterval cur : newNode.children) {
             cur.parent = newNode;
-            if (prev == null) {
-                newNode.leftChild = cur;
-            } else {
-                prev.rightSibling = cur;
-            }
-            prev = cur;
         }
+        toBeRebalanced.clear();
+        children.add(firstOverlappedIndex, newNode);
     }
 
     private void computeRootInterval(final NodeInterval newNode) {
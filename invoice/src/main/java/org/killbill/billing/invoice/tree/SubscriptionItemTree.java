@@ -16,9 +16,9 @@
 
 package org.killbill.billing.invoice.tree;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -77,10 +77,10 @@ public class SubscriptionItemTree {
         this.subscriptionId = subscriptionId;
         this.targetInvoiceId = targetInvoiceId;
         this.root = new ItemsNodeInterval(targetInvoiceId);
-        this.items = new LinkedList<Item>();
-        this.existingFixedItems = new LinkedList<InvoiceItem>();
+        this.items = new ArrayList<Item>();
+        this.existingFixedItems = new ArrayList<InvoiceItem>();
         this.remainingFixedItems = new HashMap<LocalDate, InvoiceItem>();
-        this.pendingItemAdj = new LinkedList<InvoiceItem>();
+        this.pendingItemAdj = new ArrayList<InvoiceItem>();
         this.isBuilt = false;
     }
 
@@ -197,7 +197,7 @@ public class SubscriptionItemTree {
      */
     public List<InvoiceItem> getView() {
 
-        final List<InvoiceItem> tmp = new LinkedList<InvoiceItem>();
+        final List<InvoiceItem> tmp = new ArrayList<InvoiceItem>();
         tmp.addAll(remainingFixedItems.values());
         tmp.addAll(Collections2.filter(Collections2.transform(items, new Function<Item, InvoiceItem>() {
             @Override
@@ -17,10 +17,13 @@
 
 package org.killbill.billing.invoice.usage;
 
+import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -33,6 +36,7 @@ import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.model.UsageInvoiceItem;
 import org.killbill.billing.usage.InternalUserApi;
 import org.killbill.billing.usage.RawUsage;
+import org.killbill.billing.util.CloseableIterator;
 import org.killbill.billing.util.config.InvoiceConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,7 +46,9 @@ import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Ordering;
+import com.google.common.collect.PeekingIterator;
 
 public class RawUsageOptimizer {
 
@@ -70,7 +76,7 @@ public class RawUsageOptimizer {
         log.info("RawUsageOptimizer [accountRecordId = {}]: rawUsageStartDate = {}, (proposed) firstEventStartDate = {}",
                  new Object[]{internalCallContext.getAccountRecordId(), targetStartDate, firstEventStartDate});
 
-        final List<RawUsage> rawUsageData = usageApi.getRawUsageForAccount(targetStartDate, targetDate, internalCallContext);
+        final CloseableIterator<RawUsage> rawUsageData = usageApi.getRawUsageForAccount(targetStartDate, targetDate, internalCallContext);
         return new RawUsageOptimizerResult(firstEventStartDate, targetStartDate, rawUsageData);
     }
 
@@ -150,16 +156,22 @@ public class RawUsageOptimizer {
         return result;
     }
 
-    public static class RawUsageOptimizerResult {
+    /**
+     * Cursor over the account raw usage, streamed ordered by subscription and date: only the usage of one subscription is held in memory at a time.
+     * The result needs to be closed to release the underlying connection.
+     */
+    public static class RawUsageOptimizerResult implements Closeable {
 
         private final LocalDate firstEventStartDate;
         private final LocalDate rawUsageStartDate;
-        private final List<RawUsage> rawUsage;
+        private final CloseableIterator<RawUsage> rawUsageData;
+        private final PeekingIterator<RawUsage> rawUsage;
 
-        public RawUsageOptimizerResult(final LocalDate firstEventStartDate, final LocalDate rawUsageStartDate, final List<RawUsage> rawUsage) {
+        public RawUsageOptimizerResult(final LocalDate firstEventStartDate, final LocalDate rawUsageStartDate, final CloseableIterator<RawUsage> rawUsageData) {
             this.firstEventStartDate = firstEventStartDate;
             this.rawUsageStartDate = rawUsageStartDate;
-            this.rawUsage = rawUsage;
+            this.rawUsageData = rawUsageData;
+            this.rawUsage = Iterators.peekingIterator(rawUsageData);
         }
 
         public LocalDate getFirstEventStartDate() {
@@ -170,8 +182,25 @@ public class RawUsageOptimizer {
             return rawUsageStartDate;
         }
 
-        public List<RawUsage> getRawUsage() {
-            return rawUsage;
+        public boolean hasNextSubscriptionRawUsage() {
+            return rawUsage.hasNext();
+        }
+
+        /**
+         * @return the raw usage for the next subscription in the stream, sorted by date
+         */
+        public List<RawUsage> nextSubscriptionRawUsage() {
+            final UUID subscriptionId = rawUsage.peek().getSubscriptionId();
+            final List<RawUsage> result = new ArrayList<RawUsage>();
+            while (rawUsage.hasNext() && rawUsage.peek().getSubscriptionId().equals(subscriptionId)) {
+                result.add(rawUsage.next());
+            }
+            return result;
+        }
+
+        @Override
+        public void close() {
+            rawUsageData.close();
         }
     }
 
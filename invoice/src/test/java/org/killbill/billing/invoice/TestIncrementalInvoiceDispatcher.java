@@ -0,0 +1,217 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.MockPlan;
+import org.killbill.billing.catalog.MockPlanPhase;
+import org.killbill.billing.catalog.api.BillingMode;
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.PlanPhase;
+import org.killbill.billing.invoice.api.DefaultInvoiceService;
+import org.killbill.billing.invoice.api.DryRunArguments;
+import org.killbill.billing.invoice.api.InvoiceItemType;
+import org.killbill.billing.invoice.dao.InvoiceItemModelDao;
+import org.killbill.billing.invoice.dao.InvoiceModelDao;
+import org.killbill.billing.invoice.notification.DefaultNextBillingDateNotifier;
+import org.killbill.billing.invoice.notification.NextBillingDateNotificationKey;
+import org.killbill.billing.invoice.notification.NullInvoiceNotifier;
+import org.killbill.billing.junction.BillingEventSet;
+import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.clock.ClockMock;
+import org.killbill.notificationq.api.NotificationEventWithMetadata;
+import org.killbill.notificationq.api.NotificationQueue;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+public class TestIncrementalInvoiceDispatcher extends InvoiceTestSuiteWithEmbeddedDB {
+
+    private Account account;
+    private SubscriptionBase subscription1;
+    private SubscriptionBase subscription2;
+    private InternalCallContext context;
+    private InvoiceDispatcher dispatcher;
+
+    @Override
+    protected KillbillConfigSource getConfigSource() {
+        return getConfigSource("/resource.properties", ImmutableMap.<String, String>of("org.killbill.invoice.generation.incremental", "true"));
+    }
+
+    @Override
+    @BeforeMethod(groups = "slow")
+    public void beforeMethod() throws Exception {
+        super.beforeMethod();
+        account = invoiceUtil.createAccount(callContext);
+        subscription1 = invoiceUtil.createSubscription();
+        subscription2 = invoiceUtil.createSubscription();
+        context = internalCallContextFactory.createInternalCallContext(account.getId(), callContext);
+        Mockito.when(subscriptionApi.getAccountIdFromSubscriptionId(Mockito.<UUID>any(), Mockito.<InternalTenantContext>any())).thenReturn(account.getId());
+
+        dispatcher = new InvoiceDispatcher(generator, accountApi, billingApi, subscriptionApi, invoiceDao,
+                                           internalCallContextFactory, new NullInvoiceNotifier(), invoicePluginDispatcher, locker, busService.getBus(),
+                                           notificationQueueService, invoiceConfig, clock);
+    }
+
+    @Test(groups = "slow")
+    public void testSubscriptionsWithSameBillCycleDay() throws Exception {
+        Assert.assertTrue(invoiceConfig.isIncrementalInvoiceGenerationEnabled());
+
+        // Keep the next billing date notifications in the future
+        ((ClockMock) clock).setDay(new LocalDate(2012, 5, 1));
+
+        // Both subscriptions start on the same day, with the same BCD
+        final BillingEventSet events = new MockBillingEventSet();
+        final Plan plan = MockPlan.createBicycleNoTrialEvergreen1USD();
+        final PlanPhase planPhase = MockPlanPhase.create1USDMonthlyEvergreen();
+        final DateTime startDate = new DateTime("2012-05-01T00:03:42.000Z");
+        events.add(invoiceUtil.createMockBillingEvent(account, subscription1, startDate, plan, planPhase, null, BigDecimal.ONE, Currency.USD, BillingPeriod.MONTHLY,
+                                                      1, BillingMode.IN_ADVANCE, "CREATE", 1L, SubscriptionBaseTransitionType.CREATE));
+        events.add(invoiceUtil.createMockBillingEvent(account, subscription2, startDate, plan, planPhase, null, BigDecimal.ONE, Currency.USD, BillingPeriod.MONTHLY,
+                                                      1, BillingMode.IN_ADVANCE, "CREATE", 2L, SubscriptionBaseTransitionType.CREATE));
+        Mockito.when(billingApi.getBillingEventsForAccountAndUpdateAccountBCD(Mockito.<UUID>any(), Mockito.<DryRunArguments>any(), Mockito.<InternalCallContext>any())).thenReturn(events);
+
+        // Each transition only invoices its own subscription
+        dispatcher.processSubscriptionForInvoiceGeneration(subscription1.getId(), startDate, context);
+        checkRecurringItems(1, 0);
+        dispatcher.processSubscriptionForInvoiceGeneration(subscription2.getId(), startDate, context);
+        checkRecurringItems(1, 1);
+
+        // Both subscriptions need their own next billing date notification, although they fall on the same date
+        final LocalDate nextBillingDate = new LocalDate(2012, 6, 1);
+        Assert.assertEquals(getNextBillingDateNotifications(nextBillingDate), ImmutableSet.<UUID>of(subscription1.getId(), subscription2.getId()));
+
+        // Process these notifications
+        final DateTime nextBillingDateTime = new DateTime("2012-06-01T00:03:42.000Z");
+        dispatcher.processSubscriptionForNextBillingDate(subscription1.getId(), nextBillingDateTime, context);
+        checkRecurringItems(2, 1);
+        dispatcher.processSubscriptionForNextBillingDate(subscription2.getId(), nextBillingDateTime, context);
+        checkRecurringItems(2, 2);
+    }
+
+    @Test(groups = "slow")
+    public void testFallbackToAccountRunWhenOtherSubscriptionHasNoNotification() throws Exception {
+        ((ClockMock) clock).setDay(new LocalDate(2012, 5, 1));
+
+        final DateTime startDate = new DateTime("2012-05-01T00:03:42.000Z");
+        Mockito.when(billingApi.getBillingEventsForAccountAndUpdateAccountBCD(Mockito.<UUID>any(), Mockito.<DryRunArguments>any(), Mockito.<InternalCallContext>any())).thenReturn(createBillingEvents(startDate));
+
+        dispatcher.processSubscriptionForInvoiceGeneration(subscription1.getId(), startDate, context);
+        dispatcher.processSubscriptionForInvoiceGeneration(subscription2.getId(), startDate, context);
+        checkRecurringItems(1, 1);
+
+        // Same as a notification scheduled for the account before the incremental mode was turned on: only one is left for that date
+        final LocalDate nextBillingDate = new LocalDate(2012, 6, 1);
+        removeNextBillingDateNotification(subscription2.getId(), nextBillingDate);
+        Assert.assertEquals(getNextBillingDateNotifications(nextBillingDate), ImmutableSet.<UUID>of(subscription1.getId()));
+
+        // The notification of the first subscription invoices both
+        dispatcher.processSubscriptionForNextBillingDate(subscription1.getId(), new DateTime("2012-06-01T00:03:42.000Z"), context);
+        checkRecurringItems(2, 2);
+    }
+
+    @Test(groups = "slow")
+    public void testFallbackToAccountRunForUnknownSubscription() throws Exception {
+        ((ClockMock) clock).setDay(new LocalDate(2012, 5, 1));
+
+        final DateTime startDate = new DateTime("2012-05-01T00:03:42.000Z");
+        Mockito.when(billingApi.getBillingEventsForAccountAndUpdateAccountBCD(Mockito.<UUID>any(), Mockito.<DryRunArguments>any(), Mockito.<InternalCallContext>any())).thenReturn(createBillingEvents(startDate));
+
+        // No billing event for that subscription
+        dispatcher.processSubscriptionForNextBillingDate(UUID.randomUUID(), startDate, context);
+        checkRecurringItems(1, 1);
+    }
+
+    private BillingEventSet createBillingEvents(final DateTime startDate) throws Exception {
+        final BillingEventSet events = new MockBillingEventSet();
+        final Plan plan = MockPlan.createBicycleNoTrialEvergreen1USD();
+        final PlanPhase planPhase = MockPlanPhase.create1USDMonthlyEvergreen();
+        events.add(invoiceUtil.createMockBillingEvent(account, subscription1, startDate, plan, planPhase, null, BigDecimal.ONE, Currency.USD, BillingPeriod.MONTHLY,
+                                                      1, BillingMode.IN_ADVANCE, "CREATE", 1L, SubscriptionBaseTransitionType.CREATE));
+        events.add(invoiceUtil.createMockBillingEvent(account, subscription2, startDate, plan, planPhase, null, BigDecimal.ONE, Currency.USD, BillingPeriod.MONTHLY,
+                                                      1, BillingMode.IN_ADVANCE, "CREATE", 2L, SubscriptionBaseTransitionType.CREATE));
+        return events;
+    }
+
+    private void removeNextBillingDateNotification(final UUID subscriptionId, final LocalDate effectiveDate) throws Exception {
+        final NotificationQueue nextBillingQueue = notificationQueueService.getNotificationQueue(DefaultInvoiceService.INVOICE_SERVICE_NAME,
+                                                                                                 DefaultNextBillingDateNotifier.NEXT_BILLING_DATE_NOTIFIER_QUEUE);
+        for (final NotificationEventWithMetadata<NextBillingDateNotificationKey> notification : nextBillingQueue.<NextBillingDateNotificationKey>getFutureNotificationForSearchKeys(context.getAccountRecordId(), context.getTenantRecordId())) {
+            if (subscriptionId.equals(notification.getEvent().getUuidKey()) &&
+                effectiveDate.equals(new LocalDate(notification.getEffectiveDate(), DateTimeZone.UTC))) {
+                nextBillingQueue.removeNotification(notification.getRecordId());
+            }
+        }
+    }
+
+    private void checkRecurringItems(final int expectedSubscription1Items, final int expectedSubscription2Items) {
+        int subscription1Items = 0;
+        int subscription2Items = 0;
+        final List<InvoiceModelDao> invoices = invoiceDao.getInvoicesByAccount(context);
+        for (final InvoiceModelDao invoice : invoices) {
+            for (final InvoiceItemModelDao invoiceItem : invoice.getInvoiceItems()) {
+                if (invoiceItem.getType() != InvoiceItemType.RECURRING) {
+                    continue;
+                }
+                if (subscription1.getId().equals(invoiceItem.getSubscriptionId())) {
+                    subscription1Items++;
+                } else if (subscription2.getId().equals(invoiceItem.getSubscriptionId())) {
+                    subscription2Items++;
+                } else {
+                    Assert.fail("Unexpected item " + invoiceItem);
+                }
+            }
+        }
+        Assert.assertEquals(subscription1Items, expectedSubscription1Items);
+        Assert.assertEquals(subscription2Items, expectedSubscription2Items);
+    }
+
+    private Set<UUID> getNextBillingDateNotifications(final LocalDate effectiveDate) throws Exception {
+        final NotificationQueue nextBillingQueue = notificationQueueService.getNotificationQueue(DefaultInvoiceService.INVOICE_SERVICE_NAME,
+                                                                                                 DefaultNextBillingDateNotifier.NEXT_BILLING_DATE_NOTIFIER_QUEUE);
+        final List<NotificationEventWithMetadata<NextBillingDateNotificationKey>> futureNotifications = nextBillingQueue.getFutureNotificationForSearchKeys(context.getAccountRecordId(), context.getTenantRecordId());
+
+        final Set<UUID> subscriptionIds = new HashSet<UUID>();
+        for (final NotificationEventWithMetadata<NextBillingDateNotificationKey> notification : futureNotifications) {
+            if (!Boolean.TRUE.equals(notification.getEvent().isDryRunForInvoiceNotification()) &&
+                effectiveDate.equals(new LocalDate(notification.getEffectiveDate(), DateTimeZone.UTC))) {
+                subscriptionIds.add(notification.getEvent().getUuidKey());
+            }
+        }
+        return subscriptionIds;
+    }
+}
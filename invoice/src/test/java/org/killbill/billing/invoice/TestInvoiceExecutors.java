@@ -0,0 +1,192 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.util.config.InvoiceConfig;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestInvoiceExecutors extends InvoiceTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testDisabled() throws Exception {
+        final InvoiceExecutors invoiceExecutors = new InvoiceExecutors(createInvoiceConfig(0, 5));
+        invoiceExecutors.initialize();
+
+        Assert.assertFalse(invoiceExecutors.isEnabled());
+        Assert.assertFalse(invoiceExecutors.submit(1L, new Runnable() {
+            @Override
+            public void run() {
+                Assert.fail("The task should be run by the caller");
+            }
+        }));
+
+        invoiceExecutors.stop();
+    }
+
+    @Test(groups = "fast")
+    public void testAccountsProcessedConcurrently() throws Exception {
+        final InvoiceExecutors invoiceExecutors = new InvoiceExecutors(createInvoiceConfig(2, 5));
+        invoiceExecutors.initialize();
+
+        // Each generation only completes once the other one has started: this can only happen if both accounts
+        // are processed at the same time, although they are submitted from a single (notification queue) thread
+        final CyclicBarrier bothStarted = new CyclicBarrier(2);
+        final CountDownLatch completed = new CountDownLatch(2);
+        for (long accountRecordId = 1; accountRecordId <= 2; accountRecordId++) {
+            Assert.assertTrue(invoiceExecutors.submit(accountRecordId, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        bothStarted.await(5, TimeUnit.SECONDS);
+                        completed.countDown();
+                    } catch (final Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }));
+        }
+        Assert.assertTrue(completed.await(10, TimeUnit.SECONDS));
+
+        invoiceExecutors.stop();
+    }
+
+    @Test(groups = "fast")
+    public void testPerAccountOrdering() throws Exception {
+        final InvoiceExecutors invoiceExecutors = new InvoiceExecutors(createInvoiceConfig(4, 1000));
+        invoiceExecutors.initialize();
+
+        final Map<Long, List<Integer>> processedByAccount = Collections.synchronizedMap(new HashMap<Long, List<Integer>>());
+        for (long accountRecordId = 1; accountRecordId <= 10; accountRecordId++) {
+            processedByAccount.put(accountRecordId, Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+
+        // Notifications dispatched from several threads, one per account
+        final List<Thread> submitters = new ArrayList<Thread>();
+        for (long accountRecordId = 1; accountRecordId <= 10; accountRecordId++) {
+            final Long curAccountRecordId = accountRecordId;
+            submitters.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100; i++) {
+                        final int sequence = i;
+                        Assert.assertTrue(invoiceExecutors.submit(curAccountRecordId, new Runnable() {
+                            @Override
+                            public void run() {
+                                processedByAccount.get(curAccountRecordId).add(sequence);
+                            }
+                        }));
+                    }
+                }
+            }));
+        }
+        for (final Thread submitter : submitters) {
+            submitter.start();
+        }
+        for (final Thread submitter : submitters) {
+            submitter.join();
+        }
+
+        // Pending generations are drained on stop
+        invoiceExecutors.stop();
+
+        for (final List<Integer> processed : processedByAccount.values()) {
+            Assert.assertEquals(processed.size(), 100);
+            for (int i = 0; i < 100; i++) {
+                Assert.assertEquals((int) processed.get(i), i);
+            }
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testRejectionWhenLaneIsFull() throws Exception {
+        final InvoiceExecutors invoiceExecutors = new InvoiceExecutors(createInvoiceConfig(1, 1));
+        invoiceExecutors.initialize();
+
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        Assert.assertTrue(invoiceExecutors.submit(1L, new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    blocker.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        final Runnable noop = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        // One slot in the queue, then the lane rejects the work (the caller re-queues the notification)
+        Assert.assertTrue(invoiceExecutors.submit(1L, noop));
+        Assert.assertFalse(invoiceExecutors.submit(1L, noop));
+
+        blocker.countDown();
+        invoiceExecutors.stop();
+
+        // Nothing is accepted once stopped
+        Assert.assertFalse(invoiceExecutors.submit(1L, noop));
+    }
+
+    @Test(groups = "fast")
+    public void testLaneSurvivesFailures() throws Exception {
+        final InvoiceExecutors invoiceExecutors = new InvoiceExecutors(createInvoiceConfig(1, 5));
+        invoiceExecutors.initialize();
+
+        Assert.assertTrue(invoiceExecutors.submit(1L, new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("Generation failed");
+            }
+        }));
+
+        final CountDownLatch completed = new CountDownLatch(1);
+        Assert.assertTrue(invoiceExecutors.submit(1L, new Runnable() {
+            @Override
+            public void run() {
+                completed.countDown();
+            }
+        }));
+        Assert.assertTrue(completed.await(5, TimeUnit.SECONDS));
+
+        invoiceExecutors.stop();
+    }
+
+    private InvoiceConfig createInvoiceConfig(final int nbThreads, final int queueCapacity) {
+        final InvoiceConfig invoiceConfig = Mockito.mock(InvoiceConfig.class);
+        Mockito.when(invoiceConfig.getInvoiceGenerationThreadNb()).thenReturn(nbThreads);
+        Mockito.when(invoiceConfig.getInvoiceGenerationQueueCapacity()).thenReturn(queueCapacity);
+        return invoiceConfig;
+    }
+}
@@ -18,6 +18,7 @@ package org.killbill.billing.invoice.dao;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.joda.time.LocalDate;
@@ -37,6 +38,10 @@ import org.killbill.billing.invoice.model.ExternalChargeInvoiceItem;
 import org.killbill.billing.invoice.model.FixedPriceInvoiceItem;
 import org.killbill.billing.invoice.model.InvoiceItemFactory;
 import org.killbill.billing.invoice.model.RecurringInvoiceItem;
+import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.dao.TableName;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.tweak.HandleCallback;
 
 import static org.killbill.billing.invoice.TestInvoiceHelper.TEN;
 import static org.testng.Assert.assertEquals;
@@ -149,6 +154,37 @@ public class TestInvoiceItemDao extends InvoiceTestSuiteWithEmbeddedDB {
         assertEquals(items.size(), 1);
     }
 
+    @Test(groups = "slow")
+    public void testBatchInvoiceItemsCreationWithAudits() throws EntityPersistenceException {
+        final UUID accountId = account.getId();
+        final UUID bundleId = UUID.randomUUID();
+        final LocalDate startDate = new LocalDate(2011, 3, 1);
+        final BigDecimal rate = new BigDecimal("20.00");
+        final DefaultInvoice invoice = new DefaultInvoice(accountId, clock.getUTCToday(), startDate, Currency.USD);
+        final int nbItems = 200;
+        for (int i = 0; i < nbItems; i++) {
+            invoice.addInvoiceItem(new RecurringInvoiceItem(invoice.getId(), accountId, bundleId, UUID.randomUUID(),
+                                                            "test plan", "test phase", startDate, startDate.plusMonths(1),
+                                                            rate, rate, Currency.USD));
+        }
+
+        invoiceUtil.createInvoice(invoice, true, context);
+
+        final List<InvoiceItemModelDao> items = invoiceUtil.getInvoiceItemByInvoiceId(invoice.getId(), context);
+        assertEquals(items.size(), nbItems);
+
+        // Each item gets its own audit row, pointing to the item record id
+        final List<Map<String, Object>> audits = dbi.withHandle(new HandleCallback<List<Map<String, Object>>>() {
+            @Override
+            public List<Map<String, Object>> withHandle(final Handle handle) throws Exception {
+                return handle.select("select distinct a.target_record_id from audit_log a join invoice_items i on a.target_record_id = i.record_id " +
+                                     "where a.table_name = ? and a.change_type = ? and i.invoice_id = ?",
+                                     TableName.INVOICE_ITEMS.toString(), ChangeType.INSERT.toString(), invoice.getId().toString());
+            }
+        });
+        assertEquals(audits.size(), nbItems);
+    }
+
     @Test(groups = "slow")
     public void testCreditBalanceInvoiceSqlDao() throws EntityPersistenceException {
         final UUID invoiceId = UUID.randomUUID();
@@ -74,6 +74,8 @@ import org.slf4j.LoggerFactory;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableSet;
+
 import static org.killbill.billing.invoice.TestInvoiceHelper.EIGHT;
 import static org.killbill.billing.invoice.TestInvoiceHelper.FIFTEEN;
 import static org.killbill.billing.invoice.TestInvoiceHelper.FIVE;
@@ -133,6 +135,26 @@ public class TestDefaultInvoiceGenerator extends InvoiceTestSuiteNoDB {
             public int getMaxGlobalLockRetries() {
                 return 10;
             }
+
+            @Override
+            public int getInvoiceGenerationThreadNb() {
+                return 0;
+            }
+
+            @Override
+            public int getInvoiceGenerationQueueCapacity() {
+                return 100;
+            }
+
+            @Override
+            public TimeSpan getInvoiceGenerationRetryDelay() {
+                return new TimeSpan("1m");
+            }
+
+            @Override
+            public boolean isIncrementalInvoiceGenerationEnabled() {
+                return false;
+            }
         };
         this.account = new MockAccountBuilder().name(UUID.randomUUID().toString().substring(1, 8))
                                                .firstNameLength(6)
@@ -299,6 +321,33 @@ public class TestDefaultInvoiceGenerator extends InvoiceTestSuiteNoDB {
         assertEquals(invoice.getBalance(), KillBillMoney.of(rate1.add(rate2), invoice.getCurrency()));
     }
 
+    @Test(groups = "fast")
+    public void testTwoSubscriptionsWithIncrementalGeneration() throws InvoiceApiException, CatalogApiException {
+        final BillingEventSet events = new MockBillingEventSet();
+
+        final Plan plan = new MockPlan();
+        final PlanPhase phase = createMockMonthlyPlanPhase(FIVE);
+
+        final SubscriptionBase sub1 = createSubscription();
+        events.add(createBillingEvent(sub1.getId(), sub1.getBundleId(), invoiceUtil.buildDate(2011, 9, 1), plan, phase, 1));
+        final SubscriptionBase sub2 = createSubscription();
+        events.add(createBillingEvent(sub2.getId(), sub2.getBundleId(), invoiceUtil.buildDate(2011, 9, 1), plan, phase, 1));
+
+        final LocalDate targetDate = invoiceUtil.buildDate(2011, 10, 3);
+        final InvoiceWithMetadata fullInvoiceWithMetadata = generator.generateInvoice(account, events, null, targetDate, Currency.USD, internalCallContext);
+        assertEquals(fullInvoiceWithMetadata.getInvoice().getNumberOfItems(), 4);
+
+        // Only the items of the first subscription are generated
+        final InvoiceWithMetadata invoiceWithMetadata = generator.generateInvoice(account, events, null, ImmutableSet.<UUID>of(sub1.getId()), targetDate, Currency.USD, internalCallContext);
+        final Invoice invoice = invoiceWithMetadata.getInvoice();
+        assertNotNull(invoice);
+        assertEquals(invoice.getNumberOfItems(), 2);
+        for (final InvoiceItem item : invoice.getInvoiceItems()) {
+            assertEquals(item.getSubscriptionId(), sub1.getId());
+        }
+        assertEquals(invoiceWithMetadata.getPerSubscriptionFutureNotificationDates().keySet(), ImmutableSet.<UUID>of(sub1.getId()));
+    }
+
     @Test(groups = "fast")
     public void testOnePlan_TwoMonthlyPhases_ChangeImmediate() throws InvoiceApiException, CatalogApiException {
         final BillingEventSet events = new MockBillingEventSet();
@@ -427,6 +427,45 @@ public class TestNodeInterval /* extends InvoiceTestSuiteNoDB  */ {
 
     }
 
+    @Test(groups = "fast")
+    public void testAddManyChildrenOutOfOrder() {
+        final DummyNodeInterval root = new DummyNodeInterval();
+
+        final DummyNodeInterval top = createNodeInterval("2010-01-01", "2020-01-01");
+        root.addNode(top, CALLBACK);
+
+        // Ten years of monthly periods, inserted from the last one to the first one
+        final List<DummyNodeInterval> children = new ArrayList<DummyNodeInterval>();
+        for (int i = 0; i < 120; i++) {
+            final LocalDate startDate = new LocalDate("2010-01-01").plusMonths(i);
+            children.add(createNodeInterval(startDate, startDate.plusMonths(1).minusDays(1)));
+        }
+        for (int i = children.size() - 1; i >= 0; i--) {
+            root.addNode(children.get(i), CALLBACK);
+        }
+
+        checkNode(top, children.size(), root, children.get(0), null);
+        for (int i = 0; i < children.size(); i++) {
+            checkNode(children.get(i), 0, top, null, i < children.size() - 1 ? children.get(i + 1) : null);
+        }
+
+        final NodeInterval search = root.findNode(new LocalDate("2015-06-15"), new SearchCallback() {
+            @Override
+            public boolean isMatch(final NodeInterval curNode) {
+                return curNode.getParent() == top;
+            }
+        });
+        assertEquals(search, children.get(65));
+
+        // Rebalance a whole year under a new node
+        final DummyNodeInterval year = createNodeInterval("2012-01-01", "2012-12-31");
+        root.addNode(year, CALLBACK);
+        checkNode(top, children.size() - 11, root, children.get(0), null);
+        checkNode(year, 12, top, children.get(24), children.get(36));
+        checkNode(children.get(23), 0, top, null, year);
+        checkNode(children.get(35), 0, year, null, null);
+    }
+
     private void checkInterval(final NodeInterval real, final NodeInterval expected) {
         assertEquals(real.getStart(), expected.getStart());
         assertEquals(real.getEnd(), expected.getEnd());
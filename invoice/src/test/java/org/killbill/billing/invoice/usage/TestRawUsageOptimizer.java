@@ -20,10 +20,15 @@ package org.killbill.billing.invoice.usage;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.joda.time.LocalDate;
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.catalog.DefaultTier;
 import org.killbill.billing.catalog.DefaultTieredBlock;
 import org.killbill.billing.catalog.DefaultUsage;
@@ -32,9 +37,19 @@ import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.catalog.api.Usage;
 import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.model.UsageInvoiceItem;
+import org.killbill.billing.invoice.usage.RawUsageOptimizer.RawUsageOptimizerResult;
+import org.killbill.billing.usage.InternalUserApi;
+import org.killbill.billing.usage.RawUsage;
+import org.killbill.billing.usage.api.svcs.DefaultRawUsage;
+import org.killbill.billing.util.CloseableIterator;
+import org.killbill.billing.util.config.InvoiceConfig;
+import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
 public class TestRawUsageOptimizer extends TestUsageInArrearBase {
 
     @Test(groups = "fast")
@@ -125,6 +140,70 @@ public class TestRawUsageOptimizer extends TestUsageInArrearBase {
         Assert.assertEquals(result.compareTo(new LocalDate(2014, 06, 15)), 0, "142 got " + result);
     }
 
+    @Test(groups = "fast")
+    public void testConsumableInArrearUsageIsStreamedPerSubscription() {
+        final UUID subscriptionId1 = UUID.randomUUID();
+        final UUID subscriptionId2 = UUID.randomUUID();
+        final LocalDate startDate = new LocalDate(2014, 03, 15);
+        final List<RawUsage> rawUsages = ImmutableList.<RawUsage>of(new DefaultRawUsage(subscriptionId1, startDate, "unit", 10L),
+                                                                    new DefaultRawUsage(subscriptionId1, startDate.plusDays(1), "unit", 20L),
+                                                                    new DefaultRawUsage(subscriptionId2, startDate, "unit", 30L));
+
+        final AtomicInteger nbConsumed = new AtomicInteger();
+        final AtomicBoolean closed = new AtomicBoolean(false);
+        final InternalUserApi usageApi = Mockito.mock(InternalUserApi.class);
+        Mockito.when(usageApi.getRawUsageForAccount(Mockito.<LocalDate>any(), Mockito.<LocalDate>any(), Mockito.<InternalTenantContext>any())).thenReturn(new CloseableIterator<RawUsage>() {
+
+            private final Iterator<RawUsage> delegate = rawUsages.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return delegate.hasNext();
+            }
+
+            @Override
+            public RawUsage next() {
+                nbConsumed.incrementAndGet();
+                return delegate.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        });
+        final InvoiceConfig invoiceConfig = Mockito.mock(InvoiceConfig.class);
+        Mockito.when(invoiceConfig.getMaxRawUsagePreviousPeriod()).thenReturn(0);
+
+        final RawUsageOptimizerResult result = new RawUsageOptimizer(invoiceConfig, usageApi).getConsumableInArrearUsage(startDate, startDate.plusMonths(1), ImmutableList.<InvoiceItem>of(), ImmutableMap.<String, Usage>of(), internalCallContext);
+        Assert.assertEquals(result.getRawUsageStartDate(), startDate);
+        // Nothing is read until the first subscription is requested
+        Assert.assertEquals(nbConsumed.get(), 0);
+
+        Assert.assertTrue(result.hasNextSubscriptionRawUsage());
+        final List<RawUsage> subscription1RawUsage = result.nextSubscriptionRawUsage();
+        Assert.assertEquals(subscription1RawUsage.size(), 2);
+        Assert.assertEquals(subscription1RawUsage.get(0).getSubscriptionId(), subscriptionId1);
+        Assert.assertEquals(subscription1RawUsage.get(1).getSubscriptionId(), subscriptionId1);
+        // Only the first row of the next subscription has been read (peeked)
+        Assert.assertEquals(nbConsumed.get(), 3);
+
+        Assert.assertTrue(result.hasNextSubscriptionRawUsage());
+        final List<RawUsage> subscription2RawUsage = result.nextSubscriptionRawUsage();
+        Assert.assertEquals(subscription2RawUsage.size(), 1);
+        Assert.assertEquals(subscription2RawUsage.get(0).getSubscriptionId(), subscriptionId2);
+        Assert.assertFalse(result.hasNextSubscriptionRawUsage());
+
+        Assert.assertFalse(closed.get());
+        result.close();
+        Assert.assertTrue(closed.get());
+    }
+
     private InvoiceItem createUsageItem(final LocalDate startDate) {
         return new UsageInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, planName, phaseName, usageName, startDate, startDate.plusMonths(1), BigDecimal.TEN, Currency.USD);
     }
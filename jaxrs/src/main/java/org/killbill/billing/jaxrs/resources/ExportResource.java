@@ -19,15 +19,19 @@ package org.killbill.billing.jaxrs.resources;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
 
 import org.killbill.billing.account.api.AccountUserApi;
@@ -55,6 +59,9 @@ import static javax.ws.rs.core.MediaType.TEXT_PLAIN;
 @Api(value = JaxrsResource.EXPORT_PATH, description = "Export endpoints")
 public class ExportResource extends JaxRsResourceBase {
 
+    private static final String APPLICATION_GZIP = "application/x-gzip";
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
     private final ExportUserApi exportUserApi;
 
     @Inject
@@ -78,18 +85,36 @@ public class ExportResource extends JaxRsResourceBase {
     @ApiOperation(value = "Export account data", response = String.class)
     @ApiResponses(value = {@ApiResponse(code = 400, message = "Invalid account id supplied"),
                            @ApiResponse(code = 404, message = "Account not found")})
-    public StreamingOutput exportDataForAccount(@PathParam("accountId") final String accountId,
-                                                @HeaderParam(HDR_CREATED_BY) final String createdBy,
-                                                @HeaderParam(HDR_REASON) final String reason,
-                                                @HeaderParam(HDR_COMMENT) final String comment,
-                                                @javax.ws.rs.core.Context final HttpServletRequest request) {
+    public Response exportDataForAccount(@PathParam("accountId") final String accountId,
+                                         @QueryParam(QUERY_EXPORT_GZIP) @DefaultValue("false") final Boolean gzip,
+                                         @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                         @HeaderParam(HDR_REASON) final String reason,
+                                         @HeaderParam(HDR_COMMENT) final String comment,
+                                         @javax.ws.rs.core.Context final HttpServletRequest request) {
         final CallContext callContext = context.createContext(createdBy, reason, comment, request);
-        return new StreamingOutput() {
+        return buildExportResponse(gzip, new StreamingOutput() {
             @Override
             public void write(final OutputStream output) throws IOException, WebApplicationException {
                 // CSV by default for now
                 exportUserApi.exportDataAsCSVForAccount(UUID.fromString(accountId), output, callContext);
             }
-        };
+        });
+    }
+
+    // The data is written as it is read from the database (chunked response), never buffered as a whole
+    private Response buildExportResponse(final boolean gzip, final StreamingOutput export) {
+        if (!gzip) {
+            return Response.ok(export).build();
+        }
+
+        return Response.ok(new StreamingOutput() {
+            @Override
+            public void write(final OutputStream output) throws IOException, WebApplicationException {
+                final GZIPOutputStream gzipOutput = new GZIPOutputStream(output, GZIP_BUFFER_SIZE);
+                export.write(gzipOutput);
+                // Write the trailer, the container takes care of closing the underlying stream
+                gzipOutput.finish();
+            }
+        }).type(APPLICATION_GZIP).build();
     }
 }
@@ -27,6 +27,8 @@ import javax.ws.rs.core.UriInfo;
 
 import org.killbill.billing.jaxrs.resources.JaxRsResourceBase;
 import org.killbill.billing.jaxrs.resources.JaxrsResource;
+import org.killbill.billing.util.entity.DefaultPagination;
+import org.killbill.billing.util.entity.Pagination;
 
 public class JaxrsUriBuilder {
 
@@ -39,7 +41,8 @@ public class JaxrsUriBuilder {
         return Response.created(location).build();
     }
 
-    public URI nextPage(final Class<? extends JaxrsResource> theClass, final String getMethodName, final Long nextOffset, final Long limit, final Map<String, String> params) {
+    public URI nextPage(final Class<? extends JaxrsResource> theClass, final String getMethodName, final Pagination<?> page, final Long limit, final Map<String, String> params) {
+        final Long nextOffset = page.getNextOffset();
         if (nextOffset == null || limit == null) {
             // End of pagination?
             return null;
@@ -47,6 +50,11 @@ public class JaxrsUriBuilder {
 
         final UriBuilder uriBuilder = getUriBuilder(theClass, getMethodName).queryParam(JaxRsResourceBase.QUERY_SEARCH_OFFSET, nextOffset)
                                                                             .queryParam(JaxRsResourceBase.QUERY_SEARCH_LIMIT, limit);
+        // Lets the next page be read with a seek (see PaginationCursorFilter)
+        final String nextPageCursor = page instanceof DefaultPagination ? ((DefaultPagination<?>) page).getNextPageCursor() : null;
+        if (nextPageCursor != null) {
+            uriBuilder.queryParam(JaxRsResourceBase.QUERY_SEARCH_CURSOR, nextPageCursor);
+        }
         for (final String key : params.keySet()) {
             uriBuilder.queryParam(key, params.get(key));
         }
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
@@ -47,6 +48,7 @@ import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
@@ -115,6 +117,9 @@ public class BlockingCalculator {
         final Map<UUID, List<BlockingState>> perBundleBlockingEvents = getPerTypeBlockingEvents(BlockingStateType.SUBSCRIPTION_BUNDLE, blockingEvents);
         final Map<UUID, List<BlockingState>> perSubscriptionBlockingEvents = getPerTypeBlockingEvents(BlockingStateType.SUBSCRIPTION, blockingEvents);
 
+        // Index the billing events per subscription once, rather than filtering the whole set for each subscription and disabled duration
+        final Map<SubscriptionBase, List<BillingEvent>> perSubscriptionBillingEvents = getPerSubscriptionBillingEvents(billingEvents);
+
         for (final UUID bundleId : bundleMap.keySet()) {
             for (final SubscriptionBase subscription : bundleMap.get(bundleId)) {
 
@@ -123,8 +128,13 @@ public class BlockingCalculator {
                 final List<BlockingState> aggregateSubscriptionBlockingEvents = getAggregateBlockingEventsPerSubscription(subscriptionBlockingEvents, bundleBlockingEvents, accountBlockingEvents);
                 final List<DisabledDuration> accountBlockingDurations = createBlockingDurations(aggregateSubscriptionBlockingEvents);
 
-                billingEventsToAdd.addAll(createNewEvents(accountBlockingDurations, billingEvents, subscription));
-                billingEventsToRemove.addAll(eventsToRemove(accountBlockingDurations, billingEvents, subscription));
+                if (accountBlockingDurations.isEmpty()) {
+                    continue;
+                }
+
+                final List<BillingEvent> subscriptionBillingEvents = Objects.firstNonNull(perSubscriptionBillingEvents.get(subscription), ImmutableList.<BillingEvent>of());
+                billingEventsToAdd.addAll(createNewEvents(accountBlockingDurations, subscriptionBillingEvents));
+                billingEventsToRemove.addAll(eventsToRemove(accountBlockingDurations, subscriptionBillingEvents));
             }
         }
 
@@ -165,30 +175,38 @@ public class BlockingCalculator {
 
     protected SortedSet<BillingEvent> eventsToRemove(final List<DisabledDuration> disabledDuration,
                                                      final SortedSet<BillingEvent> billingEvents, final SubscriptionBase subscription) {
-        final SortedSet<BillingEvent> result = new TreeSet<BillingEvent>();
+        return eventsToRemove(disabledDuration, new ArrayList<BillingEvent>(filter(billingEvents, subscription)));
+    }
 
-        final SortedSet<BillingEvent> filteredBillingEvents = filter(billingEvents, subscription);
+    // subscriptionBillingEvents are the (sorted) billing events of a single subscription
+    private SortedSet<BillingEvent> eventsToRemove(final List<DisabledDuration> disabledDuration, final List<BillingEvent> subscriptionBillingEvents) {
+        final SortedSet<BillingEvent> result = new TreeSet<BillingEvent>();
         for (final DisabledDuration duration : disabledDuration) {
-            for (final BillingEvent event : filteredBillingEvents) {
-                if (duration.getEnd() == null || event.getEffectiveDate().isBefore(duration.getEnd())) {
-                    if (event.getEffectiveDate().isAfter(duration.getStart())) { //between the pair
-                        result.add(event);
-                    }
-                } else { //after the last event of the pair no need to keep checking
+            // Events strictly between the pair
+            for (int i = indexOfFirstEventAfter(duration.getStart(), subscriptionBillingEvents); i < subscriptionBillingEvents.size(); i++) {
+                final BillingEvent event = subscriptionBillingEvents.get(i);
+                if (duration.getEnd() != null && !event.getEffectiveDate().isBefore(duration.getEnd())) {
+                    //after the last event of the pair no need to keep checking
                     break;
                 }
+                result.add(event);
             }
         }
         return result;
     }
 
     protected SortedSet<BillingEvent> createNewEvents(final List<DisabledDuration> disabledDuration, final SortedSet<BillingEvent> billingEvents, final SubscriptionBase subscription) {
+        return createNewEvents(disabledDuration, new ArrayList<BillingEvent>(filter(billingEvents, subscription)));
+    }
+
+    // subscriptionBillingEvents are the (sorted) billing events of a single subscription
+    private SortedSet<BillingEvent> createNewEvents(final List<DisabledDuration> disabledDuration, final List<BillingEvent> subscriptionBillingEvents) {
         final SortedSet<BillingEvent> result = new TreeSet<BillingEvent>();
         for (final DisabledDuration duration : disabledDuration) {
             // The first one before the blocked duration
-            final BillingEvent precedingInitialEvent = precedingBillingEventForSubscription(duration.getStart(), billingEvents, subscription);
+            final BillingEvent precedingInitialEvent = precedingBillingEvent(duration.getStart(), subscriptionBillingEvents);
             // The last one during of before the duration
-            final BillingEvent precedingFinalEvent = precedingBillingEventForSubscription(duration.getEnd(), billingEvents, subscription);
+            final BillingEvent precedingFinalEvent = precedingBillingEvent(duration.getEnd(), subscriptionBillingEvents);
 
             if (precedingInitialEvent != null) { // there is a preceding billing event
                 result.add(createNewDisableEvent(duration.getStart(), precedingInitialEvent));
@@ -204,24 +222,65 @@ public class BlockingCalculator {
     }
 
     protected BillingEvent precedingBillingEventForSubscription(final DateTime datetime, final SortedSet<BillingEvent> billingEvents, final SubscriptionBase subscription) {
-        if (datetime == null) { //second of a pair can be null if there's no re-enabling
+        return precedingBillingEvent(datetime, new ArrayList<BillingEvent>(filter(billingEvents, subscription)));
+    }
+
+    // subscriptionBillingEvents are the (sorted) billing events of a single subscription
+    private BillingEvent precedingBillingEvent(final DateTime datetime, final List<BillingEvent> subscriptionBillingEvents) {
+        if (datetime == null || subscriptionBillingEvents.isEmpty()) { //second of a pair can be null if there's no re-enabling
             return null;
         }
 
-        final SortedSet<BillingEvent> filteredBillingEvents = filter(billingEvents, subscription);
-        BillingEvent result = filteredBillingEvents.first();
-
-        if (datetime.isBefore(result.getEffectiveDate())) {
+        if (datetime.isBefore(subscriptionBillingEvents.get(0).getEffectiveDate())) {
             //This case can happen, for example, if we have an add on and the bundle goes into disabled before the add on is created
             return null;
         }
 
-        for (final BillingEvent event : filteredBillingEvents) {
-            if (!event.getEffectiveDate().isBefore(datetime)) { // found it its the previous event
-                return result;
-            } else { // still looking
-                result = event;
+        // The last event strictly before datetime (or the first one, if it is on datetime)
+        final int index = indexOfFirstEventOnOrAfter(datetime, subscriptionBillingEvents) - 1;
+        return subscriptionBillingEvents.get(Math.max(index, 0));
+    }
+
+    // Binary search over events sorted by effective date: index of the first event on or after datetime (size if none)
+    private int indexOfFirstEventOnOrAfter(final DateTime datetime, final List<BillingEvent> subscriptionBillingEvents) {
+        int low = 0;
+        int high = subscriptionBillingEvents.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (subscriptionBillingEvents.get(mid).getEffectiveDate().isBefore(datetime)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Binary search over events sorted by effective date: index of the first event strictly after datetime (size if none)
+    private int indexOfFirstEventAfter(final DateTime datetime, final List<BillingEvent> subscriptionBillingEvents) {
+        int low = 0;
+        int high = subscriptionBillingEvents.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (subscriptionBillingEvents.get(mid).getEffectiveDate().isAfter(datetime)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private Map<SubscriptionBase, List<BillingEvent>> getPerSubscriptionBillingEvents(final SortedSet<BillingEvent> billingEvents) {
+        // Same identity semantics as filter
+        final Map<SubscriptionBase, List<BillingEvent>> result = new IdentityHashMap<SubscriptionBase, List<BillingEvent>>();
+        for (final BillingEvent event : billingEvents) {
+            List<BillingEvent> subscriptionBillingEvents = result.get(event.getSubscription());
+            if (subscriptionBillingEvents == null) {
+                subscriptionBillingEvents = new ArrayList<BillingEvent>();
+                result.put(event.getSubscription(), subscriptionBillingEvents);
             }
+            subscriptionBillingEvents.add(event);
         }
         return result;
     }
@@ -17,6 +17,7 @@
 package org.killbill.billing.junction.plumbing.billing;
 
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
 import java.util.UUID;
 
@@ -50,6 +51,9 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Multimaps;
 import com.google.inject.Inject;
 
 public class DefaultInternalBillingApi implements BillingInternalApi {
@@ -105,12 +109,25 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
             log.warn("Failed while getting BillingEvent", e);
         }
 
-        // Pretty-print the events, before and after the blocking calculator does its magic
-        final StringBuilder logStringBuilder = new StringBuilder("Computed billing events for accountId ").append(accountId);
-        eventsToString(logStringBuilder, result, "\nBilling Events Raw");
+        // Pretty-print the events, before and after the blocking calculator does its magic. This can be very large for big accounts,
+        // so the events are only rendered when debug logging is enabled
+        final StringBuilder logStringBuilder;
+        if (log.isDebugEnabled()) {
+            logStringBuilder = new StringBuilder("Computed billing events for accountId ").append(accountId);
+            eventsToString(logStringBuilder, result, "\nBilling Events Raw");
+        } else {
+            logStringBuilder = null;
+        }
+
+        final int nbRawEvents = result.size();
         blockCalculator.insertBlockingEvents(result, context);
-        eventsToString(logStringBuilder, result, "\nBilling Events After Blocking");
-        log.info(logStringBuilder.toString());
+
+        if (logStringBuilder != null) {
+            eventsToString(logStringBuilder, result, "\nBilling Events After Blocking");
+            log.debug(logStringBuilder.toString());
+        } else {
+            log.info("Computed {} billing events ({} after blocking) for accountId {}", nbRawEvents, result.size(), accountId);
+        }
 
         return result;
     }
@@ -127,6 +144,18 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
 
         final boolean dryRunMode = dryRunArguments != null;
 
+        // Load all subscriptions (with their events) and all bundle tags for the account upfront, instead of querying them bundle by bundle
+        final Map<UUID, List<SubscriptionBase>> subscriptionsForAccount = subscriptionApi.getSubscriptionsForAccount(context);
+        final ListMultimap<UUID, Tag> bundleTags = Multimaps.index(tagApi.getTagsForAccountType(ObjectType.BUNDLE, false, context),
+                                                                   new Function<Tag, UUID>() {
+                                                                       @Override
+                                                                       public UUID apply(final Tag tag) {
+                                                                           return tag.getObjectId();
+                                                                       }
+                                                                   });
+
+        int currentAccountBCD = accountApi.getBCD(account.getId(), context);
+
         // In dryRun mode, when we care about invoice generated for new BASE subscription, no such bundle exists yet; we still
         // want to tap into subscriptionBase logic, so we make up a bundleId
         if (dryRunArguments != null &&
@@ -135,7 +164,7 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
             final UUID fakeBundleId = UUIDs.randomUUID();
             final List<SubscriptionBase> subscriptions = subscriptionApi.getSubscriptionsForBundle(fakeBundleId, dryRunArguments, context);
 
-            addBillingEventsForSubscription(account, subscriptions, fakeBundleId, dryRunMode, context, result);
+            currentAccountBCD = addBillingEventsForSubscription(account, currentAccountBCD, subscriptions, fakeBundleId, dryRunMode, context, result);
 
         }
 
@@ -144,32 +173,42 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
                                                               dryRunArguments.getBundleId() != null &&
                                                               dryRunArguments.getBundleId().equals(bundle.getId())) ?
                                                              dryRunArguments : null;
-            final List<SubscriptionBase> subscriptions = subscriptionApi.getSubscriptionsForBundle(bundle.getId(), dryRunArgumentsForBundle, context);
+            final List<SubscriptionBase> subscriptions;
+            if (dryRunArgumentsForBundle != null) {
+                // The dryRun events need to be merged into the subscriptions of that bundle
+                subscriptions = subscriptionApi.getSubscriptionsForBundle(bundle.getId(), dryRunArgumentsForBundle, context);
+            } else if (subscriptionsForAccount.get(bundle.getId()) != null) {
+                subscriptions = subscriptionsForAccount.get(bundle.getId());
+            } else {
+                subscriptions = ImmutableList.<SubscriptionBase>of();
+            }
 
             //Check if billing is off for the bundle
-            final List<Tag> bundleTags = tagApi.getTags(bundle.getId(), ObjectType.BUNDLE, context);
-            boolean found_AUTO_INVOICING_OFF = is_AUTO_INVOICING_OFF(bundleTags);
+            boolean found_AUTO_INVOICING_OFF = is_AUTO_INVOICING_OFF(bundleTags.get(bundle.getId()));
             if (found_AUTO_INVOICING_OFF) {
                 for (final SubscriptionBase subscription : subscriptions) { // billing is off so list sub ids in set to be excluded
                     result.getSubscriptionIdsWithAutoInvoiceOff().add(subscription.getId());
                 }
             } else { // billing is not off
-                addBillingEventsForSubscription(account, subscriptions, bundle.getId(), dryRunMode, context, result);
+                currentAccountBCD = addBillingEventsForSubscription(account, currentAccountBCD, subscriptions, bundle.getId(), dryRunMode, context, result);
             }
         }
     }
 
-    private void addBillingEventsForSubscription(final ImmutableAccountData account,
-                                                 final List<SubscriptionBase> subscriptions,
-                                                 final UUID bundleId,
-                                                 final boolean dryRunMode,
-                                                 final InternalCallContext context,
-                                                 final DefaultBillingEventSet result) throws AccountApiException {
+    // Return the account BCD, as updated while processing these subscriptions
+    private int addBillingEventsForSubscription(final ImmutableAccountData account,
+                                                final int accountBCD,
+                                                final List<SubscriptionBase> subscriptions,
+                                                final UUID bundleId,
+                                                final boolean dryRunMode,
+                                                final InternalCallContext context,
+                                                final DefaultBillingEventSet result) throws AccountApiException {
 
         // If dryRun is specified, we don't want to to update the account BCD value, so we initialize the flag updatedAccountBCD to true
         boolean updatedAccountBCD = dryRunMode;
 
-        int currentAccountBCD = accountApi.getBCD(account.getId(), context);
+        final int currentAccountBCD = accountBCD;
+        int newAccountBCD = accountBCD;
         for (final SubscriptionBase subscription : subscriptions) {
 
             // The subscription did not even start, so there is nothing to do yet, we can skip and avoid some NPE down the line when calculating the BCD
@@ -184,6 +223,7 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
                     if (currentAccountBCD == 0 && !updatedAccountBCD) {
                         accountApi.updateBCD(account.getExternalKey(), bcdLocal, context);
                         updatedAccountBCD = true;
+                        newAccountBCD = bcdLocal;
                     }
 
                     final BillingEvent event = new DefaultBillingEvent(account, transition, subscription, bcdLocal, account.getCurrency(), catalogService.getFullCatalog(context));
@@ -199,6 +239,7 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
                 }
             }
         }
+        return newAccountBCD;
     }
 
     private final boolean is_AUTO_INVOICING_OFF(final List<Tag> tags) {
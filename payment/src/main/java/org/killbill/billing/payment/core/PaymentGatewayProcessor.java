@@ -48,6 +48,7 @@ import org.killbill.billing.util.config.PaymentConfig;
 import org.killbill.clock.Clock;
 import org.killbill.commons.locker.GlobalLocker;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Objects;
 
 import static org.killbill.billing.payment.dispatcher.PaymentPluginDispatcher.dispatchWithExceptionHandling;
@@ -67,11 +68,12 @@ public class PaymentGatewayProcessor extends ProcessorBase {
                                    final PaymentConfig paymentConfig,
                                    final PaymentExecutors executors,
                                    final InternalCallContextFactory internalCallContextFactory,
-                                   final Clock clock) {
+                                   final Clock clock,
+                                   final MetricRegistry metricRegistry) {
         super(pluginRegistry, accountUserApi, paymentDao, tagUserApi, locker, internalCallContextFactory, invoiceApi, clock);
         final long paymentPluginTimeoutSec = TimeUnit.SECONDS.convert(paymentConfig.getPaymentPluginTimeout().getPeriod(), paymentConfig.getPaymentPluginTimeout().getUnit());
-        this.paymentPluginFormDispatcher = new PluginDispatcher<HostedPaymentPageFormDescriptor>(paymentPluginTimeoutSec, executors);
-        this.paymentPluginNotificationDispatcher = new PluginDispatcher<GatewayNotification>(paymentPluginTimeoutSec, executors);
+        this.paymentPluginFormDispatcher = new PluginDispatcher<HostedPaymentPageFormDescriptor>(paymentPluginTimeoutSec, executors, metricRegistry);
+        this.paymentPluginNotificationDispatcher = new PluginDispatcher<GatewayNotification>(paymentPluginTimeoutSec, executors, metricRegistry);
     }
 
     public GatewayNotification processNotification(final boolean shouldDispatch, final String notification, final UUID paymentMethodId, final Iterable<PluginProperty> properties, final CallContext callContext) throws PaymentApiException {
@@ -88,20 +90,26 @@ public class PaymentGatewayProcessor extends ProcessorBase {
                                                      public PluginDispatcherReturnType<GatewayNotification> call() throws PaymentApiException {
                                                          final PaymentPluginApi plugin = getPaymentPluginApi(pluginName);
 
+                                                         final long startNanos = System.nanoTime();
                                                          try {
                                                              final GatewayNotification result = plugin.processNotification(notification, properties, callContext);
                                                              return PluginDispatcher.createPluginDispatcherReturnType(result == null ? new DefaultNoOpGatewayNotification() : result);
                                                          } catch (final PaymentPluginApiException e) {
                                                              throw new PaymentApiException(ErrorCode.PAYMENT_PLUGIN_EXCEPTION, e.getErrorMessage());
+                                                         } finally {
+                                                             paymentPluginNotificationDispatcher.updatePluginLatency(pluginName, startNanos);
                                                          }
                                                      }
                                                  }, paymentPluginNotificationDispatcher);
         } else {
             final PaymentPluginApi plugin = getPaymentPluginApi(pluginName);
+            final long startNanos = System.nanoTime();
             try {
                 return plugin.processNotification(notification, properties, callContext);
             } catch (final PaymentPluginApiException e) {
                 throw new PaymentApiException(ErrorCode.PAYMENT_PLUGIN_EXCEPTION, e.getErrorMessage());
+            } finally {
+                paymentPluginNotificationDispatcher.updatePluginLatency(pluginName, startNanos);
             }
         }
     }
@@ -117,6 +125,7 @@ public class PaymentGatewayProcessor extends ProcessorBase {
                                                      public PluginDispatcherReturnType<HostedPaymentPageFormDescriptor> call() throws PaymentApiException {
                                                          final PaymentPluginApi plugin = getPaymentPluginApi(pluginName);
 
+                                                         final long startNanos = System.nanoTime();
                                                          try {
                                                              final HostedPaymentPageFormDescriptor result = plugin.buildFormDescriptor(account.getId(), customFields, properties, callContext);
                                                              return PluginDispatcher.createPluginDispatcherReturnType(result == null ? new DefaultNoOpHostedPaymentPageFormDescriptor(account.getId()) : result);
@@ -124,15 +133,20 @@ public class PaymentGatewayProcessor extends ProcessorBase {
                                                              throw new PaymentApiException(e, ErrorCode.PAYMENT_INTERNAL_ERROR, Objects.firstNonNull(e.getMessage(), ""));
                                                          } catch (final PaymentPluginApiException e) {
                                                              throw new PaymentApiException(ErrorCode.PAYMENT_PLUGIN_EXCEPTION, e.getErrorMessage());
+                                                         } finally {
+                                                             paymentPluginFormDispatcher.updatePluginLatency(pluginName, startNanos);
                                                          }
                                                      }
                                                  }, paymentPluginFormDispatcher);
         } else {
             final PaymentPluginApi plugin = getPaymentPluginApi(pluginName);
+            final long startNanos = System.nanoTime();
             try {
                 return plugin.buildFormDescriptor(account.getId(), customFields, properties, callContext);
             } catch (final PaymentPluginApiException e) {
                 throw new PaymentApiException(ErrorCode.PAYMENT_PLUGIN_EXCEPTION, e.getErrorMessage());
+            } finally {
+                paymentPluginFormDispatcher.updatePluginLatency(pluginName, startNanos);
             }
         }
     }
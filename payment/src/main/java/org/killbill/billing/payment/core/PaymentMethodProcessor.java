@@ -64,6 +64,7 @@ import org.killbill.commons.locker.GlobalLocker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
@@ -94,11 +95,12 @@ public class PaymentMethodProcessor extends ProcessorBase {
                                   final PaymentConfig paymentConfig,
                                   final PaymentExecutors executors,
                                   final InternalCallContextFactory internalCallContextFactory,
-                                  final Clock clock) {
+                                  final Clock clock,
+                                  final MetricRegistry metricRegistry) {
         super(pluginRegistry, accountInternalApi, paymentDao, tagUserApi, locker, internalCallContextFactory, invoiceApi, clock);
         final long paymentPluginTimeoutSec = TimeUnit.SECONDS.convert(paymentConfig.getPaymentPluginTimeout().getPeriod(), paymentConfig.getPaymentPluginTimeout().getUnit());
         this.paymentConfig = paymentConfig;
-        this.uuidPluginNotificationDispatcher = new PluginDispatcher<UUID>(paymentPluginTimeoutSec, executors);
+        this.uuidPluginNotificationDispatcher = new PluginDispatcher<UUID>(paymentPluginTimeoutSec, executors, metricRegistry);
     }
 
     public UUID addPaymentMethod(final String paymentMethodExternalKey, final String paymentPluginServiceName, final Account account,
@@ -121,7 +123,12 @@ public class PaymentMethodProcessor extends ProcessorBase {
 
                                                                                                                 pm = new DefaultPaymentMethod(paymentMethodExternalKey, account.getId(), paymentPluginServiceName, paymentMethodProps);
                                                                                                                 final PaymentPluginApi pluginApi = getPaymentPluginApi(paymentPluginServiceName);
-                                                                                                                pluginApi.addPaymentMethod(account.getId(), pm.getId(), paymentMethodProps, setDefault, properties, callContext);
+                                                                                                                final long startNanos = System.nanoTime();
+                                                                                                                try {
+                                                                                                                    pluginApi.addPaymentMethod(account.getId(), pm.getId(), paymentMethodProps, setDefault, properties, callContext);
+                                                                                                                } finally {
+                                                                                                                    uuidPluginNotificationDispatcher.updatePluginLatency(paymentPluginServiceName, startNanos);
+                                                                                                                }
 
                                                                                                                 final String actualPaymentMethodExternalKey = retrieveActualPaymentMethodExternalKey(account, pm, pluginApi, properties, callContext, context);
                                                                                                                 final PaymentMethodModelDao pmModel = new PaymentMethodModelDao(pm.getId(),
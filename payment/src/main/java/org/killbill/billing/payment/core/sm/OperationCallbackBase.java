@@ -83,6 +83,10 @@ public abstract class OperationCallbackBase<CallbackOperationResult, CallbackOpe
         }
     }
 
+    protected void updatePluginLatency(final String pluginName, final long startNanos) {
+        paymentPluginDispatcher.updatePluginLatency(pluginName, startNanos);
+    }
+
     //
     // The OperationCallback per state machine are often very similar in between operation
     //
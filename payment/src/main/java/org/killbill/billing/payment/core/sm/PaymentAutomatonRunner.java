@@ -76,6 +76,7 @@ import org.killbill.bus.api.PersistentBus;
 import org.killbill.clock.Clock;
 import org.killbill.commons.locker.GlobalLocker;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
@@ -100,7 +101,8 @@ public class PaymentAutomatonRunner {
                                   final Clock clock,
                                   final PaymentExecutors executors,
                                   final PersistentBus eventBus,
-                                  final PaymentStateMachineHelper paymentSMHelper) {
+                                  final PaymentStateMachineHelper paymentSMHelper,
+                                  final MetricRegistry metricRegistry) {
         this.paymentSMHelper = paymentSMHelper;
         this.paymentDao = paymentDao;
         this.locker = locker;
@@ -109,7 +111,7 @@ public class PaymentAutomatonRunner {
         this.eventBus = eventBus;
         this.paymentConfig = paymentConfig;
         final long paymentPluginTimeoutSec = TimeUnit.SECONDS.convert(paymentConfig.getPaymentPluginTimeout().getPeriod(), paymentConfig.getPaymentPluginTimeout().getUnit());
-        this.paymentPluginDispatcher = new PluginDispatcher<OperationResult>(paymentPluginTimeoutSec, executors);
+        this.paymentPluginDispatcher = new PluginDispatcher<OperationResult>(paymentPluginTimeoutSec, executors, metricRegistry);
 
     }
 
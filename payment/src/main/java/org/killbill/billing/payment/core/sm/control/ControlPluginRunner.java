@@ -43,18 +43,29 @@ import org.killbill.billing.payment.retry.DefaultFailureCallResult;
 import org.killbill.billing.payment.retry.DefaultOnSuccessPaymentControlResult;
 import org.killbill.billing.payment.retry.DefaultPriorPaymentControlResult;
 import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.metrics.LatencyTimers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Functions;
+
 public class ControlPluginRunner {
 
     private static final Logger log = LoggerFactory.getLogger(ControlPluginRunner.class);
 
     private final OSGIServiceRegistration<PaymentControlPluginApi> paymentControlPluginRegistry;
+    // Latency of the control plugin calls, per plugin name
+    private final LatencyTimers<String> priorCallTimers;
+    private final LatencyTimers<String> onSuccessCallTimers;
+    private final LatencyTimers<String> onFailureCallTimers;
 
     @Inject
-    public ControlPluginRunner(final OSGIServiceRegistration<PaymentControlPluginApi> paymentControlPluginRegistry) {
+    public ControlPluginRunner(final OSGIServiceRegistration<PaymentControlPluginApi> paymentControlPluginRegistry, final MetricRegistry metricRegistry) {
         this.paymentControlPluginRegistry = paymentControlPluginRegistry;
+        this.priorCallTimers = new LatencyTimers<String>(metricRegistry, MetricRegistry.name(ControlPluginRunner.class, "priorCall"), Functions.<String>identity());
+        this.onSuccessCallTimers = new LatencyTimers<String>(metricRegistry, MetricRegistry.name(ControlPluginRunner.class, "onSuccessCall"), Functions.<String>identity());
+        this.onFailureCallTimers = new LatencyTimers<String>(metricRegistry, MetricRegistry.name(ControlPluginRunner.class, "onFailureCall"), Functions.<String>identity());
     }
 
     public PriorPaymentControlResult executePluginPriorCalls(final Account account,
@@ -102,7 +113,12 @@ public class ControlPluginRunner {
                 continue;
             }
             log.debug("Calling priorCall of plugin {}", pluginName);
-            prevResult = plugin.priorCall(inputPaymentControlContext, inputPluginProperties);
+            final long startNanos = System.nanoTime();
+            try {
+                prevResult = plugin.priorCall(inputPaymentControlContext, inputPluginProperties);
+            } finally {
+                priorCallTimers.update(pluginName, startNanos);
+            }
             log.debug("Successful executed priorCall of plugin {}", pluginName);
             if (prevResult.getAdjustedPaymentMethodId() != null) {
                 inputPaymentMethodId = prevResult.getAdjustedPaymentMethodId();
@@ -180,7 +196,13 @@ public class ControlPluginRunner {
             if (plugin != null) {
                 try {
                     log.debug("Calling onSuccessCall of plugin {}", pluginName);
-                    final OnSuccessPaymentControlResult result = plugin.onSuccessCall(inputPaymentControlContext, inputPluginProperties);
+                    final OnSuccessPaymentControlResult result;
+                    final long startNanos = System.nanoTime();
+                    try {
+                        result = plugin.onSuccessCall(inputPaymentControlContext, inputPluginProperties);
+                    } finally {
+                        onSuccessCallTimers.update(pluginName, startNanos);
+                    }
                     log.debug("Successful executed onSuccessCall of plugin {}", pluginName);
                     if (result.getAdjustedPluginProperties() != null) {
                         inputPluginProperties = result.getAdjustedPluginProperties();
@@ -234,7 +256,13 @@ public class ControlPluginRunner {
             if (plugin != null) {
                 try {
                     log.debug("Calling onSuccessCall of plugin {}", pluginName);
-                    final OnFailurePaymentControlResult result = plugin.onFailureCall(inputPaymentControlContext, inputPluginProperties);
+                    final OnFailurePaymentControlResult result;
+                    final long startNanos = System.nanoTime();
+                    try {
+                        result = plugin.onFailureCall(inputPaymentControlContext, inputPluginProperties);
+                    } finally {
+                        onFailureCallTimers.update(pluginName, startNanos);
+                    }
                     log.debug("Successful executed onSuccessCall of plugin {}", pluginName);
                     if (candidate == null) {
                         candidate = result.getNextRetryDate();
@@ -75,7 +75,7 @@ public abstract class PaymentOperation extends OperationCallbackBase<PaymentTran
             if (paymentStateContext.shouldLockAccountAndDispatch()) {
                 return doOperationCallbackWithDispatchAndAccountLock(pluginName);
             } else {
-                return doSimpleOperationCallback();
+                return doSimpleOperationCallback(pluginName);
             }
         } catch (final Exception e) {
             throw convertToUnknownTransactionStatusAndErroredPaymentState(e);
@@ -152,19 +152,19 @@ public abstract class PaymentOperation extends OperationCallbackBase<PaymentTran
         return result;
     }
 
-    private OperationResult doOperationCallbackWithDispatchAndAccountLock(String pluginName) throws OperationException {
+    private OperationResult doOperationCallbackWithDispatchAndAccountLock(final String pluginName) throws OperationException {
         return dispatchWithAccountLockAndTimeout(pluginName, new DispatcherCallback<PluginDispatcherReturnType<OperationResult>, OperationException>() {
             @Override
             public PluginDispatcherReturnType<OperationResult> doOperation() throws OperationException {
-                final OperationResult result = doSimpleOperationCallback();
+                final OperationResult result = doSimpleOperationCallback(pluginName);
                 return PluginDispatcher.createPluginDispatcherReturnType(result);
             }
         });
     }
 
-    private OperationResult doSimpleOperationCallback() throws OperationException {
+    private OperationResult doSimpleOperationCallback(final String pluginName) throws OperationException {
         try {
-            return doOperation();
+            return doOperation(pluginName);
         } catch (final PaymentApiException e) {
             throw new OperationException(e, OperationResult.EXCEPTION);
         } catch (final RuntimeException e) {
@@ -172,14 +172,20 @@ public abstract class PaymentOperation extends OperationCallbackBase<PaymentTran
         }
     }
 
-    private OperationResult doOperation() throws PaymentApiException {
+    private OperationResult doOperation(final String pluginName) throws PaymentApiException {
         try {
             //
             // If the OperationResult was specified in the plugin, it means we want to bypass the plugin and just care
             // about running through the state machine to bring the transaction/payment into a new state.
             //
             if (paymentStateContext.getOverridePluginOperationResult() == null) {
-                final PaymentTransactionInfoPlugin paymentInfoPlugin = doCallSpecificOperationCallback();
+                final PaymentTransactionInfoPlugin paymentInfoPlugin;
+                final long startNanos = System.nanoTime();
+                try {
+                    paymentInfoPlugin = doCallSpecificOperationCallback();
+                } finally {
+                    updatePluginLatency(pluginName, startNanos);
+                }
                 //
                 // We catch null paymentInfoPlugin and throw a RuntimeException to end up in an UNKNOWN transactionStatus
                 // That way we can use the null paymentInfoPlugin when a PaymentPluginApiException is thrown and correctly
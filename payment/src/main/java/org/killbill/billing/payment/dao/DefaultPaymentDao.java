@@ -47,6 +47,7 @@ import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.KeysetPaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
@@ -247,7 +248,7 @@ public class DefaultPaymentDao implements PaymentDao {
     @Override
     public Pagination<PaymentModelDao> searchPayments(final String searchKey, final Long offset, final Long limit, final InternalTenantContext context) {
         return paginationHelper.getPagination(PaymentSqlDao.class,
-                                              new PaginationIteratorBuilder<PaymentModelDao, Payment, PaymentSqlDao>() {
+                                              new KeysetPaginationIteratorBuilder<PaymentModelDao, Payment, PaymentSqlDao>(searchKey) {
                                                   @Override
                                                   public Long getCount(final PaymentSqlDao paymentSqlDao, final InternalTenantContext context) {
                                                       return paymentSqlDao.getSearchCount(searchKey, String.format("%%%s%%", searchKey), context);
@@ -257,6 +258,16 @@ public class DefaultPaymentDao implements PaymentDao {
                                                   public Iterator<PaymentModelDao> build(final PaymentSqlDao paymentSqlDao, final Long limit, final InternalTenantContext context) {
                                                       return paymentSqlDao.search(searchKey, String.format("%%%s%%", searchKey), offset, limit, context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<PaymentModelDao> buildAfterRecordId(final PaymentSqlDao paymentSqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return paymentSqlDao.searchAfterRecordId(searchKey, String.format("%%%s%%", searchKey), lastSeenRecordId, limit, context);
+                                                  }
+
+                                                  @Override
+                                                  public Long getLastRecordIdAfterRecordId(final PaymentSqlDao paymentSqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return paymentSqlDao.searchLastRecordIdAfterRecordId(searchKey, String.format("%%%s%%", searchKey), lastSeenRecordId, limit, context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -454,7 +465,7 @@ public class DefaultPaymentDao implements PaymentDao {
     @Override
     public Pagination<PaymentMethodModelDao> searchPaymentMethods(final String searchKey, final Long offset, final Long limit, final InternalTenantContext context) {
         return paginationHelper.getPagination(PaymentMethodSqlDao.class,
-                                              new PaginationIteratorBuilder<PaymentMethodModelDao, PaymentMethod, PaymentMethodSqlDao>() {
+                                              new KeysetPaginationIteratorBuilder<PaymentMethodModelDao, PaymentMethod, PaymentMethodSqlDao>(searchKey) {
                                                   @Override
                                                   public Long getCount(final PaymentMethodSqlDao paymentMethodSqlDao, final InternalTenantContext context) {
                                                       return paymentMethodSqlDao.getSearchCount(searchKey, String.format("%%%s%%", searchKey), context);
@@ -464,6 +475,16 @@ public class DefaultPaymentDao implements PaymentDao {
                                                   public Iterator<PaymentMethodModelDao> build(final PaymentMethodSqlDao paymentMethodSqlDao, final Long limit, final InternalTenantContext context) {
                                                       return paymentMethodSqlDao.search(searchKey, String.format("%%%s%%", searchKey), offset, limit, context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<PaymentMethodModelDao> buildAfterRecordId(final PaymentMethodSqlDao paymentMethodSqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return paymentMethodSqlDao.searchAfterRecordId(searchKey, String.format("%%%s%%", searchKey), lastSeenRecordId, limit, context);
+                                                  }
+
+                                                  @Override
+                                                  public Long getLastRecordIdAfterRecordId(final PaymentMethodSqlDao paymentMethodSqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return paymentMethodSqlDao.searchLastRecordIdAfterRecordId(searchKey, String.format("%%%s%%", searchKey), lastSeenRecordId, limit, context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -27,11 +27,14 @@ import java.util.concurrent.TimeoutException;
 
 import org.apache.shiro.util.ThreadContext;
 import org.killbill.billing.payment.core.PaymentExecutors;
+import org.killbill.billing.util.metrics.LatencyTimers;
 import org.killbill.commons.profiling.Profiling;
 import org.killbill.commons.profiling.ProfilingData;
 import org.killbill.commons.request.Request;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Functions;
 
 public class PluginDispatcher<ReturnType> {
 
@@ -39,10 +42,18 @@ public class PluginDispatcher<ReturnType> {
 
     private final long timeoutSeconds;
     private final PaymentExecutors paymentExecutors;
+    // Latency of the plugin calls, per plugin name
+    private final LatencyTimers<String> timers;
 
-    public PluginDispatcher(final long timeoutSeconds, final PaymentExecutors paymentExecutors) {
+    public PluginDispatcher(final long timeoutSeconds, final PaymentExecutors paymentExecutors, final MetricRegistry metricRegistry) {
         this.timeoutSeconds = timeoutSeconds;
         this.paymentExecutors = paymentExecutors;
+        this.timers = new LatencyTimers<String>(metricRegistry, MetricRegistry.name(PluginDispatcher.class), Functions.<String>identity());
+    }
+
+    // Called around the plugin call itself (i.e. from within the dispatched task), so that the wait for the plugin executor or for the account lock isn't included
+    public void updatePluginLatency(final String pluginName, final long startNanos) {
+        timers.update(pluginName, startNanos);
     }
 
     // TODO Once we switch fully to automata, should this throw PaymentPluginApiException instead?
@@ -33,6 +33,7 @@ import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableList;
 
 public class TestControlPluginRunner extends PaymentTestSuiteNoDB {
@@ -49,7 +50,7 @@ public class TestControlPluginRunner extends PaymentTestSuiteNoDB {
         final ImmutableList<String> paymentControlPluginNames = ImmutableList.<String>of("not-registered");
         final ImmutableList<PluginProperty> pluginProperties = ImmutableList.<PluginProperty>of();
 
-        final ControlPluginRunner controlPluginRunner = new ControlPluginRunner(new DefaultPaymentControlProviderPluginRegistry());
+        final ControlPluginRunner controlPluginRunner = new ControlPluginRunner(new DefaultPaymentControlProviderPluginRegistry(), new MetricRegistry());
         final PriorPaymentControlResult paymentControlResult = controlPluginRunner.executePluginPriorCalls(account,
                                                                                                            paymentMethodId,
                                                                                                            null,
@@ -31,18 +31,24 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
 public class TestPluginDispatcher extends PaymentTestSuiteNoDB {
 
     private PluginDispatcher<Void> voidPluginDispatcher;
 
     private PluginDispatcher<String> stringPluginDispatcher;
 
+    private MetricRegistry metricRegistry;
+
     @BeforeMethod(groups = "fast")
     public void beforeMethod() throws Exception {
         super.beforeMethod();
         eventBus.start();
-        voidPluginDispatcher = new PluginDispatcher<Void>(10, paymentExecutors);
-        stringPluginDispatcher = new PluginDispatcher<String>(1, paymentExecutors);
+        metricRegistry = new MetricRegistry();
+        voidPluginDispatcher = new PluginDispatcher<Void>(10, paymentExecutors, metricRegistry);
+        stringPluginDispatcher = new PluginDispatcher<String>(1, paymentExecutors, metricRegistry);
     }
 
 
@@ -142,4 +148,18 @@ public class TestPluginDispatcher extends PaymentTestSuiteNoDB {
         Assert.assertEquals(actualRequestId, requestId);
     }
 
+    @Test(groups = "fast")
+    public void testPluginLatencyPerPlugin() throws Exception {
+        voidPluginDispatcher.updatePluginLatency("plugin-a", System.nanoTime());
+        voidPluginDispatcher.updatePluginLatency("plugin-a", System.nanoTime());
+        // Dispatchers share the timers of a given plugin
+        stringPluginDispatcher.updatePluginLatency("plugin-a", System.nanoTime());
+        stringPluginDispatcher.updatePluginLatency("plugin-b", System.nanoTime());
+
+        final Timer timerA = metricRegistry.getTimers().get(MetricRegistry.name(PluginDispatcher.class, "plugin-a"));
+        final Timer timerB = metricRegistry.getTimers().get(MetricRegistry.name(PluginDispatcher.class, "plugin-b"));
+        Assert.assertEquals(timerA.getCount(), 3);
+        Assert.assertEquals(timerB.getCount(), 1);
+    }
+
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.filters;
+
+import javax.inject.Inject;
+import javax.ws.rs.HttpMethod;
+
+import org.killbill.billing.jaxrs.resources.JaxrsResource;
+import org.killbill.billing.util.config.JaxrsConfig;
+import org.killbill.billing.util.entity.dao.PaginationCursor;
+
+import com.google.inject.Singleton;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+
+// Pass the pagination cursor of the request (see JaxrsUriBuilder#nextPage) down to the DAOs, since the APIs only take an offset
+@Singleton
+public class PaginationCursorFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private final JaxrsConfig jaxrsConfig;
+
+    @Inject
+    public PaginationCursorFilter(final JaxrsConfig jaxrsConfig) {
+        this.jaxrsConfig = jaxrsConfig;
+    }
+
+    @Override
+    public ContainerRequest filter(final ContainerRequest request) {
+        if (jaxrsConfig.isKeysetPaginationEnabled() && HttpMethod.GET.equals(request.getMethod())) {
+            PaginationCursor.setPerThreadPaginationCursor(request.getQueryParameters().getFirst(JaxrsResource.QUERY_SEARCH_CURSOR));
+        }
+        return request;
+    }
+
+    @Override
+    public ContainerResponse filter(final ContainerRequest request, final ContainerResponse response) {
+        PaginationCursor.resetPerThreadPaginationCursor();
+        return response;
+    }
+}
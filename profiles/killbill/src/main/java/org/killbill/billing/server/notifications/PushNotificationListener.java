@@ -21,17 +21,31 @@ package org.killbill.billing.server.notifications;
 import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
+import org.joda.time.DateTime;
 import org.killbill.billing.jaxrs.json.NotificationJson;
 import org.killbill.billing.notification.plugin.api.ExtBusEvent;
+import org.killbill.billing.server.DefaultServerService;
 import org.killbill.billing.tenant.api.TenantApiException;
 import org.killbill.billing.tenant.api.TenantKV.TenantKey;
 import org.killbill.billing.tenant.api.TenantUserApi;
 import org.killbill.billing.util.callcontext.CallContextFactory;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.bus.api.BusEvent;
+import org.killbill.clock.Clock;
+import org.killbill.notificationq.api.NotificationEvent;
+import org.killbill.notificationq.api.NotificationQueue;
+import org.killbill.notificationq.api.NotificationQueueService;
+import org.killbill.notificationq.api.NotificationQueueService.NoSuchNotificationQueue;
+import org.killbill.notificationq.api.NotificationQueueService.NotificationQueueAlreadyExists;
+import org.killbill.notificationq.api.NotificationQueueService.NotificationQueueHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,14 +53,24 @@ import com.ning.http.client.AsyncCompletionHandler;
 import com.ning.http.client.AsyncHttpClient;
 import com.ning.http.client.AsyncHttpClient.BoundRequestBuilder;
 import com.ning.http.client.AsyncHttpClientConfig;
-import com.ning.http.client.ListenableFuture;
 import com.ning.http.client.Response;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.Subscribe;
 
+/**
+ * Pushes external bus events to the callbacks registered by each tenant.
+ * <p>
+ * The bus thread only records one notification per callback in the push notification queue, so pending posts survive a restart.
+ * Posts are sent asynchronously from the notification queue handler, with a bounded number of in-flight requests per tenant, so
+ * a slow endpoint only delays the notifications of its own tenant. Failed posts (and posts deferred because too many are in flight
+ * for that tenant) are recorded again in the queue, with an exponential backoff.
+ * <p>
+ * The callbacks of each tenant are looked up for every event: they are cached by the TenantUserApi (TENANT_KV cache).
+ */
 public class PushNotificationListener {
 
     private static final Logger log = LoggerFactory.getLogger(PushNotificationListener.class);
@@ -56,19 +80,72 @@ public class PushNotificationListener {
     @VisibleForTesting
     public static final String CONTENT_TYPE_JSON = "application/json; charset=UTF-8";
 
+    public static final String PUSH_NOTIFICATION_QUEUE = "push-notification-queue";
+
     private static final int TIMEOUT_NOTIFICATION = 15; // 15 seconds
 
+    @VisibleForTesting
+    static final int MAX_IN_FLIGHT_NOTIFICATIONS_PER_TENANT = 10;
+
+    // Search key 1 for events which aren't attached to an account (search key 2 is the tenant record id)
+    @VisibleForTesting
+    static final Long TENANT_LEVEL_SEARCH_KEY_1 = 0L;
+
+    // Retries happen after 15s, 30s, 1m, ... (about an hour overall)
+    private static final int RETRY_INITIAL_DELAY_SEC = 15;
+    @VisibleForTesting
+    static final int MAX_RETRIES = 8;
+
     private final TenantUserApi tenantApi;
     private final CallContextFactory contextFactory;
+    private final InternalCallContextFactory internalCallContextFactory;
+    private final NotificationQueueService notificationQueueService;
+    private final Clock clock;
     private final AsyncHttpClient httpClient;
-    private final ObjectMapper mapper;
+    private final ObjectWriter notificationWriter;
+    private final ConcurrentMap<UUID, Semaphore> perTenantInFlightPosts;
+
+    private NotificationQueue pushNotificationQueue;
 
     @Inject
-    public PushNotificationListener(final ObjectMapper mapper, final TenantUserApi tenantApi, final CallContextFactory contextFactory) {
+    public PushNotificationListener(final ObjectMapper mapper, final TenantUserApi tenantApi, final CallContextFactory contextFactory,
+                                    final InternalCallContextFactory internalCallContextFactory, final NotificationQueueService notificationQueueService,
+                                    final Clock clock) {
         this.httpClient = new AsyncHttpClient(new AsyncHttpClientConfig.Builder().setRequestTimeout(TIMEOUT_NOTIFICATION * 1000).build());
         this.tenantApi = tenantApi;
         this.contextFactory = contextFactory;
-        this.mapper = mapper;
+        this.internalCallContextFactory = internalCallContextFactory;
+        this.notificationQueueService = notificationQueueService;
+        this.clock = clock;
+        this.notificationWriter = mapper.writerWithType(NotificationJson.class);
+        this.perTenantInFlightPosts = new ConcurrentHashMap<UUID, Semaphore>();
+    }
+
+    public void initialize() throws NotificationQueueAlreadyExists {
+        pushNotificationQueue = notificationQueueService.createNotificationQueue(DefaultServerService.SERVER_SERVICE,
+                                                                                 PUSH_NOTIFICATION_QUEUE,
+                                                                                 new NotificationQueueHandler() {
+                                                                                     @Override
+                                                                                     public void handleReadyNotification(final NotificationEvent notificationKey, final DateTime eventDateTime, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
+                                                                                         if (!(notificationKey instanceof PushNotificationKey)) {
+                                                                                             log.error("Push notification queue received an unexpected event type {}", notificationKey.getClass().getName());
+                                                                                             return;
+                                                                                         }
+                                                                                         push(new PendingNotification((PushNotificationKey) notificationKey, userToken, accountRecordId, tenantRecordId));
+                                                                                     }
+                                                                                 }
+                                                                                );
+    }
+
+    public void start() {
+        pushNotificationQueue.startQueue();
+    }
+
+    public void stop() throws NoSuchNotificationQueue {
+        if (pushNotificationQueue != null) {
+            pushNotificationQueue.stopQueue();
+            notificationQueueService.deleteNotificationQueue(pushNotificationQueue.getServiceName(), pushNotificationQueue.getQueueName());
+        }
     }
 
     @AllowConcurrentEvents
@@ -81,7 +158,7 @@ public class PushNotificationListener {
                 // Optimization - see https://github.com/killbill/killbill/issues/297
                 return;
             }
-            dispatchCallback(event.getTenantId(), event, callbacks);
+            dispatchCallback(event.getTenantId(), event, callbacks, context);
         } catch (final TenantApiException e) {
             log.warn("Failed to retrieve push notification callback for tenant {}", event.getTenantId());
         } catch (final IOException e) {
@@ -89,37 +166,147 @@ public class PushNotificationListener {
         }
     }
 
-    private void dispatchCallback(final UUID tenantId, final ExtBusEvent event, final Iterable<String> callbacks) throws IOException {
+    private void dispatchCallback(final UUID tenantId, final ExtBusEvent event, final Iterable<String> callbacks, final TenantContext context) throws IOException {
         final NotificationJson notification = new NotificationJson(event);
-        final String body = mapper.writeValueAsString(notification);
+        // Serialized once, whatever the number of callbacks
+        final String body = notificationWriter.writeValueAsString(notification);
+
+        // Re-use the search keys of the bus event, or the tenant ones for events which aren't attached to an account
+        final BusEvent busEvent = event instanceof BusEvent ? (BusEvent) event : null;
+        final UUID userToken = busEvent != null ? busEvent.getUserToken() : null;
+        final Long searchKey1 = busEvent != null && busEvent.getSearchKey1() != null ? busEvent.getSearchKey1() : TENANT_LEVEL_SEARCH_KEY_1;
+        final Long searchKey2 = busEvent != null && busEvent.getSearchKey2() != null ? busEvent.getSearchKey2() : internalCallContextFactory.createInternalTenantContext(context).getTenantRecordId();
+
+        final DateTime now = clock.getUTCNow();
         for (final String cur : callbacks) {
-            doPost(tenantId, cur, body, TIMEOUT_NOTIFICATION);
+            final PushNotificationKey key = new PushNotificationKey(tenantId, cur, body, 0);
+            recordNotification(new PendingNotification(key, userToken, searchKey1, searchKey2), now);
         }
     }
 
-    private boolean doPost(final UUID tenantId, final String url, final String body, final int timeoutSec) {
-        final BoundRequestBuilder builder = httpClient.preparePost(url);
-        builder.setBody(body == null ? "{}" : body);
-        builder.addHeader(HTTP_HEADER_CONTENT_TYPE, CONTENT_TYPE_JSON);
+    private void push(final PendingNotification notification) {
+        final PushNotificationKey key = notification.getKey();
+        final Semaphore inFlightPosts = getInFlightPosts(key.getTenantId());
+        if (!inFlightPosts.tryAcquire()) {
+            // Too many posts in flight for that tenant: this counts as an attempt, so that notifications for an endpoint which
+            // never catches up are eventually dropped
+            log.info("Too many in-flight push notifications for tenant {}, deferring notification to {}", key.getTenantId(), key.getUrl());
+            scheduleRetry(notification, key.getAttemptNumber() + 1);
+            return;
+        }
+        doPost(notification, inFlightPosts);
+    }
 
-        final Response response;
+    private Semaphore getInFlightPosts(final UUID tenantId) {
+        final Semaphore inFlightPosts = perTenantInFlightPosts.get(tenantId);
+        if (inFlightPosts != null) {
+            return inFlightPosts;
+        }
+        final Semaphore newInFlightPosts = new Semaphore(MAX_IN_FLIGHT_NOTIFICATIONS_PER_TENANT);
+        final Semaphore existingInFlightPosts = perTenantInFlightPosts.putIfAbsent(tenantId, newInFlightPosts);
+        return existingInFlightPosts != null ? existingInFlightPosts : newInFlightPosts;
+    }
+
+    private void doPost(final PendingNotification notification, final Semaphore inFlightPosts) {
+        final PushNotificationKey key = notification.getKey();
         try {
-            final ListenableFuture<Response> futureStatus =
-                    builder.execute(new AsyncCompletionHandler<Response>() {
-                        @Override
-                        public Response onCompleted(final Response response) throws Exception {
-                            return response;
+            final BoundRequestBuilder builder = httpClient.preparePost(key.getUrl());
+            builder.setBody(key.getBody() == null ? "{}" : key.getBody());
+            builder.addHeader(HTTP_HEADER_CONTENT_TYPE, CONTENT_TYPE_JSON);
+            builder.execute(new AsyncCompletionHandler<Response>() {
+                @Override
+                public Response onCompleted(final Response response) throws Exception {
+                    try {
+                        if (response.getStatusCode() < 200 || response.getStatusCode() >= 300) {
+                            log.warn("Failed to push notification {} for the tenant {}: status code {}", new Object[]{key.getUrl(), key.getTenantId(), response.getStatusCode()});
+                            scheduleRetry(notification, key.getAttemptNumber() + 1);
                         }
-                    });
-            response = futureStatus.get(timeoutSec, TimeUnit.SECONDS);
+                    } finally {
+                        inFlightPosts.release();
+                    }
+                    return response;
+                }
+
+                @Override
+                public void onThrowable(final Throwable t) {
+                    try {
+                        log.warn(String.format("Failed to push notification %s for the tenant %s", key.getUrl(), key.getTenantId()), t);
+                        scheduleRetry(notification, key.getAttemptNumber() + 1);
+                    } finally {
+                        inFlightPosts.release();
+                    }
+                }
+            });
         } catch (final Exception e) {
-            log.warn(String.format("Failed to push notification %s for the tenant %s", url, tenantId), e);
-            return false;
+            log.warn(String.format("Failed to push notification %s for the tenant %s", key.getUrl(), key.getTenantId()), e);
+            scheduleRetry(notification, key.getAttemptNumber() + 1);
+            inFlightPosts.release();
         }
-        return response.getStatusCode() >= 200 && response.getStatusCode() < 300;
+    }
+
+    private void scheduleRetry(final PendingNotification notification, final int attemptNumber) {
+        final PushNotificationKey key = notification.getKey();
+        if (attemptNumber > MAX_RETRIES) {
+            log.warn("Giving up pushing notification {} for the tenant {} after {} retries", new Object[]{key.getUrl(), key.getTenantId(), MAX_RETRIES});
+            return;
+        }
+
+        final DateTime retryDate = clock.getUTCNow().plusSeconds(getRetryDelaySec(attemptNumber));
+        final PushNotificationKey retryKey = new PushNotificationKey(key.getTenantId(), key.getUrl(), key.getBody(), attemptNumber);
+        recordNotification(new PendingNotification(retryKey, notification.getUserToken(), notification.getSearchKey1(), notification.getSearchKey2()), retryDate);
+    }
+
+    private void recordNotification(final PendingNotification notification, final DateTime effectiveDate) {
+        final PushNotificationKey key = notification.getKey();
+        if (pushNotificationQueue == null) {
+            log.warn("Push notification queue isn't initialized, dropping notification {} for the tenant {}", key.getUrl(), key.getTenantId());
+            return;
+        }
+
+        try {
+            pushNotificationQueue.recordFutureNotification(effectiveDate, key, notification.getUserToken(), notification.getSearchKey1(), notification.getSearchKey2());
+        } catch (final IOException e) {
+            log.warn(String.format("Failed to record push notification %s for the tenant %s, dropping it", key.getUrl(), key.getTenantId()), e);
+        }
+    }
+
+    @VisibleForTesting
+    static int getRetryDelaySec(final int attemptNumber) {
+        return RETRY_INITIAL_DELAY_SEC << Math.max(attemptNumber - 1, 0);
     }
 
     private List<String> getCallbacksForTenant(final TenantContext context) throws TenantApiException {
         return tenantApi.getTenantValuesForKey(TenantKey.PUSH_NOTIFICATION_CB.toString(), context);
     }
+
+    private static final class PendingNotification {
+
+        private final PushNotificationKey key;
+        private final UUID userToken;
+        private final Long searchKey1;
+        private final Long searchKey2;
+
+        private PendingNotification(final PushNotificationKey key, @Nullable final UUID userToken, final Long searchKey1, final Long searchKey2) {
+            this.key = key;
+            this.userToken = userToken;
+            this.searchKey1 = searchKey1;
+            this.searchKey2 = searchKey2;
+        }
+
+        public PushNotificationKey getKey() {
+            return key;
+        }
+
+        public UUID getUserToken() {
+            return userToken;
+        }
+
+        public Long getSearchKey1() {
+            return searchKey1;
+        }
+
+        public Long getSearchKey2() {
+            return searchKey2;
+        }
+    }
 }
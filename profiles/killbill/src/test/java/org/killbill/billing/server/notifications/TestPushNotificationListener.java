@@ -0,0 +1,372 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.notifications;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.beatrix.extbus.DefaultBusExternalEvent;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.notification.plugin.api.ExtBusEventType;
+import org.killbill.billing.server.log.ServerTestSuiteNoDB;
+import org.killbill.billing.tenant.api.TenantUserApi;
+import org.killbill.billing.util.callcontext.CallContextFactory;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.clock.Clock;
+import org.killbill.notificationq.api.NotificationEvent;
+import org.killbill.notificationq.api.NotificationQueue;
+import org.killbill.notificationq.api.NotificationQueueService;
+import org.killbill.notificationq.api.NotificationQueueService.NotificationQueueHandler;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+
+// Posts go to a local Jetty endpoint, hence the slow group
+public class TestPushNotificationListener extends ServerTestSuiteNoDB {
+
+    private static final String CALLBACK_ENDPOINT = "/callmeback";
+
+    private static final Long SEARCH_KEY_1 = 1L;
+    private static final Long SEARCH_KEY_2 = 2L;
+    private static final Long TENANT_RECORD_ID = 12L;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final DateTime now = new DateTime(2015, 6, 1, 0, 0, DateTimeZone.UTC);
+
+    private Server server;
+    private StubCallbackServlet servlet;
+    private String callback;
+
+    private TenantUserApi tenantApi;
+    private NotificationQueue pushNotificationQueue;
+    private NotificationQueueHandler pushNotificationQueueHandler;
+    private PushNotificationListener listener;
+
+    private UUID tenantId;
+    private UUID userToken;
+
+    @BeforeMethod(groups = "slow")
+    public void beforeMethod() throws Exception {
+        servlet = new StubCallbackServlet();
+        server = new Server(0);
+        final ServletContextHandler context = new ServletContextHandler();
+        context.setContextPath("/");
+        context.addServlet(new ServletHolder(servlet), CALLBACK_ENDPOINT);
+        server.setHandler(context);
+        server.start();
+        callback = "http://127.0.0.1:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort() + CALLBACK_ENDPOINT;
+
+        tenantId = UUID.randomUUID();
+        userToken = UUID.randomUUID();
+
+        tenantApi = Mockito.mock(TenantUserApi.class);
+        Mockito.when(tenantApi.getTenantValuesForKey(Mockito.anyString(), Mockito.<TenantContext>any())).thenReturn(ImmutableList.<String>of(callback));
+
+        final InternalCallContextFactory internalCallContextFactory = Mockito.mock(InternalCallContextFactory.class);
+        Mockito.when(internalCallContextFactory.createInternalTenantContext(Mockito.<TenantContext>any())).thenReturn(new InternalTenantContext(TENANT_RECORD_ID, null));
+
+        // Notifications recorded for now are dispatched right away, as the notification queue would do
+        pushNotificationQueue = Mockito.mock(NotificationQueue.class);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                final Object[] args = invocation.getArguments();
+                if (now.equals(args[0])) {
+                    pushNotificationQueueHandler.handleReadyNotification((NotificationEvent) args[1], (DateTime) args[0], (UUID) args[2], (Long) args[3], (Long) args[4]);
+                }
+                return null;
+            }
+        }).when(pushNotificationQueue).recordFutureNotification(Mockito.<DateTime>any(), Mockito.<NotificationEvent>any(), Mockito.<UUID>any(), Mockito.anyLong(), Mockito.anyLong());
+        final NotificationQueueService notificationQueueService = Mockito.mock(NotificationQueueService.class);
+        final ArgumentCaptor<NotificationQueueHandler> handlerCaptor = ArgumentCaptor.forClass(NotificationQueueHandler.class);
+        Mockito.when(notificationQueueService.createNotificationQueue(Mockito.anyString(), Mockito.anyString(), handlerCaptor.capture())).thenReturn(pushNotificationQueue);
+
+        final Clock clock = Mockito.mock(Clock.class);
+        Mockito.when(clock.getUTCNow()).thenReturn(now);
+
+        listener = new PushNotificationListener(mapper, tenantApi, Mockito.mock(CallContextFactory.class), internalCallContextFactory, notificationQueueService, clock);
+        listener.initialize();
+        listener.start();
+        pushNotificationQueueHandler = handlerCaptor.getValue();
+    }
+
+    @AfterMethod(groups = "slow")
+    public void afterMethod() throws Exception {
+        // Don't leave posts hanging
+        servlet.release();
+        listener.stop();
+        server.stop();
+    }
+
+    @Test(groups = "slow")
+    public void testRetryDelay() {
+        Assert.assertEquals(PushNotificationListener.getRetryDelaySec(1), 15);
+        Assert.assertEquals(PushNotificationListener.getRetryDelaySec(2), 30);
+        Assert.assertEquals(PushNotificationListener.getRetryDelaySec(3), 60);
+        Assert.assertEquals(PushNotificationListener.getRetryDelaySec(PushNotificationListener.MAX_RETRIES), 1920);
+    }
+
+    @Test(groups = "slow")
+    public void testPushNotificationKeySerialization() throws Exception {
+        final PushNotificationKey key = new PushNotificationKey(tenantId, callback, "{\"eventType\":\"ACCOUNT_CREATION\"}", 3);
+
+        final String json = mapper.writeValueAsString(key);
+        final PushNotificationKey deserializedKey = mapper.readValue(json, PushNotificationKey.class);
+        Assert.assertEquals(deserializedKey.getTenantId(), key.getTenantId());
+        Assert.assertEquals(deserializedKey.getUrl(), key.getUrl());
+        Assert.assertEquals(deserializedKey.getBody(), key.getBody());
+        Assert.assertEquals(deserializedKey.getAttemptNumber(), key.getAttemptNumber());
+    }
+
+    @Test(groups = "slow")
+    public void testSuccessfulPush() throws Exception {
+        listener.triggerPushNotifications(createEvent(SEARCH_KEY_1, SEARCH_KEY_2));
+
+        // The post is persisted in the notification queue first
+        final ArgumentCaptor<NotificationEvent> keyCaptor = ArgumentCaptor.forClass(NotificationEvent.class);
+        Mockito.verify(pushNotificationQueue).recordFutureNotification(Mockito.eq(now), keyCaptor.capture(), Mockito.eq(userToken), Mockito.eq(SEARCH_KEY_1), Mockito.eq(SEARCH_KEY_2));
+        Assert.assertEquals(((PushNotificationKey) keyCaptor.getValue()).getAttemptNumber(), (Integer) 0);
+        Assert.assertEquals(((PushNotificationKey) keyCaptor.getValue()).getUrl(), callback);
+
+        servlet.awaitReceivedCalls(1);
+        Assert.assertEquals(servlet.getContentType(), PushNotificationListener.CONTENT_TYPE_JSON);
+        // No retry
+        Mockito.verify(pushNotificationQueue, Mockito.after(500).times(1)).recordFutureNotification(Mockito.<DateTime>any(), Mockito.<NotificationEvent>any(), Mockito.<UUID>any(), Mockito.anyLong(), Mockito.anyLong());
+    }
+
+    @Test(groups = "slow")
+    public void testTenantLevelSearchKeys() throws Exception {
+        servlet.setStatusCode(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+
+        listener.triggerPushNotifications(createEvent(null, null));
+
+        // Both the post and its retry are recorded with the tenant search keys
+        Mockito.verify(pushNotificationQueue).recordFutureNotification(Mockito.eq(now), Mockito.<NotificationEvent>any(), Mockito.eq(userToken), Mockito.eq(PushNotificationListener.TENANT_LEVEL_SEARCH_KEY_1), Mockito.eq(TENANT_RECORD_ID));
+        Mockito.verify(pushNotificationQueue, Mockito.timeout(5000)).recordFutureNotification(Mockito.eq(now.plusSeconds(15)), Mockito.<NotificationEvent>any(), Mockito.eq(userToken), Mockito.eq(PushNotificationListener.TENANT_LEVEL_SEARCH_KEY_1), Mockito.eq(TENANT_RECORD_ID));
+    }
+
+    @Test(groups = "slow")
+    public void testInFlightPostsAreBoundedPerTenant() throws Exception {
+        servlet.block();
+
+        final int nbDeferred = 3;
+        final int nbEvents = PushNotificationListener.MAX_IN_FLIGHT_NOTIFICATIONS_PER_TENANT + nbDeferred;
+        for (int i = 0; i < nbEvents; i++) {
+            listener.triggerPushNotifications(createEvent(SEARCH_KEY_1, SEARCH_KEY_2));
+        }
+
+        // The other notifications are deferred through the notification queue, and this counts as an attempt
+        final List<PushNotificationKey> retryKeys = verifyRetries(nbDeferred, now.plusSeconds(15));
+        for (final PushNotificationKey retryKey : retryKeys) {
+            Assert.assertEquals(retryKey.getAttemptNumber(), (Integer) 1);
+            Assert.assertEquals(retryKey.getTenantId(), tenantId);
+            Assert.assertEquals(retryKey.getUrl(), callback);
+        }
+
+        servlet.awaitReceivedCalls(PushNotificationListener.MAX_IN_FLIGHT_NOTIFICATIONS_PER_TENANT);
+        servlet.release();
+        Assert.assertEquals(servlet.getMaxInFlightCalls(), PushNotificationListener.MAX_IN_FLIGHT_NOTIFICATIONS_PER_TENANT);
+
+        // Slots are freed once the posts complete: the deferred notification eventually goes through
+        Mockito.reset(pushNotificationQueue);
+        long remainingMs = 10000;
+        while (servlet.getReceivedCalls() <= PushNotificationListener.MAX_IN_FLIGHT_NOTIFICATIONS_PER_TENANT && remainingMs > 0) {
+            pushNotificationQueueHandler.handleReadyNotification(retryKeys.get(0), now, userToken, SEARCH_KEY_1, SEARCH_KEY_2);
+            Thread.sleep(100);
+            remainingMs -= 100;
+        }
+        Assert.assertTrue(servlet.getReceivedCalls() > PushNotificationListener.MAX_IN_FLIGHT_NOTIFICATIONS_PER_TENANT);
+    }
+
+    @Test(groups = "slow")
+    public void testDeferralsAreEventuallyDropped() throws Exception {
+        servlet.block();
+
+        for (int i = 0; i < PushNotificationListener.MAX_IN_FLIGHT_NOTIFICATIONS_PER_TENANT; i++) {
+            listener.triggerPushNotifications(createEvent(SEARCH_KEY_1, SEARCH_KEY_2));
+        }
+        servlet.awaitReceivedCalls(PushNotificationListener.MAX_IN_FLIGHT_NOTIFICATIONS_PER_TENANT);
+        Mockito.reset(pushNotificationQueue);
+
+        // Already deferred or retried too many times
+        final PushNotificationKey key = new PushNotificationKey(tenantId, callback, "{}", PushNotificationListener.MAX_RETRIES);
+        pushNotificationQueueHandler.handleReadyNotification(key, now, userToken, SEARCH_KEY_1, SEARCH_KEY_2);
+        Mockito.verify(pushNotificationQueue, Mockito.never()).recordFutureNotification(Mockito.<DateTime>any(), Mockito.<NotificationEvent>any(), Mockito.<UUID>any(), Mockito.anyLong(), Mockito.anyLong());
+    }
+
+    @Test(groups = "slow")
+    public void testRetryOnErrorStatus() throws Exception {
+        servlet.setStatusCode(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+
+        listener.triggerPushNotifications(createEvent(SEARCH_KEY_1, SEARCH_KEY_2));
+
+        final PushNotificationKey retryKey = verifyRetries(1, now.plusSeconds(15)).get(0);
+        Assert.assertEquals(retryKey.getAttemptNumber(), (Integer) 1);
+        Assert.assertEquals(retryKey.getUrl(), callback);
+        Assert.assertEquals(mapper.readTree(retryKey.getBody()).get("eventType").asText(), "ACCOUNT_CREATION");
+    }
+
+    @Test(groups = "slow")
+    public void testRetryOnException() throws Exception {
+        // Nothing listens on that port
+        final ServerSocket serverSocket = new ServerSocket(0);
+        final int closedPort = serverSocket.getLocalPort();
+        serverSocket.close();
+        final String unreachableCallback = "http://127.0.0.1:" + closedPort + CALLBACK_ENDPOINT;
+        Mockito.when(tenantApi.getTenantValuesForKey(Mockito.anyString(), Mockito.<TenantContext>any())).thenReturn(ImmutableList.<String>of(unreachableCallback));
+
+        listener.triggerPushNotifications(createEvent(SEARCH_KEY_1, SEARCH_KEY_2));
+
+        final PushNotificationKey retryKey = verifyRetries(1, now.plusSeconds(15)).get(0);
+        Assert.assertEquals(retryKey.getAttemptNumber(), (Integer) 1);
+        Assert.assertEquals(retryKey.getUrl(), unreachableCallback);
+    }
+
+    @Test(groups = "slow")
+    public void testRetriesFromTheNotificationQueue() throws Exception {
+        servlet.setStatusCode(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+
+        // Last allowed retry: it is rescheduled with the longest delay
+        final PushNotificationKey key = new PushNotificationKey(tenantId, callback, "{}", PushNotificationListener.MAX_RETRIES - 1);
+        pushNotificationQueueHandler.handleReadyNotification(key, now, userToken, SEARCH_KEY_1, SEARCH_KEY_2);
+
+        final PushNotificationKey retryKey = verifyRetries(1, now.plusSeconds(PushNotificationListener.getRetryDelaySec(PushNotificationListener.MAX_RETRIES))).get(0);
+        Assert.assertEquals(retryKey.getAttemptNumber(), (Integer) PushNotificationListener.MAX_RETRIES);
+        Mockito.reset(pushNotificationQueue);
+
+        // Give up after that one
+        pushNotificationQueueHandler.handleReadyNotification(retryKey, now, userToken, SEARCH_KEY_1, SEARCH_KEY_2);
+        servlet.awaitReceivedCalls(2);
+        Mockito.verify(pushNotificationQueue, Mockito.after(500).never()).recordFutureNotification(Mockito.<DateTime>any(), Mockito.<NotificationEvent>any(), Mockito.<UUID>any(), Mockito.anyLong(), Mockito.anyLong());
+    }
+
+    private List<PushNotificationKey> verifyRetries(final int nbRetries, final DateTime expectedRetryDate) throws IOException {
+        final ArgumentCaptor<NotificationEvent> keyCaptor = ArgumentCaptor.forClass(NotificationEvent.class);
+        Mockito.verify(pushNotificationQueue, Mockito.timeout(5000).times(nbRetries)).recordFutureNotification(Mockito.eq(expectedRetryDate), keyCaptor.capture(), Mockito.eq(userToken), Mockito.eq(SEARCH_KEY_1), Mockito.eq(SEARCH_KEY_2));
+
+        final ImmutableList.Builder<PushNotificationKey> retryKeys = ImmutableList.builder();
+        for (final NotificationEvent key : keyCaptor.getAllValues()) {
+            retryKeys.add((PushNotificationKey) key);
+        }
+        return retryKeys.build();
+    }
+
+    private DefaultBusExternalEvent createEvent(final Long searchKey1, final Long searchKey2) {
+        final UUID accountId = UUID.randomUUID();
+        return new DefaultBusExternalEvent(accountId, ObjectType.ACCOUNT, ExtBusEventType.ACCOUNT_CREATION, accountId, tenantId, null, searchKey1, searchKey2, userToken);
+    }
+
+    private static final class StubCallbackServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 6361617311562355934L;
+
+        private final AtomicInteger receivedCalls = new AtomicInteger(0);
+        private final AtomicInteger inFlightCalls = new AtomicInteger(0);
+        private final AtomicInteger maxInFlightCalls = new AtomicInteger(0);
+
+        private volatile int statusCode = HttpServletResponse.SC_OK;
+        private volatile CountDownLatch blocker;
+        private volatile String contentType;
+
+        @Override
+        protected void doPost(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
+            final int curInFlightCalls = inFlightCalls.incrementAndGet();
+            try {
+                int curMax = maxInFlightCalls.get();
+                while (curInFlightCalls > curMax && !maxInFlightCalls.compareAndSet(curMax, curInFlightCalls)) {
+                    curMax = maxInFlightCalls.get();
+                }
+                contentType = request.getHeader(PushNotificationListener.HTTP_HEADER_CONTENT_TYPE);
+                receivedCalls.incrementAndGet();
+
+                final CountDownLatch curBlocker = blocker;
+                if (curBlocker != null) {
+                    curBlocker.await(10, TimeUnit.SECONDS);
+                }
+                response.setStatus(statusCode);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            } finally {
+                inFlightCalls.decrementAndGet();
+            }
+        }
+
+        public void setStatusCode(final int statusCode) {
+            this.statusCode = statusCode;
+        }
+
+        public void block() {
+            blocker = new CountDownLatch(1);
+        }
+
+        public void release() {
+            final CountDownLatch curBlocker = blocker;
+            if (curBlocker != null) {
+                curBlocker.countDown();
+            }
+        }
+
+        public void awaitReceivedCalls(final int expectedCalls) throws InterruptedException {
+            long remainingMs = 10000;
+            while (receivedCalls.get() < expectedCalls && remainingMs > 0) {
+                Thread.sleep(50);
+                remainingMs -= 50;
+            }
+            Assert.assertTrue(receivedCalls.get() >= expectedCalls, String.format("Expected %s calls, received %s", expectedCalls, receivedCalls.get()));
+        }
+
+        public int getReceivedCalls() {
+            return receivedCalls.get();
+        }
+
+        public int getMaxInFlightCalls() {
+            return maxInFlightCalls.get();
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+}
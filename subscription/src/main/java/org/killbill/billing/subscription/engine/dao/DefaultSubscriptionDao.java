@@ -81,7 +81,7 @@ import org.killbill.billing.util.UUIDs;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.Pagination;
-import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.KeysetPaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.EntityDaoBase;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
@@ -195,7 +195,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
     @Override
     public Pagination<SubscriptionBundleModelDao> searchSubscriptionBundles(final String searchKey, final Long offset, final Long limit, final InternalTenantContext context) {
         return paginationHelper.getPagination(BundleSqlDao.class,
-                                              new PaginationIteratorBuilder<SubscriptionBundleModelDao, SubscriptionBaseBundle, BundleSqlDao>() {
+                                              new KeysetPaginationIteratorBuilder<SubscriptionBundleModelDao, SubscriptionBaseBundle, BundleSqlDao>(searchKey) {
                                                   @Override
                                                   public Long getCount(final BundleSqlDao bundleSqlDao, final InternalTenantContext context) {
                                                       return bundleSqlDao.getSearchCount(searchKey, String.format("%%%s%%", searchKey), context);
@@ -205,6 +205,16 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                                                   public Iterator<SubscriptionBundleModelDao> build(final BundleSqlDao bundleSqlDao, final Long limit, final InternalTenantContext context) {
                                                       return bundleSqlDao.search(searchKey, String.format("%%%s%%", searchKey), offset, limit, context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<SubscriptionBundleModelDao> buildAfterRecordId(final BundleSqlDao bundleSqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return bundleSqlDao.searchAfterRecordId(searchKey, String.format("%%%s%%", searchKey), lastSeenRecordId, limit, context);
+                                                  }
+
+                                                  @Override
+                                                  public Long getLastRecordIdAfterRecordId(final BundleSqlDao bundleSqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return bundleSqlDao.searchLastRecordIdAfterRecordId(searchKey, String.format("%%%s%%", searchKey), lastSeenRecordId, limit, context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -334,27 +344,20 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
 
         final List<SubscriptionBaseEvent> eventsForAccount = getEventsForAccountId(context);
 
+        // Index the events by subscription in a single pass, rather than scanning all account events for each subscription
+        final Multimap<UUID, SubscriptionBaseEvent> eventsForAccountBySubscription = ArrayListMultimap.create();
+        for (final SubscriptionBaseEvent event : eventsForAccount) {
+            eventsForAccountBySubscription.put(event.getSubscriptionId(), event);
+        }
+
         final Map<UUID, List<SubscriptionBase>> result = new HashMap<UUID, List<SubscriptionBase>>();
         for (final UUID bundleId : subscriptionsFromAccountId.keySet()) {
 
             final List<SubscriptionBase> subscriptionsForBundle = subscriptionsFromAccountId.get(bundleId);
-            final Collection<UUID> subscriptionIdsForBundle = Collections2.transform(subscriptionsForBundle, new Function<SubscriptionBase, UUID>() {
-                @Override
-                public UUID apply(final SubscriptionBase input) {
-                    return input.getId();
-                }
-            });
             final Multimap<UUID, SubscriptionBaseEvent> eventsForSubscriptions = ArrayListMultimap.create();
 
             for (final SubscriptionBase cur : subscriptionsForBundle) {
-                final Collection<SubscriptionBaseEvent> events = Collections2.filter(eventsForAccount, new Predicate<SubscriptionBaseEvent>() {
-                    @Override
-                    public boolean apply(final SubscriptionBaseEvent input) {
-                        return input.getSubscriptionId().equals(cur.getId());
-
-                    }
-                });
-                eventsForSubscriptions.putAll(cur.getId(), ImmutableList.copyOf(events));
+                eventsForSubscriptions.putAll(cur.getId(), eventsForAccountBySubscription.get(cur.getId()));
             }
 
             result.put(bundleId, buildBundleSubscriptions(subscriptionsForBundle, eventsForSubscriptions, null, context));
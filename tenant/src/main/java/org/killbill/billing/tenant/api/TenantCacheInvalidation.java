@@ -38,6 +38,7 @@ import org.killbill.billing.tenant.dao.TenantBroadcastModelDao;
 import org.killbill.billing.tenant.dao.TenantDao;
 import org.killbill.billing.tenant.dao.TenantKVModelDao;
 import org.killbill.billing.tenant.glue.DefaultTenantModule;
+import org.killbill.billing.util.cache.CacheInvalidationBroadcaster;
 import org.killbill.billing.util.config.TenantConfig;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.bus.api.PersistentBus.EventBusException;
@@ -70,6 +71,7 @@ public class TenantCacheInvalidation {
     private final TenantConfig tenantConfig;
     private final PersistentBus eventBus;
     private final TenantDao tenantDao;
+    private final CacheInvalidationBroadcaster cacheInvalidationBroadcaster;
     private AtomicLong latestRecordIdProcessed;
     private volatile boolean isStopped;
 
@@ -79,12 +81,14 @@ public class TenantCacheInvalidation {
     public TenantCacheInvalidation(@Named(DefaultTenantModule.NO_CACHING_TENANT) final TenantBroadcastDao broadcastDao,
                                    @Named(DefaultTenantModule.NO_CACHING_TENANT) final TenantDao tenantDao,
                                    final PersistentBus eventBus,
-                                   final TenantConfig tenantConfig) {
+                                   final TenantConfig tenantConfig,
+                                   final CacheInvalidationBroadcaster cacheInvalidationBroadcaster) {
         this.cache = new HashMap<TenantKey, CacheInvalidationCallback>();
         this.broadcastDao = broadcastDao;
         this.tenantConfig = tenantConfig;
         this.tenantDao = tenantDao;
         this.eventBus = eventBus;
+        this.cacheInvalidationBroadcaster = cacheInvalidationBroadcaster;
         this.isStopped = false;
     }
 
@@ -147,6 +151,10 @@ public class TenantCacheInvalidation {
         return eventBus;
     }
 
+    public CacheInvalidationBroadcaster getCacheInvalidationBroadcaster() {
+        return cacheInvalidationBroadcaster;
+    }
+
     public static class TenantCacheInvalidationRunnable implements Runnable {
 
         private final TenantCacheInvalidation parent;
@@ -179,7 +187,13 @@ public class TenantCacheInvalidation {
                         final CacheInvalidationCallback callback = parent.getCacheInvalidation(tenantKeyAndCookie.getTenantKey());
                         if (callback != null) {
                             final InternalTenantContext tenantContext = new InternalTenantContext(cur.getTenantRecordId(), null);
-                            callback.invalidateCache(tenantKeyAndCookie.getTenantKey(), tenantKeyAndCookie.getCookie(), tenantContext);
+                            // Every node processes the tenant broadcasts: there is no need to broadcast the resulting cache invalidations
+                            parent.getCacheInvalidationBroadcaster().runWithLocalInvalidationsOnly(new Runnable() {
+                                @Override
+                                public void run() {
+                                    callback.invalidateCache(tenantKeyAndCookie.getTenantKey(), tenantKeyAndCookie.getCookie(), tenantContext);
+                                }
+                            });
 
                             final Long tenantKvsTargetRecordId = cur.getTargetRecordId();
                             final BusInternalEvent event;
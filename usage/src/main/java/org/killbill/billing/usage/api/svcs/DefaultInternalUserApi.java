@@ -17,21 +17,16 @@
 
 package org.killbill.billing.usage.api.svcs;
 
-import java.util.List;
-
-import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import org.joda.time.LocalDate;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.usage.InternalUserApi;
 import org.killbill.billing.usage.RawUsage;
+import org.killbill.billing.usage.dao.RolledUpUsageAggregateModelDao;
 import org.killbill.billing.usage.dao.RolledUpUsageDao;
-import org.killbill.billing.usage.dao.RolledUpUsageModelDao;
-
-import com.google.common.base.Function;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterables;
+import org.killbill.billing.util.CloseableIterator;
+import org.skife.jdbi.v2.ResultIterator;
 
 public class DefaultInternalUserApi implements InternalUserApi {
 
@@ -43,14 +38,31 @@ public class DefaultInternalUserApi implements InternalUserApi {
     }
 
     @Override
-    public List<RawUsage> getRawUsageForAccount(final LocalDate stateDate, final LocalDate endDate, final InternalTenantContext internalTenantContext) {
-        final List<RolledUpUsageModelDao> usage = rolledUpUsageDao.getRawUsageForAccount(stateDate, endDate, internalTenantContext);
-        return ImmutableList.copyOf(Iterables.transform(usage, new Function<RolledUpUsageModelDao, RawUsage>() {
-            @Nullable
+    public CloseableIterator<RawUsage> getRawUsageForAccount(final LocalDate stateDate, final LocalDate endDate, final InternalTenantContext internalTenantContext) {
+        // Usage is read from the daily aggregates (maintained on write), which avoids re-summing each individual usage point
+        final ResultIterator<RolledUpUsageAggregateModelDao> usage = rolledUpUsageDao.streamAggregatedUsageForAccount(stateDate, endDate, internalTenantContext);
+        // Keep a handle on the JDBI iterator, so that callers can release the connection without consuming the whole stream
+        return new CloseableIterator<RawUsage>() {
+            @Override
+            public boolean hasNext() {
+                return usage.hasNext();
+            }
+
             @Override
-            public RawUsage apply(final RolledUpUsageModelDao input) {
+            public RawUsage next() {
+                final RolledUpUsageAggregateModelDao input = usage.next();
                 return new DefaultRawUsage(input.getSubscriptionId(), input.getRecordDate(), input.getUnitType(), input.getAmount());
             }
-        }));
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+                usage.close();
+            }
+        };
     }
 }
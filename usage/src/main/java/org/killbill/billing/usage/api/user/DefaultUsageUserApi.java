@@ -18,6 +18,8 @@ package org.killbill.billing.usage.api.user;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -40,6 +42,8 @@ import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 
+import com.google.common.annotations.VisibleForTesting;
+
 public class DefaultUsageUserApi implements UsageUserApi {
 
     private final RolledUpUsageDao rolledUpUsageDao;
@@ -55,9 +59,46 @@ public class DefaultUsageUserApi implements UsageUserApi {
     @Override
     public void recordRolledUpUsage(final SubscriptionUsageRecord record, final CallContext callContext) {
         final InternalCallContext internalCallContext = internalCallContextFactory.createInternalCallContext(record.getSubscriptionId(), ObjectType.SUBSCRIPTION, callContext);
-        for (UnitUsageRecord unitUsageRecord : record.getUnitUsageRecord()) {
-            for (UsageRecord usageRecord : unitUsageRecord.getDailyAmount()) {
-                rolledUpUsageDao.record(record.getSubscriptionId(), unitUsageRecord.getUnitType(), usageRecord.getDate(), usageRecord.getAmount(), internalCallContext);
+        final List<RolledUpUsageModelDao> usages = new LinkedList<RolledUpUsageModelDao>();
+        addRolledUpUsageModelDaos(record, usages);
+        rolledUpUsageDao.record(usages, internalCallContext);
+    }
+
+    /**
+     * Record usage for multiple subscriptions at once: records are grouped by account and each group is written
+     * as a single JDBC batch, in its own transaction.
+     *
+     * @param records     usage records, potentially across multiple accounts (of the same tenant)
+     * @param callContext the call context
+     */
+    public void recordRolledUpUsage(final Iterable<SubscriptionUsageRecord> records, final CallContext callContext) {
+        // Resolve the context (i.e. look up the account) only once per subscription
+        final Map<UUID, InternalCallContext> contextsPerSubscriptionId = new HashMap<UUID, InternalCallContext>();
+        final Map<Long, InternalCallContext> contextsPerAccountRecordId = new LinkedHashMap<Long, InternalCallContext>();
+        final Map<Long, List<RolledUpUsageModelDao>> usagesPerAccountRecordId = new LinkedHashMap<Long, List<RolledUpUsageModelDao>>();
+        for (final SubscriptionUsageRecord record : records) {
+            InternalCallContext internalCallContext = contextsPerSubscriptionId.get(record.getSubscriptionId());
+            if (internalCallContext == null) {
+                internalCallContext = internalCallContextFactory.createInternalCallContext(record.getSubscriptionId(), ObjectType.SUBSCRIPTION, callContext);
+                contextsPerSubscriptionId.put(record.getSubscriptionId(), internalCallContext);
+            }
+            final Long accountRecordId = internalCallContext.getAccountRecordId();
+            if (usagesPerAccountRecordId.get(accountRecordId) == null) {
+                contextsPerAccountRecordId.put(accountRecordId, internalCallContext);
+                usagesPerAccountRecordId.put(accountRecordId, new LinkedList<RolledUpUsageModelDao>());
+            }
+            addRolledUpUsageModelDaos(record, usagesPerAccountRecordId.get(accountRecordId));
+        }
+
+        for (final Long accountRecordId : usagesPerAccountRecordId.keySet()) {
+            rolledUpUsageDao.record(usagesPerAccountRecordId.get(accountRecordId), contextsPerAccountRecordId.get(accountRecordId));
+        }
+    }
+
+    private void addRolledUpUsageModelDaos(final SubscriptionUsageRecord record, final List<RolledUpUsageModelDao> usages) {
+        for (final UnitUsageRecord unitUsageRecord : record.getUnitUsageRecord()) {
+            for (final UsageRecord usageRecord : unitUsageRecord.getDailyAmount()) {
+                usages.add(new RolledUpUsageModelDao(record.getSubscriptionId(), unitUsageRecord.getUnitType(), usageRecord.getDate(), usageRecord.getAmount()));
             }
         }
     }
@@ -71,20 +112,55 @@ public class DefaultUsageUserApi implements UsageUserApi {
 
     @Override
     public List<RolledUpUsage> getAllUsageForSubscription(final UUID subscriptionId, final List<LocalDate> transitionTimes, final TenantContext tenantContext) {
+        final List<RolledUpUsage> result = new ArrayList<RolledUpUsage>();
+        if (transitionTimes.size() < 2) {
+            return result;
+        }
+
+        // Retrieve all usage for the full period in one query and bucket each row in its interval
         final InternalTenantContext internalCallContext = internalCallContextFactory.createInternalTenantContext(subscriptionId, ObjectType.SUBSCRIPTION, tenantContext);
-        List<RolledUpUsage> result = new ArrayList<RolledUpUsage>();
-        LocalDate prevDate = null;
-        for (LocalDate curDate : transitionTimes) {
-            if (prevDate != null) {
-                final List<RolledUpUsageModelDao> usageForSubscription = rolledUpUsageDao.getAllUsageForSubscription(subscriptionId, prevDate, curDate, internalCallContext);
-                final List<RolledUpUnit> rolledUpAmount = getRolledUpUnits(usageForSubscription);
-                result.add(new DefaultRolledUpUsage(subscriptionId, prevDate, curDate, rolledUpAmount));
+        final LocalDate firstDate = transitionTimes.get(0);
+        final LocalDate lastDate = transitionTimes.get(transitionTimes.size() - 1);
+        final List<RolledUpUsageModelDao> usageForSubscription = rolledUpUsageDao.getAllUsageForSubscription(subscriptionId, firstDate, lastDate, internalCallContext);
+
+        final List<List<RolledUpUsageModelDao>> usagePerInterval = new ArrayList<List<RolledUpUsageModelDao>>(transitionTimes.size() - 1);
+        for (int i = 0; i < transitionTimes.size() - 1; i++) {
+            usagePerInterval.add(new LinkedList<RolledUpUsageModelDao>());
+        }
+        for (final RolledUpUsageModelDao cur : usageForSubscription) {
+            final int intervalIndex = findIntervalIndex(transitionTimes, cur.getRecordDate());
+            if (intervalIndex >= 0) {
+                usagePerInterval.get(intervalIndex).add(cur);
             }
-            prevDate = curDate;
+        }
+
+        for (int i = 0; i < transitionTimes.size() - 1; i++) {
+            final List<RolledUpUnit> rolledUpAmount = getRolledUpUnits(usagePerInterval.get(i));
+            result.add(new DefaultRolledUpUsage(subscriptionId, transitionTimes.get(i), transitionTimes.get(i + 1), rolledUpAmount));
         }
         return result;
     }
 
+    // Return the index i such that transitionTimes[i] <= recordDate < transitionTimes[i + 1], or -1 if the date is outside of the range
+    @VisibleForTesting
+    static int findIntervalIndex(final List<LocalDate> transitionTimes, final LocalDate recordDate) {
+        int low = 0;
+        int high = transitionTimes.size() - 1;
+        if (recordDate.compareTo(transitionTimes.get(low)) < 0 || recordDate.compareTo(transitionTimes.get(high)) >= 0) {
+            return -1;
+        }
+        // Invariant: transitionTimes[low] <= recordDate < transitionTimes[high]
+        while (high - low > 1) {
+            final int mid = (low + high) >>> 1;
+            if (recordDate.compareTo(transitionTimes.get(mid)) < 0) {
+                high = mid;
+            } else {
+                low = mid;
+            }
+        }
+        return low;
+    }
+
     private List<RolledUpUnit> getRolledUpUnits(final List<RolledUpUsageModelDao> usageForSubscription) {
         final Map<String, Long> tmp = new HashMap<String, Long>();
         for (RolledUpUsageModelDao cur : usageForSubscription) {
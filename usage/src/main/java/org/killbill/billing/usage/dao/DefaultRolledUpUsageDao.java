@@ -16,8 +16,12 @@
 
 package org.killbill.billing.usage.dao;
 
-import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.inject.Inject;
@@ -25,21 +29,129 @@ import javax.inject.Inject;
 import org.joda.time.LocalDate;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.commons.jdbi.mapper.LowerToCamelBeanMapperFactory;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.ResultIterator;
+import org.skife.jdbi.v2.TransactionCallback;
+import org.skife.jdbi.v2.TransactionStatus;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 
 public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
 
+    private static final Logger log = LoggerFactory.getLogger(DefaultRolledUpUsageDao.class);
+
+    // Two concurrent writers may both try to create the same aggregate row: the loser retries and will then update it
+    private static final int MAX_AGGREGATE_CREATION_ATTEMPTS = 2;
+
+    private final IDBI dbi;
     private final RolledUpUsageSqlDao rolledUpUsageSqlDao;
+    private final RolledUpUsageAggregateSqlDao rolledUpUsageAggregateSqlDao;
 
     @Inject
     public DefaultRolledUpUsageDao(final IDBI dbi) {
+        this.dbi = dbi;
         this.rolledUpUsageSqlDao = dbi.onDemand(RolledUpUsageSqlDao.class);
+        // There is no real good place to do that but here (since RolledUpUsageAggregateSqlDao is NOT an EntitySqlDao)
+        ((DBI) dbi).registerMapper(new LowerToCamelBeanMapperFactory(RolledUpUsageAggregateModelDao.class));
+        this.rolledUpUsageAggregateSqlDao = dbi.onDemand(RolledUpUsageAggregateSqlDao.class);
     }
 
     @Override
     public void record(final UUID subscriptionId, final String unitType, final LocalDate date, final Long amount, final InternalCallContext context) {
         final RolledUpUsageModelDao rolledUpUsageModelDao = new RolledUpUsageModelDao(subscriptionId, unitType, date, amount);
-        rolledUpUsageSqlDao.create(rolledUpUsageModelDao, context);
+        record(ImmutableList.<RolledUpUsageModelDao>of(rolledUpUsageModelDao), context);
+    }
+
+    @Override
+    public void record(final Iterable<RolledUpUsageModelDao> usages, final InternalCallContext context) {
+        if (Iterables.isEmpty(usages)) {
+            return;
+        }
+
+        int attempt = 1;
+        while (true) {
+            try {
+                recordInTransaction(usages, context);
+                return;
+            } catch (final UnableToExecuteStatementException e) {
+                if (attempt >= MAX_AGGREGATE_CREATION_ATTEMPTS || !isIntegrityConstraintViolation(e)) {
+                    throw e;
+                }
+                log.info("Failed to record usage for accountRecordId='{}', retrying: {}", context.getAccountRecordId(), e.getMessage());
+                attempt++;
+            }
+        }
+    }
+
+    // Raw usage points and their daily aggregates are written in the same transaction, each as a single JDBC batch
+    private void recordInTransaction(final Iterable<RolledUpUsageModelDao> usages, final InternalCallContext context) {
+        dbi.inTransaction(new TransactionCallback<Void>() {
+            @Override
+            public Void inTransaction(final Handle handle, final TransactionStatus status) throws Exception {
+                handle.attach(RolledUpUsageSqlDao.class).batchCreate(usages, context);
+
+                // Aggregate the new usage points per subscription, unit type and day
+                final Map<String, RolledUpUsageAggregateModelDao> newAggregates = new HashMap<String, RolledUpUsageAggregateModelDao>();
+                LocalDate minDate = null;
+                LocalDate maxDate = null;
+                for (final RolledUpUsageModelDao usage : usages) {
+                    final String key = aggregateKey(usage.getSubscriptionId(), usage.getUnitType(), usage.getRecordDate());
+                    final RolledUpUsageAggregateModelDao aggregate = newAggregates.get(key);
+                    if (aggregate == null) {
+                        newAggregates.put(key, new RolledUpUsageAggregateModelDao(usage.getSubscriptionId(), usage.getUnitType(), usage.getRecordDate(), usage.getAmount()));
+                    } else {
+                        aggregate.setAmount(aggregate.getAmount() + usage.getAmount());
+                    }
+                    minDate = (minDate == null || usage.getRecordDate().compareTo(minDate) < 0) ? usage.getRecordDate() : minDate;
+                    maxDate = (maxDate == null || usage.getRecordDate().compareTo(maxDate) > 0) ? usage.getRecordDate() : maxDate;
+                }
+
+                // Split between existing rows (incremented in place) and new ones
+                final RolledUpUsageAggregateSqlDao aggregateSqlDao = handle.attach(RolledUpUsageAggregateSqlDao.class);
+                final List<RolledUpUsageAggregateModelDao> existingAggregates = aggregateSqlDao.getAggregatedUsageForAccount(minDate.toDate(), maxDate.plusDays(1).toDate(), context);
+                final List<RolledUpUsageAggregateModelDao> aggregatesToUpdate = new LinkedList<RolledUpUsageAggregateModelDao>();
+                for (final RolledUpUsageAggregateModelDao existingAggregate : existingAggregates) {
+                    final RolledUpUsageAggregateModelDao aggregate = newAggregates.remove(aggregateKey(existingAggregate.getSubscriptionId(), existingAggregate.getUnitType(), existingAggregate.getRecordDate()));
+                    if (aggregate != null) {
+                        aggregatesToUpdate.add(aggregate);
+                    }
+                }
+
+                if (!aggregatesToUpdate.isEmpty()) {
+                    aggregateSqlDao.batchAddAmount(aggregatesToUpdate, context);
+                }
+                if (!newAggregates.isEmpty()) {
+                    aggregateSqlDao.batchCreate(newAggregates.values(), context);
+                }
+                return null;
+            }
+        });
+    }
+
+    // SQLSTATE class 23 (e.g. 23000 on MySQL, 23505 on PostgreSQL and H2) is an integrity constraint violation, such as a duplicate key
+    @VisibleForTesting
+    static boolean isIntegrityConstraintViolation(final Throwable t) {
+        for (final Throwable cause : Throwables.getCausalChain(t)) {
+            if (cause instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            } else if (cause instanceof SQLException && ((SQLException) cause).getSQLState() != null && ((SQLException) cause).getSQLState().startsWith("23")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String aggregateKey(final UUID subscriptionId, final String unitType, final LocalDate recordDate) {
+        return subscriptionId + "|" + unitType + "|" + recordDate;
     }
 
     @Override
@@ -56,4 +168,14 @@ public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
     public List<RolledUpUsageModelDao> getRawUsageForAccount(final LocalDate startDate, final LocalDate endDate, final InternalTenantContext context) {
         return rolledUpUsageSqlDao.getRawUsageForAccount(startDate.toDate(), endDate.toDate(), context);
     }
+
+    @Override
+    public List<RolledUpUsageAggregateModelDao> getAggregatedUsageForAccount(final LocalDate startDate, final LocalDate endDate, final InternalTenantContext context) {
+        return rolledUpUsageAggregateSqlDao.getAggregatedUsageForAccount(startDate.toDate(), endDate.toDate(), context);
+    }
+
+    @Override
+    public ResultIterator<RolledUpUsageAggregateModelDao> streamAggregatedUsageForAccount(final LocalDate startDate, final LocalDate endDate, final InternalTenantContext context) {
+        return rolledUpUsageAggregateSqlDao.streamAggregatedUsageForAccount(startDate.toDate(), endDate.toDate(), context);
+    }
 }
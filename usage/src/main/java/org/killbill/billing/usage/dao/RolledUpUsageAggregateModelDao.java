@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010-2013 Ning, Inc.
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.dao;
+
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Running total of the usage recorded for a given subscription, unit type and day.
+ * <p/>
+ * Rows are maintained incrementally each time usage is recorded, so that invoicing does not need to re-sum raw usage points.
+ */
+public class RolledUpUsageAggregateModelDao {
+
+    private Long recordId;
+    private UUID subscriptionId;
+    private String unitType;
+    private LocalDate recordDate;
+    private Long amount;
+
+    public RolledUpUsageAggregateModelDao() { /* For the DAO mapper */ }
+
+    public RolledUpUsageAggregateModelDao(final UUID subscriptionId, final String unitType, final LocalDate recordDate, final Long amount) {
+        this.subscriptionId = subscriptionId;
+        this.unitType = unitType;
+        this.recordDate = recordDate;
+        this.amount = amount;
+    }
+
+    public Long getRecordId() {
+        return recordId;
+    }
+
+    public void setRecordId(final Long recordId) {
+        this.recordId = recordId;
+    }
+
+    public UUID getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    public void setSubscriptionId(final UUID subscriptionId) {
+        this.subscriptionId = subscriptionId;
+    }
+
+    public String getUnitType() {
+        return unitType;
+    }
+
+    public void setUnitType(final String unitType) {
+        this.unitType = unitType;
+    }
+
+    public LocalDate getRecordDate() {
+        return recordDate;
+    }
+
+    public void setRecordDate(final LocalDate recordDate) {
+        this.recordDate = recordDate;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(final Long amount) {
+        this.amount = amount;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("RolledUpUsageAggregateModelDao");
+        sb.append("{recordId=").append(recordId);
+        sb.append(", subscriptionId=").append(subscriptionId);
+        sb.append(", unitType='").append(unitType).append('\'');
+        sb.append(", recordDate=").append(recordDate);
+        sb.append(", amount=").append(amount);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2010-2013 Ning, Inc.
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.dao;
+
+import java.util.Date;
+import java.util.List;
+
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.callcontext.InternalTenantContextBinder;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
+import org.killbill.commons.jdbi.statement.SmartFetchSize;
+import org.skife.jdbi.v2.ResultIterator;
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.BindBean;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.mixins.CloseMe;
+import org.skife.jdbi.v2.sqlobject.mixins.Transactional;
+
+@EntitySqlDaoStringTemplate
+public interface RolledUpUsageAggregateSqlDao extends Transactional<RolledUpUsageAggregateSqlDao>, CloseMe {
+
+    @SqlBatch
+    public void batchCreate(@BindBean Iterable<RolledUpUsageAggregateModelDao> aggregates,
+                            @InternalTenantContextBinder final InternalCallContext context);
+
+    @SqlBatch
+    public void batchAddAmount(@BindBean Iterable<RolledUpUsageAggregateModelDao> aggregates,
+                               @InternalTenantContextBinder final InternalCallContext context);
+
+    @SqlQuery
+    public List<RolledUpUsageAggregateModelDao> getAggregatedUsageForAccount(@Bind("startDate") final Date startDate,
+                                                                            @Bind("endDate") final Date endDate,
+                                                                            @InternalTenantContextBinder final InternalTenantContext context);
+
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public ResultIterator<RolledUpUsageAggregateModelDao> streamAggregatedUsageForAccount(@Bind("startDate") final Date startDate,
+                                                                                         @Bind("endDate") final Date endDate,
+                                                                                         @InternalTenantContextBinder final InternalTenantContext context);
+}
@@ -22,16 +22,29 @@ import java.util.UUID;
 import org.joda.time.LocalDate;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.skife.jdbi.v2.ResultIterator;
 
 public interface RolledUpUsageDao {
 
     void record(UUID subscriptionId, String unitType, LocalDate date,
                 Long amount, InternalCallContext context);
 
+    void record(Iterable<RolledUpUsageModelDao> usages, InternalCallContext context);
+
     List<RolledUpUsageModelDao> getUsageForSubscription(UUID subscriptionId, LocalDate startDate, LocalDate endDate, String unitType, InternalTenantContext context);
 
     List<RolledUpUsageModelDao> getAllUsageForSubscription(UUID subscriptionId, LocalDate startDate, LocalDate endDate, InternalTenantContext context);
 
-
     List<RolledUpUsageModelDao> getRawUsageForAccount(LocalDate startDate, LocalDate endDate, InternalTenantContext context);
+
+    /**
+     * @return the per subscription, unit type and day usage totals for the account, in the [startDate, endDate) range
+     */
+    List<RolledUpUsageAggregateModelDao> getAggregatedUsageForAccount(LocalDate startDate, LocalDate endDate, InternalTenantContext context);
+
+    /**
+     * Streaming version of {@link #getAggregatedUsageForAccount}: rows are fetched lazily, ordered by subscription and date.
+     * The iterator needs to be closed (or fully consumed) to release the underlying connection.
+     */
+    ResultIterator<RolledUpUsageAggregateModelDao> streamAggregatedUsageForAccount(LocalDate startDate, LocalDate endDate, InternalTenantContext context);
 }
@@ -0,0 +1,37 @@
+/*! SET storage_engine=INNODB */;
+
+/*
+ * Upgrade of an existing deployment to the daily usage aggregates (ddl.sql is for fresh installs only, as it drops the tables).
+ *
+ * Run it before starting the upgraded nodes: usage recorded by the previous version is only visible to invoicing once backfilled.
+ * rolled_up_usage is neither dropped nor modified, it is still written and read (getUsageForSubscription) by the new version.
+ */
+
+CREATE TABLE rolled_up_usage_aggregate (
+    record_id serial unique,
+    subscription_id varchar(36) NOT NULL,
+    unit_type varchar(50) NOT NULL,
+    record_date date NOT NULL,
+    amount bigint NOT NULL,
+    created_date datetime NOT NULL,
+    updated_date datetime NOT NULL,
+    account_record_id bigint /*! unsigned */ not null,
+    tenant_record_id bigint /*! unsigned */ not null default 0,
+    PRIMARY KEY(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX rolled_up_usage_aggregate_key ON rolled_up_usage_aggregate(subscription_id, unit_type, record_date, tenant_record_id);
+CREATE INDEX rolled_up_usage_aggregate_tenant_account_record_id ON rolled_up_usage_aggregate(tenant_record_id, account_record_id, record_date);
+
+/* Backfill the daily aggregates from the existing usage (days already aggregated are skipped, so this statement can be re-run on its own if interrupted) */
+INSERT INTO rolled_up_usage_aggregate (subscription_id, unit_type, record_date, amount, created_date, updated_date, account_record_id, tenant_record_id)
+SELECT u.subscription_id, u.unit_type, u.record_date, sum(u.amount), max(u.created_date), max(u.created_date), max(u.account_record_id), u.tenant_record_id
+FROM rolled_up_usage u
+WHERE u.subscription_id IS NOT NULL
+AND u.unit_type IS NOT NULL
+AND NOT EXISTS (SELECT 1
+                FROM rolled_up_usage_aggregate a
+                WHERE a.subscription_id = u.subscription_id
+                AND a.unit_type = u.unit_type
+                AND a.record_date = u.record_date
+                AND a.tenant_record_id = u.tenant_record_id)
+GROUP BY u.subscription_id, u.unit_type, u.record_date, u.tenant_record_id;
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.api.user;
+
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.usage.UsageTestSuiteNoDB;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import static org.testng.Assert.assertEquals;
+
+public class TestDefaultUsageUserApi extends UsageTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testFindIntervalIndex() {
+        final List<LocalDate> transitionTimes = ImmutableList.<LocalDate>of(new LocalDate(2013, 1, 1),
+                                                                            new LocalDate(2013, 2, 1),
+                                                                            new LocalDate(2013, 2, 1),
+                                                                            new LocalDate(2013, 3, 1),
+                                                                            new LocalDate(2013, 4, 1));
+
+        assertEquals(DefaultUsageUserApi.findIntervalIndex(transitionTimes, new LocalDate(2012, 12, 31)), -1);
+        assertEquals(DefaultUsageUserApi.findIntervalIndex(transitionTimes, new LocalDate(2013, 1, 1)), 0);
+        assertEquals(DefaultUsageUserApi.findIntervalIndex(transitionTimes, new LocalDate(2013, 1, 31)), 0);
+        // Empty interval [2013-02-01, 2013-02-01) is skipped
+        assertEquals(DefaultUsageUserApi.findIntervalIndex(transitionTimes, new LocalDate(2013, 2, 1)), 2);
+        assertEquals(DefaultUsageUserApi.findIntervalIndex(transitionTimes, new LocalDate(2013, 3, 15)), 3);
+        assertEquals(DefaultUsageUserApi.findIntervalIndex(transitionTimes, new LocalDate(2013, 4, 1)), -1);
+    }
+}
@@ -17,14 +17,25 @@
 
 package org.killbill.billing.usage.dao;
 
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.List;
 import java.util.UUID;
 
 import org.joda.time.LocalDate;
 import org.killbill.billing.usage.UsageTestSuiteWithEmbeddedDB;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class TestDefaultRolledUpUsageDao extends UsageTestSuiteWithEmbeddedDB {
 
@@ -96,4 +107,110 @@ public class TestDefaultRolledUpUsageDao extends UsageTestSuiteWithEmbeddedDB {
         final List<RolledUpUsageModelDao> result = rolledUpUsageDao.getUsageForSubscription(subscriptionId, startDate, endDate, unitType, internalCallContext);
         assertEquals(result.size(), 0);
     }
+
+    @Test(groups = "slow")
+    public void testBatchRecord() {
+        final UUID subscriptionId = UUID.randomUUID();
+        final String unitType1 = "foo";
+        final String unitType2 = "bar";
+        final LocalDate startDate = new LocalDate(2013, 1, 1);
+        final LocalDate endDate = new LocalDate(2013, 2, 1);
+
+        rolledUpUsageDao.record(ImmutableList.<RolledUpUsageModelDao>of(new RolledUpUsageModelDao(subscriptionId, unitType1, startDate, 10L),
+                                                                        new RolledUpUsageModelDao(subscriptionId, unitType1, startDate.plusDays(1), 5L),
+                                                                        new RolledUpUsageModelDao(subscriptionId, unitType2, endDate.minusDays(1), 13L)),
+                                internalCallContext);
+        rolledUpUsageDao.record(ImmutableList.<RolledUpUsageModelDao>of(), internalCallContext);
+
+        final List<RolledUpUsageModelDao> result = rolledUpUsageDao.getAllUsageForSubscription(subscriptionId, startDate, endDate, internalCallContext);
+        assertEquals(result.size(), 3);
+        assertEquals(result.get(0).getRecordDate().compareTo(startDate), 0);
+        assertEquals(result.get(0).getUnitType(), unitType1);
+        assertEquals(result.get(0).getAmount().compareTo(10L), 0);
+        assertEquals(result.get(1).getRecordDate().compareTo(startDate.plusDays(1)), 0);
+        assertEquals(result.get(1).getUnitType(), unitType1);
+        assertEquals(result.get(1).getAmount().compareTo(5L), 0);
+        assertEquals(result.get(2).getRecordDate().compareTo(endDate.minusDays(1)), 0);
+        assertEquals(result.get(2).getUnitType(), unitType2);
+        assertEquals(result.get(2).getAmount().compareTo(13L), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testAggregatedUsage() {
+        final UUID subscriptionId = UUID.randomUUID();
+        final String unitType1 = "foo";
+        final String unitType2 = "bar";
+        final LocalDate startDate = new LocalDate(2013, 1, 1);
+        final LocalDate endDate = new LocalDate(2013, 2, 1);
+
+        rolledUpUsageDao.record(ImmutableList.<RolledUpUsageModelDao>of(new RolledUpUsageModelDao(subscriptionId, unitType1, startDate, 10L),
+                                                                        new RolledUpUsageModelDao(subscriptionId, unitType1, startDate, 5L),
+                                                                        new RolledUpUsageModelDao(subscriptionId, unitType2, startDate, 7L)),
+                                internalCallContext);
+        rolledUpUsageDao.record(subscriptionId, unitType1, startDate, 3L, internalCallContext);
+        rolledUpUsageDao.record(subscriptionId, unitType1, endDate.minusDays(1), 13L, internalCallContext);
+        // Outside of the range
+        rolledUpUsageDao.record(subscriptionId, unitType1, endDate, 9L, internalCallContext);
+
+        final List<RolledUpUsageAggregateModelDao> result = rolledUpUsageDao.getAggregatedUsageForAccount(startDate, endDate, internalCallContext);
+        assertEquals(result.size(), 3);
+        assertEquals(result.get(0).getSubscriptionId(), subscriptionId);
+        assertEquals(result.get(0).getRecordDate().compareTo(startDate), 0);
+        assertEquals(result.get(1).getSubscriptionId(), subscriptionId);
+        assertEquals(result.get(1).getRecordDate().compareTo(startDate), 0);
+        final RolledUpUsageAggregateModelDao unitType1Aggregate = result.get(0).getUnitType().equals(unitType1) ? result.get(0) : result.get(1);
+        final RolledUpUsageAggregateModelDao unitType2Aggregate = result.get(0).getUnitType().equals(unitType1) ? result.get(1) : result.get(0);
+        assertEquals(unitType1Aggregate.getUnitType(), unitType1);
+        assertEquals(unitType1Aggregate.getAmount().compareTo(18L), 0);
+        assertEquals(unitType2Aggregate.getUnitType(), unitType2);
+        assertEquals(unitType2Aggregate.getAmount().compareTo(7L), 0);
+        assertEquals(result.get(2).getRecordDate().compareTo(endDate.minusDays(1)), 0);
+        assertEquals(result.get(2).getUnitType(), unitType1);
+        assertEquals(result.get(2).getAmount().compareTo(13L), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testAggregatesBackfill() throws Exception {
+        final UUID subscriptionId = UUID.randomUUID();
+        final String unitType = "foo";
+        final LocalDate startDate = new LocalDate(2013, 1, 1);
+        final LocalDate endDate = new LocalDate(2013, 2, 1);
+
+        rolledUpUsageDao.record(ImmutableList.<RolledUpUsageModelDao>of(new RolledUpUsageModelDao(subscriptionId, unitType, startDate, 10L),
+                                                                        new RolledUpUsageModelDao(subscriptionId, unitType, startDate, 5L),
+                                                                        new RolledUpUsageModelDao(subscriptionId, unitType, startDate.plusDays(1), 7L)),
+                                internalCallContext);
+
+        // Simulate usage recorded before the aggregates existed
+        final Handle handle = dbi.open();
+        try {
+            handle.execute("delete from rolled_up_usage_aggregate");
+            assertEquals(rolledUpUsageDao.getAggregatedUsageForAccount(startDate, endDate, internalCallContext).size(), 0);
+
+            final String migration = Resources.toString(Resources.getResource("org/killbill/billing/usage/migration/rolled_up_usage_aggregate.sql"), Charsets.UTF_8);
+            final String backfill = migration.substring(migration.indexOf("INSERT INTO rolled_up_usage_aggregate")).trim();
+            handle.execute(backfill.substring(0, backfill.length() - 1));
+            // Re-running it doesn't count the usage twice
+            handle.execute(backfill.substring(0, backfill.length() - 1));
+        } finally {
+            handle.close();
+        }
+
+        final List<RolledUpUsageAggregateModelDao> result = rolledUpUsageDao.getAggregatedUsageForAccount(startDate, endDate, internalCallContext);
+        assertEquals(result.size(), 2);
+        assertEquals(result.get(0).getSubscriptionId(), subscriptionId);
+        assertEquals(result.get(0).getUnitType(), unitType);
+        assertEquals(result.get(0).getRecordDate().compareTo(startDate), 0);
+        assertEquals(result.get(0).getAmount().compareTo(15L), 0);
+        assertEquals(result.get(1).getRecordDate().compareTo(startDate.plusDays(1)), 0);
+        assertEquals(result.get(1).getAmount().compareTo(7L), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testOnlyRetryOnIntegrityConstraintViolation() {
+        assertTrue(DefaultRolledUpUsageDao.isIntegrityConstraintViolation(new UnableToExecuteStatementException(new SQLIntegrityConstraintViolationException("Duplicate entry"), null)));
+        assertTrue(DefaultRolledUpUsageDao.isIntegrityConstraintViolation(new UnableToExecuteStatementException(new BatchUpdateException("Unique index violation", "23505", new int[0]), null)));
+        assertFalse(DefaultRolledUpUsageDao.isIntegrityConstraintViolation(new UnableToExecuteStatementException(new SQLException("Lock wait timeout exceeded", "40001"), null)));
+        assertFalse(DefaultRolledUpUsageDao.isIntegrityConstraintViolation(new UnableToExecuteStatementException(new SQLException("Connection reset"), null)));
+    }
 }
@@ -18,25 +18,36 @@
 package org.killbill.billing.util.broadcast;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 
+import org.killbill.CreatorName;
 import org.killbill.billing.events.BroadcastInternalEvent;
 import org.killbill.billing.platform.api.LifecycleHandlerType;
 import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
 import org.killbill.billing.util.broadcast.dao.BroadcastDao;
 import org.killbill.billing.util.broadcast.dao.BroadcastModelDao;
+import org.killbill.billing.util.cache.BroadcastingCacheController;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheController;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.cache.CacheInvalidationBroadcaster;
 import org.killbill.billing.util.config.BroadcastConfig;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.bus.api.PersistentBus.EventBusException;
+import org.killbill.clock.Clock;
 import org.killbill.commons.concurrent.Executors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.EventBus;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
 
 public class DefaultBroadcastService implements BroadcastService {
 
@@ -46,19 +57,32 @@ public class DefaultBroadcastService implements BroadcastService {
 
     public static final String BROADCAST_SERVICE_NAME = "broadcast-service";
 
+    private static final char CACHE_KEYS_SEPARATOR = '\n';
+
     private final BroadcastConfig broadcastConfig;
     private final BroadcastDao broadcastDao;
     private final PersistentBus eventBus;
+    private final CacheInvalidationBroadcaster cacheInvalidationBroadcaster;
+    private final CacheControllerDispatcher cacheControllerDispatcher;
+    private final Clock clock;
 
     private AtomicLong latestRecordIdProcessed;
     private ScheduledExecutorService broadcastExecutor;
     private volatile boolean isStopped;
 
     @Inject
-    public DefaultBroadcastService(final BroadcastDao broadcastDao, final BroadcastConfig broadcastConfig, final PersistentBus eventBus) {
+    public DefaultBroadcastService(final BroadcastDao broadcastDao,
+                                   final BroadcastConfig broadcastConfig,
+                                   final PersistentBus eventBus,
+                                   final CacheInvalidationBroadcaster cacheInvalidationBroadcaster,
+                                   final CacheControllerDispatcher cacheControllerDispatcher,
+                                   final Clock clock) {
         this.broadcastDao = broadcastDao;
         this.broadcastConfig = broadcastConfig;
         this.eventBus = eventBus;
+        this.cacheInvalidationBroadcaster = cacheInvalidationBroadcaster;
+        this.cacheControllerDispatcher = cacheControllerDispatcher;
+        this.clock = clock;
         this.isStopped = false;
     }
 
@@ -101,6 +125,9 @@ public class DefaultBroadcastService implements BroadcastService {
         } finally {
             isStopped = true;
         }
+
+        // Don't lose the invalidations collected since the last run
+        publishCacheInvalidations();
     }
 
     public boolean isStopped() {
@@ -115,6 +142,53 @@ public class DefaultBroadcastService implements BroadcastService {
         this.latestRecordIdProcessed.set(latestRecordIdProcessed);
     }
 
+    // One entry per cache, with all the keys invalidated locally since the last run
+    private void publishCacheInvalidations() {
+        final Map<CacheType, Set<String>> pendingInvalidations = cacheInvalidationBroadcaster.drainPendingInvalidations();
+        for (final Entry<CacheType, Set<String>> pendingInvalidation : pendingInvalidations.entrySet()) {
+            final String event = Joiner.on(CACHE_KEYS_SEPARATOR).join(pendingInvalidation.getValue());
+            try {
+                broadcastDao.create(new BroadcastModelDao(CacheInvalidationBroadcaster.CACHE_INVALIDATION_SERVICE_NAME, pendingInvalidation.getKey().getCacheName(), event, clock.getUTCNow(), CreatorName.get()));
+            } catch (final RuntimeException e) {
+                logger.warn("Failed to broadcast invalidations for cache " + pendingInvalidation.getKey().getCacheName(), e);
+            }
+        }
+    }
+
+    private void applyCacheInvalidations(final BroadcastModelDao entry) {
+        if (CreatorName.get().equals(entry.getCreatedBy())) {
+            // Already invalidated on this node
+            return;
+        }
+
+        final CacheType cacheType = CacheType.findByName(entry.getType());
+        final CacheController<Object, Object> cacheController = cacheType != null ? cacheControllerDispatcher.getCacheController(cacheType) : null;
+        if (cacheController == null) {
+            return;
+        }
+
+        try {
+            for (final String encodedKey : Splitter.on(CACHE_KEYS_SEPARATOR).omitEmptyStrings().split(entry.getEvent())) {
+                if (CacheInvalidationBroadcaster.ALL_KEYS.equals(encodedKey)) {
+                    if (cacheController instanceof BroadcastingCacheController) {
+                        ((BroadcastingCacheController<Object, Object>) cacheController).removeAllLocally();
+                    } else {
+                        cacheController.removeAll();
+                    }
+                } else {
+                    final Object key = CacheInvalidationBroadcaster.decodeKey(encodedKey);
+                    if (cacheController instanceof BroadcastingCacheController) {
+                        ((BroadcastingCacheController<Object, Object>) cacheController).removeLocally(key);
+                    } else {
+                        cacheController.remove(key);
+                    }
+                }
+            }
+        } catch (final RuntimeException e) {
+            logger.warn("Failed to apply invalidations for cache " + entry.getType(), e);
+        }
+    }
+
     private static class BroadcastServiceRunnable implements Runnable {
 
         private final DefaultBroadcastService parent;
@@ -133,6 +207,8 @@ public class DefaultBroadcastService implements BroadcastService {
                 return;
             }
 
+            parent.publishCacheInvalidations();
+
             final List<BroadcastModelDao> entries = broadcastDao.getLatestEntriesFrom(parent.getLatestRecordIdProcessed().get());
             for (BroadcastModelDao cur : entries) {
                 if (parent.isStopped()) {
@@ -140,8 +216,12 @@ public class DefaultBroadcastService implements BroadcastService {
                 }
 
                 try {
-                    final BroadcastInternalEvent event = new DefaultBroadcastInternalEvent(cur.getServiceName(), cur.getType(), cur.getEvent());
-                    eventBus.post(event);
+                    if (CacheInvalidationBroadcaster.CACHE_INVALIDATION_SERVICE_NAME.equals(cur.getServiceName())) {
+                        parent.applyCacheInvalidations(cur);
+                    } else {
+                        final BroadcastInternalEvent event = new DefaultBroadcastInternalEvent(cur.getServiceName(), cur.getType(), cur.getEvent());
+                        eventBus.post(event);
+                    }
                 } catch (final EventBusException e) {
                     logger.error("Failed to send event BroadcastInternalEvent: ", e);
                 } finally {
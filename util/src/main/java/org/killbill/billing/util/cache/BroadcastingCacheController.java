@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.util.cache.Cachable.CacheType;
+
+// Propagate invalidations to the other nodes
+public class BroadcastingCacheController<K, V> implements CacheController<K, V> {
+
+    private final CacheController<K, V> delegate;
+    private final CacheInvalidationBroadcaster cacheInvalidationBroadcaster;
+
+    public BroadcastingCacheController(final CacheController<K, V> delegate, final CacheInvalidationBroadcaster cacheInvalidationBroadcaster) {
+        this.delegate = delegate;
+        this.cacheInvalidationBroadcaster = cacheInvalidationBroadcaster;
+    }
+
+    @Override
+    public void add(final K key, final V value) {
+        delegate.add(key, value);
+    }
+
+    @Override
+    public V get(final K key, @Nullable final CacheLoaderArgument cacheLoaderArgument) {
+        return delegate.get(key, cacheLoaderArgument);
+    }
+
+    @Override
+    public V get(final K key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public boolean remove(final K key) {
+        if (!cacheInvalidationBroadcaster.isLocalInvalidationsOnly()) {
+            cacheInvalidationBroadcaster.invalidate(getCacheType(), key);
+        }
+        return delegate.remove(key);
+    }
+
+    @Override
+    public void putIfAbsent(final K key, final V value) {
+        delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void removeAll() {
+        if (!cacheInvalidationBroadcaster.isLocalInvalidationsOnly()) {
+            cacheInvalidationBroadcaster.invalidateAll(getCacheType());
+        }
+        delegate.removeAll();
+    }
+
+    @Override
+    public CacheType getCacheType() {
+        return delegate.getCacheType();
+    }
+
+    // Invalidations coming from other nodes
+    public boolean removeLocally(final K key) {
+        return delegate.remove(key);
+    }
+
+    public void removeAllLocally() {
+        delegate.removeAll();
+    }
+}
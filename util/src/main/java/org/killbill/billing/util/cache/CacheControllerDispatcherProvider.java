@@ -26,14 +26,17 @@ import javax.inject.Inject;
 import javax.inject.Provider;
 
 import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.config.CacheConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.config.CacheConfiguration;
 import net.sf.ehcache.loader.CacheLoader;
 
 // Build the abstraction layer between EhCache and Kill Bill
@@ -42,10 +45,19 @@ public class CacheControllerDispatcherProvider implements Provider<CacheControll
     private static final Logger logger = LoggerFactory.getLogger(CacheControllerDispatcherProvider.class);
 
     private final CacheManager cacheManager;
+    private final CacheConfig cacheConfig;
+    private final MetricRegistry metricRegistry;
+    private final CacheInvalidationBroadcaster cacheInvalidationBroadcaster;
 
     @Inject
-    public CacheControllerDispatcherProvider(final CacheManager cacheManager) {
+    public CacheControllerDispatcherProvider(final CacheManager cacheManager,
+                                             final CacheConfig cacheConfig,
+                                             final MetricRegistry metricRegistry,
+                                             final CacheInvalidationBroadcaster cacheInvalidationBroadcaster) {
         this.cacheManager = cacheManager;
+        this.cacheConfig = cacheConfig;
+        this.metricRegistry = metricRegistry;
+        this.cacheInvalidationBroadcaster = cacheInvalidationBroadcaster;
     }
 
     @Override
@@ -57,13 +69,35 @@ public class CacheControllerDispatcherProvider implements Provider<CacheControll
             final Collection<EhCacheBasedCacheController<Object, Object>> cacheControllersForCacheName = getCacheControllersForCacheName(cacheName, cacheType);
             // EhCache supports multiple cache loaders per type, but not Kill Bill - take the first one
             if (cacheControllersForCacheName.size() > 0) {
-                final EhCacheBasedCacheController<Object, Object> ehCacheBasedCacheController = cacheControllersForCacheName.iterator().next();
-                cacheControllers.put(cacheType, ehCacheBasedCacheController);
+                CacheController<Object, Object> cacheController = cacheControllersForCacheName.iterator().next();
+                if (cacheConfig.getNearCacheNames().contains(cacheName)) {
+                    cacheController = new NearCacheBasedCacheController<Object, Object>(cacheController, cacheConfig.getNearCacheMaxSize(), getTimeToLiveSeconds(cacheName), metricRegistry);
+                }
+                if (cacheConfig.getDistributedInvalidationCacheNames().contains(cacheName)) {
+                    cacheController = new BroadcastingCacheController<Object, Object>(cacheController, cacheInvalidationBroadcaster);
+                }
+                cacheControllers.put(cacheType, cacheController);
             }
         }
         return new CacheControllerDispatcher(cacheControllers);
     }
 
+    // Near cache entries shouldn't outlive the EhCache ones (0 if they never expire)
+    private long getTimeToLiveSeconds(final String name) {
+        final CacheConfiguration cacheConfiguration = cacheManager.getEhcache(name).getCacheConfiguration();
+        if (cacheConfiguration.isEternal()) {
+            return 0;
+        }
+
+        final long timeToLiveSeconds = cacheConfiguration.getTimeToLiveSeconds();
+        final long timeToIdleSeconds = cacheConfiguration.getTimeToIdleSeconds();
+        if (timeToLiveSeconds == 0 || timeToIdleSeconds == 0) {
+            return Math.max(timeToLiveSeconds, timeToIdleSeconds);
+        } else {
+            return Math.min(timeToLiveSeconds, timeToIdleSeconds);
+        }
+    }
+
     private Collection<EhCacheBasedCacheController<Object, Object>> getCacheControllersForCacheName(final String name, final CacheType cacheType) {
         final Ehcache cache = cacheManager.getEhcache(name);
         if (cache == null) {
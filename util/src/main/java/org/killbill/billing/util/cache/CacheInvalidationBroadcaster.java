@@ -0,0 +1,136 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.util.cache.Cachable.CacheType;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+// Collects the invalidations of the caches shared across nodes (see BroadcastingCacheController): they are coalesced
+// here and periodically published by the DefaultBroadcastService, which also applies the ones coming from other nodes.
+public class CacheInvalidationBroadcaster {
+
+    public static final String CACHE_INVALIDATION_SERVICE_NAME = "cache-invalidation";
+
+    // Invalidate the whole cache
+    public static final String ALL_KEYS = "*";
+
+    // Beyond that, the whole cache is invalidated on the other nodes
+    private static final int MAX_PENDING_KEYS_PER_CACHE = 1000;
+
+    private static final String LONG_KEY_PREFIX = "L:";
+    private static final String INTEGER_KEY_PREFIX = "I:";
+    private static final String UUID_KEY_PREFIX = "U:";
+    private static final String STRING_KEY_PREFIX = "S:";
+
+    private Map<CacheType, Set<String>> pendingInvalidations = new LinkedHashMap<CacheType, Set<String>>();
+
+    // Set while the current thread applies invalidations which every node receives anyway (e.g. from the tenant broadcasts)
+    private final ThreadLocal<Boolean> localInvalidationsOnly = new ThreadLocal<Boolean>();
+
+    // Invalidations made by the runnable only apply to the caches of this node
+    public void runWithLocalInvalidationsOnly(final Runnable runnable) {
+        final Boolean previous = localInvalidationsOnly.get();
+        localInvalidationsOnly.set(Boolean.TRUE);
+        try {
+            runnable.run();
+        } finally {
+            localInvalidationsOnly.set(previous);
+        }
+    }
+
+    public boolean isLocalInvalidationsOnly() {
+        return Boolean.TRUE.equals(localInvalidationsOnly.get());
+    }
+
+    public synchronized void invalidate(final CacheType cacheType, final Object key) {
+        final String encodedKey = encodeKey(key);
+        if (encodedKey == null) {
+            invalidateAll(cacheType);
+            return;
+        }
+
+        Set<String> keys = pendingInvalidations.get(cacheType);
+        if (keys == null) {
+            keys = new LinkedHashSet<String>();
+            pendingInvalidations.put(cacheType, keys);
+        } else if (keys.contains(ALL_KEYS)) {
+            return;
+        }
+
+        if (keys.size() >= MAX_PENDING_KEYS_PER_CACHE) {
+            invalidateAll(cacheType);
+        } else {
+            keys.add(encodedKey);
+        }
+    }
+
+    public synchronized void invalidateAll(final CacheType cacheType) {
+        pendingInvalidations.put(cacheType, ImmutableSet.<String>of(ALL_KEYS));
+    }
+
+    // Return the invalidations (encoded keys or ALL_KEYS) accumulated since the last call
+    public synchronized Map<CacheType, Set<String>> drainPendingInvalidations() {
+        if (pendingInvalidations.isEmpty()) {
+            return ImmutableMap.<CacheType, Set<String>>of();
+        }
+
+        final Map<CacheType, Set<String>> result = pendingInvalidations;
+        pendingInvalidations = new LinkedHashMap<CacheType, Set<String>>();
+        return result;
+    }
+
+    // Cache keys are ids, record ids or strings: return null for anything else
+    @Nullable
+    public static String encodeKey(final Object key) {
+        if (key instanceof Long) {
+            return LONG_KEY_PREFIX + key;
+        } else if (key instanceof Integer) {
+            return INTEGER_KEY_PREFIX + key;
+        } else if (key instanceof UUID) {
+            return UUID_KEY_PREFIX + key;
+        } else if (key instanceof String) {
+            return STRING_KEY_PREFIX + key;
+        } else {
+            return null;
+        }
+    }
+
+    public static Object decodeKey(final String encodedKey) {
+        if (encodedKey.startsWith(LONG_KEY_PREFIX)) {
+            return Long.valueOf(encodedKey.substring(LONG_KEY_PREFIX.length()));
+        } else if (encodedKey.startsWith(INTEGER_KEY_PREFIX)) {
+            return Integer.valueOf(encodedKey.substring(INTEGER_KEY_PREFIX.length()));
+        } else if (encodedKey.startsWith(UUID_KEY_PREFIX)) {
+            return UUID.fromString(encodedKey.substring(UUID_KEY_PREFIX.length()));
+        } else if (encodedKey.startsWith(STRING_KEY_PREFIX)) {
+            return encodedKey.substring(STRING_KEY_PREFIX.length());
+        } else {
+            throw new IllegalArgumentException("Invalid cache key " + encodedKey);
+        }
+    }
+}
@@ -28,11 +28,13 @@ import javax.inject.Inject;
 import javax.inject.Provider;
 
 import org.killbill.billing.util.config.CacheConfig;
+import org.killbill.billing.util.metrics.LatencyTimers;
 import org.killbill.xmlloader.UriAccessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.codahale.metrics.ehcache.InstrumentedEhcache;
 import net.sf.ehcache.CacheException;
 import net.sf.ehcache.CacheManager;
@@ -102,7 +104,8 @@ public class EhCacheCacheManagerProvider implements Provider<CacheManager> {
             for (final CacheLoader existingCacheLoader : cache.getRegisteredCacheLoaders()) {
                 cache.unregisterCacheLoader(existingCacheLoader);
             }
-            cache.registerCacheLoader(cacheLoader);
+            final Timer loadTimer = LatencyTimers.getOrRegisterTimer(metricRegistry, MetricRegistry.name(TimedCacheLoader.class, cache.getName(), "loads"));
+            cache.registerCacheLoader(new TimedCacheLoader(cacheLoader, loadTimer));
 
             // Instrument the cache
             final Ehcache decoratedCache = InstrumentedEhcache.instrument(metricRegistry, cache);
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.util.cache.Cachable.CacheType;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+
+// On-heap, size-bounded, tier in front of another CacheController (EhCache): lookups are a single ConcurrentHashMap read.
+// Entries are dropped on eviction, invalidation (remove/removeAll) or once the time to live of the underlying cache has elapsed.
+public class NearCacheBasedCacheController<K, V> implements CacheController<K, V> {
+
+    // Number of times an entry can survive the eviction clock hand
+    private static final int MAX_FREQUENCY = 3;
+    // Number of invalidation generation stripes
+    private static final int NB_GENERATIONS = 64;
+
+    private final CacheController<K, V> delegate;
+    private final int maxSize;
+    // 0 if entries never expire
+    private final long timeToLiveNanos;
+    private final Ticker ticker;
+
+    private final ConcurrentMap<K, NearCacheEntry<V>> entries = new ConcurrentHashMap<K, NearCacheEntry<V>>();
+    // CLOCK (second chance) eviction order: keys of removed entries are lazily skipped
+    private final Queue<K> evictionQueue = new ConcurrentLinkedQueue<K>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger evictionQueueSize = new AtomicInteger();
+    // Bumped on each invalidation of a key in that stripe, so that a value loaded concurrently isn't installed after the invalidation
+    private final AtomicLongArray generations = new AtomicLongArray(NB_GENERATIONS);
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public NearCacheBasedCacheController(final CacheController<K, V> delegate, final int maxSize, final long timeToLiveSeconds, final MetricRegistry metricRegistry) {
+        this(delegate, maxSize, timeToLiveSeconds, metricRegistry, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    NearCacheBasedCacheController(final CacheController<K, V> delegate, final int maxSize, final long timeToLiveSeconds, final MetricRegistry metricRegistry, final Ticker ticker) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.timeToLiveNanos = TimeUnit.SECONDS.toNanos(timeToLiveSeconds);
+        this.ticker = ticker;
+
+        final String cacheName = delegate.getCacheType().getCacheName();
+        this.hits = metricRegistry.counter(MetricRegistry.name(NearCacheBasedCacheController.class, cacheName, "hits"));
+        this.misses = metricRegistry.counter(MetricRegistry.name(NearCacheBasedCacheController.class, cacheName, "misses"));
+        this.evictions = metricRegistry.counter(MetricRegistry.name(NearCacheBasedCacheController.class, cacheName, "evictions"));
+    }
+
+    @Override
+    public void add(final K key, final V value) {
+        delegate.add(key, value);
+        addToNearCache(key, value);
+    }
+
+    @Override
+    public V get(final K key, @Nullable final CacheLoaderArgument cacheLoaderArgument) {
+        final NearCacheEntry<V> entry = getFromNearCache(key);
+        if (entry != null) {
+            hits.inc();
+            entry.touch();
+            return entry.value;
+        }
+
+        misses.inc();
+        final long generation = generations.get(generationIndex(key));
+        final V value = delegate.get(key, cacheLoaderArgument);
+        addLoadedValueToNearCache(key, value, generation);
+        return value;
+    }
+
+    @Override
+    public V get(final K key) {
+        final NearCacheEntry<V> entry = getFromNearCache(key);
+        if (entry != null) {
+            hits.inc();
+            entry.touch();
+            return entry.value;
+        }
+
+        misses.inc();
+        final long generation = generations.get(generationIndex(key));
+        final V value = delegate.get(key);
+        addLoadedValueToNearCache(key, value, generation);
+        return value;
+    }
+
+    @Override
+    public boolean remove(final K key) {
+        // Invalidate the delegate first: a load starting after the generation bump will see the new value
+        final boolean removed = delegate.remove(key);
+        generations.incrementAndGet(generationIndex(key));
+        removeFromNearCache(key);
+        return removed;
+    }
+
+    @Override
+    public void putIfAbsent(final K key, final V value) {
+        delegate.putIfAbsent(key, value);
+        addToNearCache(key, value);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void removeAll() {
+        delegate.removeAll();
+        for (int i = 0; i < NB_GENERATIONS; i++) {
+            generations.incrementAndGet(i);
+        }
+        entries.clear();
+        evictionQueue.clear();
+        size.set(0);
+        evictionQueueSize.set(0);
+    }
+
+    @Override
+    public CacheType getCacheType() {
+        return delegate.getCacheType();
+    }
+
+    @Nullable
+    private NearCacheEntry<V> getFromNearCache(final K key) {
+        final NearCacheEntry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (timeToLiveNanos > 0 && ticker.read() - entry.creationTimeNanos >= timeToLiveNanos) {
+            // Expired: the delegate is the source of truth again
+            if (entries.remove(key, entry)) {
+                size.decrementAndGet();
+            }
+            return null;
+        }
+        return entry;
+    }
+
+    private void removeFromNearCache(final K key) {
+        if (entries.remove(key) != null) {
+            size.decrementAndGet();
+        }
+    }
+
+    private void addLoadedValueToNearCache(final K key, @Nullable final V value, final long generation) {
+        final int generationIndex = generationIndex(key);
+        if (generations.get(generationIndex) != generation) {
+            // The key was invalidated while we were loading it
+            return;
+        }
+
+        final NearCacheEntry<V> entry = addToNearCache(key, value);
+        // remove() may have bumped the generation after the check above, but before our insert
+        if (entry != null && generations.get(generationIndex) != generation && entries.remove(key, entry)) {
+            size.decrementAndGet();
+        }
+    }
+
+    // Return the inserted entry, if any
+    @Nullable
+    private NearCacheEntry<V> addToNearCache(final K key, @Nullable final V value) {
+        if (value == null) {
+            // Negative lookups aren't cached
+            return null;
+        }
+
+        final NearCacheEntry<V> entry = new NearCacheEntry<V>(value, ticker.read());
+        final boolean inserted = entries.putIfAbsent(key, entry) == null;
+        if (inserted) {
+            evictionQueue.offer(key);
+            evictionQueueSize.incrementAndGet();
+            size.incrementAndGet();
+        }
+
+        // The queue is also trimmed when it contains too many keys of removed entries
+        while (size.get() > maxSize || evictionQueueSize.get() > 2 * maxSize) {
+            if (!advanceClockHand()) {
+                break;
+            }
+        }
+        return inserted ? entry : null;
+    }
+
+    private int generationIndex(final K key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % NB_GENERATIONS;
+    }
+
+    // Return false if there is nothing left to look at
+    private boolean advanceClockHand() {
+        final K candidate = evictionQueue.poll();
+        if (candidate == null) {
+            return false;
+        }
+        evictionQueueSize.decrementAndGet();
+
+        final NearCacheEntry<V> entry = entries.get(candidate);
+        if (entry == null) {
+            // Already removed
+            return true;
+        }
+
+        if (entry.frequency > 0 || size.get() <= maxSize) {
+            // Second chance
+            entry.frequency = Math.max(0, entry.frequency - 1);
+            evictionQueue.offer(candidate);
+            evictionQueueSize.incrementAndGet();
+        } else if (entries.remove(candidate, entry)) {
+            size.decrementAndGet();
+            evictions.inc();
+        }
+        return true;
+    }
+
+    private static final class NearCacheEntry<V> {
+
+        private final V value;
+        private final long creationTimeNanos;
+        // Approximate access frequency: racy updates are fine
+        private volatile int frequency;
+
+        private NearCacheEntry(final V value, final long creationTimeNanos) {
+            this.value = value;
+            this.creationTimeNanos = creationTimeNanos;
+        }
+
+        private void touch() {
+            if (frequency < MAX_FREQUENCY) {
+                frequency++;
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Timer;
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Status;
+import net.sf.ehcache.loader.CacheLoader;
+
+// Records the latency of cache loads (i.e. cache misses)
+public class TimedCacheLoader implements CacheLoader {
+
+    private final CacheLoader delegate;
+    private final Timer loadTimer;
+
+    public TimedCacheLoader(final CacheLoader delegate, final Timer loadTimer) {
+        this.delegate = delegate;
+        this.loadTimer = loadTimer;
+    }
+
+    @Override
+    public Object load(final Object key) throws CacheException {
+        final long startNanos = System.nanoTime();
+        try {
+            return delegate.load(key);
+        } finally {
+            loadTimer.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Object load(final Object key, final Object argument) {
+        final long startNanos = System.nanoTime();
+        try {
+            return delegate.load(key, argument);
+        } finally {
+            loadTimer.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Map loadAll(final Collection keys) {
+        return delegate.loadAll(keys);
+    }
+
+    @Override
+    public Map loadAll(final Collection keys, final Object argument) {
+        return delegate.loadAll(keys, argument);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public CacheLoader clone(final Ehcache cache) throws CloneNotSupportedException {
+        return delegate.clone(cache);
+    }
+
+    @Override
+    public void init() {
+        delegate.init();
+    }
+
+    @Override
+    public void dispose() throws CacheException {
+        delegate.dispose();
+    }
+
+    @Override
+    public Status getStatus() {
+        return delegate.getStatus();
+    }
+}
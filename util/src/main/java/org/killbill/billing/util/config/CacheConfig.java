@@ -16,6 +16,8 @@
 
 package org.killbill.billing.util.config;
 
+import java.util.List;
+
 import org.skife.config.Config;
 import org.skife.config.Default;
 import org.skife.config.Description;
@@ -27,4 +29,19 @@ public interface CacheConfig extends KillbillConfig {
     @Description("Path to Ehcache XML configuration")
     public String getCacheConfigLocation();
 
+    @Config("org.killbill.cache.nearCache.names")
+    @Default("")
+    @Description("Names of the caches (e.g. record-id,object-id) to front with an on-heap near cache. Entries expire with the time to live of the underlying cache")
+    public List<String> getNearCacheNames();
+
+    @Config("org.killbill.cache.nearCache.maxSize")
+    @Default("10000")
+    @Description("Maximum number of entries per near cache")
+    public int getNearCacheMaxSize();
+
+    @Config("org.killbill.cache.distributedInvalidation.names")
+    @Default("")
+    @Description("Names of the caches (e.g. tenant-catalog,tenant-kv) whose invalidations are broadcast to the other nodes")
+    public List<String> getDistributedInvalidationCacheNames();
+
 }
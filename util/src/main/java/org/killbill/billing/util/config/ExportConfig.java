@@ -0,0 +1,35 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.config;
+
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+
+public interface ExportConfig extends KillbillConfig {
+
+    @Config("org.killbill.export.threads.pool.nb")
+    @Default("4")
+    @Description("Number of tables queried in parallel during a database export")
+    int getExportThreadNb();
+
+    @Config("org.killbill.export.table.buffer.size")
+    @Default("1000")
+    @Description("Number of rows read per query for each table during a database export (up to three such chunks per table are held in memory)")
+    int getExportTableBufferSize();
+}
@@ -49,4 +49,26 @@ public interface InvoiceConfig extends KillbillConfig {
     @Default("50")
     @Description("Maximum number of times the system will retry to grab global lock (with a 100ms wait each time)")
     int getMaxGlobalLockRetries();
+
+    @Config("org.killbill.invoice.generation.threads")
+    @Default("0")
+    @Description("Number of threads generating invoices for next billing date notifications (0 to generate them on the notification queue thread)")
+    int getInvoiceGenerationThreadNb();
+
+    @Config("org.killbill.invoice.generation.queueCapacity")
+    @Default("100")
+    @Description("Maximum number of pending invoice generations per thread, before next billing date notifications are re-queued")
+    int getInvoiceGenerationQueueCapacity();
+
+    @Config("org.killbill.invoice.generation.retryDelay")
+    @Default("1m")
+    @Description("Delay before re-queuing a next billing date notification whose invoice generation was rejected or failed (when org.killbill.invoice.generation.threads > 0)")
+    TimeSpan getInvoiceGenerationRetryDelay();
+
+    @Config("org.killbill.invoice.generation.incremental")
+    @Default("false")
+    @Description("Whether subscription transitions and next billing date notifications only regenerate the items of the affected subscription (instead of all the account subscriptions): " +
+                 "next billing date notifications are then scheduled per subscription, so an account with N subscriptions billed on the same day gets N invoices (and N payments) that day. " +
+                 "Billing events and existing invoices are still loaded for the whole account")
+    boolean isIncrementalInvoiceGenerationEnabled();
 }
@@ -34,4 +34,9 @@ public interface JaxrsConfig extends KillbillConfig {
     @Description("Total timeout for all callables associated to a given api call (parallel mode)")
     TimeSpan getJaxrsTimeout();
 
+    @Config("org.killbill.jaxrs.pagination.keyset.enabled")
+    @Default("false")
+    @Description("Whether next page links carry a cursor, so that the next page is read with a seek (where record_id > ?) instead of an offset")
+    boolean isKeysetPaginationEnabled();
+
 }
@@ -42,7 +42,7 @@ import org.killbill.billing.util.customfield.api.DefaultCustomFieldCreationEvent
 import org.killbill.billing.util.customfield.api.DefaultCustomFieldDeletionEvent;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.Pagination;
-import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.KeysetPaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.EntityDaoBase;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
@@ -144,7 +144,7 @@ public class DefaultCustomFieldDao extends EntityDaoBase<CustomFieldModelDao, Cu
     @Override
     public Pagination<CustomFieldModelDao> searchCustomFields(final String searchKey, final Long offset, final Long limit, final InternalTenantContext context) {
         return paginationHelper.getPagination(CustomFieldSqlDao.class,
-                                              new PaginationIteratorBuilder<CustomFieldModelDao, CustomField, CustomFieldSqlDao>() {
+                                              new KeysetPaginationIteratorBuilder<CustomFieldModelDao, CustomField, CustomFieldSqlDao>(searchKey) {
                                                   @Override
                                                   public Long getCount(final CustomFieldSqlDao customFieldSqlDao, final InternalTenantContext context) {
                                                       return customFieldSqlDao.getSearchCount(searchKey, String.format("%%%s%%", searchKey), context);
@@ -154,6 +154,16 @@ public class DefaultCustomFieldDao extends EntityDaoBase<CustomFieldModelDao, Cu
                                                   public Iterator<CustomFieldModelDao> build(final CustomFieldSqlDao customFieldSqlDao, final Long limit, final InternalTenantContext context) {
                                                       return customFieldSqlDao.search(searchKey, String.format("%%%s%%", searchKey), offset, limit, context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<CustomFieldModelDao> buildAfterRecordId(final CustomFieldSqlDao customFieldSqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return customFieldSqlDao.searchAfterRecordId(searchKey, String.format("%%%s%%", searchKey), lastSeenRecordId, limit, context);
+                                                  }
+
+                                                  @Override
+                                                  public Long getLastRecordIdAfterRecordId(final CustomFieldSqlDao customFieldSqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return customFieldSqlDao.searchLastRecordIdAfterRecordId(searchKey, String.format("%%%s%%", searchKey), lastSeenRecordId, limit, context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -21,6 +21,7 @@ import java.util.List;
 
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
 import org.skife.jdbi.v2.sqlobject.customizers.Define;
@@ -51,6 +52,15 @@ public interface AuditSqlDao {
     public void insertAuditFromTransaction(@BindBean final EntityAudit audit,
                                            @BindBean final InternalCallContext context);
 
+    @SqlBatch
+    public void insertAuditsFromTransaction(@BindBean final Iterable<EntityAudit> audits,
+                                            @BindBean final InternalCallContext context);
+
+    // One context per audit (e.g. account creations, audited with the record id of each account)
+    @SqlBatch
+    public void insertAuditsWithContextsFromTransaction(@BindBean final Iterable<EntityAudit> audits,
+                                                        @BindBean final Iterable<InternalCallContext> contexts);
+
     @SqlQuery
     @SmartFetchSize(shouldStream = true)
     public Iterator<AuditLogModelDao> getAuditLogsForAccountRecordId(@BindBean final InternalTenantContext context);
@@ -17,6 +17,7 @@
 package org.killbill.billing.util.dao;
 
 import org.skife.jdbi.v2.sqlobject.BindBean;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
 
 import org.killbill.billing.callcontext.InternalCallContext;
@@ -28,4 +29,8 @@ public interface HistorySqlDao<M extends EntityModelDao<E>, E extends Entity> {
     @SqlUpdate
     public void addHistoryFromTransaction(@EntityHistoryBinder EntityHistoryModelDao<M, E> history,
                                           @BindBean InternalCallContext context);
+
+    @SqlBatch
+    public void addHistoriesFromTransaction(@EntityHistoryBinder Iterable<EntityHistoryModelDao<M, E>> histories,
+                                            @BindBean InternalCallContext context);
 }
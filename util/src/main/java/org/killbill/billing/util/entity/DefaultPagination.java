@@ -31,6 +31,7 @@ public class DefaultPagination<T> implements Pagination<T> {
     private final Long limit;
     private final Long totalNbRecords;
     private final Long maxNbRecords;
+    private final String nextPageCursor;
     private final Iterator<T> delegateIterator;
 
     // Builder when the streaming API can't be used (should only be used for tests)
@@ -51,7 +52,8 @@ public class DefaultPagination<T> implements Pagination<T> {
 
     // Constructor for DAO -> API bridge
     public DefaultPagination(final Pagination original, final Long limit, final Iterator<T> delegate) {
-        this(original.getCurrentOffset(), limit, original.getTotalNbRecords(), original.getMaxNbRecords(), delegate);
+        this(original.getCurrentOffset(), limit, original.getTotalNbRecords(), original.getMaxNbRecords(),
+             original instanceof DefaultPagination ? ((DefaultPagination) original).getNextPageCursor() : null, delegate);
     }
 
     // Constructor for DAO getAll calls
@@ -62,10 +64,19 @@ public class DefaultPagination<T> implements Pagination<T> {
     public DefaultPagination(final Long currentOffset, final Long limit,
                              @Nullable final Long totalNbRecords, @Nullable final Long maxNbRecords,
                              final Iterator<T> delegateIterator) {
+        this(currentOffset, limit, totalNbRecords, maxNbRecords, null, delegateIterator);
+    }
+
+    // nextPageCursor: opaque cursor to resume the query after the last row of this page (see PaginationCursor)
+    public DefaultPagination(final Long currentOffset, final Long limit,
+                             @Nullable final Long totalNbRecords, @Nullable final Long maxNbRecords,
+                             @Nullable final String nextPageCursor,
+                             final Iterator<T> delegateIterator) {
         this.currentOffset = currentOffset;
         this.limit = limit;
         this.totalNbRecords = totalNbRecords;
         this.maxNbRecords = maxNbRecords;
+        this.nextPageCursor = nextPageCursor;
         this.delegateIterator = delegateIterator;
     }
 
@@ -94,6 +105,12 @@ public class DefaultPagination<T> implements Pagination<T> {
         }
     }
 
+    // Only set if there is a next page
+    @Nullable
+    public String getNextPageCursor() {
+        return getNextOffset() == null ? null : nextPageCursor;
+    }
+
     @Override
     public Long getMaxNbRecords() {
         return maxNbRecords;
@@ -109,6 +126,7 @@ public class DefaultPagination<T> implements Pagination<T> {
         final StringBuilder sb = new StringBuilder("DefaultPagination{");
         sb.append("currentOffset=").append(currentOffset);
         sb.append(", nextOffset=").append(getNextOffset());
+        sb.append(", nextPageCursor=").append(getNextPageCursor());
         sb.append(", totalNbRecords=").append(totalNbRecords);
         sb.append(", maxNbRecords=").append(maxNbRecords);
         sb.append('}');
@@ -50,13 +50,46 @@ public class DefaultPaginationSqlDaoHelper {
             }
         });
 
+        // Resume right after the last row of the previous page (where record_id > ?) when the request carries a cursor,
+        // instead of making the database scan and discard all rows before offset: deep pages then cost the same as the first one.
+        final PaginationCursor paginationCursor = PaginationCursor.getPerThreadPaginationCursor();
+        final String queryKey;
+        final Long lastSeenRecordId;
+        if (paginationCursor != null && paginationIteratorBuilder instanceof KeysetPaginationIteratorBuilder) {
+            queryKey = String.format("%s::%s::%s", sqlDaoClazz.getName(), context != null ? context.getTenantRecordId() : null, ((KeysetPaginationIteratorBuilder) paginationIteratorBuilder).getQueryKey());
+            lastSeenRecordId = offset == 0 ? Long.valueOf(0L) : PaginationCursor.decode(paginationCursor.getRequestedCursor(), queryKey, offset);
+        } else {
+            queryKey = null;
+            lastSeenRecordId = null;
+        }
+
+        // The cursor to the next page has to be known before the results are streamed out (e.g. in the response headers)
+        final String nextPageCursor;
+        if (lastSeenRecordId != null) {
+            final Long lastRecordId = transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Long>() {
+                @Override
+                public Long inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                    final EntitySqlDao<M, E> sqlDao = entitySqlDaoWrapperFactory.become(sqlDaoClazz);
+                    return ((KeysetPaginationIteratorBuilder<M, E, S>) paginationIteratorBuilder).getLastRecordIdAfterRecordId((S) sqlDao, lastSeenRecordId, limit, context);
+                }
+            });
+            nextPageCursor = lastRecordId == null ? null : PaginationCursor.encode(queryKey, offset + limit, lastRecordId);
+        } else {
+            nextPageCursor = null;
+        }
+
         // We usually always want to wrap our queries in an EntitySqlDaoTransactionWrapper... except here.
         // Since we want to stream the results out, we don't want to auto-commit when this method returns.
         final EntitySqlDao<M, E> sqlDao = transactionalSqlDao.onDemandForStreamingResults(sqlDaoClazz);
         final Long totalCount = context !=  null ? sqlDao.getCount(context) : null;
-        final Iterator<M> results = paginationIteratorBuilder.build((S) sqlDao, limit, context);
+        final Iterator<M> results;
+        if (lastSeenRecordId != null) {
+            results = ((KeysetPaginationIteratorBuilder<M, E, S>) paginationIteratorBuilder).buildAfterRecordId((S) sqlDao, lastSeenRecordId, limit, context);
+        } else {
+            results = paginationIteratorBuilder.build((S) sqlDao, limit, context);
+        }
 
-        return new DefaultPagination<M>(offset, limit, count, totalCount, results);
+        return new DefaultPagination<M>(offset, limit, count, totalCount, nextPageCursor, results);
     }
 
     public abstract static class PaginationIteratorBuilder<M extends EntityModelDao<E>, E extends Entity, S extends EntitySqlDao<M, E>> {
@@ -65,4 +98,24 @@ public class DefaultPaginationSqlDaoHelper {
 
         public abstract Iterator<M> build(final S sqlDao, final Long limit, final InternalTenantContext context);
     }
+
+    // For queries ordered by record_id, which can be resumed from the last row seen
+    public abstract static class KeysetPaginationIteratorBuilder<M extends EntityModelDao<E>, E extends Entity, S extends EntitySqlDao<M, E>> extends PaginationIteratorBuilder<M, E, S> {
+
+        private final String queryKey;
+
+        // queryKey identifies the query parameters (e.g. search key): pages are only resumed from pages of the same query
+        public KeysetPaginationIteratorBuilder(final String queryKey) {
+            this.queryKey = queryKey;
+        }
+
+        public String getQueryKey() {
+            return queryKey;
+        }
+
+        public abstract Iterator<M> buildAfterRecordId(final S sqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context);
+
+        // Record id of the last row buildAfterRecordId would return (null if none)
+        public abstract Long getLastRecordIdAfterRecordId(final S sqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context);
+    }
 }
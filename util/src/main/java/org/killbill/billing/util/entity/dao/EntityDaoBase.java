@@ -26,10 +26,13 @@ import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.KeysetPaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
 
 public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entity, U extends BillingExceptionBase> implements EntityDao<M, E, U> {
 
+    private static final String RECORD_ID_ORDERING = "record_id";
+
     protected final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao;
     protected final DefaultPaginationSqlDaoHelper paginationHelper;
 
@@ -77,7 +80,7 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
     protected abstract U generateAlreadyExistsException(final M entity, final InternalCallContext context);
 
     protected String getNaturalOrderingColumns() {
-        return "record_id";
+        return RECORD_ID_ORDERING;
     }
 
     @Override
@@ -133,18 +136,46 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
 
     @Override
     public Pagination<M> get(final Long offset, final Long limit, final InternalTenantContext context) {
+        final PaginationIteratorBuilder<M, E, EntitySqlDao<M, E>> paginationIteratorBuilder;
+        if (RECORD_ID_ORDERING.equals(getNaturalOrderingColumns())) {
+            // Pages can be resumed from the last record_id seen
+            paginationIteratorBuilder = new KeysetPaginationIteratorBuilder<M, E, EntitySqlDao<M, E>>("") {
+                @Override
+                public Long getCount(final EntitySqlDao<M, E> sqlDao, final InternalTenantContext context) {
+                    return sqlDao.getCount(context);
+                }
+
+                @Override
+                public Iterator<M> build(final EntitySqlDao<M, E> sqlDao, final Long limit, final InternalTenantContext context) {
+                    return sqlDao.get(offset, limit, getNaturalOrderingColumns(), context);
+                }
+
+                @Override
+                public Iterator<M> buildAfterRecordId(final EntitySqlDao<M, E> sqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context) {
+                    return sqlDao.getAfterRecordId(lastSeenRecordId, limit, context);
+                }
+
+                @Override
+                public Long getLastRecordIdAfterRecordId(final EntitySqlDao<M, E> sqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context) {
+                    return sqlDao.getLastRecordIdAfterRecordId(lastSeenRecordId, limit, context);
+                }
+            };
+        } else {
+            paginationIteratorBuilder = new PaginationIteratorBuilder<M, E, EntitySqlDao<M, E>>() {
+                @Override
+                public Long getCount(final EntitySqlDao<M, E> sqlDao, final InternalTenantContext context) {
+                    return sqlDao.getCount(context);
+                }
+
+                @Override
+                public Iterator<M> build(final EntitySqlDao<M, E> sqlDao, final Long limit, final InternalTenantContext context) {
+                    return sqlDao.get(offset, limit, getNaturalOrderingColumns(), context);
+                }
+            };
+        }
+
         return paginationHelper.getPagination(realSqlDao,
-                                              new PaginationIteratorBuilder<M, E, EntitySqlDao<M, E>>() {
-                                                  @Override
-                                                  public Long getCount(final EntitySqlDao<M, E> sqlDao, final InternalTenantContext context) {
-                                                      return sqlDao.getCount(context);
-                                                  }
-
-                                                  @Override
-                                                  public Iterator<M> build(final EntitySqlDao<M, E> sqlDao, final Long limit, final InternalTenantContext context) {
-                                                      return sqlDao.get(offset, limit, getNaturalOrderingColumns(), context);
-                                                  }
-                                              },
+                                              paginationIteratorBuilder,
                                               offset,
                                               limit,
                                               context);
@@ -18,6 +18,7 @@
 
 package org.killbill.billing.util.entity.dao;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
@@ -30,10 +31,13 @@ import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.killbill.billing.util.cache.CachableKey;
 import org.killbill.billing.util.dao.AuditSqlDao;
 import org.killbill.billing.util.dao.HistorySqlDao;
+import org.killbill.billing.util.dao.RecordIdIdMappings;
 import org.killbill.billing.util.entity.Entity;
+import org.killbill.billing.util.tag.dao.UUIDCollectionBinder;
 import org.killbill.commons.jdbi.statement.SmartFetchSize;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
 import org.skife.jdbi.v2.sqlobject.customizers.Define;
@@ -48,10 +52,20 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
     public void create(@BindBean final M entity,
                        @BindBean final InternalCallContext context) throws EntityPersistenceException;
 
+    // Histories and audits for all entities are written as JDBC batches as well
+    @SqlBatch
+    @Audited(ChangeType.INSERT)
+    public void batchCreate(@BindBean final Iterable<M> entities,
+                            @BindBean final InternalCallContext context) throws EntityPersistenceException;
+
     @SqlQuery
     public M getById(@Bind("id") final String id,
                      @BindBean final InternalTenantContext context);
 
+    @SqlQuery
+    public List<M> getByIds(@UUIDCollectionBinder final Collection<String> ids,
+                            @BindBean final InternalTenantContext context);
+
     @SqlQuery
     public M getByRecordId(@Bind("recordId") final Long recordId,
                            @BindBean final InternalTenantContext context);
@@ -67,6 +81,11 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
     public Long getRecordId(@CachableKey(1) @Bind("id") final String id,
                             @BindBean final InternalTenantContext context);
 
+    // Latest history record id for each of the given entities
+    @SqlQuery
+    public List<RecordIdIdMappings> getHistoryRecordIdIdMappingsForIds(@UUIDCollectionBinder final Collection<String> ids,
+                                                                       @BindBean final InternalTenantContext context);
+
     @SqlQuery
     @SmartFetchSize(shouldStream = true)
     public Iterator<M> search(@Bind("searchKey") final String searchKey,
@@ -75,6 +94,21 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
                               @Bind("rowCount") final Long rowCount,
                               @BindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<M> searchAfterRecordId(@Bind("searchKey") final String searchKey,
+                                           @Bind("likeSearchKey") final String likeSearchKey,
+                                           @Bind("lastSeenRecordId") final Long lastSeenRecordId,
+                                           @Bind("rowCount") final Long rowCount,
+                                           @BindBean final InternalTenantContext context);
+
+    @SqlQuery
+    public Long searchLastRecordIdAfterRecordId(@Bind("searchKey") final String searchKey,
+                                                @Bind("likeSearchKey") final String likeSearchKey,
+                                                @Bind("lastSeenRecordId") final Long lastSeenRecordId,
+                                                @Bind("rowCount") final Long rowCount,
+                                                @BindBean final InternalTenantContext context);
+
     @SqlQuery
     public Long getSearchCount(@Bind("searchKey") final String searchKey,
                                @Bind("likeSearchKey") final String likeSearchKey,
@@ -91,6 +125,17 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
                            @Define("orderBy") final String orderBy,
                            @BindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<M> getAfterRecordId(@Bind("lastSeenRecordId") final Long lastSeenRecordId,
+                                        @Bind("rowCount") final Long rowCount,
+                                        @BindBean final InternalTenantContext context);
+
+    @SqlQuery
+    public Long getLastRecordIdAfterRecordId(@Bind("lastSeenRecordId") final Long lastSeenRecordId,
+                                             @Bind("rowCount") final Long rowCount,
+                                             @BindBean final InternalTenantContext context);
+
     @SqlQuery
     public Long getCount(@BindBean final InternalTenantContext context);
 
@@ -18,7 +18,11 @@
 
 package org.killbill.billing.util.entity.dao;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.dao.NonEntityDao;
@@ -35,6 +39,9 @@ import org.skife.jdbi.v2.sqlobject.SqlObjectBuilder;
  */
 public class EntitySqlDaoWrapperFactory {
 
+    // Avoid the Proxy class lookup on each become() call
+    private static final ConcurrentMap<Class<?>, Constructor<?>> PROXY_CONSTRUCTORS = new ConcurrentHashMap<Class<?>, Constructor<?>>();
+
     private final Handle handle;
     private final Clock clock;
     private final CacheControllerDispatcher cacheControllerDispatcher;
@@ -75,7 +82,22 @@ public class EntitySqlDaoWrapperFactory {
         final EntitySqlDaoWrapperInvocationHandler<NewSqlDao, NewEntityModelDao, NewEntity> wrapperInvocationHandler =
                 new EntitySqlDaoWrapperInvocationHandler<NewSqlDao, NewEntityModelDao, NewEntity>(newSqlDaoClass, newSqlDao, handle, clock, cacheControllerDispatcher, nonEntityDao);
 
-        final Object newSqlDaoObject = Proxy.newProxyInstance(classLoader, interfacesToImplement, wrapperInvocationHandler);
+        Constructor<?> proxyConstructor = PROXY_CONSTRUCTORS.get(newSqlDaoClass);
+        if (proxyConstructor == null) {
+            try {
+                proxyConstructor = Proxy.getProxyClass(classLoader, interfacesToImplement).getConstructor(InvocationHandler.class);
+            } catch (final NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+            PROXY_CONSTRUCTORS.putIfAbsent(newSqlDaoClass, proxyConstructor);
+        }
+
+        final Object newSqlDaoObject;
+        try {
+            newSqlDaoObject = proxyConstructor.newInstance(wrapperInvocationHandler);
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
         return newSqlDaoClass.cast(newSqlDaoObject);
     }
 }
@@ -24,15 +24,20 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.Nullable;
 
+import org.joda.time.DateTime;
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
@@ -47,6 +52,7 @@ import org.killbill.billing.util.dao.EntityAudit;
 import org.killbill.billing.util.dao.EntityHistoryModelDao;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.dao.NonEntitySqlDao;
+import org.killbill.billing.util.dao.RecordIdIdMappings;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.tag.dao.UUIDCollectionBinder;
@@ -65,11 +71,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Objects;
-import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Iterables;
 
 /**
  * Wraps an instance of EntitySqlDao, performing extra work around each method (Sql query)
@@ -82,7 +86,11 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
 
     private final Logger logger = LoggerFactory.getLogger(EntitySqlDaoWrapperInvocationHandler.class);
 
+    // A new handler is created for each transaction: the reflection work is done only once per SqlDao class
+    private static final ConcurrentMap<Class<?>, SqlDaoMetadata> SQL_DAO_METADATA = new ConcurrentHashMap<Class<?>, SqlDaoMetadata>();
+
     private final Class<S> sqlDaoClass;
+    private final SqlDaoMetadata sqlDaoMetadata;
     private final S sqlDao;
     private final Handle handle;
 
@@ -99,6 +107,7 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                                                 @Nullable final CacheControllerDispatcher cacheControllerDispatcher,
                                                 @Nullable final NonEntityDao nonEntityDao) {
         this.sqlDaoClass = sqlDaoClass;
+        this.sqlDaoMetadata = getSqlDaoMetadata(sqlDaoClass);
         this.sqlDao = sqlDao;
         this.handle = handle;
         this.clock = clock;
@@ -109,11 +118,12 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
 
     @Override
     public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        final MethodMetadata methodMetadata = sqlDaoMetadata.getMethodMetadata(method);
         try {
-            return prof.executeWithProfiling(ProfilingFeatureType.DAO, sqlDaoClass.getSimpleName() + ":" + method.getName(), new WithProfilingCallback() {
+            return prof.executeWithProfiling(ProfilingFeatureType.DAO, methodMetadata.profilingName, new WithProfilingCallback() {
                 @Override
                 public Object execute() throws Throwable {
-                    return invokeSafely(proxy, method, args);
+                    return invokeSafely(proxy, method, methodMetadata, args);
                 }
             });
         } catch (Throwable t) {
@@ -181,23 +191,20 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         errorDuringTransaction(t, method, null);
     }
 
-    private Object invokeSafely(final Object proxy, final Method method, final Object[] args) throws Throwable {
-
-        final Audited auditedAnnotation = method.getAnnotation(Audited.class);
-        final Cachable cachableAnnotation = method.getAnnotation(Cachable.class);
+    private Object invokeSafely(final Object proxy, final Method method, final MethodMetadata methodMetadata, final Object[] args) throws Throwable {
 
         // This can't be AUDIT'ed and CACHABLE'd at the same time as we only cache 'get'
-        if (auditedAnnotation != null) {
-            return invokeWithAuditAndHistory(auditedAnnotation, method, args);
-        } else if (cachableAnnotation != null && cacheControllerDispatcher != null) {
-            return invokeWithCaching(cachableAnnotation, method, args);
+        if (methodMetadata.auditedAnnotation != null) {
+            return invokeWithAuditAndHistory(methodMetadata, method, args);
+        } else if (methodMetadata.cachableAnnotation != null && cacheControllerDispatcher != null) {
+            return invokeWithCaching(methodMetadata, method, args);
         } else {
-            return invokeRaw(method, args);
+            return invokeRaw(methodMetadata, method, args);
         }
     }
 
-    private Object invokeRaw(final Method method, final Object[] args) throws Throwable {
-        return prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, sqlDaoClass.getSimpleName() + " (raw):" + method.getName(), new WithProfilingCallback() {
+    private Object invokeRaw(final MethodMetadata methodMetadata, final Method method, final Object[] args) throws Throwable {
+        return prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, methodMetadata.rawProfilingName, new WithProfilingCallback() {
             @Override
             public Object execute() throws Throwable {
                 Object result = method.invoke(sqlDao, args);
@@ -205,7 +212,7 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                 // the object after it was created, which means this method is (by pattern) first called right after object creation and contains all the goodies we care
                 // about (record_id, account_record_id, object_id, tenant_record_id)
                 //
-                if (result != null && method.getName().equals("getById")) {
+                if (result != null && methodMetadata.isGetById) {
                     populateCacheOnGetByIdInvocation((M) result);
                 }
                 return result;
@@ -213,41 +220,22 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         });
     }
 
-    private Object invokeWithCaching(final Cachable cachableAnnotation, final Method method, final Object[] args)
+    private Object invokeWithCaching(final MethodMetadata methodMetadata, final Method method, final Object[] args)
             throws Throwable {
-        final ObjectType objectType = getObjectType();
-        final CacheType cacheType = cachableAnnotation.value();
+        final ObjectType objectType = sqlDaoMetadata.getObjectType();
+        final CacheType cacheType = methodMetadata.cachableAnnotation.value();
         final CacheController<Object, Object> cache = cacheControllerDispatcher.getCacheController(cacheType);
         Object result = null;
         if (cache != null) {
-            // Find all arguments marked with @CachableKey
-            final Map<Integer, Object> keyPieces = new LinkedHashMap<Integer, Object>();
-            final Annotation[][] annotations = method.getParameterAnnotations();
-            for (int i = 0; i < annotations.length; i++) {
-                for (int j = 0; j < annotations[i].length; j++) {
-                    final Annotation annotation = annotations[i][j];
-                    if (CachableKey.class.equals(annotation.annotationType())) {
-                        // CachableKey position starts at 1
-                        keyPieces.put(((CachableKey) annotation).value() - 1, args[i]);
-                        break;
-                    }
-                }
-            }
+            // Build the Cache key from all arguments marked with @CachableKey
+            final String cacheKey = buildCacheKey(methodMetadata.cachableKeyArgIndexes, args);
 
-            // Build the Cache key
-            final String cacheKey = buildCacheKey(keyPieces);
-
-            final InternalTenantContext internalTenantContext = (InternalTenantContext) Iterables.find(ImmutableList.copyOf(args), new Predicate<Object>() {
-                @Override
-                public boolean apply(final Object input) {
-                    return input instanceof InternalTenantContext;
-                }
-            }, null);
+            final InternalTenantContext internalTenantContext = methodMetadata.tenantContextArgIndex >= 0 ? (InternalTenantContext) args[methodMetadata.tenantContextArgIndex] : null;
             final CacheLoaderArgument cacheLoaderArgument = new CacheLoaderArgument(objectType, args, internalTenantContext, handle);
             return cache.get(cacheKey, cacheLoaderArgument);
         }
         if (result == null) {
-            result = prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, sqlDaoClass.getSimpleName() + "(raw) :" + method.getName(), new WithProfilingCallback() {
+            result = prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, methodMetadata.cachingRawProfilingName, new WithProfilingCallback() {
                 @Override
                 public Object execute() throws Throwable {
                     return method.invoke(sqlDao, args);
@@ -266,7 +254,7 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
      * @throws IllegalAccessException
      * @throws ClassNotFoundException
      */
-    private ObjectType getObjectType() throws InstantiationException, IllegalAccessException, ClassNotFoundException {
+    private static ObjectType getObjectType(final Class<?> sqlDaoClass) throws InstantiationException, IllegalAccessException, ClassNotFoundException {
 
         int foundIndexForEntitySqlDao = -1;
         // If the sqlDaoClass implements multiple interfaces, first figure out which one is the EntitySqlDao
@@ -306,24 +294,21 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         return null;
     }
 
-    private Object invokeWithAuditAndHistory(final Audited auditedAnnotation, final Method method, final Object[] args) throws Throwable {
+    private Object invokeWithAuditAndHistory(final MethodMetadata methodMetadata, final Method method, final Object[] args) throws Throwable {
+        final Audited auditedAnnotation = methodMetadata.auditedAnnotation;
         InternalCallContext context = null;
         List<String> entityIds = null;
-        final Map<String, M> entities = new HashMap<String, M>();
-        final Map<String, Long> entityRecordIds = new HashMap<String, Long>();
+        Map<String, M> entities = ImmutableMap.<String, M>of();
         if (auditedAnnotation != null) {
             // There will be some work required after the statement is executed,
             // get the id before in case the change is a delete
-            context = retrieveContextFromArguments(args);
-            entityIds = retrieveEntityIdsFromArguments(method, args);
-            for (final String entityId : entityIds) {
-                entities.put(entityId, sqlDao.getById(entityId, context));
-                entityRecordIds.put(entityId, sqlDao.getRecordId(entityId, context));
-            }
+            context = retrieveContextFromArguments(methodMetadata, args);
+            entityIds = retrieveEntityIdsFromArguments(methodMetadata, args);
+            entities = getByIds(entityIds, context);
         }
 
         // Real jdbc call
-        final Object obj = prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, sqlDaoClass.getSimpleName() + " (raw) :", new WithProfilingCallback() {
+        final Object obj = prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, sqlDaoMetadata.auditedRawProfilingName, new WithProfilingCallback() {
             @Override
             public Object execute() throws Throwable {
                 return method.invoke(sqlDao, args);
@@ -331,11 +316,21 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         });
 
         final ChangeType changeType = auditedAnnotation.value();
+        updateHistoryAndAudit(entityIds, entities, changeType, context);
+        return obj;
+    }
 
-        for (final String entityId : entityIds) {
-            updateHistoryAndAudit(entityId, entities, entityRecordIds, changeType, context);
+    // A single query for all the entities of a batch call (the record id is part of the model)
+    private Map<String, M> getByIds(final List<String> entityIds, final InternalTenantContext context) {
+        final Map<String, M> entities = new HashMap<String, M>();
+        if (entityIds == null || entityIds.isEmpty()) {
+            return entities;
         }
-        return obj;
+
+        for (final M entity : sqlDao.getByIds(entityIds, context)) {
+            entities.put(entity.getId().toString(), entity);
+        }
+        return entities;
     }
 
     private void populateCacheOnGetByIdInvocation(M model) {
@@ -363,38 +358,46 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                rawKey;
     }
 
-    private void updateHistoryAndAudit(final String entityId, final Map<String, M> entities, final Map<String, Long> entityRecordIds,
+    private void updateHistoryAndAudit(final List<String> entityIds, final Map<String, M> entities,
                                        final ChangeType changeType, final InternalCallContext context) throws Throwable {
 
-        prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, sqlDaoClass.getSimpleName() + " (history/audit) :", new WithProfilingCallback() {
+        prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, sqlDaoMetadata.historyAndAuditProfilingName, new WithProfilingCallback() {
             @Override
             public Object execute() {
-                final M reHydratedEntity = sqlDao.getById(entityId, context);
-                final Long reHydratedEntityRecordId = sqlDao.getRecordId(entityId, context);
-                final M entity = Objects.firstNonNull(reHydratedEntity, entities.get(entityId));
-                final Long entityRecordId = Objects.firstNonNull(reHydratedEntityRecordId, entityRecordIds.get(entityId));
-                final TableName tableName = entity.getTableName();
+                // Make sure to re-hydrate the objects (especially needed for create calls)
+                final Map<String, M> currentEntities = getByIds(entityIds, context);
+                final Map<String, M> reHydratedEntities = new LinkedHashMap<String, M>();
+                final Map<String, Long> reHydratedEntityRecordIds = new LinkedHashMap<String, Long>();
+                for (final String entityId : entityIds) {
+                    // Deleted entities (e.g. soft deletes) are only found before the call
+                    final M reHydratedEntity = Objects.firstNonNull(currentEntities.get(entityId), entities.get(entityId));
+                    reHydratedEntities.put(entityId, reHydratedEntity);
+                    reHydratedEntityRecordIds.put(entityId, reHydratedEntity.getRecordId());
+                }
+                if (reHydratedEntities.isEmpty()) {
+                    return null;
+                }
+
+                // All entities touched by a given call live in the same table
+                final TableName tableName = reHydratedEntities.values().iterator().next().getTableName();
 
                 // Note: audit entries point to the history record id
-                final Long historyRecordId;
+                final Map<String, Long> historyRecordIds;
                 if (tableName.getHistoryTableName() != null) {
-                    historyRecordId = insertHistory(entityRecordId, entity, changeType, context);
+                    historyRecordIds = insertHistories(reHydratedEntityRecordIds, reHydratedEntities, changeType, context);
                 } else {
-                    historyRecordId = entityRecordId;
+                    historyRecordIds = reHydratedEntityRecordIds;
                 }
 
-                // Make sure to re-hydrate the object (especially needed for create calls)
-                insertAudits(tableName, entityRecordId, historyRecordId, changeType, context);
+                insertAudits(tableName, reHydratedEntityRecordIds, historyRecordIds, changeType, context);
                 return null;
             }
         });
     }
 
-    private List<String> retrieveEntityIdsFromArguments(final Method method, final Object[] args) {
-        final Annotation[][] parameterAnnotations = method.getParameterAnnotations();
-        int i = -1;
-        for (final Object arg : args) {
-            i++;
+    private List<String> retrieveEntityIdsFromArguments(final MethodMetadata methodMetadata, final Object[] args) {
+        for (int i = 0; i < args.length; i++) {
+            final Object arg = args[i];
 
             // Assume the first argument of type Entity is our type of Entity (type U here)
             // This is true for e.g. create calls
@@ -410,12 +413,10 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                 }
             }
 
-            for (final Annotation annotation : parameterAnnotations[i]) {
-                if (arg instanceof String && Bind.class.equals(annotation.annotationType()) && ("id").equals(((Bind) annotation).value())) {
-                    return ImmutableList.<String>of((String) arg);
-                } else if (arg instanceof Collection && UUIDCollectionBinder.class.equals(annotation.annotationType())) {
-                    return ImmutableList.<String>copyOf((Collection) arg);
-                }
+            if (arg instanceof String && i == methodMetadata.idArgIndex) {
+                return ImmutableList.<String>of((String) arg);
+            } else if (arg instanceof Collection && i == methodMetadata.idCollectionArgIndex) {
+                return ImmutableList.<String>copyOf((Collection) arg);
             }
         }
         return null;
@@ -437,69 +438,212 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         return entityIds;
     }
 
-    private InternalCallContext retrieveContextFromArguments(final Object[] args) {
-        for (final Object arg : args) {
-            if (!(arg instanceof InternalCallContext)) {
-                continue;
-            }
-            return (InternalCallContext) arg;
-        }
-        return null;
+    private InternalCallContext retrieveContextFromArguments(final MethodMetadata methodMetadata, final Object[] args) {
+        return methodMetadata.callContextArgIndex >= 0 ? (InternalCallContext) args[methodMetadata.callContextArgIndex] : null;
     }
 
-    private Long insertHistory(final Long entityRecordId, final M entityModelDao, final ChangeType changeType, final InternalCallContext context) {
-        final EntityHistoryModelDao<M, E> history = new EntityHistoryModelDao<M, E>(entityModelDao, entityRecordId, changeType, clock.getUTCNow());
-
-        sqlDao.addHistoryFromTransaction(history, context);
+    // Histories (and audits below) are flushed as a single JDBC batch per DAO call: this matters for batch calls (e.g. invoice items creation)
+    private Map<String, Long> insertHistories(final Map<String, Long> entityRecordIds, final Map<String, M> entityModelDaos, final ChangeType changeType, final InternalCallContext context) {
+        final DateTime createdDate = clock.getUTCNow();
+        final List<EntityHistoryModelDao<M, E>> histories = new ArrayList<EntityHistoryModelDao<M, E>>(entityModelDaos.size());
+        for (final String entityId : entityModelDaos.keySet()) {
+            histories.add(new EntityHistoryModelDao<M, E>(entityModelDaos.get(entityId), entityRecordIds.get(entityId), changeType, createdDate));
+        }
+        sqlDao.addHistoriesFromTransaction(histories, context);
 
-        final NonEntitySqlDao transactional = SqlObjectBuilder.attach(handle, NonEntitySqlDao.class);
+        final Map<String, Long> historyRecordIds = new HashMap<String, Long>();
+        for (final RecordIdIdMappings mapping : sqlDao.getHistoryRecordIdIdMappingsForIds(entityModelDaos.keySet(), context)) {
+            historyRecordIds.put(mapping.getId().toString(), mapping.getRecordId());
+        }
 
-        /* return transactional.getLastHistoryRecordId(entityRecordId, entityModelDao.getHistoryTableName().getTableName()); */
-        return nonEntityDao.retrieveLastHistoryRecordIdFromTransaction(entityRecordId, entityModelDao.getHistoryTableName(), transactional);
+        NonEntitySqlDao transactional = null;
+        for (final String entityId : entityModelDaos.keySet()) {
+            if (historyRecordIds.get(entityId) == null) {
+                // The entity row is gone (hard delete), look-up the history table directly
+                if (transactional == null) {
+                    transactional = SqlObjectBuilder.attach(handle, NonEntitySqlDao.class);
+                }
+                final Long historyRecordId = nonEntityDao.retrieveLastHistoryRecordIdFromTransaction(entityRecordIds.get(entityId), entityModelDaos.get(entityId).getHistoryTableName(), transactional);
+                historyRecordIds.put(entityId, historyRecordId);
+            }
+        }
+        return historyRecordIds;
     }
 
-    private void insertAudits(final TableName tableName, final Long entityRecordId, final Long historyRecordId, final ChangeType changeType, final InternalCallContext contextMaybeWithoutAccountRecordId) {
+    private void insertAudits(final TableName tableName, final Map<String, Long> entityRecordIds, final Map<String, Long> historyRecordIds, final ChangeType changeType, final InternalCallContext contextMaybeWithoutAccountRecordId) {
         final TableName destinationTableName = Objects.firstNonNull(tableName.getHistoryTableName(), tableName);
-        final EntityAudit audit = new EntityAudit(destinationTableName, historyRecordId, changeType, clock.getUTCNow());
+        final DateTime createdDate = clock.getUTCNow();
 
-        final InternalCallContext context;
         // Populate the account record id when creating the account record
         if (TableName.ACCOUNT.equals(tableName) && ChangeType.INSERT.equals(changeType)) {
-            context = new InternalCallContext(contextMaybeWithoutAccountRecordId, entityRecordId);
+            final List<EntityAudit> audits = new ArrayList<EntityAudit>(entityRecordIds.size());
+            final List<InternalCallContext> contexts = new ArrayList<InternalCallContext>(entityRecordIds.size());
+            for (final String entityId : entityRecordIds.keySet()) {
+                audits.add(new EntityAudit(destinationTableName, historyRecordIds.get(entityId), changeType, createdDate));
+                contexts.add(new InternalCallContext(contextMaybeWithoutAccountRecordId, entityRecordIds.get(entityId)));
+            }
+            sqlDao.insertAuditsWithContextsFromTransaction(audits, contexts);
         } else {
-            context = contextMaybeWithoutAccountRecordId;
+            final List<EntityAudit> audits = new ArrayList<EntityAudit>(entityRecordIds.size());
+            for (final String entityId : entityRecordIds.keySet()) {
+                audits.add(new EntityAudit(destinationTableName, historyRecordIds.get(entityId), changeType, createdDate));
+            }
+            sqlDao.insertAuditsFromTransaction(audits, contextMaybeWithoutAccountRecordId);
         }
-        sqlDao.insertAuditFromTransaction(audit, context);
 
         // We need to invalidate the caches. There is a small window of doom here where caches will be stale.
         // TODO Knowledge on how the key is constructed is also in AuditSqlDao
-        if (tableName.getHistoryTableName() != null) {
-            final CacheController<Object, Object> cacheController = cacheControllerDispatcher.getCacheController(CacheType.AUDIT_LOG_VIA_HISTORY);
-            if (cacheController != null) {
-                final String key = buildCacheKey(ImmutableMap.<Integer, Object>of(0, tableName.getHistoryTableName(), 1, tableName.getHistoryTableName(), 2, entityRecordId));
-                cacheController.remove(key);
+        for (final Long entityRecordId : entityRecordIds.values()) {
+            if (tableName.getHistoryTableName() != null) {
+                final CacheController<Object, Object> cacheController = cacheControllerDispatcher.getCacheController(CacheType.AUDIT_LOG_VIA_HISTORY);
+                if (cacheController != null) {
+                    final String key = buildCacheKey(ImmutableMap.<Integer, Object>of(0, tableName.getHistoryTableName(), 1, tableName.getHistoryTableName(), 2, entityRecordId));
+                    cacheController.remove(key);
+                }
+            } else {
+                final CacheController<Object, Object> cacheController = cacheControllerDispatcher.getCacheController(CacheType.AUDIT_LOG);
+                if (cacheController != null) {
+                    final String key = buildCacheKey(ImmutableMap.<Integer, Object>of(0, tableName, 1, entityRecordId));
+                    cacheController.remove(key);
+                }
             }
-        } else {
-            final CacheController<Object, Object> cacheController = cacheControllerDispatcher.getCacheController(CacheType.AUDIT_LOG);
-            if (cacheController != null) {
-                final String key = buildCacheKey(ImmutableMap.<Integer, Object>of(0, tableName, 1, entityRecordId));
-                cacheController.remove(key);
+        }
+    }
+
+    private String buildCacheKey(final int[] keyArgIndexes, final Object[] args) {
+        final StringBuilder cacheKey = new StringBuilder();
+        for (int i = 0; i < keyArgIndexes.length; i++) {
+            appendCacheKeyPiece(cacheKey, args[keyArgIndexes[i]]);
+            if (i < keyArgIndexes.length - 1) {
+                cacheKey.append(CacheControllerDispatcher.CACHE_KEY_SEPARATOR);
             }
         }
+        return cacheKey.toString();
     }
 
     private String buildCacheKey(final Map<Integer, Object> keyPieces) {
         final StringBuilder cacheKey = new StringBuilder();
         for (int i = 0; i < keyPieces.size(); i++) {
-            // To normalize the arguments and avoid casing issues, we make all pieces of the key uppercase.
-            // Since the database engine may be case insensitive and we use arguments of the SQL method call
-            // to build the key, the key has to be case insensitive as well.
-            final String str = String.valueOf(keyPieces.get(i)).toUpperCase();
-            cacheKey.append(str);
+            appendCacheKeyPiece(cacheKey, keyPieces.get(i));
             if (i < keyPieces.size() - 1) {
                 cacheKey.append(CacheControllerDispatcher.CACHE_KEY_SEPARATOR);
             }
         }
         return cacheKey.toString();
     }
+
+    private void appendCacheKeyPiece(final StringBuilder cacheKey, final Object keyPiece) {
+        // To normalize the arguments and avoid casing issues, we make all pieces of the key uppercase.
+        // Since the database engine may be case insensitive and we use arguments of the SQL method call
+        // to build the key, the key has to be case insensitive as well.
+        cacheKey.append(String.valueOf(keyPiece).toUpperCase());
+    }
+
+    private static SqlDaoMetadata getSqlDaoMetadata(final Class<?> sqlDaoClass) {
+        SqlDaoMetadata sqlDaoMetadata = SQL_DAO_METADATA.get(sqlDaoClass);
+        if (sqlDaoMetadata == null) {
+            SQL_DAO_METADATA.putIfAbsent(sqlDaoClass, new SqlDaoMetadata(sqlDaoClass));
+            sqlDaoMetadata = SQL_DAO_METADATA.get(sqlDaoClass);
+        }
+        return sqlDaoMetadata;
+    }
+
+    private static final class SqlDaoMetadata {
+
+        private final Class<?> sqlDaoClass;
+        private final Map<Method, MethodMetadata> methodsMetadata = new HashMap<Method, MethodMetadata>();
+        private final String auditedRawProfilingName;
+        private final String historyAndAuditProfilingName;
+
+        // Lazily computed (only needed for cached calls), null if the SqlDao isn't associated with an ObjectType
+        private volatile ObjectType objectType;
+        private volatile boolean objectTypeComputed;
+
+        private SqlDaoMetadata(final Class<?> sqlDaoClass) {
+            this.sqlDaoClass = sqlDaoClass;
+            for (final Method method : sqlDaoClass.getMethods()) {
+                methodsMetadata.put(method, new MethodMetadata(sqlDaoClass, method));
+            }
+            this.auditedRawProfilingName = sqlDaoClass.getSimpleName() + " (raw) :";
+            this.historyAndAuditProfilingName = sqlDaoClass.getSimpleName() + " (history/audit) :";
+        }
+
+        public MethodMetadata getMethodMetadata(final Method method) {
+            final MethodMetadata methodMetadata = methodsMetadata.get(method);
+            // e.g. java.lang.Object methods
+            return methodMetadata != null ? methodMetadata : new MethodMetadata(sqlDaoClass, method);
+        }
+
+        public ObjectType getObjectType() throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+            if (!objectTypeComputed) {
+                objectType = EntitySqlDaoWrapperInvocationHandler.getObjectType(sqlDaoClass);
+                objectTypeComputed = true;
+            }
+            return objectType;
+        }
+    }
+
+    private static final class MethodMetadata {
+
+        private final Audited auditedAnnotation;
+        private final Cachable cachableAnnotation;
+        private final boolean isGetById;
+
+        // Position of the arguments marked with @CachableKey, in key order
+        private final int[] cachableKeyArgIndexes;
+        private final int tenantContextArgIndex;
+        private final int callContextArgIndex;
+        // Position of the @Bind("id") String and @UUIDCollectionBinder arguments
+        private final int idArgIndex;
+        private final int idCollectionArgIndex;
+
+        private final String profilingName;
+        private final String rawProfilingName;
+        private final String cachingRawProfilingName;
+
+        private MethodMetadata(final Class<?> sqlDaoClass, final Method method) {
+            this.auditedAnnotation = method.getAnnotation(Audited.class);
+            this.cachableAnnotation = method.getAnnotation(Cachable.class);
+            this.isGetById = "getById".equals(method.getName());
+
+            final Map<Integer, Integer> cachableKeyArgIndexesByPosition = new TreeMap<Integer, Integer>();
+            int tenantContextArgIndex = -1;
+            int callContextArgIndex = -1;
+            int idArgIndex = -1;
+            int idCollectionArgIndex = -1;
+            final Class<?>[] parameterTypes = method.getParameterTypes();
+            final Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if (tenantContextArgIndex == -1 && InternalTenantContext.class.isAssignableFrom(parameterTypes[i])) {
+                    tenantContextArgIndex = i;
+                }
+                if (callContextArgIndex == -1 && InternalCallContext.class.isAssignableFrom(parameterTypes[i])) {
+                    callContextArgIndex = i;
+                }
+                for (final Annotation annotation : parameterAnnotations[i]) {
+                    if (CachableKey.class.equals(annotation.annotationType())) {
+                        cachableKeyArgIndexesByPosition.put(((CachableKey) annotation).value(), i);
+                    } else if (idArgIndex == -1 && Bind.class.equals(annotation.annotationType()) && ("id").equals(((Bind) annotation).value())) {
+                        idArgIndex = i;
+                    } else if (idCollectionArgIndex == -1 && UUIDCollectionBinder.class.equals(annotation.annotationType())) {
+                        idCollectionArgIndex = i;
+                    }
+                }
+            }
+
+            this.cachableKeyArgIndexes = new int[cachableKeyArgIndexesByPosition.size()];
+            int j = 0;
+            for (final Integer argIndex : cachableKeyArgIndexesByPosition.values()) {
+                cachableKeyArgIndexes[j++] = argIndex;
+            }
+            this.tenantContextArgIndex = tenantContextArgIndex;
+            this.callContextArgIndex = callContextArgIndex;
+            this.idArgIndex = idArgIndex;
+            this.idCollectionArgIndex = idCollectionArgIndex;
+
+            this.profilingName = sqlDaoClass.getSimpleName() + ":" + method.getName();
+            this.rawProfilingName = sqlDaoClass.getSimpleName() + " (raw):" + method.getName();
+            this.cachingRawProfilingName = sqlDaoClass.getSimpleName() + "(raw) :" + method.getName();
+        }
+    }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Opaque cursor carried by the next page links: it holds the record id of the last row of a page, so that the next page
+ * can be read with a seek (where record_id > ?) instead of making the database scan and discard all rows before offset.
+ * <p/>
+ * Nothing is kept server side: any node can serve the next page. The public APIs only take an offset, so the cursor
+ * of the current request is passed along per thread (see PaginationCursorFilter), like the request id.
+ */
+public class PaginationCursor {
+
+    private static final ThreadLocal<PaginationCursor> perThreadPaginationCursor = new ThreadLocal<PaginationCursor>();
+
+    private static final BaseEncoding CURSOR_ENCODING = BaseEncoding.base64Url().omitPadding();
+    private static final Splitter CURSOR_SPLITTER = Splitter.on(':');
+
+    // Null for the first page
+    private final String requestedCursor;
+
+    private PaginationCursor(@Nullable final String requestedCursor) {
+        this.requestedCursor = requestedCursor;
+    }
+
+    // Pages served while set carry a cursor to their next page
+    public static void setPerThreadPaginationCursor(@Nullable final String requestedCursor) {
+        perThreadPaginationCursor.set(new PaginationCursor(requestedCursor));
+    }
+
+    public static void resetPerThreadPaginationCursor() {
+        perThreadPaginationCursor.remove();
+    }
+
+    @Nullable
+    static PaginationCursor getPerThreadPaginationCursor() {
+        return perThreadPaginationCursor.get();
+    }
+
+    @Nullable
+    String getRequestedCursor() {
+        return requestedCursor;
+    }
+
+    // The query key (query, tenant and search key) makes sure a cursor is only used to resume the query it was built for
+    static String encode(final String queryKey, final Long offset, final Long lastRecordId) {
+        final String cursor = String.format("%s:%s:%s", offset, lastRecordId, hash(queryKey));
+        return CURSOR_ENCODING.encode(cursor.getBytes(Charsets.UTF_8));
+    }
+
+    // Return the record id to resume from, or null if the cursor doesn't match the requested page (the offset is used instead)
+    @Nullable
+    static Long decode(@Nullable final String cursor, final String queryKey, final Long offset) {
+        if (cursor == null) {
+            return null;
+        }
+
+        final List<String> parts;
+        try {
+            parts = CURSOR_SPLITTER.splitToList(new String(CURSOR_ENCODING.decode(cursor), Charsets.UTF_8));
+        } catch (final IllegalArgumentException e) {
+            return null;
+        }
+        if (parts.size() != 3 || !parts.get(0).equals(String.valueOf(offset)) || !parts.get(2).equals(hash(queryKey))) {
+            return null;
+        }
+
+        try {
+            return Long.valueOf(parts.get(1));
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String hash(final String queryKey) {
+        return Hashing.murmur3_32().hashString(queryKey, Charsets.UTF_8).toString();
+    }
+}
@@ -22,7 +22,6 @@ import java.util.List;
 import java.util.Map;
 
 import org.killbill.billing.util.api.ColumnInfo;
-import org.killbill.billing.util.api.DatabaseExportOutputStream;
 
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -30,7 +29,7 @@ import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema.ColumnType;
 
-public class CSVExportOutputStream extends OutputStream implements DatabaseExportOutputStream {
+public class CSVExportOutputStream extends OutputStream implements RowExportOutputStream {
 
     private static final CsvMapper mapper = new CsvMapper();
 
@@ -39,6 +38,7 @@ public class CSVExportOutputStream extends OutputStream implements DatabaseExpor
     private String currentTableName;
     private CsvSchema currentCSVSchema;
     private ObjectWriter writer;
+    private ObjectWriter headerWriter;
     private boolean shouldWriteHeader = false;
 
     public CSVExportOutputStream(final OutputStream delegate) {
@@ -53,6 +53,17 @@ public class CSVExportOutputStream extends OutputStream implements DatabaseExpor
         delegate.write(b);
     }
 
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        // Don't go through write(int) byte by byte
+        delegate.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        delegate.flush();
+    }
+
     @Override
     public String toString() {
         return delegate.toString();
@@ -69,17 +80,27 @@ public class CSVExportOutputStream extends OutputStream implements DatabaseExpor
         currentCSVSchema = builder.build();
 
         writer = mapper.writer(currentCSVSchema);
+        headerWriter = mapper.writer(currentCSVSchema.withHeader());
         shouldWriteHeader = true;
     }
 
     @Override
     public void write(final Map<String, Object> row) throws IOException {
+        writeValue(row);
+    }
+
+    @Override
+    public void writeRow(final Object[] values) throws IOException {
+        // Columns are matched by position against the current schema
+        writeValue(values);
+    }
+
+    private void writeValue(final Object row) throws IOException {
         final byte[] bytes;
         if (shouldWriteHeader) {
-            // Write the header once (mapper.writer will clone the writer). Add a small marker in front of the header
-            // to easily split it
+            // Write the header once. Add a small marker in front of the header to easily split it
             write(String.format("-- %s ", currentTableName).getBytes());
-            bytes = mapper.writer(currentCSVSchema.withHeader()).writeValueAsBytes(row);
+            bytes = headerWriter.writeValueAsBytes(row);
             shouldWriteHeader = false;
         } else {
             bytes = writer.writeValueAsBytes(row);
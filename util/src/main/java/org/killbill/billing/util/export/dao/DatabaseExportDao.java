@@ -16,36 +16,75 @@
 
 package org.killbill.billing.util.export.dao;
 
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.Query;
 import org.skife.jdbi.v2.ResultIterator;
+import org.skife.jdbi.v2.StatementContext;
 import org.skife.jdbi.v2.tweak.HandleCallback;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
 
 import org.killbill.billing.util.api.ColumnInfo;
 import org.killbill.billing.util.api.DatabaseExportOutputStream;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.config.ExportConfig;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.validation.DefaultColumnInfo;
 import org.killbill.billing.util.validation.dao.DatabaseSchemaDao;
 
+import com.google.common.base.Throwables;
+
+/**
+ * Tables are queried in parallel (bounded by org.killbill.export.threads.pool.nb), but written to the stream
+ * one after the other, in table name order: each table is read in chunks of org.killbill.export.table.buffer.size
+ * rows (seeking on record_id), handed off to the calling thread through a queue holding a single chunk.
+ * <p>
+ * Each chunk is a separate short query: a table waiting for the calling thread to catch up holds neither a
+ * connection nor an open cursor. Tables without a record_id column are streamed by the calling thread instead.
+ */
 @Singleton
 public class DatabaseExportDao {
 
+    private static final String EXPORT_THREAD_PREFIX = "export-th-";
+    private static final String EXPORT_TH_GROUP_NAME = "export-grp";
+
+    private static final long OFFER_TIMEOUT_MSEC = 100L;
+
+    private static final String RECORD_ID_COLUMN = "record_id";
+
+    // Marker for the end of a table
+    private static final List<Object[]> END_OF_TABLE = Collections.<Object[]>emptyList();
+
     private final DatabaseSchemaDao databaseSchemaDao;
     private final IDBI dbi;
+    private final ExportConfig exportConfig;
 
     @Inject
     public DatabaseExportDao(final DatabaseSchemaDao databaseSchemaDao,
-                             final IDBI dbi) {
+                             final IDBI dbi,
+                             final ExportConfig exportConfig) {
         this.databaseSchemaDao = databaseSchemaDao;
         this.dbi = dbi;
+        this.exportConfig = exportConfig;
     }
 
     public void exportDataForAccount(final DatabaseExportOutputStream out, final InternalTenantContext context) {
@@ -53,39 +92,93 @@ public class DatabaseExportDao {
             return;
         }
 
+        exportData(out, true, context);
+    }
+
+    /**
+     * Export the data of all accounts in the tenant
+     *
+     * @param out     the stream to write to
+     * @param context the tenant context
+     */
+    public void exportDataForTenant(final DatabaseExportOutputStream out, final InternalTenantContext context) {
+        if (context.getTenantRecordId() == null) {
+            return;
+        }
+
+        exportData(out, false, context);
+    }
+
+    private void exportData(final DatabaseExportOutputStream out, final boolean filterByAccount, final InternalTenantContext context) {
         final List<DefaultColumnInfo> columns = databaseSchemaDao.getColumnInfoList();
         if (columns.size() == 0) {
             return;
         }
 
-        final List<ColumnInfo> columnsForTable = new ArrayList<ColumnInfo>();
+        final List<TableExport> tableExports = new ArrayList<TableExport>();
+        List<ColumnInfo> columnsForTable = new ArrayList<ColumnInfo>();
         // The list of columns is ordered by table name first
         String lastSeenTableName = columns.get(0).getTableName();
         for (final ColumnInfo column : columns) {
             if (!column.getTableName().equals(lastSeenTableName)) {
-                exportDataForAccountAndTable(out, columnsForTable, context);
+                addTableExport(tableExports, columnsForTable, filterByAccount, context);
                 lastSeenTableName = column.getTableName();
-                columnsForTable.clear();
+                columnsForTable = new ArrayList<ColumnInfo>();
             }
             columnsForTable.add(column);
         }
-        exportDataForAccountAndTable(out, columnsForTable, context);
+        addTableExport(tableExports, columnsForTable, filterByAccount, context);
+
+        if (tableExports.isEmpty()) {
+            return;
+        }
+
+        final ExecutorService executor = createExportExecutorService(Math.min(Math.max(exportConfig.getExportThreadNb(), 1), tableExports.size()));
+        try {
+            // Tasks are started in submission order, so the table being drained below is always running (or done)
+            for (final TableExport tableExport : tableExports) {
+                if (tableExport.isChunked()) {
+                    executor.submit(tableExport);
+                }
+            }
+
+            for (final TableExport tableExport : tableExports) {
+                // Notify the stream that we're about to write data for a different table
+                out.newTable(tableExport.tableName, tableExport.columns);
+                if (tableExport.isChunked()) {
+                    tableExport.drainTo(out);
+                } else {
+                    tableExport.streamTo(out);
+                }
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            for (final TableExport tableExport : tableExports) {
+                tableExport.cancel();
+            }
+            executor.shutdownNow();
+        }
     }
 
-    private void exportDataForAccountAndTable(final DatabaseExportOutputStream out, final List<ColumnInfo> columnsForTable, final InternalTenantContext context) {
+    private void addTableExport(final List<TableExport> tableExports, final List<ColumnInfo> columnsForTable, final boolean filterByAccount, final InternalTenantContext context) {
         boolean hasAccountRecordIdColumn = false;
-        boolean firstColumn = true;
+        int recordIdIndex = -1;
         final StringBuilder queryBuilder = new StringBuilder("select ");
-        for (final ColumnInfo column : columnsForTable) {
-            if (!firstColumn) {
+        for (int i = 0; i < columnsForTable.size(); i++) {
+            final ColumnInfo column = columnsForTable.get(i);
+            if (i > 0) {
                 queryBuilder.append(", ");
-            } else {
-                firstColumn = false;
             }
 
             queryBuilder.append(column.getColumnName());
             if (column.getColumnName().equals("account_record_id")) {
                 hasAccountRecordIdColumn = true;
+            } else if (column.getColumnName().equals(RECORD_ID_COLUMN)) {
+                recordIdIndex = i;
             }
         }
 
@@ -99,34 +192,197 @@ public class DatabaseExportDao {
 
         // Build the query - make sure to filter by account and tenant!
         queryBuilder.append(" from ")
-                    .append(tableName);
-        if (isAccountTable) {
-            queryBuilder.append(" where record_id = :accountRecordId and tenant_record_id = :tenantRecordId");
-        } else {
-            queryBuilder.append(" where account_record_id = :accountRecordId and tenant_record_id = :tenantRecordId");
-        }
-
-        // Notify the stream that we're about to write data for a different table
-        out.newTable(tableName, columnsForTable);
-
-        dbi.withHandle(new HandleCallback<Void>() {
-            @Override
-            public Void withHandle(final Handle handle) throws Exception {
-                final ResultIterator<Map<String, Object>> iterator = handle.createQuery(queryBuilder.toString())
-                                                                           .bind("accountRecordId", context.getAccountRecordId())
-                                                                           .bind("tenantRecordId", context.getTenantRecordId())
-                                                                           .iterator();
-                try {
-                    while (iterator.hasNext()) {
-                        final Map<String, Object> row = iterator.next();
-                        out.write(row);
+                    .append(tableName)
+                    .append(" where tenant_record_id = :tenantRecordId");
+        if (filterByAccount) {
+            if (isAccountTable) {
+                queryBuilder.append(" and record_id = :accountRecordId");
+            } else {
+                queryBuilder.append(" and account_record_id = :accountRecordId");
+            }
+        }
+
+        // Read the table in chunks, resuming after the last record_id seen
+        if (recordIdIndex >= 0) {
+            queryBuilder.append(" and ")
+                        .append(RECORD_ID_COLUMN)
+                        .append(" > :lastRecordId order by ")
+                        .append(RECORD_ID_COLUMN)
+                        .append(" limit :rowCount");
+        }
+
+        tableExports.add(new TableExport(tableName, columnsForTable, recordIdIndex, queryBuilder.toString(), filterByAccount, context));
+    }
+
+    private ExecutorService createExportExecutorService(final int nbThreads) {
+        return new ThreadPoolExecutor(nbThreads,
+                                      nbThreads,
+                                      0L,
+                                      TimeUnit.MILLISECONDS,
+                                      new LinkedBlockingQueue<Runnable>(),
+                                      new ThreadFactory() {
+
+                                          @Override
+                                          public Thread newThread(final Runnable r) {
+                                              final Thread th = new Thread(new ThreadGroup(EXPORT_TH_GROUP_NAME), r);
+                                              th.setName(EXPORT_THREAD_PREFIX + th.getId());
+                                              return th;
+                                          }
+                                      });
+    }
+
+    private final class TableExport implements Runnable {
+
+        private final String tableName;
+        private final List<ColumnInfo> columns;
+        // Index of the record_id column, -1 if the table can't be read in chunks
+        private final int recordIdIndex;
+        private final String query;
+        private final boolean filterByAccount;
+        private final InternalTenantContext context;
+        private final int chunkSize;
+        private final BlockingQueue<List<Object[]>> chunks = new ArrayBlockingQueue<List<Object[]>>(1);
+
+        private volatile boolean cancelled = false;
+        private volatile Throwable failure = null;
+
+        private TableExport(final String tableName, final List<ColumnInfo> columns, final int recordIdIndex, final String query, final boolean filterByAccount, final InternalTenantContext context) {
+            this.tableName = tableName;
+            this.columns = columns;
+            this.recordIdIndex = recordIdIndex;
+            this.query = query;
+            this.filterByAccount = filterByAccount;
+            this.context = context;
+            this.chunkSize = Math.max(exportConfig.getExportTableBufferSize(), 1);
+        }
+
+        private boolean isChunked() {
+            return recordIdIndex >= 0;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long lastRecordId = 0L;
+                while (!cancelled) {
+                    final List<Object[]> chunk = readChunk(lastRecordId);
+                    if (chunk.isEmpty() || !offer(chunk) || chunk.size() < chunkSize) {
+                        break;
+                    }
+                    lastRecordId = ((Number) chunk.get(chunk.size() - 1)[recordIdIndex]).longValue();
+                }
+            } catch (final Throwable e) {
+                failure = e;
+            } finally {
+                offer(END_OF_TABLE);
+            }
+        }
+
+        // The connection is released before the chunk is handed off
+        private List<Object[]> readChunk(final long lastRecordId) {
+            return dbi.withHandle(new HandleCallback<List<Object[]>>() {
+                @Override
+                public List<Object[]> withHandle(final Handle handle) throws Exception {
+                    return createQuery(handle).bind("lastRecordId", lastRecordId)
+                                              .bind("rowCount", chunkSize)
+                                              .map(new ColumnValuesMapper(columns.size()))
+                                              .list();
+                }
+            });
+        }
+
+        private Query<Map<String, Object>> createQuery(final Handle handle) {
+            final Query<Map<String, Object>> sqlQuery = handle.createQuery(query)
+                                                              .bind("tenantRecordId", context.getTenantRecordId());
+            if (filterByAccount) {
+                sqlQuery.bind("accountRecordId", context.getAccountRecordId());
+            }
+            return sqlQuery;
+        }
+
+        // Wait for room in the queue, unless the export has been aborted
+        private boolean offer(final List<Object[]> chunk) {
+            try {
+                while (!cancelled) {
+                    if (chunks.offer(chunk, OFFER_TIMEOUT_MSEC, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        private void drainTo(final DatabaseExportOutputStream out) throws IOException, InterruptedException {
+            List<Object[]> chunk;
+            while ((chunk = chunks.take()) != END_OF_TABLE) {
+                for (final Object[] row : chunk) {
+                    write(out, row);
+                }
+            }
+
+            if (failure != null) {
+                throw Throwables.propagate(failure);
+            }
+        }
+
+        // Tables without record_id are read with a single query, by the calling thread
+        private void streamTo(final DatabaseExportOutputStream out) {
+            dbi.withHandle(new HandleCallback<Void>() {
+                @Override
+                public Void withHandle(final Handle handle) throws Exception {
+                    final ResultIterator<Object[]> iterator = createQuery(handle).map(new ColumnValuesMapper(columns.size()))
+                                                                                 .iterator();
+                    try {
+                        while (iterator.hasNext()) {
+                            write(out, iterator.next());
+                        }
+                    } finally {
+                        iterator.close();
                     }
-                } finally {
-                    iterator.close();
+                    return null;
                 }
+            });
+        }
+
+        private void write(final DatabaseExportOutputStream out, final Object[] row) throws IOException {
+            // Fallback for streams which only know about maps
+            if (out instanceof RowExportOutputStream) {
+                ((RowExportOutputStream) out).writeRow(row);
+            } else {
+                out.write(toMap(row));
+            }
+        }
+
+        private Map<String, Object> toMap(final Object[] row) {
+            final Map<String, Object> map = new HashMap<String, Object>(row.length * 2);
+            for (int i = 0; i < row.length; i++) {
+                map.put(columns.get(i).getColumnName(), row[i]);
+            }
+            return map;
+        }
+
+        private void cancel() {
+            cancelled = true;
+        }
+    }
 
-                return null;
+    private static final class ColumnValuesMapper implements ResultSetMapper<Object[]> {
+
+        private final int nbColumns;
+
+        private ColumnValuesMapper(final int nbColumns) {
+            this.nbColumns = nbColumns;
+        }
+
+        @Override
+        public Object[] map(final int index, final ResultSet r, final StatementContext ctx) throws SQLException {
+            final Object[] values = new Object[nbColumns];
+            for (int i = 0; i < nbColumns; i++) {
+                values[i] = r.getObject(i + 1);
             }
-        });
+            return values;
+        }
     }
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.export.dao;
+
+import java.io.IOException;
+
+import org.killbill.billing.util.api.DatabaseExportOutputStream;
+
+/**
+ * Export stream able to consume rows as arrays of column values, in the order of the columns
+ * given to {@link #newTable}, instead of one map per row.
+ */
+public interface RowExportOutputStream extends DatabaseExportOutputStream {
+
+    public void writeRow(Object[] values) throws IOException;
+}
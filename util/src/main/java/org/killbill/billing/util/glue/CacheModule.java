@@ -21,6 +21,7 @@ package org.killbill.billing.util.glue;
 import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.cache.CacheControllerDispatcherProvider;
+import org.killbill.billing.util.cache.CacheInvalidationBroadcaster;
 import org.killbill.billing.util.cache.EhCacheCacheManagerProvider;
 import org.killbill.billing.util.config.CacheConfig;
 import org.skife.config.ConfigurationObjectFactory;
@@ -43,5 +44,8 @@ public class CacheModule extends KillBillModule {
 
         // Kill Bill generic cache dispatcher
         bind(CacheControllerDispatcher.class).toProvider(CacheControllerDispatcherProvider.class).asEagerSingleton();
+
+        // Invalidations to propagate to the other nodes (see DefaultBroadcastService)
+        bind(CacheInvalidationBroadcaster.class).asEagerSingleton();
     }
 }
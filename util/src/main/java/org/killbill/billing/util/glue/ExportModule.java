@@ -20,7 +20,9 @@ package org.killbill.billing.util.glue;
 
 import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.util.api.ExportUserApi;
+import org.killbill.billing.util.config.ExportConfig;
 import org.killbill.billing.util.export.api.DefaultExportUserApi;
+import org.skife.config.ConfigurationObjectFactory;
 
 public class ExportModule extends KillBillModule {
 
@@ -34,6 +36,9 @@ public class ExportModule extends KillBillModule {
 
     @Override
     protected void configure() {
+        final ConfigurationObjectFactory factory = new ConfigurationObjectFactory(skifeConfigSource);
+        final ExportConfig exportConfig = factory.build(ExportConfig.class);
+        bind(ExportConfig.class).toInstance(exportConfig);
         installUserApi();
     }
 }
@@ -18,15 +18,23 @@
 package org.killbill.billing.util.glue;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.killbill.billing.KillbillApi;
+import org.killbill.billing.util.metrics.LatencyTimers;
 import org.killbill.commons.profiling.Profiling;
 import org.killbill.commons.profiling.Profiling.WithProfilingCallback;
 import org.killbill.commons.profiling.ProfilingFeature.ProfilingFeatureType;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
 import com.google.inject.AbstractModule;
+import com.google.inject.Provider;
+import com.google.inject.matcher.AbstractMatcher;
 import com.google.inject.matcher.Matcher;
 import com.google.inject.matcher.Matchers;
 
@@ -34,18 +42,28 @@ public class KillbillApiAopModule extends AbstractModule {
 
     @Override
     protected void configure() {
+        final Provider<MetricRegistry> metricRegistryProvider = getProvider(MetricRegistry.class);
 
         bindInterceptor(Matchers.subclassesOf(KillbillApi.class),
                         Matchers.not(SYNTHETIC_METHOD_MATCHER),
-                        new ProfilingMethodInterceptor());
+                        new ProfilingMethodInterceptor(metricRegistryProvider));
+
+        // Only the DAOs built by Guice are timed
+        bindInterceptor(Matchers.inSubpackage("org.killbill.billing").and(DAO_CLASS_MATCHER),
+                        Matchers.not(SYNTHETIC_METHOD_MATCHER),
+                        new TimingMethodInterceptor(metricRegistryProvider, "dao"));
     }
 
-    public static class ProfilingMethodInterceptor implements MethodInterceptor {
+    public static class ProfilingMethodInterceptor extends TimingMethodInterceptor {
 
         private final Profiling prof = new Profiling<Object, Throwable>();
 
+        public ProfilingMethodInterceptor(final Provider<MetricRegistry> metricRegistryProvider) {
+            super(metricRegistryProvider, "api");
+        }
+
         @Override
-        public Object invoke(final MethodInvocation invocation) throws Throwable {
+        protected Object proceed(final MethodInvocation invocation) throws Throwable {
             return prof.executeWithProfiling(ProfilingFeatureType.API, invocation.getMethod().getName(), new WithProfilingCallback() {
                 @Override
                 public Object execute() throws Throwable {
@@ -55,6 +73,88 @@ public class KillbillApiAopModule extends AbstractModule {
         }
     }
 
+    // Always-on latency timer per class and method, whether profiling was requested or not
+    public static class TimingMethodInterceptor implements MethodInterceptor {
+
+        private final Provider<MetricRegistry> metricRegistryProvider;
+        private final String prefix;
+        // Keyed by the (enhanced) class of the intercepted instance, so that inherited methods are timed per class
+        private final ConcurrentMap<Class<?>, LatencyTimers<Method>> timersPerClass = new ConcurrentHashMap<Class<?>, LatencyTimers<Method>>();
+        // Depth of the intercepted calls on the current thread: only the outermost one is timed, so that calls
+        // an intercepted method makes to other intercepted methods (including its own) aren't counted twice
+        private final ThreadLocal<int[]> perThreadDepth = new ThreadLocal<int[]>() {
+            @Override
+            protected int[] initialValue() {
+                return new int[1];
+            }
+        };
+
+        public TimingMethodInterceptor(final Provider<MetricRegistry> metricRegistryProvider, final String prefix) {
+            this.metricRegistryProvider = metricRegistryProvider;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Object invoke(final MethodInvocation invocation) throws Throwable {
+            final int[] depth = perThreadDepth.get();
+            if (depth[0] > 0) {
+                return proceed(invocation);
+            }
+
+            depth[0]++;
+            final long startNanos = System.nanoTime();
+            try {
+                return proceed(invocation);
+            } finally {
+                depth[0]--;
+                getTimers(invocation.getThis().getClass()).update(invocation.getMethod(), startNanos);
+            }
+        }
+
+        protected Object proceed(final MethodInvocation invocation) throws Throwable {
+            return invocation.proceed();
+        }
+
+        private LatencyTimers<Method> getTimers(final Class<?> clazz) {
+            final LatencyTimers<Method> timers = timersPerClass.get(clazz);
+            if (timers != null) {
+                return timers;
+            }
+
+            // The MetricRegistry can only be retrieved once the injector has been created
+            final String className = getUnenhancedClass(clazz).getSimpleName();
+            final LatencyTimers<Method> newTimers = new LatencyTimers<Method>(metricRegistryProvider.get(),
+                                                                              MetricRegistry.name(prefix, className),
+                                                                              METHOD_NAME);
+            final LatencyTimers<Method> existingTimers = timersPerClass.putIfAbsent(clazz, newTimers);
+            return existingTimers != null ? existingTimers : newTimers;
+        }
+
+        private Class<?> getUnenhancedClass(final Class<?> clazz) {
+            Class<?> unenhancedClass = clazz;
+            while (unenhancedClass.getName().contains("$$") && unenhancedClass.getSuperclass() != null) {
+                unenhancedClass = unenhancedClass.getSuperclass();
+            }
+            return unenhancedClass;
+        }
+    }
+
+    private static final Function<Method, String> METHOD_NAME = new Function<Method, String>() {
+        @Override
+        public String apply(final Method method) {
+            return method.getName();
+        }
+    };
+
+    // DAO implementations live in the dao package of their module (e.g. org.killbill.billing.account.dao)
+    @VisibleForTesting
+    static final Matcher<Class> DAO_CLASS_MATCHER = new AbstractMatcher<Class>() {
+        @Override
+        public boolean matches(final Class clazz) {
+            return !clazz.isInterface() && clazz.getPackage() != null && clazz.getPackage().getName().endsWith(".dao");
+        }
+    };
+
     private static final Matcher<Method> SYNTHETIC_METHOD_MATCHER = new Matcher<Method>() {
         @Override
         public boolean matches(final Method method) {
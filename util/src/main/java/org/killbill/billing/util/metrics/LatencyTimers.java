@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Function;
+
+/**
+ * Always-on latency timers, one per operation, registered in the MetricRegistry (and therefore exposed by the
+ * metrics servlet and over JMX).
+ * <p>
+ * Timers are backed by a fixed-size window of the latest measurements (see LockFreeSlidingWindowReservoir) and are
+ * cached per key: once the timer for an operation exists, recording a latency neither allocates nor locks.
+ *
+ * @param <K> operation key type (e.g. Method)
+ */
+public class LatencyTimers<K> {
+
+    private static final int RESERVOIR_SIZE = 1028;
+
+    private final MetricRegistry metricRegistry;
+    private final String prefix;
+    private final Function<K, String> operationName;
+    private final ConcurrentMap<K, Timer> timers = new ConcurrentHashMap<K, Timer>();
+
+    public LatencyTimers(final MetricRegistry metricRegistry, final String prefix, final Function<K, String> operationName) {
+        this.metricRegistry = metricRegistry;
+        this.prefix = prefix;
+        this.operationName = operationName;
+    }
+
+    public Timer getTimer(final K key) {
+        final Timer timer = timers.get(key);
+        if (timer != null) {
+            return timer;
+        }
+
+        final Timer newTimer = getOrRegisterTimer(metricRegistry, MetricRegistry.name(prefix, operationName.apply(key)));
+        final Timer existingTimer = timers.putIfAbsent(key, newTimer);
+        return existingTimer != null ? existingTimer : newTimer;
+    }
+
+    public void update(final K key, final long startNanos) {
+        getTimer(key).update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public static Timer getOrRegisterTimer(final MetricRegistry metricRegistry, final String name) {
+        try {
+            return metricRegistry.register(name, new Timer(new LockFreeSlidingWindowReservoir(RESERVOIR_SIZE)));
+        } catch (final IllegalArgumentException e) {
+            // Already registered (e.g. by another instance)
+            return metricRegistry.timer(name);
+        }
+    }
+}
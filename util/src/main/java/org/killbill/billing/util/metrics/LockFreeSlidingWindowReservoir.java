@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.UniformSnapshot;
+
+/**
+ * Same window as SlidingWindowReservoir (the latest measurements), without its lock: each update claims a slot with
+ * a single atomic increment. SlidingWindowReservoir and ExponentiallyDecayingReservoir serialize all threads recording
+ * the same operation, UniformReservoir samples over the whole lifetime of the process.
+ * <p>
+ * A snapshot taken while updates are in flight may see a slot claimed but not written yet: snapshots are approximate.
+ */
+class LockFreeSlidingWindowReservoir implements Reservoir {
+
+    private final AtomicLongArray measurements;
+    private final AtomicLong count = new AtomicLong();
+
+    LockFreeSlidingWindowReservoir(final int size) {
+        this.measurements = new AtomicLongArray(size);
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(count.get(), measurements.length());
+    }
+
+    @Override
+    public void update(final long value) {
+        final long slot = count.getAndIncrement() % measurements.length();
+        measurements.set((int) slot, value);
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        final long[] values = new long[size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = measurements.get(i);
+        }
+        return new UniformSnapshot(values);
+    }
+}
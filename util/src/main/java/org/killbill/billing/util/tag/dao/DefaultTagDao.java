@@ -37,7 +37,7 @@ import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.Pagination;
-import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.KeysetPaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.EntityDaoBase;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
@@ -220,7 +220,7 @@ public class DefaultTagDao extends EntityDaoBase<TagModelDao, Tag, TagApiExcepti
     @Override
     public Pagination<TagModelDao> searchTags(final String searchKey, final Long offset, final Long limit, final InternalTenantContext context) {
         return paginationHelper.getPagination(TagSqlDao.class,
-                                              new PaginationIteratorBuilder<TagModelDao, Tag, TagSqlDao>() {
+                                              new KeysetPaginationIteratorBuilder<TagModelDao, Tag, TagSqlDao>(searchKey) {
                                                   @Override
                                                   public Long getCount(final TagSqlDao tagSqlDao, final InternalTenantContext context) {
                                                       return tagSqlDao.getSearchCount(searchKey, String.format("%%%s%%", searchKey), context);
@@ -230,6 +230,16 @@ public class DefaultTagDao extends EntityDaoBase<TagModelDao, Tag, TagApiExcepti
                                                   public Iterator<TagModelDao> build(final TagSqlDao tagSqlDao, final Long limit, final InternalTenantContext context) {
                                                       return tagSqlDao.search(searchKey, String.format("%%%s%%", searchKey), offset, limit, context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<TagModelDao> buildAfterRecordId(final TagSqlDao tagSqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return tagSqlDao.searchAfterRecordId(searchKey, String.format("%%%s%%", searchKey), lastSeenRecordId, limit, context);
+                                                  }
+
+                                                  @Override
+                                                  public Long getLastRecordIdAfterRecordId(final TagSqlDao tagSqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context) {
+                                                      return tagSqlDao.searchLastRecordIdAfterRecordId(searchKey, String.format("%%%s%%", searchKey), lastSeenRecordId, limit, context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+public class TestCacheInvalidationBroadcaster extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testKeysEncoding() throws Exception {
+        final UUID uuid = UUID.randomUUID();
+        Assert.assertEquals(CacheInvalidationBroadcaster.decodeKey(CacheInvalidationBroadcaster.encodeKey(uuid)), uuid);
+        Assert.assertEquals(CacheInvalidationBroadcaster.decodeKey(CacheInvalidationBroadcaster.encodeKey(12L)), 12L);
+        Assert.assertEquals(CacheInvalidationBroadcaster.decodeKey(CacheInvalidationBroadcaster.encodeKey(12)), 12);
+        Assert.assertEquals(CacheInvalidationBroadcaster.decodeKey(CacheInvalidationBroadcaster.encodeKey("12")), "12");
+        Assert.assertNull(CacheInvalidationBroadcaster.encodeKey(new Object()));
+    }
+
+    @Test(groups = "fast")
+    public void testCoalescing() throws Exception {
+        final CacheInvalidationBroadcaster broadcaster = new CacheInvalidationBroadcaster();
+
+        broadcaster.invalidate(CacheType.TENANT_KV, "key1");
+        broadcaster.invalidate(CacheType.TENANT_KV, "key2");
+        broadcaster.invalidate(CacheType.TENANT_KV, "key1");
+        broadcaster.invalidate(CacheType.TENANT_CATALOG, 1L);
+        broadcaster.invalidateAll(CacheType.TENANT_CATALOG);
+        broadcaster.invalidate(CacheType.TENANT_CATALOG, 2L);
+
+        final Map<CacheType, Set<String>> pendingInvalidations = broadcaster.drainPendingInvalidations();
+        Assert.assertEquals(pendingInvalidations.size(), 2);
+        Assert.assertEquals(pendingInvalidations.get(CacheType.TENANT_KV), ImmutableSet.<String>of("S:key1", "S:key2"));
+        Assert.assertEquals(pendingInvalidations.get(CacheType.TENANT_CATALOG), ImmutableSet.<String>of(CacheInvalidationBroadcaster.ALL_KEYS));
+
+        Assert.assertTrue(broadcaster.drainPendingInvalidations().isEmpty());
+
+        // Too many keys: the whole cache is invalidated
+        for (int i = 0; i < 2000; i++) {
+            broadcaster.invalidate(CacheType.TENANT_KV, "key" + i);
+        }
+        Assert.assertEquals(broadcaster.drainPendingInvalidations().get(CacheType.TENANT_KV), ImmutableSet.<String>of(CacheInvalidationBroadcaster.ALL_KEYS));
+    }
+
+    @Test(groups = "fast")
+    public void testLocalInvalidationsAreNotBroadcast() throws Exception {
+        final CacheInvalidationBroadcaster broadcaster = new CacheInvalidationBroadcaster();
+        final CacheController<Object, Object> delegate = Mockito.mock(CacheController.class);
+        Mockito.when(delegate.getCacheType()).thenReturn(CacheType.TENANT_KV);
+        final BroadcastingCacheController<Object, Object> cacheController = new BroadcastingCacheController<Object, Object>(delegate, broadcaster);
+
+        // e.g. invalidations triggered by the tenant broadcasts, which every node processes
+        broadcaster.runWithLocalInvalidationsOnly(new Runnable() {
+            @Override
+            public void run() {
+                cacheController.remove("key1");
+                cacheController.removeAll();
+            }
+        });
+        Mockito.verify(delegate).remove("key1");
+        Mockito.verify(delegate).removeAll();
+        Assert.assertTrue(broadcaster.drainPendingInvalidations().isEmpty());
+        Assert.assertFalse(broadcaster.isLocalInvalidationsOnly());
+
+        cacheController.remove("key2");
+        Assert.assertEquals(broadcaster.drainPendingInvalidations().get(CacheType.TENANT_KV), ImmutableSet.<String>of("S:key2"));
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Ticker;
+
+public class TestNearCacheBasedCacheController extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testHitsMissesAndInvalidation() throws Exception {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final MapBasedCacheController delegate = new MapBasedCacheController();
+        final NearCacheBasedCacheController<Object, Object> nearCache = new NearCacheBasedCacheController<Object, Object>(delegate, 10, 0, metricRegistry);
+
+        delegate.add("A", 1L);
+        Assert.assertEquals(nearCache.get("A"), 1L);
+        Assert.assertEquals(nearCache.get("A"), 1L);
+        Assert.assertEquals(delegate.nbGets, 1);
+        Assert.assertEquals(metricRegistry.counter(MetricRegistry.name(NearCacheBasedCacheController.class, CacheType.RECORD_ID.getCacheName(), "hits")).getCount(), 1);
+        Assert.assertEquals(metricRegistry.counter(MetricRegistry.name(NearCacheBasedCacheController.class, CacheType.RECORD_ID.getCacheName(), "misses")).getCount(), 1);
+
+        // Negative lookups go to the delegate
+        Assert.assertNull(nearCache.get("B"));
+        Assert.assertNull(nearCache.get("B"));
+        Assert.assertEquals(delegate.nbGets, 3);
+
+        Assert.assertTrue(nearCache.remove("A"));
+        Assert.assertNull(nearCache.get("A"));
+
+        nearCache.add("C", 3L);
+        nearCache.removeAll();
+        Assert.assertNull(nearCache.get("C"));
+    }
+
+    @Test(groups = "fast")
+    public void testEviction() throws Exception {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final MapBasedCacheController delegate = new MapBasedCacheController();
+        final NearCacheBasedCacheController<Object, Object> nearCache = new NearCacheBasedCacheController<Object, Object>(delegate, 10, 0, metricRegistry);
+
+        // Frequently accessed entry
+        nearCache.add("hot", 0L);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(nearCache.get("hot"), 0L);
+        }
+
+        for (long i = 0; i < 100; i++) {
+            nearCache.add("key-" + i, i);
+        }
+        Assert.assertEquals(metricRegistry.counter(MetricRegistry.name(NearCacheBasedCacheController.class, CacheType.RECORD_ID.getCacheName(), "evictions")).getCount(), 91);
+
+        // Still in the near cache
+        final int nbGets = delegate.nbGets;
+        Assert.assertEquals(nearCache.get("key-99"), 99L);
+        Assert.assertEquals(delegate.nbGets, nbGets);
+
+        // Evicted entries are still available from the delegate
+        Assert.assertEquals(nearCache.get("key-0"), 0L);
+        Assert.assertEquals(delegate.nbGets, nbGets + 1);
+    }
+
+    @Test(groups = "fast")
+    public void testConcurrentInvalidationDuringLoad() throws Exception {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final AtomicReference<NearCacheBasedCacheController<Object, Object>> nearCacheRef = new AtomicReference<NearCacheBasedCacheController<Object, Object>>();
+        final MapBasedCacheController delegate = new MapBasedCacheController() {
+            @Override
+            public Object get(final Object key) {
+                final Object value = super.get(key);
+                if (nbGets == 1) {
+                    // Invalidation racing with the load: the (stale) value returned below must not end up in the near cache
+                    nearCacheRef.get().remove(key);
+                    super.add(key, 2L);
+                }
+                return value;
+            }
+        };
+        final NearCacheBasedCacheController<Object, Object> nearCache = new NearCacheBasedCacheController<Object, Object>(delegate, 10, 0, metricRegistry);
+        nearCacheRef.set(nearCache);
+
+        delegate.add("A", 1L);
+        Assert.assertEquals(nearCache.get("A"), 1L);
+        Assert.assertEquals(nearCache.get("A"), 2L);
+        Assert.assertEquals(delegate.nbGets, 2);
+
+        // Subsequent loads are cached again
+        Assert.assertEquals(nearCache.get("A"), 2L);
+        Assert.assertEquals(delegate.nbGets, 2);
+    }
+
+    @Test(groups = "fast")
+    public void testExpiration() throws Exception {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final MapBasedCacheController delegate = new MapBasedCacheController();
+        final AtomicLong nowNanos = new AtomicLong(0);
+        final NearCacheBasedCacheController<Object, Object> nearCache = new NearCacheBasedCacheController<Object, Object>(delegate, 10, 60, metricRegistry, new Ticker() {
+            @Override
+            public long read() {
+                return nowNanos.get();
+            }
+        });
+
+        delegate.add("A", 1L);
+        Assert.assertEquals(nearCache.get("A"), 1L);
+        nowNanos.set(TimeUnit.SECONDS.toNanos(59));
+        Assert.assertEquals(nearCache.get("A"), 1L);
+        Assert.assertEquals(delegate.nbGets, 1);
+
+        // Past the time to live of the underlying cache, the entry is re-loaded from the delegate
+        nowNanos.set(TimeUnit.SECONDS.toNanos(60));
+        Assert.assertEquals(nearCache.get("A"), 1L);
+        Assert.assertEquals(delegate.nbGets, 2);
+        Assert.assertEquals(nearCache.get("A"), 1L);
+        Assert.assertEquals(delegate.nbGets, 2);
+    }
+
+    private static class MapBasedCacheController implements CacheController<Object, Object> {
+
+        private final Map<Object, Object> map = new HashMap<Object, Object>();
+
+        protected int nbGets = 0;
+
+        @Override
+        public void add(final Object key, final Object value) {
+            map.put(key, value);
+        }
+
+        @Override
+        public Object get(final Object key, final CacheLoaderArgument objectType) {
+            return get(key);
+        }
+
+        @Override
+        public Object get(final Object key) {
+            nbGets++;
+            return map.get(key);
+        }
+
+        @Override
+        public boolean remove(final Object key) {
+            return map.remove(key) != null;
+        }
+
+        @Override
+        public void putIfAbsent(final Object key, final Object value) {
+            if (!map.containsKey(key)) {
+                map.put(key, value);
+            }
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public void removeAll() {
+            map.clear();
+        }
+
+        @Override
+        public CacheType getCacheType() {
+            return CacheType.RECORD_ID;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.loader.CacheLoader;
+
+public class TestTimedCacheLoader extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testLoadsAreTimed() throws Exception {
+        final CacheLoader delegate = Mockito.mock(CacheLoader.class);
+        Mockito.when(delegate.load("A")).thenReturn(1L);
+        Mockito.when(delegate.load("B", "argument")).thenReturn(2L);
+        final Timer loadTimer = new MetricRegistry().timer("loads");
+        final TimedCacheLoader cacheLoader = new TimedCacheLoader(delegate, loadTimer);
+
+        Assert.assertEquals(cacheLoader.load("A"), 1L);
+        Assert.assertEquals(loadTimer.getCount(), 1);
+        Assert.assertEquals(cacheLoader.load("B", "argument"), 2L);
+        Assert.assertEquals(loadTimer.getCount(), 2);
+    }
+
+    @Test(groups = "fast")
+    public void testFailedLoadsAreTimed() throws Exception {
+        final CacheLoader delegate = Mockito.mock(CacheLoader.class);
+        Mockito.when(delegate.load("A")).thenThrow(new CacheException("boom"));
+        final Timer loadTimer = new MetricRegistry().timer("loads");
+        final TimedCacheLoader cacheLoader = new TimedCacheLoader(delegate, loadTimer);
+
+        try {
+            cacheLoader.load("A");
+            Assert.fail();
+        } catch (final CacheException e) {
+            Assert.assertEquals(e.getMessage(), "boom");
+        }
+        Assert.assertEquals(loadTimer.getCount(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testOtherCallsAreDelegated() throws Exception {
+        final CacheLoader delegate = Mockito.mock(CacheLoader.class);
+        Mockito.when(delegate.getName()).thenReturn("record-id-loader");
+        final Timer loadTimer = new MetricRegistry().timer("loads");
+        final TimedCacheLoader cacheLoader = new TimedCacheLoader(delegate, loadTimer);
+
+        Assert.assertEquals(cacheLoader.getName(), "record-id-loader");
+        cacheLoader.init();
+        Mockito.verify(delegate).init();
+        Assert.assertEquals(loadTimer.getCount(), 0);
+    }
+}
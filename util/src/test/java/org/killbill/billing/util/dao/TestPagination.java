@@ -16,13 +16,21 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.Iterator;
 import java.util.List;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import org.killbill.billing.api.TestApiListener.NextEvent;
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.entity.DefaultPagination;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.KeysetPaginationIteratorBuilder;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
+import org.killbill.billing.util.entity.dao.PaginationCursor;
+import org.killbill.billing.util.tag.TagDefinition;
 import org.killbill.billing.util.tag.dao.TagDefinitionModelDao;
 import org.killbill.billing.util.tag.dao.TagDefinitionSqlDao;
 
@@ -74,4 +82,93 @@ public class TestPagination extends UtilTestSuiteWithEmbeddedDB {
             }
         }
     }
+
+    @Test(groups = "slow", description = "Test Pagination: sequential pages resumed from the cursor of the previous page")
+    public void testKeysetPagination() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            eventsListener.pushExpectedEvent(NextEvent.TAG_DEFINITION);
+            tagDefinitionDao.create("name-" + i, "description-" + i, internalCallContext);
+            assertListenerStatus();
+        }
+
+        final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, controlCacheDispatcher, nonEntityDao);
+        final int[] nbKeysetQueries = {0};
+
+        // Not requested (e.g. disabled in the JAX-RS configuration): no cursor
+        final DefaultPagination<TagDefinitionModelDao> firstPageWithoutCursor = getTagDefinitions(transactionalSqlDao, 0L, nbKeysetQueries);
+        Assert.assertEquals(ImmutableList.<TagDefinitionModelDao>copyOf(firstPageWithoutCursor).size(), 3);
+        Assert.assertNull(firstPageWithoutCursor.getNextPageCursor());
+        Assert.assertEquals(nbKeysetQueries[0], 0);
+
+        String cursor = null;
+        for (int page = 0; page < 4; page++) {
+            final long offset = page * 3L;
+            PaginationCursor.setPerThreadPaginationCursor(cursor);
+            final DefaultPagination<TagDefinitionModelDao> pagination;
+            try {
+                // Nothing is kept server side: each page could be served by a different node
+                pagination = getTagDefinitions(new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, controlCacheDispatcher, nonEntityDao), offset, nbKeysetQueries);
+            } finally {
+                PaginationCursor.resetPerThreadPaginationCursor();
+            }
+
+            final List<TagDefinitionModelDao> tagDefinitions = ImmutableList.<TagDefinitionModelDao>copyOf(pagination);
+            Assert.assertEquals(tagDefinitions.size(), page < 3 ? 3 : 1);
+            for (int j = 0; j < tagDefinitions.size(); j++) {
+                Assert.assertEquals(tagDefinitions.get(j).getName(), "name-" + (offset + j));
+            }
+            cursor = pagination.getNextPageCursor();
+            Assert.assertEquals(cursor == null, page == 3);
+        }
+        // Every page, including the first one, was served by a seek
+        Assert.assertEquals(nbKeysetQueries[0], 4);
+
+        // A cursor which doesn't match the requested page is ignored (the offset is used instead)
+        final String secondPageCursor;
+        PaginationCursor.setPerThreadPaginationCursor(null);
+        try {
+            final DefaultPagination<TagDefinitionModelDao> firstPage = getTagDefinitions(transactionalSqlDao, 0L, nbKeysetQueries);
+            Assert.assertEquals(ImmutableList.<TagDefinitionModelDao>copyOf(firstPage).size(), 3);
+            secondPageCursor = firstPage.getNextPageCursor();
+            Assert.assertEquals(nbKeysetQueries[0], 5);
+
+            PaginationCursor.setPerThreadPaginationCursor(secondPageCursor);
+            final List<TagDefinitionModelDao> thirdPage = ImmutableList.<TagDefinitionModelDao>copyOf(getTagDefinitions(transactionalSqlDao, 6L, nbKeysetQueries));
+            Assert.assertEquals(thirdPage.size(), 3);
+            Assert.assertEquals(thirdPage.get(0).getName(), "name-6");
+            Assert.assertEquals(nbKeysetQueries[0], 5);
+        } finally {
+            PaginationCursor.resetPerThreadPaginationCursor();
+        }
+    }
+
+    private DefaultPagination<TagDefinitionModelDao> getTagDefinitions(final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao, final long offset, final int[] nbKeysetQueries) {
+        final DefaultPaginationSqlDaoHelper paginationHelper = new DefaultPaginationSqlDaoHelper(transactionalSqlDao);
+        return (DefaultPagination<TagDefinitionModelDao>) paginationHelper.getPagination(TagDefinitionSqlDao.class,
+                                                                                          new KeysetPaginationIteratorBuilder<TagDefinitionModelDao, TagDefinition, TagDefinitionSqlDao>("") {
+                                                                                              @Override
+                                                                                              public Long getCount(final TagDefinitionSqlDao sqlDao, final InternalTenantContext context) {
+                                                                                                  return sqlDao.getCount(context);
+                                                                                              }
+
+                                                                                              @Override
+                                                                                              public Iterator<TagDefinitionModelDao> build(final TagDefinitionSqlDao sqlDao, final Long limit, final InternalTenantContext context) {
+                                                                                                  return sqlDao.get(offset, limit, "record_id", context);
+                                                                                              }
+
+                                                                                              @Override
+                                                                                              public Iterator<TagDefinitionModelDao> buildAfterRecordId(final TagDefinitionSqlDao sqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context) {
+                                                                                                  nbKeysetQueries[0]++;
+                                                                                                  return sqlDao.getAfterRecordId(lastSeenRecordId, limit, context);
+                                                                                              }
+
+                                                                                              @Override
+                                                                                              public Long getLastRecordIdAfterRecordId(final TagDefinitionSqlDao sqlDao, final Long lastSeenRecordId, final Long limit, final InternalTenantContext context) {
+                                                                                                  return sqlDao.getLastRecordIdAfterRecordId(lastSeenRecordId, limit, context);
+                                                                                              }
+                                                                                          },
+                                                                                          offset,
+                                                                                          3L,
+                                                                                          internalCallContext);
+    }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestPaginationCursor extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testEncodeDecode() throws Exception {
+        final String cursor = PaginationCursor.encode("AccountSqlDao::1::foo", 100L, 12345L);
+        Assert.assertEquals(PaginationCursor.decode(cursor, "AccountSqlDao::1::foo", 100L), (Long) 12345L);
+
+        // Different page, query, search key or tenant
+        Assert.assertNull(PaginationCursor.decode(cursor, "AccountSqlDao::1::foo", 200L));
+        Assert.assertNull(PaginationCursor.decode(cursor, "BundleSqlDao::1::foo", 100L));
+        Assert.assertNull(PaginationCursor.decode(cursor, "AccountSqlDao::1::bar", 100L));
+        Assert.assertNull(PaginationCursor.decode(cursor, "AccountSqlDao::2::foo", 100L));
+    }
+
+    @Test(groups = "fast")
+    public void testInvalidCursors() throws Exception {
+        Assert.assertNull(PaginationCursor.decode(null, "AccountSqlDao::1::foo", 100L));
+        Assert.assertNull(PaginationCursor.decode("", "AccountSqlDao::1::foo", 100L));
+        Assert.assertNull(PaginationCursor.decode("not a cursor!", "AccountSqlDao::1::foo", 100L));
+        Assert.assertNull(PaginationCursor.decode("MTAwOmZvbzpiYXI", "AccountSqlDao::1::foo", 100L));
+    }
+
+    @Test(groups = "fast")
+    public void testPerThreadPaginationCursor() throws Exception {
+        Assert.assertNull(PaginationCursor.getPerThreadPaginationCursor());
+
+        PaginationCursor.setPerThreadPaginationCursor(null);
+        Assert.assertNotNull(PaginationCursor.getPerThreadPaginationCursor());
+        Assert.assertNull(PaginationCursor.getPerThreadPaginationCursor().getRequestedCursor());
+
+        PaginationCursor.setPerThreadPaginationCursor("abc");
+        Assert.assertEquals(PaginationCursor.getPerThreadPaginationCursor().getRequestedCursor(), "abc");
+
+        PaginationCursor.resetPerThreadPaginationCursor();
+        Assert.assertNull(PaginationCursor.getPerThreadPaginationCursor());
+    }
+}
@@ -20,6 +20,9 @@ import java.io.ByteArrayOutputStream;
 import java.util.Date;
 import java.util.UUID;
 
+import javax.inject.Inject;
+
+import org.mockito.Mockito;
 import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.tweak.HandleCallback;
 import org.testng.Assert;
@@ -27,11 +30,16 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.api.DatabaseExportOutputStream;
+import org.killbill.billing.util.config.ExportConfig;
 import org.killbill.billing.util.validation.dao.DatabaseSchemaDao;
 
 public class TestDatabaseExportDao extends UtilTestSuiteWithEmbeddedDB {
 
+    @Inject
+    private DatabaseSchemaDao databaseSchemaDao;
+
     @Test(groups = "slow")
     public void testExportSimpleData() throws Exception {
         // Empty database
@@ -87,11 +95,114 @@ public class TestDatabaseExportDao extends UtilTestSuiteWithEmbeddedDB {
                                      "1,a," + internalCallContext.getAccountRecordId() + "," + internalCallContext.getTenantRecordId() + "\n" +
                                      "-- " + tableNameB + " record_id,b_column,account_record_id,tenant_record_id\n" +
                                      "1,b," + internalCallContext.getAccountRecordId() + "," + internalCallContext.getTenantRecordId() + "\n");
+
+        // Only one account in the tenant
+        Assert.assertEquals(getTenantDump(), newDump);
+    }
+
+    @Test(groups = "slow")
+    public void testExportFiltersByAccountAndTenant() throws Exception {
+        final Long tenantRecordId = internalCallContext.getTenantRecordId();
+        final Long otherTenantRecordId = tenantRecordId + 1;
+        final Long accountRecordId = internalCallContext.getAccountRecordId();
+        final Long otherAccountRecordId = accountRecordId + 1;
+        final Long otherTenantAccountRecordId = accountRecordId + 2;
+
+        final String tableName = "test_database_export_dao_c";
+        dbi.withHandle(new HandleCallback<Void>() {
+            @Override
+            public Void withHandle(final Handle handle) throws Exception {
+                // Tables created by the other tests of this class
+                handle.execute("drop table if exists test_database_export_dao_a");
+                handle.execute("drop table if exists test_database_export_dao_b");
+                handle.execute("drop table if exists " + tableName);
+                handle.execute("create table " + tableName + "(record_id serial unique," +
+                               "c_column varchar(8)," +
+                               "account_record_id bigint /*! unsigned */ not null," +
+                               "tenant_record_id bigint /*! unsigned */ not null default 0," +
+                               "primary key(record_id));");
+                // Rows of both tenants are interleaved, to make sure chunks filter on the tenant too
+                insertRow(handle, tableName, "a1", accountRecordId, tenantRecordId);
+                insertRow(handle, tableName, "c1", otherTenantAccountRecordId, otherTenantRecordId);
+                insertRow(handle, tableName, "b1", otherAccountRecordId, tenantRecordId);
+                insertRow(handle, tableName, "a2", accountRecordId, tenantRecordId);
+                insertRow(handle, tableName, "c2", otherTenantAccountRecordId, otherTenantRecordId);
+                insertRow(handle, tableName, "a3", accountRecordId, tenantRecordId);
+
+                insertAccount(handle, accountRecordId, tenantRecordId);
+                insertAccount(handle, otherAccountRecordId, tenantRecordId);
+                insertAccount(handle, otherTenantAccountRecordId, otherTenantRecordId);
+                return null;
+            }
+        });
+
+        final String accountsHeader = "-- accounts record_id,id,external_key,email,name,first_name_length,currency,billing_cycle_day_local,payment_method_id,time_zone,locale,address1,address2,company_name,city,state_or_province,country,postal_code,phone,migrated,is_notified_for_invoices,created_date,created_by,updated_date,updated_by,tenant_record_id\n";
+        final String tableHeader = "-- " + tableName + " record_id,c_column,account_record_id,tenant_record_id\n";
+
+        final String expectedAccountDump = accountsHeader +
+                                           accountLine(accountRecordId, tenantRecordId) +
+                                           tableHeader +
+                                           "1,a1," + accountRecordId + "," + tenantRecordId + "\n" +
+                                           "4,a2," + accountRecordId + "," + tenantRecordId + "\n" +
+                                           "6,a3," + accountRecordId + "," + tenantRecordId + "\n";
+        final String expectedTenantDump = accountsHeader +
+                                          accountLine(accountRecordId, tenantRecordId) +
+                                          accountLine(otherAccountRecordId, tenantRecordId) +
+                                          tableHeader +
+                                          "1,a1," + accountRecordId + "," + tenantRecordId + "\n" +
+                                          "3,b1," + otherAccountRecordId + "," + tenantRecordId + "\n" +
+                                          "4,a2," + accountRecordId + "," + tenantRecordId + "\n" +
+                                          "6,a3," + accountRecordId + "," + tenantRecordId + "\n";
+        Assert.assertEquals(getDump(), expectedAccountDump);
+        Assert.assertEquals(getTenantDump(), expectedTenantDump);
+
+        // Same results when the tables are read one row per query
+        final ExportConfig exportConfig = Mockito.mock(ExportConfig.class);
+        Mockito.when(exportConfig.getExportThreadNb()).thenReturn(2);
+        Mockito.when(exportConfig.getExportTableBufferSize()).thenReturn(1);
+        final DatabaseExportDao chunkedDao = new DatabaseExportDao(databaseSchemaDao, dbi, exportConfig);
+        Assert.assertEquals(getDump(chunkedDao, internalCallContext, true), expectedAccountDump);
+        Assert.assertEquals(getDump(chunkedDao, internalCallContext, false), expectedTenantDump);
+
+        dbi.withHandle(new HandleCallback<Void>() {
+            @Override
+            public Void withHandle(final Handle handle) throws Exception {
+                handle.execute("drop table " + tableName);
+                return null;
+            }
+        });
+    }
+
+    private void insertRow(final Handle handle, final String tableName, final String value, final Long accountRecordId, final Long tenantRecordId) {
+        handle.execute("insert into " + tableName + " (c_column, account_record_id, tenant_record_id) values (?, ?, ?)", value, accountRecordId, tenantRecordId);
+    }
+
+    private void insertAccount(final Handle handle, final Long accountRecordId, final Long tenantRecordId) {
+        handle.execute("insert into accounts (record_id, id, email, name, first_name_length, is_notified_for_invoices, created_date, created_by, updated_date, updated_by, tenant_record_id) " +
+                       "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                       accountRecordId, "account-" + accountRecordId, "email", "name", 4, false, new Date(12421982000L), "test", new Date(12421982000L), "test", tenantRecordId);
+    }
+
+    private String accountLine(final Long accountRecordId, final Long tenantRecordId) {
+        return String.format("%s,\"account-%s\",,email,name,4,,,,,,,,,,,,,,false,false,\"%s\",test,\"%s\",test,%s\n",
+                             accountRecordId, accountRecordId, "1970-05-24T18:33:02.000+0000", "1970-05-24T18:33:02.000+0000", tenantRecordId);
     }
 
     private String getDump() {
+        return getDump(dao, internalCallContext, true);
+    }
+
+    private String getTenantDump() {
+        return getDump(dao, internalCallContext, false);
+    }
+
+    private String getDump(final DatabaseExportDao exportDao, final InternalTenantContext context, final boolean filterByAccount) {
         final DatabaseExportOutputStream out = new CSVExportOutputStream(new ByteArrayOutputStream());
-        dao.exportDataForAccount(out, internalCallContext);
+        if (filterByAccount) {
+            exportDao.exportDataForAccount(out, context);
+        } else {
+            exportDao.exportDataForTenant(out, context);
+        }
         return out.toString();
     }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.glue;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.audit.dao.DefaultAuditDao;
+import org.killbill.billing.util.dao.DefaultNonEntityDao;
+import org.killbill.billing.util.dao.NonEntityDao;
+import org.killbill.billing.util.glue.KillbillApiAopModule.TimingMethodInterceptor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.matcher.Matchers;
+
+public class TestKillbillApiAopModule extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testTimersAreNamedAfterTheUnenhancedClass() throws Exception {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final TimedService service = createTimedService(metricRegistry);
+        Assert.assertNotEquals(service.getClass(), TimedService.class);
+
+        service.inner();
+        service.inner();
+
+        Assert.assertEquals(metricRegistry.getTimers().keySet().size(), 1);
+        Assert.assertEquals(metricRegistry.getTimers().get("dao.TimedService.inner").getCount(), 2);
+    }
+
+    @Test(groups = "fast")
+    public void testOnlyTheOutermostCallIsTimed() throws Exception {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final TimedService service = createTimedService(metricRegistry);
+
+        // The call to inner() goes through the interceptor as well
+        service.outer();
+        Assert.assertEquals(metricRegistry.getTimers().keySet().size(), 1);
+        Assert.assertEquals(metricRegistry.getTimers().get("dao.TimedService.outer").getCount(), 1);
+
+        // Including when the outermost call fails
+        try {
+            service.failing();
+            Assert.fail();
+        } catch (final IllegalStateException e) {
+            Assert.assertEquals(metricRegistry.getTimers().get("dao.TimedService.failing").getCount(), 1);
+        }
+        service.inner();
+        Assert.assertEquals(metricRegistry.getTimers().get("dao.TimedService.inner").getCount(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testDaoClassMatcher() throws Exception {
+        Assert.assertTrue(KillbillApiAopModule.DAO_CLASS_MATCHER.matches(DefaultNonEntityDao.class));
+        Assert.assertTrue(KillbillApiAopModule.DAO_CLASS_MATCHER.matches(DefaultAuditDao.class));
+        Assert.assertFalse(KillbillApiAopModule.DAO_CLASS_MATCHER.matches(NonEntityDao.class));
+        Assert.assertFalse(KillbillApiAopModule.DAO_CLASS_MATCHER.matches(TimedService.class));
+    }
+
+    private TimedService createTimedService(final MetricRegistry metricRegistry) {
+        final Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(MetricRegistry.class).toInstance(metricRegistry);
+                bindInterceptor(Matchers.subclassesOf(TimedService.class),
+                                Matchers.any(),
+                                new TimingMethodInterceptor(getProvider(MetricRegistry.class), "dao"));
+            }
+        });
+        return injector.getInstance(TimedService.class);
+    }
+
+    public static class TimedService {
+
+        public void outer() {
+            inner();
+        }
+
+        public void inner() {
+        }
+
+        public void failing() {
+            inner();
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.metrics;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Functions;
+
+public class TestLatencyTimers extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testTimersAreRegisteredOnce() throws Exception {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final LatencyTimers<String> timers = new LatencyTimers<String>(metricRegistry, "test", Functions.<String>identity());
+
+        final Timer timer = timers.getTimer("op");
+        Assert.assertSame(timers.getTimer("op"), timer);
+        Assert.assertSame(metricRegistry.getTimers().get("test.op"), timer);
+
+        timers.update("op", System.nanoTime());
+        timers.update("op", System.nanoTime());
+        Assert.assertEquals(timer.getCount(), 2);
+
+        // A second instance shares the registered timers
+        final LatencyTimers<String> otherTimers = new LatencyTimers<String>(metricRegistry, "test", Functions.<String>identity());
+        Assert.assertSame(otherTimers.getTimer("op"), timer);
+        Assert.assertEquals(metricRegistry.getTimers().size(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testReservoirKeepsTheLatestMeasurements() throws Exception {
+        final LockFreeSlidingWindowReservoir reservoir = new LockFreeSlidingWindowReservoir(3);
+        Assert.assertEquals(reservoir.size(), 0);
+        Assert.assertEquals(reservoir.getSnapshot().size(), 0);
+
+        reservoir.update(1);
+        reservoir.update(2);
+        Assert.assertEquals(reservoir.size(), 2);
+        Assert.assertEquals(reservoir.getSnapshot().getValues(), new long[]{1, 2});
+
+        reservoir.update(3);
+        reservoir.update(4);
+        reservoir.update(5);
+        Assert.assertEquals(reservoir.size(), 3);
+        final Snapshot snapshot = reservoir.getSnapshot();
+        Assert.assertEquals(snapshot.getValues(), new long[]{3, 4, 5});
+        Assert.assertEquals(snapshot.getMin(), 3);
+        Assert.assertEquals(snapshot.getMax(), 5);
+    }
+}
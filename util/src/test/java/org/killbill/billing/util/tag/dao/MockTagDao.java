@@ -88,12 +88,22 @@ public class MockTagDao extends MockEntityDaoBase<TagModelDao, Tag, TagApiExcept
 
     @Override
     public List<TagModelDao> getTagsForAccountType(final ObjectType objectType, final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
-        throw new UnsupportedOperationException();
+        return ImmutableList.<TagModelDao>copyOf(Collections2.filter(getTagsForAccount(includedDeleted, internalTenantContext), new Predicate<TagModelDao>() {
+            @Override
+            public boolean apply(final TagModelDao input) {
+                return objectType.equals(input.getObjectType());
+            }
+        }));
     }
 
+    // The mock doesn't track account record ids: all tags are considered to belong to the account
     @Override
     public List<TagModelDao> getTagsForAccount(final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
-        throw new UnsupportedOperationException();
+        final List<TagModelDao> result = new ArrayList<TagModelDao>();
+        for (final List<TagModelDao> tags : tagStore.values()) {
+            result.addAll(tags);
+        }
+        return result;
     }
 
     public void clear() {